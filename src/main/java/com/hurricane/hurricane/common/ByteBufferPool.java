@@ -0,0 +1,64 @@
+package com.hurricane.hurricane.common;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+
+/**
+ * @author larrytaowang
+ *
+ * A pool of direct ByteBuffers of the same size. Connections borrow a buffer only while they are actively doing socket
+ * IO and give it back right after, so idle connections hold no buffer at all. Direct buffers also save the copy the JDK
+ * makes into a temporary direct buffer when a heap buffer is used for channel IO.
+ *
+ * A pool belongs to one EventLoop and is only used by the thread running that loop, so it is not thread-safe.
+ */
+public class ByteBufferPool {
+  /**
+   * Capacity of each buffer in this pool
+   */
+  private final int bufferSize;
+
+  /**
+   * Max count of idle buffers kept in this pool. Buffers released beyond this count are left to GC.
+   */
+  private final int maxPooledCount;
+
+  /**
+   * Idle buffers that can be borrowed
+   */
+  private final Deque<ByteBuffer> buffers;
+
+  public ByteBufferPool(int bufferSize, int maxPooledCount) {
+    this.bufferSize = bufferSize;
+    this.maxPooledCount = maxPooledCount;
+    this.buffers = new ArrayDeque<>();
+  }
+
+  /**
+   * Borrow a cleared buffer from this pool. A new direct buffer is allocated if there is no idle buffer.
+   * @return a cleared direct buffer
+   */
+  public ByteBuffer acquire() {
+    var buffer = buffers.poll();
+    return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  /**
+   * Give a buffer back to this pool. The caller should not use the buffer afterwards.
+   * @param buffer buffer borrowed from this pool
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer.capacity() != bufferSize || buffers.size() >= maxPooledCount) {
+      return;
+    }
+
+    buffer.clear();
+    buffers.push(buffer);
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+}
@@ -11,12 +11,37 @@ public class Constant {
   public static final String HTTP_HEADER_CONNECTION_VALUE_KEEP_ALIVE = "Keep-Alive";
   public static final String HTTP_HEADER_CONNECTION_VALUE_CONNECTION_CLOSE = "close";
 
+  public static final String HTTP_HEADER_KEY_HOST = "Host";
+
   public static final String HTTP_HEADER_KEY_CONTENT_LENGTH = "Content-Length";
   public static final String HTTP_HEADER_KEY_CONTENT_TYPE = "Content-Type";
 
+  public static final String HTTP_HEADER_KEY_TRANSFER_ENCODING = "Transfer-Encoding";
+  public static final String HTTP_HEADER_TRANSFER_ENCODING_VALUE_CHUNKED = "chunked";
+
+  public static final String HTTP_HEADER_KEY_ETAG = "ETag";
+  public static final String HTTP_HEADER_KEY_LAST_MODIFIED = "Last-Modified";
+  public static final String HTTP_HEADER_KEY_IF_MATCH = "If-Match";
+  public static final String HTTP_HEADER_KEY_IF_NONE_MATCH = "If-None-Match";
+  public static final String HTTP_HEADER_KEY_IF_MODIFIED_SINCE = "If-Modified-Since";
+  public static final String HTTP_HEADER_KEY_IF_UNMODIFIED_SINCE = "If-Unmodified-Since";
+  public static final String HTTP_HEADER_KEY_IF_RANGE = "If-Range";
+
+  public static final String HTTP_HEADER_KEY_RANGE = "Range";
+  public static final String HTTP_HEADER_KEY_CONTENT_RANGE = "Content-Range";
+  public static final String HTTP_HEADER_KEY_ACCEPT_RANGES = "Accept-Ranges";
+  public static final String HTTP_RANGE_UNIT_BYTES = "bytes";
+
   public static final String HTTP_HEADER_KEY_EXPECT = "Expect";
   public static final String HTTP_HEADER_EXPECT_VALUE_100_CONTINUE = "100-continue";
 
+  public static final String HTTP_HEADER_KEY_KEEP_ALIVE = "Keep-Alive";
+  public static final String HTTP_HEADER_KEY_PROXY_CONNECTION = "Proxy-Connection";
+  public static final String HTTP_HEADER_KEY_TE = "TE";
+  public static final String HTTP_HEADER_KEY_TRAILER = "Trailer";
+  public static final String HTTP_HEADER_KEY_UPGRADE = "Upgrade";
+  public static final String HTTP_HEADER_KEY_X_FORWARDED_HOST = "X-Forwarded-Host";
+
   public static final String HTTP_HEADER_DELIMITER = "\r\n\r\n";
   public static final String HTTP_HEADER_KEY_VALUE_DELIMITER = "\r\n";
 
@@ -1,16 +1,20 @@
 package com.hurricane.hurricane.common;
 
+import com.hurricane.hurricane.metrics.TcpMetrics;
 import com.hurricane.hurricane.tcp.TcpServer;
 import com.hurricane.hurricane.tcp.connection.TcpConnection;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.channels.SelectionKey;
-import java.util.Comparator;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.log4j.Logger;
 
 
@@ -18,15 +22,42 @@ import org.apache.log4j.Logger;
  * @author larrytaowang
  *
  * A forever loop that handles callbacks, time events and socket IO events. Most single-threaded applications have a
- * single, global IOLoop instance.
+ * single, global IOLoop instance. Multi-threaded servers run an EventLoopGroup, where each loop has its own selector
+ * and thread, and the connections registered to a loop are only touched by the thread running it.
  */
-public class EventLoop {
+public class EventLoop implements Executor {
   private final static Logger logger = Logger.getLogger(EventLoop.class);
 
   /**
-   * Registered callbacks. Each callback will be executed in the current IO loop iteration.
+   * Selector for the network IO events of the channels registered to this loop
    */
-  private Set<TcpCallback> callbacks;
+  private final Selector selector;
+
+  /**
+   * If a wakeup of the selector has been requested since the last select operation returned. Further wakeups are
+   * skipped until then, since they would have no extra effect.
+   */
+  private final AtomicBoolean wakeupPending;
+
+  /**
+   * Thread that is running this loop, or null if the loop is not running
+   */
+  private volatile Thread loopThread;
+
+  /**
+   * Event loop that is running on the current thread
+   */
+  private static final ThreadLocal<EventLoop> currentEventLoop = new ThreadLocal<>();
+
+  /**
+   * Callbacks added by any thread, in FIFO order. They are moved to readyCallbacks by this loop before running.
+   */
+  private final MpscQueue<TcpCallback> callbacks;
+
+  /**
+   * Callbacks taken out of the callbacks queue, but not run yet. Only touched by the thread running this loop.
+   */
+  private final Deque<TcpCallback> readyCallbacks;
 
   /**
    * This map contains selection key of each client socket, and its TcpConnection. A connection contains cache and
@@ -35,26 +66,43 @@ public class EventLoop {
   private Map<SelectionKey, TcpConnection> clientConnections;
 
   /**
-   * Registered time events. Each time event's callback should be executed at the given deadline in event Loop iteration
+   * Registered time events. Each time event's callback should be executed at the given deadline in event Loop
+   * iteration. A min-heap is used by default, and a timing wheel can be set for a large count of timeouts.
    */
-  private PriorityQueue<TimeEvent> timeEvents;
+  private TimeEventQueue timeEvents;
 
   /**
    * Flag for whether event loop is running.
    */
-  private Boolean isRunning;
+  private volatile boolean isRunning;
 
   /**
    * This is the flag for whether event loop should continue or not. If we want to stop the IO loop after current
    * iteration, set this flag to true via stop() in Callback, TimeEvent, or TcpCallback.
    */
-  private Boolean isStopped;
+  private volatile boolean isStopped;
+
+  /**
+   * Direct buffers that connections of this loop borrow for socket IO
+   */
+  private ByteBufferPool byteBufferPool;
+
+  /**
+   * Profiler of the iterations, or null if the loop is not profiled
+   */
+  private EventLoopProfiler profiler;
 
   /**
    * Default select timeout in milliseconds
    */
   public static final long DEFAULT_SELECT_TIMEOUT = 3000;
 
+  /**
+   * Default max count of idle direct buffers kept in the buffer pool of an event loop. A single-threaded loop only
+   * borrows one buffer at a time, so a few are enough.
+   */
+  public static final int DEFAULT_POOLED_BYTE_BUFFER_COUNT = 4;
+
   /**
    * A singleton EventLoop instance
    */
@@ -63,12 +111,22 @@ public class EventLoop {
   /**
    * Constructor for Event Loop
    */
-  private EventLoop() {
+  EventLoop() {
+    try {
+      this.selector = Selector.open();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open selector for event loop", e);
+    }
+
+    this.wakeupPending = new AtomicBoolean(false);
     this.clientConnections = new HashMap<>();
-    this.callbacks = new HashSet<>();
-    this.timeEvents = new PriorityQueue<>(Comparator.comparing(TimeEvent::getDeadline));
+    this.callbacks = new MpscQueue<>();
+    this.readyCallbacks = new ArrayDeque<>();
+    this.timeEvents = new HeapTimeEventQueue();
     this.isRunning = false;
     this.isStopped = false;
+    this.byteBufferPool =
+        new ByteBufferPool(TcpConnection.DEFAULT_POOLED_BYTE_BUFFER_SIZE, DEFAULT_POOLED_BYTE_BUFFER_COUNT);
   }
 
   /**
@@ -76,7 +134,7 @@ public class EventLoop {
    * EventLoop instances throughout the code.
    * @return a global EventLoop instance
    */
-  public static EventLoop getInstance() {
+  public static synchronized EventLoop getInstance() {
     if (instance == null) {
       instance = new EventLoop();
     }
@@ -84,13 +142,73 @@ public class EventLoop {
     return instance;
   }
 
+  /**
+   * Get the EventLoop running on the current thread. If the current thread is not running any loop, e.g., the loops
+   * have not started yet, the global EventLoop is returned.
+   * @return EventLoop of the current thread
+   */
+  public static EventLoop current() {
+    var eventLoop = currentEventLoop.get();
+    return eventLoop != null ? eventLoop : getInstance();
+  }
+
+  /**
+   * Check if the current thread is the one running this loop
+   * @return if the current thread is running this loop
+   */
+  public boolean inEventLoop() {
+    return Thread.currentThread() == loopThread;
+  }
+
+  /**
+   * Hand a channel registration over to this loop. This can be called from any thread, and the registration will be run
+   * by this loop in its next iteration, since a channel should be registered by the loop owning the selector.
+   * @param registration registration that registers a channel to the selector of this loop
+   */
+  public void addRegistration(Runnable registration) {
+    execute(registration);
+  }
+
+  /**
+   * Run the task in the next iteration of this loop. This can be called from any thread, e.g., a worker thread handing
+   * its result back to the loop owning a connection.
+   * @param task task to run in this loop
+   */
+  @Override
+  public void execute(Runnable task) {
+    addCallback(new TaskCallback(task));
+  }
+
+  /**
+   * A callback that runs a task. It is described by the task, e.g., in the report of a blocked loop.
+   */
+  private static final class TaskCallback implements TcpCallback {
+    private final Runnable task;
+
+    private TaskCallback(Runnable task) {
+      this.task = task;
+    }
+
+    @Override
+    public void run(Object[] args) {
+      task.run();
+    }
+
+    @Override
+    public String toString() {
+      return task.toString();
+    }
+  }
+
   /**
    * Registers the given TcpConnection to handle the given NIO events for this SelectionKey
    * @param key A key we want to register a TcpConnection for interested ops
    * @param tcpConnection connection that we want to associate with the given key, to handle read, write events
    */
   public void registerTcpConnection(SelectionKey key, TcpConnection tcpConnection) {
-    clientConnections.put(key, tcpConnection);
+    if (clientConnections.put(key, tcpConnection) == null) {
+      TcpMetrics.OPEN_CONNECTIONS.increment();
+    }
   }
 
   /**
@@ -98,7 +216,9 @@ public class EventLoop {
    * @param key We no longer want to receive events of this key's channel
    */
   public void deregisterTcpConnection(SelectionKey key) {
-    clientConnections.remove(key);
+    if (clientConnections.remove(key) != null) {
+      TcpMetrics.OPEN_CONNECTIONS.decrement();
+    }
     key.cancel();
   }
 
@@ -114,20 +234,28 @@ public class EventLoop {
 
     // A forever loop that will execute callbacks, time events, socket IO events accordingly.
     isRunning = true;
+    loopThread = Thread.currentThread();
+    currentEventLoop.set(this);
     while (true) {
       var selectTimeout = DEFAULT_SELECT_TIMEOUT;
+      startPhase(EventLoopProfiler.Phase.CALLBACKS);
       selectTimeout = handleCurrentCallbacks(selectTimeout);
+      startPhase(EventLoopProfiler.Phase.TIME_EVENTS);
       selectTimeout = handleTimeoutEvents(selectTimeout);
 
       if (!isRunning) {
+        endIteration();
         break;
       }
 
       handleSocketEvents(selectTimeout);
+      endIteration();
     }
 
     // reset the stop flag so another start/stop pair can be issued
     isStopped = false;
+    currentEventLoop.remove();
+    loopThread = null;
   }
 
   /**
@@ -135,8 +263,15 @@ public class EventLoop {
    * @param selectTimeout time out value used for select method
    */
   private void handleSocketEvents(long selectTimeout) {
+    startPhase(EventLoopProfiler.Phase.SELECT);
     try {
-      int readyKeysCount = TcpServer.getSelector().select(selectTimeout);
+      // Selecting with zero time out would block, so poll the selector if there is no time to wait
+      int readyKeysCount = selectTimeout > 0 ? selector.select(selectTimeout) : selector.selectNow();
+      wakeupPending.set(false);
+      startPhase(EventLoopProfiler.Phase.SOCKET_EVENTS);
+      if (profiler != null) {
+        profiler.recordSelectedKeys(readyKeysCount);
+      }
       if (readyKeysCount == 0) {
         return;
       }
@@ -145,15 +280,17 @@ public class EventLoop {
     }
 
     // Get iterator on set of keys with IO to process
-    Iterator<SelectionKey> keyIterator = TcpServer.getSelector().selectedKeys().iterator();
+    Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
     while (keyIterator.hasNext()) {
       SelectionKey key = keyIterator.next();
 
-      if (key.equals(TcpServer.getServerKey())) {
-        TcpServer.handleServerSocketEvent();
+      startTask(key);
+      if (key.channel() instanceof ServerSocketChannel) {
+        TcpServer.handleServerSocketEvent(key);
       } else {
         handleOneClientSocketEvent(key);
       }
+      endTask();
 
       keyIterator.remove();
     }
@@ -187,19 +324,18 @@ public class EventLoop {
     if (!timeEvents.isEmpty()) {
       var now = System.currentTimeMillis();
 
-      // timeEvents is a min-heap, so the root element has the earliest deadline. Keep polling and executing all the
-      // overtime time events.
-      while (!timeEvents.isEmpty() && timeEvents.peek().getDeadline() <= now) {
-        var timeEvent = timeEvents.poll();
-        if (timeEvent != null) {
-          logger.info("Execute overdue time event = " + timeEvent);
-          timeEvent.getCallback().run(null);
-        }
+      // Keep polling and executing all the overtime time events.
+      TimeEvent timeEvent;
+      while ((timeEvent = timeEvents.pollExpired(now)) != null) {
+        logger.info("Execute overdue time event = " + timeEvent);
+        startTask(timeEvent);
+        timeEvent.getCallback().run(null);
+        endTask();
       }
 
       // If there is any pending time event, the select operation should return at the earliest deadline.
       if (!timeEvents.isEmpty()) {
-        var minSelectTimeout = timeEvents.peek().getDeadline() - now;
+        var minSelectTimeout = timeEvents.getNextDeadline() - now;
         newSelectTimeout = Math.min(newSelectTimeout, minSelectTimeout);
       }
     }
@@ -208,28 +344,70 @@ public class EventLoop {
   }
 
   /**
-   * Consume the current callbacks list and adjust and the time out value for next select operation.
+   * Consume the current callbacks queue and adjust and the time out value for next select operation.
    *
-   * If we consume the callbacks list directly and new callbacks are added continuously, then IO event starvation may
-   * happen. In order to prevent starvation, we should consume the copy of the callbacks list. Therefore the new
-   * callbacks will be executed in the next iteration of the event loop.
+   * If we consume the callbacks queue until it is empty and new callbacks are added continuously, then IO event
+   * starvation may happen. In order to prevent starvation, we only run the callbacks that are in the queue when this
+   * iteration starts. Callbacks added by them will be executed in the next iteration of the event loop.
    *
-   * After a callback is executed, we should remove it from the callbacks set. If the final set is not empty, we should
-   * not wait in next select before we run them.
+   * If there are callbacks left, we should not wait in next select before we run them.
    * @param selectTimeout current time out value for selector
    * @return new time out value for selector
    */
   private long handleCurrentCallbacks(long selectTimeout) {
-    var callbacksCopy = new HashSet<>(callbacks);
-    for (var callback : callbacksCopy) {
-      if (callbacks.contains(callback)) {
-        callbacks.remove(callback);
+    drainCallbacks();
+    var count = readyCallbacks.size();
+    for (int i = 0; i < count; i++) {
+      var callback = readyCallbacks.poll();
+      if (callback == null) {
+        break;
+      }
+
+      startTask(callback);
+      try {
         callback.run(null);
+      } catch (RuntimeException e) {
+        logger.warn("Uncaught exception in callback = " + callback, e);
       }
+      endTask();
     }
 
     // If there is any new callback, we don't want to wait in select before we run them.
-    return !callbacks.isEmpty() ? 0 : selectTimeout;
+    return !readyCallbacks.isEmpty() || !callbacks.isEmpty() ? 0 : selectTimeout;
+  }
+
+  private void startPhase(EventLoopProfiler.Phase phase) {
+    if (profiler != null) {
+      profiler.startPhase(phase);
+    }
+  }
+
+  private void endIteration() {
+    if (profiler != null) {
+      profiler.endIteration();
+    }
+  }
+
+  private void startTask(Object task) {
+    if (profiler != null) {
+      profiler.startTask(task);
+    }
+  }
+
+  private void endTask() {
+    if (profiler != null) {
+      profiler.endTask();
+    }
+  }
+
+  /**
+   * Move the callbacks added by all threads so far to readyCallbacks, keeping their order.
+   */
+  private void drainCallbacks() {
+    TcpCallback callback;
+    while ((callback = callbacks.poll()) != null) {
+      readyCallbacks.add(callback);
+    }
   }
 
   /**
@@ -259,31 +437,80 @@ public class EventLoop {
   }
 
   /**
-   * Add a new callback, which will be executed on the next event loop iteration, then wake up the selector.
+   * Replace the queue that keeps time events of this loop. This should be called before any time event is added, e.g.,
+   * set a TimingWheelTimeEventQueue before the loop starts if each connection is going to have timeouts.
+   * @param timeEventQueue an empty time event queue
+   */
+  public void setTimeEventQueue(TimeEventQueue timeEventQueue) {
+    if (!timeEvents.isEmpty()) {
+      throw new IllegalStateException("Cannot replace time event queue with [" + timeEvents.size() + "] pending events");
+    }
+
+    this.timeEvents = timeEventQueue;
+  }
+
+  /**
+   * Add a new callback, which will be executed on the next event loop iteration, then wake up the selector. This can be
+   * called from any thread, and callbacks are executed in the order they are added.
    * @param callback callback we want to trigger in the next event loop
    */
   public void addCallback(TcpCallback callback) {
-    callbacks.add(callback);
+    callbacks.offer(callback);
     wakeup();
   }
 
   /**
-   * Remove the given callback
+   * Remove the given callback. This should be called by the thread running this loop, or before the loop starts.
    * @param callback callback we want to remove
    */
   public void removeCallback(TcpCallback callback) {
-    callbacks.remove(callback);
+    drainCallbacks();
+    readyCallbacks.removeIf(x -> x == callback);
   }
 
   /**
    * Causes the current selection operation that has not yet returned to return immediately. If there is no selection
    * operation is currently in progress then the next invocation of a selection operation will return immediately.
+   *
+   * The thread running this loop checks callbacks and the running flag before it selects, so it does not need to wake
+   * itself up. Other threads only wake up the selector once until the next select operation returns.
    */
   private void wakeup() {
-    TcpServer.getSelector().wakeup();
+    if (!inEventLoop() && wakeupPending.compareAndSet(false, true)) {
+      selector.wakeup();
+    }
+  }
+
+  /**
+   * Profile the iterations of this loop, and track the task it is running, e.g., for an EventLoopWatchdog. This should
+   * be called before the loop starts.
+   * @param profiler profiler of this loop, or null to stop profiling
+   */
+  public void setProfiler(EventLoopProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  public EventLoopProfiler getProfiler() {
+    return profiler;
+  }
+
+  /**
+   * Get the thread running this loop
+   * @return the thread, or null if the loop is not running
+   */
+  Thread getLoopThread() {
+    return loopThread;
   }
 
   public Map<SelectionKey, TcpConnection> getClientConnections() {
     return clientConnections;
   }
+
+  public Selector getSelector() {
+    return selector;
+  }
+
+  public ByteBufferPool getByteBufferPool() {
+    return byteBufferPool;
+  }
 }
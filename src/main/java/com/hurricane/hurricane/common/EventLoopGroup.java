@@ -0,0 +1,106 @@
+package com.hurricane.hurricane.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+
+
+/**
+ * @author larrytaowang
+ *
+ * A group of EventLoops, each of which has its own selector and runs in its own thread. Connections are assigned to the
+ * loops in round-robin order, and a connection is only handled by the loop it is assigned to.
+ */
+public class EventLoopGroup {
+  private final static Logger logger = Logger.getLogger(EventLoopGroup.class);
+
+  /**
+   * Loops in this group
+   */
+  private final List<EventLoop> eventLoops;
+
+  /**
+   * Threads running the loops in this group
+   */
+  private final List<Thread> threads;
+
+  /**
+   * Index of the loop that next() will return, modulo the count of loops
+   */
+  private final AtomicInteger nextIndex;
+
+  /**
+   * Create a group with one loop per available processor
+   */
+  public EventLoopGroup() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create a group with the given count of loops
+   * @param size count of loops in this group
+   */
+  public EventLoopGroup(int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Size of EventLoopGroup should be positive, size = " + size);
+    }
+
+    this.eventLoops = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      eventLoops.add(new EventLoop());
+    }
+
+    this.threads = new ArrayList<>();
+    this.nextIndex = new AtomicInteger();
+  }
+
+  /**
+   * Start each loop of this group in a new thread.
+   */
+  public synchronized void start() {
+    if (!threads.isEmpty()) {
+      throw new IllegalStateException("EventLoopGroup has already been started");
+    }
+
+    for (int i = 0; i < eventLoops.size(); i++) {
+      var thread = new Thread(eventLoops.get(i)::start, "hurricane-event-loop-" + i);
+      threads.add(thread);
+      thread.start();
+    }
+    logger.info("Started EventLoopGroup with [" + eventLoops.size() + "] loops");
+  }
+
+  /**
+   * Stop each loop of this group after its current iteration completes. This returns without waiting for the loops.
+   */
+  public void stop() {
+    for (var eventLoop : eventLoops) {
+      eventLoop.stop();
+    }
+  }
+
+  /**
+   * Wait for the threads of this group to finish, e.g., after stop() is called.
+   * @param timeoutMillis max time to wait for each thread in milliseconds
+   * @throws InterruptedException if the current thread is interrupted while waiting
+   */
+  public synchronized void awaitTermination(long timeoutMillis) throws InterruptedException {
+    for (var thread : threads) {
+      thread.join(timeoutMillis);
+    }
+  }
+
+  /**
+   * Pick the loop that the next connection should be assigned to, in round-robin order.
+   * @return a loop of this group
+   */
+  public EventLoop next() {
+    return eventLoops.get(Math.floorMod(nextIndex.getAndIncrement(), eventLoops.size()));
+  }
+
+  public List<EventLoop> getEventLoops() {
+    return Collections.unmodifiableList(eventLoops);
+  }
+}
@@ -0,0 +1,207 @@
+package com.hurricane.hurricane.common;
+
+import com.hurricane.hurricane.metrics.Counter;
+import com.hurricane.hurricane.metrics.Histogram;
+import com.hurricane.hurricane.metrics.MetricsRegistry;
+import java.nio.channels.SelectionKey;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * Profiles the iterations of an event loop: how long each phase of an iteration takes, and how many keys are selected.
+ * It also tracks the task the loop is running, i.e., a callback, a time event or the socket event of a key, so an
+ * EventLoopWatchdog can tell which task blocks the loop.
+ * <p>
+ * The phases are timed with System.nanoTime() and recorded into histograms of the metrics registry, labeled with the
+ * name of the loop. Only the thread running the loop updates the profiler, except the blocked counter, which is
+ * updated by the watchdog. See EventLoop.setProfiler().
+ */
+public class EventLoopProfiler {
+  /**
+   * Phases of an iteration of the loop
+   */
+  public enum Phase {
+    /**
+     * Running the callbacks added before the iteration
+     */
+    CALLBACKS("callbacks"),
+
+    /**
+     * Running the callbacks of the expired time events
+     */
+    TIME_EVENTS("time_events"),
+
+    /**
+     * Waiting in select for socket events. Long is good here, since the loop is idle.
+     */
+    SELECT("select"),
+
+    /**
+     * Handling the selected keys
+     */
+    SOCKET_EVENTS("socket_events");
+
+    private final String label;
+
+    Phase(String label) {
+      this.label = label;
+    }
+  }
+
+  private static final double NANOS_TO_SECONDS = 1e-9;
+
+  /**
+   * Name of the loop, which labels its metrics
+   */
+  private final String name;
+
+  /**
+   * Time of each phase by its ordinal, in nanoseconds
+   */
+  private final Histogram[] phaseTimes;
+
+  private final Histogram selectedKeys;
+
+  private final Counter iterations;
+
+  private final Counter blockedCount;
+
+  /**
+   * The phase being timed and when it started, or null if no iteration is running
+   */
+  private Phase currentPhase;
+  private long phaseStartNanos;
+
+  /**
+   * The task being run and when it started. The task is null between tasks. They are read by the watchdog.
+   */
+  private volatile Object currentTask;
+  private volatile long taskStartNanos;
+
+  /**
+   * Count of the tasks started, so the watchdog reports a blocking task only once
+   */
+  private volatile long taskSequence;
+
+  public EventLoopProfiler(String name) {
+    this(name, MetricsRegistry.getInstance());
+  }
+
+  public EventLoopProfiler(String name, MetricsRegistry registry) {
+    this.name = name;
+    this.phaseTimes = new Histogram[Phase.values().length];
+    for (var phase : Phase.values()) {
+      phaseTimes[phase.ordinal()] = registry.histogram("hurricane_event_loop_phase_seconds",
+          "Time of each phase of event loop iterations, in seconds", NANOS_TO_SECONDS, "loop", name, "phase",
+          phase.label);
+    }
+    this.selectedKeys = registry.histogram("hurricane_event_loop_selected_keys",
+        "Count of keys selected by event loop iterations", 1, "loop", name);
+    this.iterations = registry.counter("hurricane_event_loop_iterations_total", "Count of event loop iterations",
+        "loop", name);
+    this.blockedCount = registry.counter("hurricane_event_loop_blocked_total",
+        "Count of tasks that blocked an event loop for longer than the threshold of its watchdog", "loop", name);
+  }
+
+  /**
+   * Start a phase of the iteration, which ends the previous phase
+   *
+   * @param phase the phase to start
+   */
+  void startPhase(Phase phase) {
+    var now = System.nanoTime();
+    if (currentPhase != null) {
+      phaseTimes[currentPhase.ordinal()].record(now - phaseStartNanos);
+    }
+
+    currentPhase = phase;
+    phaseStartNanos = now;
+  }
+
+  /**
+   * End the iteration, and its last phase
+   */
+  void endIteration() {
+    if (currentPhase != null) {
+      phaseTimes[currentPhase.ordinal()].record(System.nanoTime() - phaseStartNanos);
+      currentPhase = null;
+    }
+
+    iterations.increment();
+  }
+
+  void recordSelectedKeys(int count) {
+    selectedKeys.record(count);
+  }
+
+  /**
+   * Called before the loop runs a task
+   *
+   * @param task a callback, a time event or a selection key
+   */
+  void startTask(Object task) {
+    taskStartNanos = System.nanoTime();
+    currentTask = task;
+    taskSequence++;
+  }
+
+  /**
+   * Called after the loop runs a task
+   */
+  void endTask() {
+    currentTask = null;
+  }
+
+  Object getCurrentTask() {
+    return currentTask;
+  }
+
+  long getTaskStartNanos() {
+    return taskStartNanos;
+  }
+
+  long getTaskSequence() {
+    return taskSequence;
+  }
+
+  void onBlocked() {
+    blockedCount.increment();
+  }
+
+  /**
+   * Describe a task for a report
+   *
+   * @param task a callback, a time event or a selection key
+   * @return description of the task
+   */
+  static String describeTask(Object task) {
+    if (task instanceof TimeEvent) {
+      return "time event with callback = " + ((TimeEvent) task).getCallback();
+    } else if (task instanceof SelectionKey) {
+      return "socket event of channel = " + ((SelectionKey) task).channel();
+    } else {
+      return "callback = " + task;
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Histogram getPhaseTime(Phase phase) {
+    return phaseTimes[phase.ordinal()];
+  }
+
+  public Histogram getSelectedKeys() {
+    return selectedKeys;
+  }
+
+  public long getIterationsCount() {
+    return iterations.get();
+  }
+
+  public long getBlockedCount() {
+    return blockedCount.get();
+  }
+}
@@ -0,0 +1,145 @@
+package com.hurricane.hurricane.common;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.apache.log4j.Logger;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * Detects event loops blocked by a single task, e.g., a handler doing blocking IO on the loop, which stalls every
+ * connection of the loop. A daemon thread checks the task each loop is running, and reports a task that has run for
+ * longer than the threshold, with the stack trace of the loop thread, so the blocking call can be found. A task is
+ * reported once, however long it blocks.
+ * <p>
+ * The watched loops must have a profiler, which tracks their tasks, see EventLoop.setProfiler().
+ */
+public class EventLoopWatchdog {
+  private final static Logger logger = Logger.getLogger(EventLoopWatchdog.class);
+
+  private final long blockedThresholdNanos;
+
+  /**
+   * Receives the report of a blocked loop. By default, it is logged as a warning.
+   */
+  private final Consumer<String> reporter;
+
+  private final List<WatchedLoop> watchedLoops = new CopyOnWriteArrayList<>();
+
+  private volatile Thread thread;
+
+  /**
+   * A watched loop, and the sequence of the last task reported
+   */
+  private static final class WatchedLoop {
+    private final EventLoop eventLoop;
+
+    private final EventLoopProfiler profiler;
+
+    private long reportedTaskSequence = -1;
+
+    private WatchedLoop(EventLoop eventLoop, EventLoopProfiler profiler) {
+      this.eventLoop = eventLoop;
+      this.profiler = profiler;
+    }
+  }
+
+  public EventLoopWatchdog(long blockedThresholdMillis) {
+    this(blockedThresholdMillis, logger::warn);
+  }
+
+  public EventLoopWatchdog(long blockedThresholdMillis, Consumer<String> reporter) {
+    this.blockedThresholdNanos = TimeUnit.MILLISECONDS.toNanos(blockedThresholdMillis);
+    this.reporter = reporter;
+  }
+
+  /**
+   * Watch a loop. This can be called before or after the watchdog starts.
+   *
+   * @param eventLoop a loop that has a profiler
+   */
+  public void watch(EventLoop eventLoop) {
+    var profiler = eventLoop.getProfiler();
+    if (profiler == null) {
+      throw new IllegalArgumentException("Event loop has no profiler to watch");
+    }
+
+    watchedLoops.add(new WatchedLoop(eventLoop, profiler));
+  }
+
+  /**
+   * Start the thread that checks the loops, twice per threshold
+   */
+  public synchronized void start() {
+    if (thread != null) {
+      return;
+    }
+
+    var checkIntervalMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(blockedThresholdNanos) / 2);
+    thread = new Thread(() -> {
+      while (!Thread.currentThread().isInterrupted()) {
+        try {
+          Thread.sleep(checkIntervalMillis);
+        } catch (InterruptedException e) {
+          return;
+        }
+        check(System.nanoTime());
+      }
+    }, "event-loop-watchdog");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stop checking the loops
+   */
+  public synchronized void stop() {
+    if (thread != null) {
+      thread.interrupt();
+      thread = null;
+    }
+  }
+
+  /**
+   * Report the loops whose current task has run for longer than the threshold
+   *
+   * @param nowNanos current value of System.nanoTime()
+   */
+  void check(long nowNanos) {
+    for (var watchedLoop : watchedLoops) {
+      var profiler = watchedLoop.profiler;
+      // Read the sequence first, so a task started meanwhile is not reported with the start time of the last one
+      var taskSequence = profiler.getTaskSequence();
+      var task = profiler.getCurrentTask();
+      var blockedNanos = nowNanos - profiler.getTaskStartNanos();
+      if (task == null || blockedNanos < blockedThresholdNanos || taskSequence != profiler.getTaskSequence()
+          || taskSequence == watchedLoop.reportedTaskSequence) {
+        continue;
+      }
+
+      watchedLoop.reportedTaskSequence = taskSequence;
+      profiler.onBlocked();
+      reporter.accept(createReport(watchedLoop, task, blockedNanos));
+    }
+  }
+
+  private String createReport(WatchedLoop watchedLoop, Object task, long blockedNanos) {
+    var stringBuilder = new StringBuilder();
+    stringBuilder.append("Event loop = ").append(watchedLoop.profiler.getName()).append(" is blocked for ")
+        .append(TimeUnit.NANOSECONDS.toMillis(blockedNanos)).append(" ms by ")
+        .append(EventLoopProfiler.describeTask(task));
+
+    var loopThread = watchedLoop.eventLoop.getLoopThread();
+    if (loopThread != null) {
+      stringBuilder.append(", stack trace of thread = ").append(loopThread.getName()).append(':');
+      for (var element : loopThread.getStackTrace()) {
+        stringBuilder.append("\n\tat ").append(element);
+      }
+    }
+
+    return stringBuilder.toString();
+  }
+}
@@ -0,0 +1,53 @@
+package com.hurricane.hurricane.common;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+
+/**
+ * @author larrytaowang
+ *
+ * Time events kept in a min-heap ordered by deadline. Adding an event takes O(log n) and cancelling one takes O(n), but
+ * events fire exactly at their deadlines. This suits a small count of timers.
+ */
+public class HeapTimeEventQueue implements TimeEventQueue {
+  /**
+   * Min-heap of time events, whose root element has the earliest deadline
+   */
+  private final PriorityQueue<TimeEvent> timeEvents;
+
+  public HeapTimeEventQueue() {
+    this.timeEvents = new PriorityQueue<>(Comparator.comparing(TimeEvent::getDeadline));
+  }
+
+  @Override
+  public void add(TimeEvent timeEvent) {
+    timeEvents.add(timeEvent);
+  }
+
+  @Override
+  public void remove(TimeEvent timeEvent) {
+    timeEvents.remove(timeEvent);
+  }
+
+  @Override
+  public TimeEvent pollExpired(long now) {
+    var earliest = timeEvents.peek();
+    if (earliest == null || earliest.getDeadline() > now) {
+      return null;
+    }
+
+    return timeEvents.poll();
+  }
+
+  @Override
+  public long getNextDeadline() {
+    var earliest = timeEvents.peek();
+    return earliest == null ? Long.MAX_VALUE : earliest.getDeadline();
+  }
+
+  @Override
+  public int size() {
+    return timeEvents.size();
+  }
+}
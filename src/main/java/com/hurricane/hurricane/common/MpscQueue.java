@@ -0,0 +1,81 @@
+package com.hurricane.hurricane.common;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * @author larrytaowang
+ *
+ * A lock-free, unbounded, multi-producer single-consumer FIFO queue, based on the intrusive queue by Dmitry Vyukov. Any
+ * thread can offer elements with a single atomic swap, while only one thread, e.g., the thread running an EventLoop,
+ * may poll them.
+ *
+ * A producer links its node in two steps, so the consumer may briefly see the queue as empty while an offer is still in
+ * progress. The element becomes visible as soon as that offer returns.
+ */
+public class MpscQueue<E> {
+  /**
+   * Node of the linked list. The node at head is a stub whose value has been polled already.
+   */
+  private static final class Node<E> {
+    private E value;
+    private volatile Node<E> next;
+
+    Node(E value) {
+      this.value = value;
+    }
+  }
+
+  /**
+   * The most recently offered node, swapped by producers
+   */
+  private final AtomicReference<Node<E>> tail;
+
+  /**
+   * Stub node before the oldest element. Only touched by the consumer.
+   */
+  private Node<E> head;
+
+  public MpscQueue() {
+    this.head = new Node<>(null);
+    this.tail = new AtomicReference<>(head);
+  }
+
+  /**
+   * Add an element at the end of the queue. This can be called from any thread.
+   * @param element element to add, which should not be null
+   */
+  public void offer(E element) {
+    if (element == null) {
+      throw new NullPointerException("Element of MpscQueue should not be null");
+    }
+
+    var node = new Node<>(element);
+    var previous = tail.getAndSet(node);
+    previous.next = node;
+  }
+
+  /**
+   * Remove and return the oldest element. This should only be called by the consumer thread.
+   * @return the oldest element, or null if the queue is empty
+   */
+  public E poll() {
+    var next = head.next;
+    if (next == null) {
+      return null;
+    }
+
+    var element = next.value;
+    next.value = null;
+    head = next;
+    return element;
+  }
+
+  /**
+   * Check if the queue is empty. This is exact for the consumer thread, and only an estimate for the other threads.
+   * @return if there is no element in the queue
+   */
+  public boolean isEmpty() {
+    return head.next == null;
+  }
+}
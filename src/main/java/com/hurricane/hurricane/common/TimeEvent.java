@@ -19,6 +19,13 @@ public class TimeEvent {
    */
   private TcpCallback callback;
 
+  /**
+   * Links of this event in the bucket of a TimingWheelTimeEventQueue, so it can be cancelled without searching
+   */
+  TimeEvent previous;
+  TimeEvent next;
+  TimingWheelTimeEventQueue.Bucket bucket;
+
   public TimeEvent(long deadline, @NotNull TcpCallback callback) {
     this.deadline = deadline;
     this.callback = callback;
@@ -0,0 +1,49 @@
+package com.hurricane.hurricane.common;
+
+/**
+ * @author larrytaowang
+ *
+ * Pending time events of an EventLoop. An EventLoop only touches its queue from the thread running it, so
+ * implementations do not need to be thread-safe.
+ */
+public interface TimeEventQueue {
+  /**
+   * Schedule a time event, whose callback should be executed at its deadline.
+   * @param timeEvent the time event to schedule
+   */
+  void add(TimeEvent timeEvent);
+
+  /**
+   * Cancel a scheduled time event. Nothing happens if the event is not in this queue.
+   * @param timeEvent the time event to cancel
+   */
+  void remove(TimeEvent timeEvent);
+
+  /**
+   * Remove and return an overdue time event.
+   * @param now current unix time stamp in milliseconds
+   * @return a time event whose deadline is not later than now, or null if there is none
+   */
+  TimeEvent pollExpired(long now);
+
+  /**
+   * Get the time at which the loop should check this queue again. This is never later than the earliest deadline plus
+   * the precision of the queue, so the select operation can use it as its time out.
+   * @return unix time stamp in milliseconds, or Long.MAX_VALUE if the queue is empty
+   */
+  long getNextDeadline();
+
+  /**
+   * Get count of scheduled time events
+   * @return count of scheduled time events
+   */
+  int size();
+
+  /**
+   * Check if there is no scheduled time event
+   * @return if there is no scheduled time event
+   */
+  default boolean isEmpty() {
+    return size() == 0;
+  }
+}
@@ -0,0 +1,308 @@
+package com.hurricane.hurricane.common;
+
+/**
+ * @author larrytaowang
+ *
+ * Time events kept in a hierarchical hashed timing wheel. Time is divided into ticks, and each level of the wheel has
+ * 64 buckets. A bucket of level 0 holds the events of a single tick, and a bucket of level L covers 64^L ticks. When
+ * the wheel enters a new range of a higher level, the events of that bucket are cascaded to the lower levels.
+ *
+ * Each event is linked into its bucket directly, so adding and cancelling an event take O(1) no matter how many events
+ * are pending. The price is precision: an event fires after its deadline, but may be up to one tick late. This suits a
+ * large count of timeouts which are mostly cancelled before they fire, e.g., idle timeouts of connections.
+ */
+public class TimingWheelTimeEventQueue implements TimeEventQueue {
+  /**
+   * Default length of a tick in milliseconds
+   */
+  public static final long DEFAULT_TICK_MILLIS = 10;
+
+  /**
+   * Each level of the wheel has 2^WHEEL_BITS buckets
+   */
+  private static final int WHEEL_BITS = 6;
+  private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+  /**
+   * Count of levels of the wheel
+   */
+  private static final int LEVELS_COUNT = 4;
+
+  /**
+   * Count of ticks the wheel covers. An event whose deadline is even further is parked in the last bucket of the top
+   * level, and is placed again when that bucket is cascaded.
+   */
+  private static final long MAX_TICKS_SPAN = 1L << (WHEEL_BITS * LEVELS_COUNT);
+
+  /**
+   * Length of a tick in milliseconds
+   */
+  private final long tickMillis;
+
+  /**
+   * Buckets of each level
+   */
+  private final Bucket[][] wheels;
+
+  /**
+   * Overdue events that have been taken out of the wheel but not polled yet. They can still be cancelled.
+   */
+  private final Bucket expiredEvents;
+
+  /**
+   * The tick that the wheel is at. Ticks before it have been fully processed.
+   */
+  private long currentTick;
+
+  /**
+   * Count of scheduled time events, including the overdue ones that have not been polled
+   */
+  private int size;
+
+  public TimingWheelTimeEventQueue() {
+    this(DEFAULT_TICK_MILLIS, System.currentTimeMillis());
+  }
+
+  /**
+   * Create an empty timing wheel.
+   * @param tickMillis length of a tick in milliseconds
+   * @param startTime unix time stamp in milliseconds at which the wheel starts
+   */
+  public TimingWheelTimeEventQueue(long tickMillis, long startTime) {
+    if (tickMillis <= 0) {
+      throw new IllegalArgumentException("Tick of timing wheel should be positive, tickMillis = " + tickMillis);
+    }
+
+    this.tickMillis = tickMillis;
+    this.wheels = new Bucket[LEVELS_COUNT][WHEEL_SIZE];
+    for (var wheel : wheels) {
+      for (int i = 0; i < WHEEL_SIZE; i++) {
+        wheel[i] = new Bucket();
+      }
+    }
+    this.expiredEvents = new Bucket();
+    this.currentTick = startTime / tickMillis;
+    this.size = 0;
+  }
+
+  /**
+   * Schedule a time event in O(1). If the event has been scheduled, it is rescheduled with its current deadline.
+   * @param timeEvent the time event to schedule
+   */
+  @Override
+  public void add(TimeEvent timeEvent) {
+    if (timeEvent.bucket != null) {
+      remove(timeEvent);
+    }
+
+    schedule(timeEvent);
+    size++;
+  }
+
+  /**
+   * Cancel a scheduled time event in O(1).
+   * @param timeEvent the time event to cancel
+   */
+  @Override
+  public void remove(TimeEvent timeEvent) {
+    if (timeEvent.bucket == null) {
+      return;
+    }
+
+    timeEvent.bucket.unlink(timeEvent);
+    size--;
+  }
+
+  @Override
+  public TimeEvent pollExpired(long now) {
+    if (expiredEvents.isEmpty()) {
+      advance(now);
+    }
+
+    var timeEvent = expiredEvents.pollFirst();
+    if (timeEvent != null) {
+      size--;
+    }
+
+    return timeEvent;
+  }
+
+  /**
+   * Get the end of the earliest tick that has events. If no event is due within the range of level 0, this is the
+   * start of the next range, when events of higher levels are cascaded.
+   * @return unix time stamp in milliseconds, or Long.MAX_VALUE if the queue is empty
+   */
+  @Override
+  public long getNextDeadline() {
+    if (!expiredEvents.isEmpty()) {
+      return expiredEvents.head.getDeadline();
+    }
+
+    if (size == 0) {
+      return Long.MAX_VALUE;
+    }
+
+    for (int i = 0; i < WHEEL_SIZE; i++) {
+      var tick = currentTick + i;
+      if (i > 0 && (tick & WHEEL_MASK) == 0) {
+        return tick * tickMillis;
+      }
+
+      if (!wheels[0][(int) (tick & WHEEL_MASK)].isEmpty()) {
+        return (tick + 1) * tickMillis;
+      }
+    }
+
+    return (currentTick + WHEEL_SIZE) * tickMillis;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Move the wheel forward to the given time. Events whose deadline is not later than now are moved to expiredEvents.
+   * @param now current unix time stamp in milliseconds
+   */
+  private void advance(long now) {
+    var nowTick = now / tickMillis;
+
+    // Nothing to expire or cascade, so the wheel can jump straight to now
+    if (size == 0) {
+      currentTick = Math.max(currentTick, nowTick);
+      return;
+    }
+
+    while (true) {
+      var bucket = wheels[0][(int) (currentTick & WHEEL_MASK)];
+      var timeEvent = bucket.head;
+      while (timeEvent != null) {
+        var next = timeEvent.next;
+        if (timeEvent.getDeadline() <= now) {
+          bucket.unlink(timeEvent);
+          expiredEvents.append(timeEvent);
+        }
+        timeEvent = next;
+      }
+
+      // Events of the current tick that are not due yet stay, and the tick is processed again in the next advance
+      if (currentTick >= nowTick) {
+        return;
+      }
+
+      currentTick++;
+      cascade();
+    }
+  }
+
+  /**
+   * When the wheel enters a new range of a higher level, place the events of that range again, so they move to lower
+   * levels.
+   */
+  private void cascade() {
+    for (int level = 1; level < LEVELS_COUNT; level++) {
+      var shift = WHEEL_BITS * level;
+      if ((currentTick & ((1L << shift) - 1)) != 0) {
+        return;
+      }
+
+      var timeEvent = wheels[level][(int) ((currentTick >>> shift) & WHEEL_MASK)].detachAll();
+      while (timeEvent != null) {
+        var next = timeEvent.next;
+        timeEvent.next = null;
+        timeEvent.previous = null;
+        schedule(timeEvent);
+        timeEvent = next;
+      }
+    }
+  }
+
+  /**
+   * Link the time event into the bucket covering its deadline
+   * @param timeEvent the time event to place
+   */
+  private void schedule(TimeEvent timeEvent) {
+    // Overdue events go to the current tick, far away events are parked at the end of the wheel
+    var tick = Math.max(timeEvent.getDeadline() / tickMillis, currentTick);
+    var delta = tick - currentTick;
+    if (delta >= MAX_TICKS_SPAN) {
+      delta = MAX_TICKS_SPAN - 1;
+      tick = currentTick + delta;
+    }
+
+    var level = 0;
+    while (delta >= 1L << (WHEEL_BITS * (level + 1))) {
+      level++;
+    }
+
+    wheels[level][(int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK)].append(timeEvent);
+  }
+
+  /**
+   * A doubly linked list of time events. The links are stored in the time events themselves, so an event can unlink
+   * itself without searching.
+   */
+  static final class Bucket {
+    private TimeEvent head;
+    private TimeEvent tail;
+
+    boolean isEmpty() {
+      return head == null;
+    }
+
+    void append(TimeEvent timeEvent) {
+      timeEvent.bucket = this;
+      timeEvent.previous = tail;
+      timeEvent.next = null;
+      if (tail == null) {
+        head = timeEvent;
+      } else {
+        tail.next = timeEvent;
+      }
+      tail = timeEvent;
+    }
+
+    void unlink(TimeEvent timeEvent) {
+      if (timeEvent.previous == null) {
+        head = timeEvent.next;
+      } else {
+        timeEvent.previous.next = timeEvent.next;
+      }
+
+      if (timeEvent.next == null) {
+        tail = timeEvent.previous;
+      } else {
+        timeEvent.next.previous = timeEvent.previous;
+      }
+
+      timeEvent.bucket = null;
+      timeEvent.previous = null;
+      timeEvent.next = null;
+    }
+
+    TimeEvent pollFirst() {
+      var timeEvent = head;
+      if (timeEvent != null) {
+        unlink(timeEvent);
+      }
+
+      return timeEvent;
+    }
+
+    /**
+     * Empty this bucket and return its events, which are still linked to each other
+     * @return the first event of this bucket, or null if it is empty
+     */
+    TimeEvent detachAll() {
+      var timeEvent = head;
+      for (var current = head; current != null; current = current.next) {
+        current.bucket = null;
+      }
+      head = null;
+      tail = null;
+      return timeEvent;
+    }
+  }
+}
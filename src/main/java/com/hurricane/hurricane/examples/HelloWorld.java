@@ -5,16 +5,17 @@ import com.hurricane.hurricane.http.HttpException;
 import com.hurricane.hurricane.http.HttpRequest;
 import com.hurricane.hurricane.http.HttpServer;
 import com.hurricane.hurricane.web.Application;
+import com.hurricane.hurricane.web.MetricsHandler;
 import com.hurricane.hurricane.web.RequestHandler;
 import com.hurricane.hurricane.web.UrlSpec;
 import java.io.IOException;
-import java.util.Collections;
+import java.util.List;
 
 
 /**
  * @author larrytaowang
  * <p>
- * Return response "Hello World!" for each url
+ * Return response "Hello World!" for each url, except the metrics of the server at "/metrics"
  */
 public class HelloWorld {
   public static void main(String[] args) throws IOException {
@@ -25,7 +26,8 @@ public class HelloWorld {
       }
     };
 
-    var application = new Application(Collections.singletonList(new UrlSpec(".*", requestHandler)));
+    var application = new Application(List.of(new UrlSpec(MetricsHandler.DEFAULT_PATH, new MetricsHandler()),
+        new UrlSpec(".*", requestHandler)));
 
     HttpServer httpServer = HttpServer.getInstance();
     httpServer.setApplication(application);
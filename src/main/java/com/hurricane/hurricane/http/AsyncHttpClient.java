@@ -0,0 +1,231 @@
+package com.hurricane.hurricane.http;
+
+import com.hurricane.hurricane.common.EventLoop;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * A non-blocking Http client, whose connections are handled by an event loop like the connections of the server. A
+ * handler can fetch from other services without blocking the loop, and finish its response when the future completes,
+ * see RequestHandler.handleGetMethodAsync().
+ * <p>
+ * Connections are kept alive and pooled per host and port, so a request is sent on an idle connection to the same
+ * server if there is one. At most maxIdleConnectionsPerHost idle connections are kept for each server. A client belongs
+ * to a single loop, so each loop of a group should have its own client.
+ * <p>
+ * Resolving a host name blocks, so it is done by a resolver executor, and the connection is opened back in the loop.
+ * Address literals, e.g., "127.0.0.1", are parsed in the loop without a lookup.
+ * <p>
+ * A request may stream its body, see HttpClientRequest.setBodyStreamed(), and its response may be received as it
+ * arrives, see HttpClientRequest.setResponseListener(), so large bodies are relayed without being held in memory.
+ */
+public class AsyncHttpClient {
+  private final static Logger logger = Logger.getLogger(AsyncHttpClient.class);
+
+  /**
+   * Default max count of idle connections kept for each server
+   */
+  public static final int DEFAULT_MAX_IDLE_CONNECTIONS_PER_HOST = 8;
+
+  /**
+   * Default time in milliseconds for a request to complete, including connecting
+   */
+  public static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 20000;
+
+  /**
+   * Count of threads of the default resolver, which is shared by the clients
+   */
+  public static final int DEFAULT_RESOLVER_THREAD_COUNT = 4;
+
+  /**
+   * Prefix of the names of resolver threads
+   */
+  public static final String RESOLVER_THREAD_NAME_PREFIX = "hurricane-resolver-";
+
+  /**
+   * Resolver of the clients that are not given one. Its threads are created when host names are resolved, and exit
+   * when they have been idle for a minute.
+   */
+  private static final Executor defaultResolver = createDefaultResolver();
+
+  /**
+   * Loop that handles the connections of this client
+   */
+  private final EventLoop eventLoop;
+
+  /**
+   * Idle connections of each server, the most recently used first. Only touched by the thread running the loop.
+   */
+  private final Map<String, ArrayDeque<HttpClientConnection>> idleConnections;
+
+  private final int maxIdleConnectionsPerHost;
+
+  private final long requestTimeoutMillis;
+
+  /**
+   * Executor that resolves host names off the loop
+   */
+  private final Executor resolver;
+
+  public AsyncHttpClient(EventLoop eventLoop) {
+    this(eventLoop, DEFAULT_MAX_IDLE_CONNECTIONS_PER_HOST, DEFAULT_REQUEST_TIMEOUT_MILLIS);
+  }
+
+  public AsyncHttpClient(EventLoop eventLoop, int maxIdleConnectionsPerHost, long requestTimeoutMillis) {
+    this(eventLoop, maxIdleConnectionsPerHost, requestTimeoutMillis, defaultResolver);
+  }
+
+  public AsyncHttpClient(EventLoop eventLoop, int maxIdleConnectionsPerHost, long requestTimeoutMillis,
+      Executor resolver) {
+    this.eventLoop = eventLoop;
+    this.idleConnections = new HashMap<>();
+    this.maxIdleConnectionsPerHost = maxIdleConnectionsPerHost;
+    this.requestTimeoutMillis = requestTimeoutMillis;
+    this.resolver = resolver;
+  }
+
+  /**
+   * Create the resolver shared by the clients that are not given one
+   *
+   * @return a pool of daemon threads, which exit when they are idle
+   */
+  private static Executor createDefaultResolver() {
+    var threadCount = new AtomicInteger();
+    var executor = new ThreadPoolExecutor(DEFAULT_RESOLVER_THREAD_COUNT, DEFAULT_RESOLVER_THREAD_COUNT, 60L,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+      var thread = new Thread(runnable, RESOLVER_THREAD_NAME_PREFIX + threadCount.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Fetch a URL with GET method
+   *
+   * @param url URL to fetch
+   * @return future of the response, which completes in the loop of this client
+   */
+  public CompletableFuture<HttpClientResponse> fetch(String url) {
+    return fetch(new HttpClientRequest(url));
+  }
+
+  /**
+   * Send a request. This can be called from any thread, and the request is sent by the loop of this client. The future
+   * fails if the connection fails or is closed before the response is complete, or the request times out. A response
+   * with any status completes the future.
+   *
+   * @param request request to send
+   * @return future of the response, which completes in the loop of this client
+   */
+  public CompletableFuture<HttpClientResponse> fetch(HttpClientRequest request) {
+    var future = new CompletableFuture<HttpClientResponse>();
+    if (eventLoop.inEventLoop()) {
+      send(request, future);
+    } else {
+      eventLoop.execute(() -> send(request, future));
+    }
+
+    return future;
+  }
+
+  /**
+   * Send the request on an idle connection to its server, or open a new one
+   *
+   * @param request request to send
+   * @param future  future of the response
+   */
+  private void send(HttpClientRequest request, CompletableFuture<HttpClientResponse> future) {
+    var connections = idleConnections.get(request.getPoolKey());
+    var connection = connections == null ? null : connections.poll();
+    if (connection != null) {
+      logger.info("Reuse pooled connection for request = " + request);
+      connection.send(request, future);
+    } else {
+      HttpClientConnection.open(this, request, future);
+    }
+  }
+
+  /**
+   * Return a connection whose response is complete to the pool, or close it if the pool of its server is full
+   *
+   * @param connection a connection that can be reused
+   */
+  void release(HttpClientConnection connection) {
+    var connections = idleConnections.computeIfAbsent(connection.getPoolKey(), key -> new ArrayDeque<>());
+    if (connections.size() >= maxIdleConnectionsPerHost) {
+      connection.close();
+      return;
+    }
+
+    connections.push(connection);
+  }
+
+  /**
+   * Remove a closed connection from the pool, e.g., an idle connection closed by the server
+   *
+   * @param connection a closed connection
+   */
+  void remove(HttpClientConnection connection) {
+    var connections = idleConnections.get(connection.getPoolKey());
+    if (connections != null) {
+      connections.remove(connection);
+    }
+  }
+
+  /**
+   * Close the idle connections. This can be called from any thread.
+   */
+  public void close() {
+    if (!eventLoop.inEventLoop()) {
+      eventLoop.execute(this::close);
+      return;
+    }
+
+    for (var connections : new ArrayList<>(idleConnections.values())) {
+      for (var connection : new ArrayList<>(connections)) {
+        connection.close();
+      }
+    }
+    idleConnections.clear();
+  }
+
+  /**
+   * Get count of idle connections in the pool. This should be called by the thread running the loop.
+   *
+   * @return count of idle connections
+   */
+  public int getIdleConnectionsCount() {
+    var count = 0;
+    for (var connections : idleConnections.values()) {
+      count += connections.size();
+    }
+
+    return count;
+  }
+
+  public EventLoop getEventLoop() {
+    return eventLoop;
+  }
+
+  long getRequestTimeoutMillis() {
+    return requestTimeoutMillis;
+  }
+
+  Executor getResolver() {
+    return resolver;
+  }
+}
@@ -0,0 +1,110 @@
+package com.hurricane.hurricane.http;
+
+import static com.hurricane.hurricane.common.Constant.*;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * A range of bytes of a body, asked for by the Range header of a request, e.g., "bytes=0-499", "bytes=500-" or
+ * "bytes=-500" for the last 500 bytes. Only a single range is supported. A request with multiple ranges is served with
+ * the whole body, which is allowed since a server may ignore the Range header.
+ */
+public class HttpByteRange {
+  /**
+   * Returned when the Range header is valid, but none of it overlaps the body
+   */
+  public static final HttpByteRange UNSATISFIABLE = new HttpByteRange(-1, -1);
+
+  /**
+   * Position of the first byte and the last byte of the range, inclusive
+   */
+  private final long first;
+  private final long last;
+
+  private HttpByteRange(long first, long last) {
+    this.first = first;
+    this.last = last;
+  }
+
+  /**
+   * Parse the Range header of a request
+   *
+   * @param range    value of the Range header
+   * @param bodySize size of the body the range applies to
+   * @return the range, UNSATISFIABLE, or null if the header should be ignored, e.g., it is malformed
+   */
+  public static HttpByteRange parse(String range, long bodySize) {
+    var prefix = HTTP_RANGE_UNIT_BYTES + "=";
+    if (range == null || !range.startsWith(prefix) || range.indexOf(',') != -1) {
+      return null;
+    }
+
+    var spec = range.substring(prefix.length()).strip();
+    var dashIndex = spec.indexOf('-');
+    if (dashIndex == -1) {
+      return null;
+    }
+
+    long first;
+    long last;
+    try {
+      if (dashIndex == 0) {
+        // The last n bytes of the body
+        var suffixLength = Long.parseLong(spec.substring(1));
+        if (suffixLength < 0) {
+          return null;
+        } else if (suffixLength == 0) {
+          return UNSATISFIABLE;
+        }
+        first = Math.max(0, bodySize - suffixLength);
+        last = bodySize - 1;
+      } else {
+        first = Long.parseLong(spec.substring(0, dashIndex));
+        last = dashIndex == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dashIndex + 1));
+        if (last < first) {
+          return null;
+        }
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+
+    if (first < 0 || first >= bodySize) {
+      return UNSATISFIABLE;
+    }
+
+    return new HttpByteRange(first, Math.min(last, bodySize - 1));
+  }
+
+  public long getFirst() {
+    return first;
+  }
+
+  public long getLast() {
+    return last;
+  }
+
+  /**
+   * Get count of bytes in the range
+   *
+   * @return count of bytes
+   */
+  public long getLength() {
+    return last - first + 1;
+  }
+
+  /**
+   * Get the value of the Content-Range header of the response
+   *
+   * @param bodySize size of the whole body
+   * @return value of the Content-Range header, e.g., "bytes 0-499/1234"
+   */
+  public String toContentRange(long bodySize) {
+    if (this == UNSATISFIABLE) {
+      return HTTP_RANGE_UNIT_BYTES + " */" + bodySize;
+    }
+
+    return HTTP_RANGE_UNIT_BYTES + " " + first + "-" + last + "/" + bodySize;
+  }
+}
@@ -0,0 +1,183 @@
+package com.hurricane.hurricane.http;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * Incremental decoder of a body sent with "Transfer-Encoding: chunked". Data can be fed in segments of any size as it
+ * arrives, and the decoded data of each chunk is handed out as soon as it is received, so the body never needs to be
+ * held as a whole. Chunk extensions and trailers are skipped. Decoding stops right after the last chunk, so the bytes
+ * that follow, e.g., a pipelined message, are left in the buffer.
+ */
+public class HttpChunkedDecoder {
+  /**
+   * Max count of hex digits in a chunk size, so the size fits in a long
+   */
+  private static final int MAX_CHUNK_SIZE_DIGITS_COUNT = 15;
+
+  private enum State {
+    SIZE, EXTENSION, SIZE_LF, DATA, DATA_CR, DATA_LF, TRAILER_LINE_START, TRAILER_LINE, LAST_LF, DONE
+  }
+
+  /**
+   * Max count of decoded bytes of the body
+   */
+  private final long maxBodySize;
+
+  private State state;
+
+  /**
+   * Size of the current chunk, and count of its data bytes that have not been received yet
+   */
+  private long chunkSize;
+  private long chunkRemaining;
+
+  /**
+   * Count of hex digits of the current chunk size that have been received
+   */
+  private int chunkSizeDigitsCount;
+
+  /**
+   * Count of decoded bytes of the body so far
+   */
+  private long decodedSize;
+
+  public HttpChunkedDecoder() {
+    this(Long.MAX_VALUE);
+  }
+
+  public HttpChunkedDecoder(long maxBodySize) {
+    this.maxBodySize = maxBodySize;
+    reset();
+  }
+
+  /**
+   * Decode the remaining bytes of the given buffer, until they are all consumed or the body ends. The position of the
+   * buffer is advanced past the consumed bytes.
+   *
+   * @param data     bytes received of the chunked body
+   * @param consumer consumer of decoded data, called once for every piece of chunk data in the buffer
+   * @throws IllegalArgumentException if the data is not a valid chunked body, or the body is too large
+   */
+  public void decode(ByteBuffer data, Consumer<byte[]> consumer) {
+    while (data.hasRemaining() && state != State.DONE) {
+      if (state == State.DATA) {
+        var count = (int) Math.min(chunkRemaining, data.remaining());
+        var segment = new byte[count];
+        data.get(segment);
+        chunkRemaining -= count;
+        if (chunkRemaining == 0) {
+          state = State.DATA_CR;
+        }
+
+        consumer.accept(segment);
+        continue;
+      }
+
+      var b = data.get();
+      switch (state) {
+        case SIZE:
+          if (b == ';') {
+            checkChunkSize();
+            state = State.EXTENSION;
+          } else if (b == '\r') {
+            checkChunkSize();
+            state = State.SIZE_LF;
+          } else {
+            var digit = Character.digit(b, 16);
+            if (digit == -1 || ++chunkSizeDigitsCount > MAX_CHUNK_SIZE_DIGITS_COUNT) {
+              throw new IllegalArgumentException("Malformed chunk size");
+            }
+            chunkSize = chunkSize * 16 + digit;
+          }
+          break;
+        case EXTENSION:
+          if (b == '\r') {
+            state = State.SIZE_LF;
+          }
+          break;
+        case SIZE_LF:
+          expect(b, '\n');
+          if (chunkSize == 0) {
+            state = State.TRAILER_LINE_START;
+          } else {
+            decodedSize += chunkSize;
+            if (decodedSize > maxBodySize) {
+              throw new IllegalArgumentException("Chunked body is larger than max body size = " + maxBodySize);
+            }
+            chunkRemaining = chunkSize;
+            state = State.DATA;
+          }
+          break;
+        case DATA_CR:
+          expect(b, '\r');
+          state = State.DATA_LF;
+          break;
+        case DATA_LF:
+          expect(b, '\n');
+          chunkSize = 0;
+          chunkSizeDigitsCount = 0;
+          state = State.SIZE;
+          break;
+        case TRAILER_LINE_START:
+          state = b == '\r' ? State.LAST_LF : State.TRAILER_LINE;
+          break;
+        case TRAILER_LINE:
+          if (b == '\n') {
+            state = State.TRAILER_LINE_START;
+          }
+          break;
+        case LAST_LF:
+          expect(b, '\n');
+          state = State.DONE;
+          break;
+        default:
+          throw new IllegalStateException("Unexpected state = " + state);
+      }
+    }
+  }
+
+  private void checkChunkSize() {
+    if (chunkSizeDigitsCount == 0) {
+      throw new IllegalArgumentException("Missing chunk size");
+    }
+  }
+
+  private static void expect(byte actual, char expected) {
+    if (actual != expected) {
+      throw new IllegalArgumentException("Malformed chunked body, expect = " + (int) expected + ", actual = " + actual);
+    }
+  }
+
+  /**
+   * Check if the last chunk and the trailers have been received
+   *
+   * @return if the body is complete
+   */
+  public boolean isDone() {
+    return state == State.DONE;
+  }
+
+  /**
+   * Get count of decoded bytes of the body so far
+   *
+   * @return count of decoded bytes
+   */
+  public long getDecodedSize() {
+    return decodedSize;
+  }
+
+  /**
+   * Reset the decoder, so it can decode another body
+   */
+  public void reset() {
+    state = State.SIZE;
+    chunkSize = 0;
+    chunkRemaining = 0;
+    chunkSizeDigitsCount = 0;
+    decodedSize = 0;
+  }
+}
@@ -0,0 +1,49 @@
+package com.hurricane.hurricane.http;
+
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * Frames data for "Transfer-Encoding: chunked". Each chunk is its size in hex, CRLF, the data and CRLF. The body ends
+ * with a chunk of size zero.
+ */
+public class HttpChunkedEncoder {
+  /**
+   * Delimiter after the size line and after the data of a chunk
+   */
+  public static final byte[] CHUNK_DELIMITER = "\r\n".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * The last chunk, without trailers
+   */
+  public static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+  private HttpChunkedEncoder() {
+  }
+
+  /**
+   * Get the size line of a chunk
+   *
+   * @param chunkSize count of data bytes in the chunk
+   * @return bytes of the size in hex, followed by CRLF
+   */
+  public static byte[] encodeChunkSize(long chunkSize) {
+    return (Long.toHexString(chunkSize) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Frame the data as a chunk. Empty data is skipped, since a chunk of size zero ends the body.
+   *
+   * @param data data of the chunk
+   * @return the size line, the data and the delimiter, to be written in order
+   */
+  public static byte[][] encodeChunk(byte[] data) {
+    if (data.length == 0) {
+      return new byte[0][];
+    }
+
+    return new byte[][]{encodeChunkSize(data.length), data, CHUNK_DELIMITER};
+  }
+}
@@ -0,0 +1,580 @@
+package com.hurricane.hurricane.http;
+
+import com.hurricane.hurricane.common.TimeEvent;
+import com.hurricane.hurricane.tcp.callback.TcpReadBytesHandler;
+import com.hurricane.hurricane.tcp.callback.TcpReadDelimiterHandler;
+import com.hurricane.hurricane.tcp.callback.TcpReadPartialHandler;
+import com.hurricane.hurricane.tcp.connection.TcpConnection;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import org.apache.log4j.Logger;
+
+import static com.hurricane.hurricane.common.Constant.*;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * A connection of AsyncHttpClient to a server, which sends one request at a time. Once a response is complete, the
+ * connection goes back to the pool of the client if both sides keep it alive. All the methods are run by the loop of
+ * the client.
+ */
+class HttpClientConnection {
+  private final static Logger logger = Logger.getLogger(HttpClientConnection.class);
+
+  private final AsyncHttpClient client;
+
+  /**
+   * Host and port of the server
+   */
+  private final String poolKey;
+
+  /**
+   * The TCP connection under this connection, or null if opening it failed
+   */
+  private TcpConnection tcpConnection;
+
+  /**
+   * The request being sent or answered, and the future of its response. They are null if the connection is idle.
+   */
+  private HttpClientRequest request;
+  private CompletableFuture<HttpClientResponse> future;
+
+  /**
+   * Response whose headers have been received
+   */
+  private HttpClientResponse response;
+
+  /**
+   * Decoder of a chunked body, and the body received so far if it is chunked or ends when the connection is closed
+   */
+  private HttpChunkedDecoder chunkedDecoder;
+  private ByteArrayOutputStream body;
+
+  /**
+   * Count of bytes of a body with CONTENT-LENGTH that have not been received, when the body is streamed to the listener
+   * of the request
+   */
+  private long bodyRemaining;
+
+  /**
+   * If the body of the response ends when the server closes the connection
+   */
+  private boolean isReadingUntilClose;
+
+  /**
+   * If the connection was taken from the pool for the current request
+   */
+  private boolean isReused;
+
+  /**
+   * If the TCP connection is being established
+   */
+  private boolean isConnecting;
+
+  /**
+   * Fails the current request if it is not complete in time
+   */
+  private TimeEvent timeoutEvent;
+
+  private boolean isClosed;
+
+  private HttpClientConnection(AsyncHttpClient client, String poolKey) {
+    this.client = client;
+    this.poolKey = poolKey;
+  }
+
+  /**
+   * Open a connection to the server of the request, and send the request once it is connected
+   *
+   * @param client  client owning the connection
+   * @param request request to send
+   * @param future  future of the response
+   */
+  static void open(AsyncHttpClient client, HttpClientRequest request, CompletableFuture<HttpClientResponse> future) {
+    var connection = new HttpClientConnection(client, request.getPoolKey());
+    connection.start(request, future, false);
+    connection.isConnecting = true;
+
+    // An address literal is parsed without a lookup. A host name is resolved by the resolver of the client, since the
+    // lookup may block, and the connection is opened back in the loop.
+    var host = request.getHost();
+    var port = request.getPort();
+    if (isAddressLiteral(host)) {
+      connection.connect(new InetSocketAddress(host, port));
+      return;
+    }
+
+    try {
+      client.getResolver().execute(() -> {
+        var address = new InetSocketAddress(host, port);
+        client.getEventLoop().execute(() -> connection.connect(address));
+      });
+    } catch (RejectedExecutionException e) {
+      connection.fail(new IOException("Failed to resolve host = " + host, e));
+    }
+  }
+
+  /**
+   * Check if a host is an IPv4 or IPv6 address, which is parsed without a lookup
+   *
+   * @param host host of a URL
+   * @return if the host is an address literal
+   */
+  static boolean isAddressLiteral(String host) {
+    // A URL holds an IPv6 address in brackets
+    if (host.startsWith("[")) {
+      return true;
+    }
+
+    for (int i = 0; i < host.length(); i++) {
+      var character = host.charAt(i);
+      if (character != '.' && (character < '0' || character > '9')) {
+        return false;
+      }
+    }
+    return !host.isEmpty();
+  }
+
+  /**
+   * Open the TCP connection once the address of the server is known
+   *
+   * @param address address of the server, which is unresolved if the lookup failed
+   */
+  private void connect(InetSocketAddress address) {
+    // The request may have failed while the host was resolved, e.g., it timed out
+    if (isClosed) {
+      return;
+    }
+
+    if (address.isUnresolved()) {
+      fail(new UnknownHostException("Failed to resolve host = " + address.getHostString()));
+      return;
+    }
+
+    try {
+      tcpConnection = TcpConnection.connect(client.getEventLoop(), address, this::onConnected);
+      tcpConnection.setCloseCallback(args -> onClosed());
+      tcpConnection.setWritableCallback(args -> onWritable());
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  /**
+   * Send a request on this connection, which is taken from the pool
+   *
+   * @param request request to send
+   * @param future  future of the response
+   */
+  void send(HttpClientRequest request, CompletableFuture<HttpClientResponse> future) {
+    start(request, future, true);
+    sendRequest();
+  }
+
+  /**
+   * Start to serve a request, and its timeout
+   *
+   * @param request  request to send
+   * @param future   future of the response
+   * @param isReused if the connection is taken from the pool
+   */
+  private void start(HttpClientRequest request, CompletableFuture<HttpClientResponse> future, boolean isReused) {
+    this.request = request;
+    this.future = future;
+    this.isReused = isReused;
+
+    var timeout = client.getRequestTimeoutMillis();
+    timeoutEvent = new TimeEvent(System.currentTimeMillis() + timeout, args -> {
+      // The expired event has been taken out of the queue already
+      timeoutEvent = null;
+      fail(new TimeoutException("Request = " + request + " timed out after " + timeout + " ms"));
+    });
+    client.getEventLoop().addTimeEvent(timeoutEvent);
+  }
+
+  /**
+   * Called when connecting to the server finishes
+   *
+   * @param connection TCP connection to the server
+   * @param exception  the failure of connecting, or null if it is connected
+   */
+  private void onConnected(TcpConnection connection, IOException exception) {
+    isConnecting = false;
+    if (exception != null) {
+      fail(exception);
+      return;
+    }
+
+    if (isClosed) {
+      return;
+    }
+
+    sendRequest();
+  }
+
+  /**
+   * Write the request, and wait for the headers of the response
+   */
+  private void sendRequest() {
+    logger.info("Send request = " + request + " on channel = " + tcpConnection.getKey().channel());
+    var headersBytes = request.getHeadersBytes();
+    if (request.getBody() == null) {
+      tcpConnection.setWriteHandlerWithData(null, headersBytes);
+    } else {
+      tcpConnection.setWriteHandlerWithData(null, headersBytes, request.getBody());
+    }
+
+    // The response is read while the streamed body is written, since the server may answer before the body ends
+    readResponseHeaders();
+    request.attach(this);
+  }
+
+  /**
+   * Called when the TCP connection has sent the data buffered for the server, so the streamed body is writable again
+   */
+  private void onWritable() {
+    if (request != null) {
+      request.notifyWritable();
+    }
+  }
+
+  /**
+   * Check if more of the streamed body of the current request should be written
+   *
+   * @return if the TCP connection is writable
+   */
+  boolean isWritable() {
+    return tcpConnection.isWritable();
+  }
+
+  /**
+   * Stop reading the response of the current request, see HttpClientRequest.pauseResponse()
+   */
+  void pauseReading() {
+    tcpConnection.pauseReading();
+  }
+
+  /**
+   * Resume reading the response of the current request after pauseReading()
+   */
+  void resumeReading() {
+    tcpConnection.resumeReading();
+  }
+
+  /**
+   * Write a part of the streamed body of the current request
+   *
+   * @param data a part of the body
+   */
+  void writeBody(byte[] data) {
+    if (data.length == 0) {
+      return;
+    }
+
+    if (request.isBodyChunked()) {
+      tcpConnection.setWriteHandlerWithData(null, HttpChunkedEncoder.encodeChunk(data));
+    } else {
+      tcpConnection.setWriteHandlerWithData(null, data);
+    }
+  }
+
+  /**
+   * End the streamed body of the current request
+   */
+  void endBody() {
+    if (request.isBodyChunked()) {
+      tcpConnection.setWriteHandlerWithData(null, HttpChunkedEncoder.LAST_CHUNK);
+    }
+  }
+
+  private void readResponseHeaders() {
+    tcpConnection.setReadHandler(new TcpReadDelimiterHandler(HTTP_HEADER_DELIMITER, this::onHeadersReceived));
+  }
+
+  /**
+   * Parse the headers of the response, and decide how its body ends
+   *
+   * @param connection   TCP connection to the server
+   * @param headersBytes bytes of the status line and headers
+   */
+  private void onHeadersReceived(TcpConnection connection, byte[] headersBytes) {
+    try {
+      response = HttpResponseParser.parse(headersBytes, request);
+    } catch (IllegalArgumentException e) {
+      fail(new IOException("Malformed response of request = " + request, e));
+      return;
+    }
+
+    // An interim response, e.g., "100 Continue", is followed by the final response
+    if (response.getCode() / 100 == 1) {
+      response = null;
+      readResponseHeaders();
+      return;
+    }
+
+    var listener = request.getResponseListener();
+    if (listener != null) {
+      listener.headersReceived(response);
+    }
+
+    if (!response.canHaveBody()) {
+      complete();
+      return;
+    }
+
+    var headers = response.getHeaders();
+    var transferEncoding = headers.getValue(HTTP_HEADER_KEY_TRANSFER_ENCODING);
+    var contentLengthString = headers.getValue(HTTP_HEADER_KEY_CONTENT_LENGTH);
+    var maxBodySize = tcpConnection.getReadManager().getMaxCacheSize();
+    if (HTTP_HEADER_TRANSFER_ENCODING_VALUE_CHUNKED.equalsIgnoreCase(transferEncoding)) {
+      chunkedDecoder = new HttpChunkedDecoder(listener == null ? maxBodySize : Long.MAX_VALUE);
+      body = listener == null ? new ByteArrayOutputStream() : null;
+      tcpConnection.setReadHandler(new TcpReadPartialHandler(this::onChunkedBodyReceived));
+    } else if (contentLengthString != null) {
+      long contentLength;
+      try {
+        contentLength = Long.parseLong(contentLengthString);
+      } catch (NumberFormatException e) {
+        fail(new IOException("Malformed Content-Length = " + contentLengthString, e));
+        return;
+      }
+
+      if (contentLength < 0 || listener == null && contentLength > maxBodySize) {
+        fail(new IOException("Content-Length = " + contentLength + " is out of range [0, " + maxBodySize + "]"));
+      } else if (contentLength == 0) {
+        complete();
+      } else if (listener != null) {
+        bodyRemaining = contentLength;
+        tcpConnection.setReadHandler(new TcpReadPartialHandler(this::onStreamedBodyReceived));
+      } else {
+        tcpConnection.setReadHandler(new TcpReadBytesHandler((int) contentLength, this::onBodyReceived));
+      }
+    } else {
+      isReadingUntilClose = true;
+      body = listener == null ? new ByteArrayOutputStream() : null;
+      tcpConnection.setReadHandler(new TcpReadPartialHandler(this::onBodyUntilCloseReceived));
+    }
+  }
+
+  private void onBodyReceived(TcpConnection connection, byte[] data) {
+    response.setBody(data);
+    complete();
+  }
+
+  /**
+   * Called when a part of a body with CONTENT-LENGTH is received, and the body is streamed to the listener
+   *
+   * @param connection TCP connection to the server
+   * @param data       unconsumed bytes received
+   */
+  private void onStreamedBodyReceived(TcpConnection connection, ByteBuffer data) {
+    var segment = new byte[(int) Math.min(bodyRemaining, data.remaining())];
+    data.get(segment);
+    connection.getReadManager().skip(segment.length);
+    bodyRemaining -= segment.length;
+    onBodyData(segment);
+
+    if (bodyRemaining > 0) {
+      connection.setReadHandler(new TcpReadPartialHandler(this::onStreamedBodyReceived));
+    } else {
+      complete();
+    }
+  }
+
+  /**
+   * Deliver a part of the body to the listener of the request, or hold it in the body if there is no listener
+   *
+   * @param data a part of the body
+   */
+  private void onBodyData(byte[] data) {
+    var listener = request.getResponseListener();
+    if (listener != null) {
+      listener.dataReceived(data);
+    } else {
+      body.writeBytes(data);
+    }
+  }
+
+  private void onChunkedBodyReceived(TcpConnection connection, ByteBuffer data) {
+    var start = data.position();
+    try {
+      chunkedDecoder.decode(data, this::onBodyData);
+    } catch (IllegalArgumentException e) {
+      fail(new IOException("Malformed chunked body of request = " + request, e));
+      return;
+    }
+    connection.getReadManager().skip(data.position() - start);
+
+    if (chunkedDecoder.isDone()) {
+      if (body != null) {
+        response.setBody(body.toByteArray());
+      }
+      complete();
+    } else {
+      connection.setReadHandler(new TcpReadPartialHandler(this::onChunkedBodyReceived));
+    }
+  }
+
+  private void onBodyUntilCloseReceived(TcpConnection connection, ByteBuffer data) {
+    var segment = new byte[data.remaining()];
+    data.get(segment);
+    connection.getReadManager().skip(segment.length);
+    onBodyData(segment);
+    connection.setReadHandler(new TcpReadPartialHandler(this::onBodyUntilCloseReceived));
+  }
+
+  /**
+   * The response is complete. Return the connection to the pool if it can be reused, then complete the future, so the
+   * connection is available to the requests issued by the callbacks of the future.
+   */
+  private void complete() {
+    var result = response;
+    var resultFuture = future;
+    var isKeepAlive = isKeepAlive();
+    reset();
+
+    if (isKeepAlive) {
+      client.release(this);
+    } else {
+      close();
+    }
+    resultFuture.complete(result);
+  }
+
+  /**
+   * Check if the connection can be reused after the current response
+   *
+   * @return if the connection can be reused
+   */
+  private boolean isKeepAlive() {
+    if (isClosed || isReadingUntilClose || tcpConnection.getReadManager().getCacheSize() > 0) {
+      return false;
+    }
+
+    // The rest of a streamed body can't be told apart from the next request
+    if (request.isBodyStreamed() && !request.isBodyEnded()) {
+      return false;
+    }
+
+    if (HTTP_HEADER_CONNECTION_VALUE_CONNECTION_CLOSE.equalsIgnoreCase(
+        request.getHeaders().getValue(HTTP_HEADER_KEY_CONNECTION))) {
+      return false;
+    }
+
+    var connectionValue = response.getHeaders().getValue(HTTP_HEADER_KEY_CONNECTION);
+    if (HTTP_VERSION_1_1.equals(response.getVersion())) {
+      return !HTTP_HEADER_CONNECTION_VALUE_CONNECTION_CLOSE.equalsIgnoreCase(connectionValue);
+    }
+    return HTTP_HEADER_CONNECTION_VALUE_KEEP_ALIVE.equalsIgnoreCase(connectionValue);
+  }
+
+  /**
+   * Called when the TCP connection is closed, either by the server or by this client
+   */
+  private void onClosed() {
+    if (isClosed) {
+      return;
+    }
+    isClosed = true;
+    client.remove(this);
+
+    // A failure of connecting closes the connection first, and is reported by the connect callback
+    if (future == null || isConnecting) {
+      return;
+    }
+
+    // The body without length ends here
+    if (isReadingUntilClose && response != null) {
+      if (body != null) {
+        response.setBody(body.toByteArray());
+      }
+      complete();
+      return;
+    }
+
+    // A pooled connection may be closed by the server before it sees the request, so send it again on a new one
+    var hasResponseStarted = response != null || tcpConnection.getReadManager().getCacheSize() > 0;
+    if (isReused && !hasResponseStarted && request.isRetryable()) {
+      var retriedRequest = request;
+      var retriedFuture = future;
+      reset();
+      logger.info("Pooled connection is closed, send request = " + retriedRequest + " again");
+      open(client, retriedRequest, retriedFuture);
+      return;
+    }
+
+    fail(new IOException("Connection is closed before the response of request = " + request + " is complete"));
+  }
+
+  /**
+   * Fail the current request, and close the connection since its state is unknown
+   *
+   * @param exception the failure
+   */
+  private void fail(Throwable exception) {
+    if (future == null) {
+      return;
+    }
+
+    logger.warn("Failed request = " + request, exception);
+    var resultFuture = future;
+    reset();
+    close();
+    resultFuture.completeExceptionally(exception);
+  }
+
+  /**
+   * Clear the state of the current request
+   */
+  private void reset() {
+    if (timeoutEvent != null) {
+      client.getEventLoop().removeTimeEvent(timeoutEvent);
+      timeoutEvent = null;
+    }
+
+    if (request != null) {
+      request.detach();
+    }
+    // The listener of the request may have paused reading, which the next request on the connection must not inherit
+    if (tcpConnection != null) {
+      tcpConnection.resumeReading();
+    }
+    request = null;
+    future = null;
+    response = null;
+    chunkedDecoder = null;
+    body = null;
+    bodyRemaining = 0;
+    isReadingUntilClose = false;
+  }
+
+  /**
+   * Close the connection. A request being served is not completed, so callers should reset it first.
+   */
+  void close() {
+    if (isClosed) {
+      return;
+    }
+    isClosed = true;
+    client.remove(this);
+
+    if (tcpConnection != null) {
+      tcpConnection.closeConnection();
+    }
+  }
+
+  boolean isClosed() {
+    return isClosed;
+  }
+
+  String getPoolKey() {
+    return poolKey;
+  }
+}
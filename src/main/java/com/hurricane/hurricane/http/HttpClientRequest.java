@@ -0,0 +1,354 @@
+package com.hurricane.hurricane.http;
+
+import com.hurricane.hurricane.tcp.connection.TcpConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hurricane.hurricane.common.Constant.*;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * A Http request issued by AsyncHttpClient. Only "http" URLs are supported.
+ */
+public class HttpClientRequest {
+  /**
+   * Default port of "http" URLs
+   */
+  public static final int DEFAULT_PORT = 80;
+
+  private static final String SCHEME_HTTP = "http";
+
+  /**
+   * URL of the request
+   */
+  private final URI url;
+
+  private final HttpMethod method;
+
+  /**
+   * Headers sent with the request. HOST and CONTENT-LENGTH, or TRANSFER-ENCODING of a streamed body, are added if they
+   * are not set.
+   */
+  private final HttpHeaders headers;
+
+  /**
+   * Body of the request, or null if it has no body or the body is streamed
+   */
+  private final byte[] body;
+
+  /**
+   * If the body is written with writeBody() after the request is issued, see setBodyStreamed()
+   */
+  private boolean isBodyStreamed;
+
+  /**
+   * Parts of the streamed body written before the request is sent on a connection
+   */
+  private List<byte[]> pendingBodyParts;
+  private long pendingBodyBytesCount;
+
+  private boolean isBodyEnded;
+
+  /**
+   * If the response is complete before the streamed body is, so the rest of the body is dropped
+   */
+  private boolean isBodyDiscarded;
+
+  /**
+   * Connection the request is sent on, or null if the request is not sent yet or is done
+   */
+  private HttpClientConnection connection;
+
+  /**
+   * Callback run once more of the streamed body can be written, see onWritable()
+   */
+  private Runnable writableCallback;
+
+  /**
+   * Receives the response as it arrives, or null if the response holds its body
+   */
+  private HttpClientResponseListener responseListener;
+
+  public HttpClientRequest(String url) {
+    this(url, HttpMethod.GET, new HttpHeaders(), null);
+  }
+
+  public HttpClientRequest(String url, HttpMethod method, HttpHeaders headers, byte[] body) {
+    this.url = URI.create(url);
+    if (!SCHEME_HTTP.equalsIgnoreCase(this.url.getScheme()) || this.url.getHost() == null) {
+      throw new IllegalArgumentException("Unsupported URL = " + url);
+    }
+
+    this.method = method;
+    this.headers = headers;
+    this.body = body;
+  }
+
+  public int getPort() {
+    return url.getPort() == -1 ? DEFAULT_PORT : url.getPort();
+  }
+
+  public String getHost() {
+    return url.getHost();
+  }
+
+  /**
+   * Get the key of the connections this request can be sent on
+   *
+   * @return host and port of the server
+   */
+  String getPoolKey() {
+    return getHost() + ":" + getPort();
+  }
+
+  /**
+   * Check if the request can be sent again when the connection is closed before any response, e.g., a pooled
+   * connection closed by the server while we were sending the request.
+   *
+   * @return if the method of the request is idempotent
+   */
+  boolean isIdempotent() {
+    return method != HttpMethod.POST;
+  }
+
+  /**
+   * Check if the request can be sent again on a new connection. A streamed body has been written to the old one.
+   *
+   * @return if the request can be sent again
+   */
+  boolean isRetryable() {
+    return isIdempotent() && !isBodyStreamed;
+  }
+
+  /**
+   * Stream the body of this request, which is written with writeBody() and endBody() after the request is issued. It
+   * is sent with "Transfer-Encoding: chunked", unless CONTENT-LENGTH is set in the headers. This must be called before
+   * the request is issued, on a request without a body.
+   */
+  public void setBodyStreamed() {
+    if (body != null) {
+      throw new IllegalStateException("Request = " + this + " has a body already");
+    }
+
+    isBodyStreamed = true;
+    pendingBodyParts = new ArrayList<>();
+  }
+
+  public boolean isBodyStreamed() {
+    return isBodyStreamed;
+  }
+
+  /**
+   * Write a part of the streamed body. It is sent once the request is on a connection. This must be called in the loop
+   * of the client.
+   *
+   * @param data a part of the body
+   */
+  public void writeBody(byte[] data) {
+    if (!isBodyStreamed || isBodyEnded) {
+      throw new IllegalStateException("Request = " + this + " has no body to write");
+    }
+
+    if (isBodyDiscarded) {
+      return;
+    }
+
+    if (connection != null) {
+      connection.writeBody(data);
+    } else {
+      pendingBodyParts.add(data);
+      pendingBodyBytesCount += data.length;
+    }
+  }
+
+  /**
+   * Check if more of the streamed body should be written. It is not writable while the body buffered for the server is
+   * above the high watermark of the connection, so a producer of the body, e.g., a client being relayed, should pause
+   * until the callback set by onWritable() runs. This must be called in the loop of the client.
+   *
+   * @return if the streamed body is writable
+   */
+  public boolean isWritable() {
+    if (connection != null) {
+      return connection.isWritable();
+    }
+    return isBodyDiscarded || pendingBodyBytesCount <= TcpConnection.DEFAULT_WRITE_HIGH_WATERMARK;
+  }
+
+  /**
+   * Set the callback run once, when the streamed body becomes writable again or the request is done, see isWritable().
+   * This must be called in the loop of the client.
+   *
+   * @param writableCallback callback run when the streamed body is writable
+   */
+  public void onWritable(Runnable writableCallback) {
+    this.writableCallback = writableCallback;
+  }
+
+  /**
+   * Run the writable callback, e.g., when the connection has sent the body buffered for the server
+   */
+  void notifyWritable() {
+    var callback = writableCallback;
+    writableCallback = null;
+    if (callback != null) {
+      callback.run();
+    }
+  }
+
+  /**
+   * Stop reading the response from the server until resumeResponse() is called or the request is done, e.g., while the
+   * listener relays the response to a slow client. This must be called in the loop of the client.
+   */
+  public void pauseResponse() {
+    if (connection != null) {
+      connection.pauseReading();
+    }
+  }
+
+  /**
+   * Resume reading the response from the server after pauseResponse(). This must be called in the loop of the client.
+   */
+  public void resumeResponse() {
+    if (connection != null) {
+      connection.resumeReading();
+    }
+  }
+
+  /**
+   * End the streamed body. This must be called in the loop of the client.
+   */
+  public void endBody() {
+    if (!isBodyStreamed || isBodyEnded) {
+      throw new IllegalStateException("Request = " + this + " has no body to end");
+    }
+
+    isBodyEnded = true;
+    if (connection != null && !isBodyDiscarded) {
+      connection.endBody();
+    }
+  }
+
+  boolean isBodyEnded() {
+    return isBodyEnded;
+  }
+
+  /**
+   * Check if the streamed body is framed as chunks, i.e., its length is not given in the headers
+   *
+   * @return if the body is sent with "Transfer-Encoding: chunked"
+   */
+  boolean isBodyChunked() {
+    return isBodyStreamed && !headers.contains(HTTP_HEADER_KEY_CONTENT_LENGTH);
+  }
+
+  /**
+   * Bind the request to the connection it is sent on. A streamed body starts to be sent, beginning with the parts
+   * written so far.
+   *
+   * @param connection connection the request is sent on
+   */
+  void attach(HttpClientConnection connection) {
+    this.connection = connection;
+    if (!isBodyStreamed) {
+      return;
+    }
+
+    for (var data : pendingBodyParts) {
+      connection.writeBody(data);
+    }
+    pendingBodyParts.clear();
+    pendingBodyBytesCount = 0;
+
+    if (isBodyEnded) {
+      connection.endBody();
+    }
+    if (connection.isWritable()) {
+      notifyWritable();
+    }
+  }
+
+  /**
+   * Unbind the request from its connection, since the request is done on it. The rest of a streamed body is dropped,
+   * so its producer is resumed.
+   */
+  void detach() {
+    if (connection != null) {
+      connection = null;
+      isBodyDiscarded = true;
+      notifyWritable();
+    }
+  }
+
+  /**
+   * Receive the response as it arrives instead of holding its body. This must be set before the request is issued.
+   *
+   * @param responseListener listener of the response
+   */
+  public void setResponseListener(HttpClientResponseListener responseListener) {
+    this.responseListener = responseListener;
+  }
+
+  public HttpClientResponseListener getResponseListener() {
+    return responseListener;
+  }
+
+  /**
+   * Get the bytes of the request line and headers
+   *
+   * @return bytes of the request line and headers, which end with an empty line
+   */
+  byte[] getHeadersBytes() {
+    var target = url.getRawPath() == null || url.getRawPath().isEmpty() ? "/" : url.getRawPath();
+    if (url.getRawQuery() != null) {
+      target += "?" + url.getRawQuery();
+    }
+
+    var stringBuilder = new StringBuilder();
+    stringBuilder.append(method).append(' ').append(target).append(' ').append(HTTP_VERSION_1_1)
+        .append(HTTP_HEADER_KEY_VALUE_DELIMITER);
+    if (!headers.contains(HTTP_HEADER_KEY_HOST)) {
+      stringBuilder.append(HTTP_HEADER_KEY_HOST).append(": ").append(getHost());
+      if (getPort() != DEFAULT_PORT) {
+        stringBuilder.append(':').append(getPort());
+      }
+      stringBuilder.append(HTTP_HEADER_KEY_VALUE_DELIMITER);
+    }
+    if (body != null && !headers.contains(HTTP_HEADER_KEY_CONTENT_LENGTH)) {
+      stringBuilder.append(HTTP_HEADER_KEY_CONTENT_LENGTH).append(": ").append(body.length)
+          .append(HTTP_HEADER_KEY_VALUE_DELIMITER);
+    }
+    if (isBodyChunked() && !headers.contains(HTTP_HEADER_KEY_TRANSFER_ENCODING)) {
+      stringBuilder.append(HTTP_HEADER_KEY_TRANSFER_ENCODING).append(": ")
+          .append(HTTP_HEADER_TRANSFER_ENCODING_VALUE_CHUNKED).append(HTTP_HEADER_KEY_VALUE_DELIMITER);
+    }
+    stringBuilder.append(headers.getContent()).append(HTTP_HEADER_KEY_VALUE_DELIMITER);
+
+    return stringBuilder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  public URI getUrl() {
+    return url;
+  }
+
+  public HttpMethod getMethod() {
+    return method;
+  }
+
+  public HttpHeaders getHeaders() {
+    return headers;
+  }
+
+  public byte[] getBody() {
+    return body;
+  }
+
+  @Override
+  public String toString() {
+    return method + " " + url;
+  }
+}
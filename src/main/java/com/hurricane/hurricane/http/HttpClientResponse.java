@@ -0,0 +1,95 @@
+package com.hurricane.hurricane.http;
+
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * A Http response received by AsyncHttpClient
+ */
+public class HttpClientResponse {
+  private static final byte[] EMPTY_BODY = new byte[0];
+
+  /**
+   * The request this response answers
+   */
+  private final HttpClientRequest request;
+
+  private final String version;
+
+  /**
+   * Status code of the response. It is not an HttpStatus, since servers may send any code.
+   */
+  private final int code;
+
+  private final String reasonPhrase;
+
+  private final HttpHeaders headers;
+
+  private byte[] body;
+
+  public HttpClientResponse(HttpClientRequest request, String version, int code, String reasonPhrase,
+      HttpHeaders headers) {
+    this.request = request;
+    this.version = version;
+    this.code = code;
+    this.reasonPhrase = reasonPhrase;
+    this.headers = headers;
+    this.body = EMPTY_BODY;
+  }
+
+  /**
+   * Check if the response can have a body, according to its status and the method of the request
+   *
+   * @return if the response can have a body
+   */
+  boolean canHaveBody() {
+    var isBodylessStatus = code / 100 == 1 || code == HttpStatus.NO_CONTENT.getCode()
+        || code == HttpStatus.NOT_MODIFIED.getCode();
+    return !isBodylessStatus && request.getMethod() != HttpMethod.HEAD;
+  }
+
+  void setBody(byte[] body) {
+    this.body = body;
+  }
+
+  public HttpClientRequest getRequest() {
+    return request;
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  public int getCode() {
+    return code;
+  }
+
+  public String getReasonPhrase() {
+    return reasonPhrase;
+  }
+
+  public HttpHeaders getHeaders() {
+    return headers;
+  }
+
+  public byte[] getBody() {
+    return body;
+  }
+
+  /**
+   * Decode the body as a UTF-8 string
+   *
+   * @return body of the response
+   */
+  public String getBodyAsString() {
+    return new String(body, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public String toString() {
+    return "HttpClientResponse{" + "request=" + request + ", code=" + code + ", headers=" + headers + ", body length="
+        + body.length + '}';
+  }
+}
@@ -0,0 +1,24 @@
+package com.hurricane.hurricane.http;
+
+/**
+ * @author larrytaowang
+ * <p>
+ * Receives a response of AsyncHttpClient as it arrives, instead of having its body held by the response, e.g., to
+ * relay a large body to another connection. It is called in the loop of the client, see
+ * HttpClientRequest.setResponseListener().
+ */
+public interface HttpClientResponseListener {
+  /**
+   * Called when the status line and headers of the final response are received, before its body
+   *
+   * @param response the response, whose body stays empty
+   */
+  void headersReceived(HttpClientResponse response);
+
+  /**
+   * Called when a part of the body is received, in the order of the body. A chunked body is decoded first.
+   *
+   * @param data the part of the body received
+   */
+  void dataReceived(byte[] data);
+}
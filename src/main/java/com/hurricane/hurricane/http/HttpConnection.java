@@ -4,9 +4,18 @@ import com.hurricane.hurricane.common.EventLoop;
 import com.hurricane.hurricane.tcp.callback.TcpFlushHandler;
 import com.hurricane.hurricane.tcp.callback.TcpReadBytesHandler;
 import com.hurricane.hurricane.tcp.callback.TcpReadDelimiterHandler;
+import com.hurricane.hurricane.tcp.callback.TcpReadPartialHandler;
 import com.hurricane.hurricane.tcp.connection.TcpConnection;
 import com.hurricane.hurricane.web.Application;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
 import org.apache.log4j.Logger;
 
 import static com.hurricane.hurricane.common.Constant.*;
@@ -15,10 +24,19 @@ import static com.hurricane.hurricane.common.Constant.*;
 /**
  * @author larrytaowang This class handles a connection to an Http client, executing Http requests. We parse HTTP
  * headers and bodies, and execute the request callback until the HTTP connection is closed.
+ * <p>
+ * Requests can be pipelined: the next request already received is parsed and dispatched while the previous ones are
+ * still being served, up to a max count of in-flight requests. Responses are written in the order of the requests, so
+ * the output of a request that finishes early is held until all the requests before it are finished.
  */
 public class HttpConnection {
   private final static Logger logger = Logger.getLogger(HttpConnection.class);
 
+  /**
+   * Default max count of requests that are dispatched but not finished on a connection
+   */
+  public static final int DEFAULT_MAX_PIPELINED_REQUESTS_COUNT = 16;
+
   /**
    * The TCP connection under this HTTP connection
    */
@@ -30,14 +48,54 @@ public class HttpConnection {
   private final boolean isNoKeepAlive;
 
   /**
-   * Current HTTP request
+   * Requests that have been dispatched but not finished, in the order they were received. The response of the first
+   * one is being written to the client, the output of the others is held by themselves.
+   */
+  private final Deque<HttpRequest> inFlightRequests;
+
+  /**
+   * Max count of in-flight requests. Reading stops when it is reached, and resumes when a request is finished.
+   */
+  private final int maxPipelinedRequestsCount;
+
+  /**
+   * The latest HTTP request that has been parsed
    */
   private HttpRequest httpRequest;
 
   /**
-   * If the request should be finished
+   * Decoder of the chunked body being received, and the decoded data held if the body is not streamed
+   */
+  private HttpChunkedDecoder chunkedDecoder;
+  private ByteArrayOutputStream chunkedBody;
+
+  /**
+   * Count of bytes not received yet, of the body with CONTENT-LENGTH being streamed
+   */
+  private long bodyRemaining;
+
+  /**
+   * If a read handler for the next request (its headers or body) is set
+   */
+  private boolean isReading;
+
+  /**
+   * If no more request should be read, e.g., a request asks to close the connection when it is finished
+   */
+  private boolean isReadingStopped;
+
+  /**
+   * If the requests that have been received already are being parsed and dispatched by readNextRequestIfNeeded()
+   */
+  private boolean isDraining;
+
+  /**
+   * Reading from the socket is paused when the pipeline is full, so a client pipelining faster than its requests are
+   * served is slowed down by TCP flow control instead of filling the read cache. A handler may pause reading too, see
+   * pauseReading(). The socket is read again only when neither of them holds it.
    */
-  private boolean requestFinished;
+  private boolean isPipelineFull;
+  private boolean isReadingPausedByHandler;
 
   /**
    * This application's request handler is called when the whole request has been parsed. Note that it should be only
@@ -46,11 +104,18 @@ public class HttpConnection {
   private final Application application;
 
   public HttpConnection(TcpConnection tcpConnection, Application application) {
+    this(tcpConnection, application, DEFAULT_MAX_PIPELINED_REQUESTS_COUNT);
+  }
+
+  public HttpConnection(TcpConnection tcpConnection, Application application, int maxPipelinedRequestsCount) {
     this.tcpConnection = tcpConnection;
-    EventLoop.getInstance().registerTcpConnection(tcpConnection.getKey(), tcpConnection);
+    tcpConnection.getEventLoop().registerTcpConnection(tcpConnection.getKey(), tcpConnection);
+    tcpConnection.setWritableCallback(args -> notifyWritable());
 
     this.isNoKeepAlive = false;
     this.application = application;
+    this.inFlightRequests = new ArrayDeque<>();
+    this.maxPipelinedRequestsCount = maxPipelinedRequestsCount;
   }
 
   /**
@@ -58,33 +123,146 @@ public class HttpConnection {
    * enough data has been received to construct it.
    */
   public void activate() {
-    tcpConnection.setReadHandler(new TcpReadDelimiterHandler(HTTP_HEADER_DELIMITER, this::onHttpHeaderReceived));
+    readNextRequestIfNeeded();
+  }
+
+  /**
+   * Start reading the headers of the next request, unless we are reading one already, the pipeline is full, or the
+   * connection should not serve more requests. Requests that have been received already are parsed right away.
+   * <p>
+   * A request parsed right away may be finished before its read handler returns, which calls this again. Such calls
+   * return at once, and the requests left in the read cache are drained by the loop of the outer call instead, so the
+   * stack does not grow with the count of pipelined requests.
+   */
+  private void readNextRequestIfNeeded() {
+    if (isDraining) {
+      return;
+    }
+
+    isDraining = true;
+    try {
+      while (!isReading && !isReadingStopped && inFlightRequests.size() < maxPipelinedRequestsCount) {
+        // If the headers are in the read cache already, the request is dispatched before this returns
+        isReading = true;
+        tcpConnection.setReadHandler(new TcpReadDelimiterHandler(HTTP_HEADER_DELIMITER, this::onHttpHeaderReceived));
+      }
+
+      // The body of the latest request is still read while the pipeline is full
+      isPipelineFull = !isReading && inFlightRequests.size() >= maxPipelinedRequestsCount;
+      updateReadingPaused();
+    } finally {
+      isDraining = false;
+    }
+  }
+
+  /**
+   * Write the data of the request to client asynchronously. All the given chunks are flushed together, in order. If
+   * there are unfinished requests before this one, the data is held until they are finished. If this is called by
+   * another thread, e.g., a worker running a blocking handler, the write is handed over to the loop owning the
+   * connection.
+   *
+   * @param request request whose response the data belongs to
+   * @param data    data chunks write to client
+   */
+  public void write(HttpRequest request, byte[]... data) {
+    write(request, Arrays.asList(data));
   }
 
   /**
-   * Write the data to client asynchronously. When finished, execute the complete callback.
+   * Same as write(request, data), but the segments to write can also be regions of files, which are transferred to the
+   * client without being copied to the heap.
    *
-   * @param data data write to client
+   * @param request  request whose response the segments belong to
+   * @param segments segments write to client, each is a byte array, a ByteBuffer or a FileRegion
+   */
+  public void write(HttpRequest request, List<?> segments) {
+    var eventLoop = tcpConnection.getEventLoop();
+    if (!eventLoop.inEventLoop()) {
+      eventLoop.execute(() -> write(request, segments));
+      return;
+    }
+
+    if (inFlightRequests.peek() == request) {
+      tcpConnection.setWriteHandlerWithSegments(new TcpFlushHandler(this::onWriteCompleteCallback), segments);
+    } else if (inFlightRequests.contains(request)) {
+      request.holdPendingWrites(segments);
+    } else {
+      // The connection has been closed, and the request has been dropped
+      TcpConnection.closeFileRegions(segments);
+    }
+  }
+
+  /**
+   * Check if more output of a request should be written. The output of the first in-flight request goes to the TCP
+   * connection, so it is writable as long as the connection is. The output of a later request is held by itself, which
+   * is bounded by the same high watermark. The output of a dropped request is discarded, so it is always writable.
+   *
+   * @param request request whose output is checked
+   * @return if the output of the request is writable
+   */
+  public boolean isWritable(HttpRequest request) {
+    if (inFlightRequests.peek() == request) {
+      return tcpConnection.isWritable();
+    } else if (inFlightRequests.contains(request)) {
+      return request.getPendingWritesBytesCount() <= tcpConnection.getWriteHighWatermark();
+    }
+    return true;
+  }
+
+  /**
+   * Run the writable callback of the first in-flight request if the TCP connection is writable, e.g., when its write
+   * cache has drained, or when the request becomes the first one
+   */
+  private void notifyWritable() {
+    var firstRequest = inFlightRequests.peek();
+    if (firstRequest != null && tcpConnection.isWritable()) {
+      firstRequest.notifyWritable();
+    }
+  }
+
+  /**
+   * Stop reading from the client until resumeReading() is called, see HttpRequest.pauseReading()
+   */
+  public void pauseReading() {
+    isReadingPausedByHandler = true;
+    updateReadingPaused();
+  }
+
+  /**
+   * Resume reading from the client after pauseReading(). The socket stays paused if the pipeline is full.
    */
-  public void write(byte[] data) {
-    tcpConnection.setWriteHandlerWithData(new TcpFlushHandler(this::onWriteCompleteCallback), data);
+  public void resumeReading() {
+    isReadingPausedByHandler = false;
+    updateReadingPaused();
   }
 
   /**
-   * Callback that will be run when write finishes. Finish the request if needed.
+   * Pause reading from the socket if the pipeline is full or a handler paused it, and resume it otherwise
+   */
+  private void updateReadingPaused() {
+    if (isPipelineFull || isReadingPausedByHandler) {
+      tcpConnection.pauseReading();
+    } else {
+      tcpConnection.resumeReading();
+    }
+  }
+
+  /**
+   * Callback that will be run when write finishes. Finish the first in-flight request if needed.
    *
    * @param connection TCP connection that is used for this HTTP connection
    */
   private void onWriteCompleteCallback(TcpConnection connection) {
-    if (requestFinished) {
-      finishRequest();
+    var firstRequest = inFlightRequests.peek();
+    if (firstRequest != null && firstRequest.isFinished()) {
+      finishFirstRequest();
     }
   }
 
   /**
    * This function is called to parse the HTTP header when server receives complete data. A callback for parsing the
    * HTTP body should be registered if the server finds out that HTTP request body will be available after parsing the
-   * CONTENT-LENGTH filed.A request callback will be called if
+   * TRANSFER-ENCODING and CONTENT-LENGTH fields. A request callback will be called if
    * <ul>
    *   <li>finish parsing Http header and no more data for Http body</li>
    *   <li>finish parsing Http header and Http body</li>
@@ -94,57 +272,112 @@ public class HttpConnection {
    * @param httpHeaderBytes bytes received to construct a Http header
    */
   protected void onHttpHeaderReceived(TcpConnection connection, byte[] httpHeaderBytes) {
-    String httpRequestLines = new String(httpHeaderBytes, StandardCharsets.UTF_8);
-    httpRequest = HttpRequest.parseHttpRequestHeaders(httpRequestLines, this);
+    // A malformed request line or header line from one client must not escape the event loop either
+    try {
+      httpRequest = HttpRequestParser.parse(httpHeaderBytes, this);
+    } catch (HttpException e) {
+      rejectMalformedRequest(e.getStatus());
+      return;
+    } catch (IllegalArgumentException e) {
+      logger.warn("Failed to parse Http header", e);
+      rejectMalformedRequest(HttpStatus.BAD_REQUEST);
+      return;
+    }
+    inFlightRequests.add(httpRequest);
 
-    var isBodyParsed = parseHttpBodyIfNeeded(httpRequest);
+    // A request that can not be served, e.g., its body has an unsupported coding, or its handler rejects it before the
+    // body, is answered with the error. It must not escape the event loop, which serves the other connections too.
+    boolean isBodyParsed;
+    try {
+      isBodyParsed = parseHttpBodyIfNeeded(httpRequest);
+    } catch (HttpException e) {
+      rejectRequest(httpRequest, e.getStatus());
+      return;
+    }
     logger.info("Finish parse Http Request, request = " + httpRequest.toString());
 
     // When we finish parsing request, call the callback. However, we want to call the callback exactly once. Therefore,
     // If the callback is called when parsing the Http body, we should not call it again.
-    if (!isBodyParsed && application != null) {
-      application.run(this, httpRequest);
+    if (!isBodyParsed) {
+      dispatch(httpRequest);
     }
   }
 
   /**
-   * Check the CONTENT-LENGTH filed to see if parsing HTTP request body is necessary.
+   * Check the TRANSFER-ENCODING and CONTENT-LENGTH fields to see if parsing HTTP request body is necessary. If the
+   * handler of the request streams its body, it is prepared now, and the body is delivered to it as it arrives instead
+   * of being held until it is complete.
    *
    * @param request HTTP request
    * @return if the server need to parse the HTTP request body
+   * @throws HttpException if the body has an unsupported coding or a malformed length, the body is too large to be
+   *                       held, or the handler streaming the body rejects the request
    */
-  private boolean parseHttpBodyIfNeeded(HttpRequest request) {
-    // Parse CONTENT-LENGTH filed in the header
+  private boolean parseHttpBodyIfNeeded(HttpRequest request) throws HttpException {
     var headers = request.getHttpHeaders();
-    var contentLengthString = headers.getValues(HTTP_HEADER_KEY_CONTENT_LENGTH);
 
-    // Don't need to parse HTTP body since CONTENT-LENGTH is empty
-    if (contentLengthString.isEmpty()) {
-      return false;
+    // A chunked body ends with a chunk of size 0, and Content-Length is ignored if it is set too
+    var transferEncoding = headers.getValue(HTTP_HEADER_KEY_TRANSFER_ENCODING);
+    var isChunked = transferEncoding != null;
+    if (isChunked && !HTTP_HEADER_TRANSFER_ENCODING_VALUE_CHUNKED.equalsIgnoreCase(transferEncoding.strip())) {
+      logger.warn("Unsupported Transfer-Encoding = " + transferEncoding);
+      throw new HttpException(HttpStatus.NOT_IMPLEMENTED);
     }
 
-    var contentLength = 0;
-    try {
-      contentLength = Integer.parseInt(contentLengthString);
-    } catch (NumberFormatException e) {
-      logger.warn("Failed to parse Http body. Malformed Content Length = " + contentLengthString);
-      throw e;
+    // Parse CONTENT-LENGTH filed in the header. A streamed body is not held, so its length is not bounded.
+    long contentLength = 0;
+    if (!isChunked) {
+      var contentLengthString = headers.getValue(HTTP_HEADER_KEY_CONTENT_LENGTH);
+
+      // Don't need to parse HTTP body since CONTENT-LENGTH is empty
+      if (contentLengthString == null || contentLengthString.isEmpty()) {
+        return false;
+      }
+
+      try {
+        contentLength = Long.parseLong(contentLengthString.strip());
+      } catch (NumberFormatException e) {
+        contentLength = -1;
+      }
+      if (contentLength < 0) {
+        logger.warn("Failed to parse Http body. Malformed Content Length = " + contentLengthString);
+        throw new HttpException(HttpStatus.BAD_REQUEST);
+      }
     }
 
-    if (contentLength > tcpConnection.getReadManager().getMaxCacheSize()) {
-      throw new IllegalArgumentException("Content-Length is larger than Tcp connection max cache size");
+    var bodyConsumer = application == null ? null : application.prepareBodyStream(this, request);
+    request.setBodyConsumer(bodyConsumer);
+    var maxCacheSize = tcpConnection.getReadManager().getMaxCacheSize();
+    if (bodyConsumer == null && contentLength > maxCacheSize) {
+      logger.warn("Content-Length = " + contentLength + " is larger than Tcp connection max cache size");
+      throw new HttpException(HttpStatus.PAYLOAD_TOO_LARGE);
     }
 
-    // HTTP 100 Continue: To have a server check if the request could be accepted based on the request’s headers
+    // HTTP 100 Continue: To have a server check if the request could be accepted based on the request's headers
     // alone, a client must send Expect: 100-continue as a header in its initial request and check if a 100 Continue
     // status code is received in response before continuing (or receive 417 Expectation Failed and not continue).
-    if (headers.getValues(HTTP_HEADER_KEY_EXPECT).equals(HTTP_HEADER_EXPECT_VALUE_100_CONTINUE)) {
+    if (HTTP_HEADER_EXPECT_VALUE_100_CONTINUE.equals(headers.getValue(HTTP_HEADER_KEY_EXPECT))) {
       var response = HTTP_100_CONTINUE_RESPONSE.getBytes(StandardCharsets.UTF_8);
-      write(response);
+      write(request, response);
+    }
+
+    // This server need to parse the HTTP body with desired content length, or until the last chunk
+    if (isChunked) {
+      chunkedDecoder = new HttpChunkedDecoder(bodyConsumer == null ? maxCacheSize : Long.MAX_VALUE);
+      if (bodyConsumer == null) {
+        chunkedBody = new ByteArrayOutputStream();
+      }
+      tcpConnection.setReadHandler(new TcpReadPartialHandler(this::onChunkedBodyReceived));
+    } else if (bodyConsumer != null) {
+      if (contentLength == 0) {
+        return false;
+      }
+      bodyRemaining = contentLength;
+      tcpConnection.setReadHandler(new TcpReadPartialHandler(this::onStreamedBodyReceived));
+    } else {
+      tcpConnection.setReadHandler(new TcpReadBytesHandler((int) contentLength, this::onHttpBodyReceived));
     }
 
-    // This server need to parse the HTTP body with desired content length
-    tcpConnection.setReadHandler(new TcpReadBytesHandler(contentLength, this::onHttpBodyReceived));
     return true;
   }
 
@@ -156,47 +389,232 @@ public class HttpConnection {
    */
   private void onHttpBodyReceived(TcpConnection connection, byte[] httpBodyBytes) {
     httpRequest.parseBody(httpBodyBytes);
+    dispatch(httpRequest);
+  }
+
+  /**
+   * This function is called when a part of a body with CONTENT-LENGTH is received, and the body is streamed to the
+   * handler.
+   *
+   * @param connection tcp connection of that HTTP connection
+   * @param data       unconsumed bytes received
+   */
+  private void onStreamedBodyReceived(TcpConnection connection, ByteBuffer data) {
+    var segment = new byte[(int) Math.min(bodyRemaining, data.remaining())];
+    data.get(segment);
+    connection.getReadManager().skip(segment.length);
+    bodyRemaining -= segment.length;
+    httpRequest.getBodyConsumer().accept(segment);
+
+    if (bodyRemaining > 0) {
+      tcpConnection.setReadHandler(new TcpReadPartialHandler(this::onStreamedBodyReceived));
+    } else {
+      dispatch(httpRequest);
+    }
+  }
+
+  /**
+   * This function is called when a part of a chunked body is received. The decoded data is streamed to the handler, or
+   * held until the last chunk is received.
+   *
+   * @param connection tcp connection of that HTTP connection
+   * @param data       unconsumed bytes received
+   */
+  private void onChunkedBodyReceived(TcpConnection connection, ByteBuffer data) {
+    var start = data.position();
+    Consumer<byte[]> consumer = httpRequest.isBodyStreamed() ? httpRequest.getBodyConsumer() : chunkedBody::writeBytes;
+    try {
+      chunkedDecoder.decode(data, consumer);
+    } catch (IllegalArgumentException e) {
+      logger.warn("Failed to decode chunked body of request = " + httpRequest.summary(), e);
+      close();
+      return;
+    }
+    connection.getReadManager().skip(data.position() - start);
+
+    if (!chunkedDecoder.isDone()) {
+      tcpConnection.setReadHandler(new TcpReadPartialHandler(this::onChunkedBodyReceived));
+      return;
+    }
+
+    chunkedDecoder = null;
+    if (!httpRequest.isBodyStreamed()) {
+      httpRequest.parseBody(chunkedBody.toByteArray());
+      chunkedBody = null;
+    }
+    dispatch(httpRequest);
+  }
+
+  /**
+   * Run the application for a request that has been fully received, then continue to read the next request if the
+   * pipeline allows.
+   *
+   * @param request the request to run
+   */
+  private void dispatch(HttpRequest request) {
+    isReading = false;
+    if (isNoKeepAlive || request.disconnectWhenFinish()) {
+      isReadingStopped = true;
+    }
+
     if (application != null) {
-      application.run(this, httpRequest);
+      application.run(this, request);
     }
+
+    readNextRequestIfNeeded();
   }
 
   /**
-   * Finish the HTTP request if there is no pending data for write
+   * Answer a request with an error before its body is read, and close the connection once the answer is written, since
+   * the rest of the request can not be told apart from the next one. The requests before it are still served.
+   *
+   * @param request the request to reject
+   * @param status  status of the error
    */
-  public void finish() {
-    this.requestFinished = true;
-    if (!tcpConnection.isWriting()) {
-      finishRequest();
+  private void rejectRequest(HttpRequest request, HttpStatus status) {
+    logger.warn("Reject request = " + request.summary() + ", status = " + status);
+    isReading = false;
+    isReadingStopped = true;
+    request.forceDisconnectWhenFinish();
+
+    var response = new HttpResponse();
+    response.setStatus(status);
+    response.getHeaders().add(HTTP_HEADER_KEY_CONTENT_LENGTH, "0");
+    response.getHeaders().add(HTTP_HEADER_KEY_CONNECTION, HTTP_HEADER_CONNECTION_VALUE_CONNECTION_CLOSE);
+    write(request, response.getHeadersBytes(request.getVersion()));
+    if (request.getUrlSpec() != null) {
+      request.getUrlSpec().getMetrics().record(status, System.nanoTime() - request.getStartNanos());
     }
+    finish(request);
   }
 
   /**
-   * Disconnect if there is no need to keep alive. Otherwise start to serve the next HTTP request.
+   * Answer a request whose headers can not be parsed with an error. A stand-in request takes its place, so the answer
+   * is still written after the responses of the requests before it.
+   *
+   * @param status status of the error
    */
-  private void finishRequest() {
-    var disconnect = false;
+  private void rejectMalformedRequest(HttpStatus status) {
+    httpRequest = new HttpRequest(this, HttpMethod.GET, "/", HTTP_VERSION_1_1, new HttpHeaders());
+    inFlightRequests.add(httpRequest);
+    rejectRequest(httpRequest, status);
+  }
 
-    if (isNoKeepAlive) {
-      // If not keep alive, a HttpConnect is closed after the request is finished
-      disconnect = true;
-    } else {
-      // Check the request headers to see if we need to close after finished
-      disconnect = httpRequest.disconnectWhenFinish();
+  /**
+   * Finish the HTTP request if there is no pending data for write. Like write(), this is handed over to the loop owning
+   * the connection if it is called by another thread.
+   *
+   * @param request the request to finish
+   */
+  public void finish(HttpRequest request) {
+    var eventLoop = tcpConnection.getEventLoop();
+    if (!eventLoop.inEventLoop()) {
+      eventLoop.execute(() -> finish(request));
+      return;
     }
 
-    httpRequest = null;
-    requestFinished = false;
+    request.markFinished();
+    if (inFlightRequests.peek() == request && !tcpConnection.isWriting()) {
+      finishFirstRequest();
+    }
+  }
 
-    if (disconnect) {
-      tcpConnection.closeConnection();
-    } else {
-      // If we should not disconnect after serving the request, continue to read the headers of next request
-      tcpConnection.setReadHandler(new TcpReadDelimiterHandler(HTTP_HEADER_DELIMITER, this::onHttpHeaderReceived));
+  /**
+   * The response of the first in-flight request has been flushed. Disconnect if there is no need to keep alive.
+   * Otherwise, start to write the response held by the next request, and continue to read requests if reading was
+   * paused by a full pipeline.
+   */
+  private void finishFirstRequest() {
+    while (true) {
+      var request = inFlightRequests.poll();
+      if (request == null) {
+        break;
+      }
+
+      // If not keep alive, a HttpConnect is closed after the request is finished. Otherwise, check the request headers
+      // to see if we need to close after finished.
+      if (isNoKeepAlive || request.disconnectWhenFinish()) {
+        dropInFlightRequests();
+        tcpConnection.closeConnection();
+        return;
+      }
+
+      var nextRequest = inFlightRequests.peek();
+      if (nextRequest == null) {
+        break;
+      }
+
+      // The write handler finishes the next request when its data is flushed, which may happen right away
+      var pendingWrites = nextRequest.takePendingWrites();
+      if (!pendingWrites.isEmpty()) {
+        tcpConnection.setWriteHandlerWithSegments(new TcpFlushHandler(this::onWriteCompleteCallback), pendingWrites);
+        break;
+      }
+
+      if (!nextRequest.isFinished() || tcpConnection.isWriting()) {
+        break;
+      }
     }
+
+    notifyWritable();
+    readNextRequestIfNeeded();
   }
 
+  /**
+   * Close the connection without finishing the current request, e.g., when a handler failed after it might have written
+   * part of the response. This can be called from any thread.
+   */
+  public void close() {
+    var eventLoop = tcpConnection.getEventLoop();
+    if (!eventLoop.inEventLoop()) {
+      eventLoop.execute(this::close);
+      return;
+    }
+
+    dropInFlightRequests();
+    tcpConnection.closeConnection();
+  }
+
+  /**
+   * Drop the in-flight requests when the connection is closing, and release the output held by them. Their writable
+   * callbacks are run, since their output is discarded from now on, so a paused producer is not left waiting.
+   */
+  private void dropInFlightRequests() {
+    var droppedRequests = new ArrayList<>(inFlightRequests);
+    for (var request : droppedRequests) {
+      TcpConnection.closeFileRegions(request.takePendingWrites());
+    }
+
+    inFlightRequests.clear();
+    for (var request : droppedRequests) {
+      request.notifyWritable();
+    }
+  }
+
+  /**
+   * Get the event loop owning this connection
+   *
+   * @return the event loop owning this connection
+   */
+  public EventLoop getEventLoop() {
+    return tcpConnection.getEventLoop();
+  }
+
+  /**
+   * Get the latest HTTP request that has been parsed
+   *
+   * @return the latest HTTP request
+   */
   public HttpRequest getHttpRequest() {
     return httpRequest;
   }
+
+  /**
+   * Get count of requests that have been dispatched but not finished
+   *
+   * @return count of in-flight requests
+   */
+  public int getInFlightRequestsCount() {
+    return inFlightRequests.size();
+  }
 }
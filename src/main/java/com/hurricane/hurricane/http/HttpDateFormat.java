@@ -0,0 +1,46 @@
+package com.hurricane.hurricane.http;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * Formats and parses the dates in Http headers, e.g., "Sun, 06 Nov 1994 08:49:37 GMT". Dates have a precision of one
+ * second.
+ */
+public class HttpDateFormat {
+  private static final DateTimeFormatter FORMATTER =
+      DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+  private HttpDateFormat() {
+  }
+
+  /**
+   * Format a time as a Http date
+   *
+   * @param epochMillis unix time stamp in milliseconds
+   * @return the Http date
+   */
+  public static String format(long epochMillis) {
+    return FORMATTER.format(Instant.ofEpochMilli(epochMillis));
+  }
+
+  /**
+   * Parse a Http date
+   *
+   * @param date the Http date
+   * @return unix time stamp in milliseconds, or -1 if the date is malformed, which should be ignored
+   */
+  public static long parse(String date) {
+    try {
+      return Instant.from(FORMATTER.parse(date.strip())).toEpochMilli();
+    } catch (DateTimeParseException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package com.hurricane.hurricane.http;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.hurricane.hurricane.common.Constant.*;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * A table of well-known Http header names. Looking up a name in any letter case, from a String or directly from the
+ * received bytes, returns the interned instance in the table without allocating anything. Names that are not in the
+ * table are converted to Http-Header-Case.
+ */
+public class HttpHeaderNames {
+  /**
+   * Well-known header names. Names also defined in Constant are the same instances.
+   */
+  private static final String[] WELL_KNOWN_NAMES = {
+      "Accept", "Accept-Charset", "Accept-Encoding", "Accept-Language", HTTP_HEADER_KEY_ACCEPT_RANGES, "Age", "Allow",
+      "Authorization", "Cache-Control", HTTP_HEADER_KEY_CONNECTION, "Content-Disposition", "Content-Encoding",
+      "Content-Language", HTTP_HEADER_KEY_CONTENT_LENGTH, "Content-Location", HTTP_HEADER_KEY_CONTENT_RANGE,
+      HTTP_HEADER_KEY_CONTENT_TYPE, "Cookie", "Date", HTTP_HEADER_KEY_ETAG, HTTP_HEADER_KEY_EXPECT, "Expires",
+      HTTP_HEADER_KEY_HOST, HTTP_HEADER_KEY_IF_MATCH, HTTP_HEADER_KEY_IF_MODIFIED_SINCE, HTTP_HEADER_KEY_IF_NONE_MATCH,
+      HTTP_HEADER_KEY_IF_RANGE, HTTP_HEADER_KEY_IF_UNMODIFIED_SINCE, "Keep-Alive", HTTP_HEADER_KEY_LAST_MODIFIED,
+      "Location", "Origin", "Pragma", "Proxy-Authorization", HTTP_HEADER_KEY_RANGE, "Referer", "Server", "Set-Cookie",
+      HTTP_HEADER_KEY_TRANSFER_ENCODING, "Upgrade", "User-Agent", "Vary", "Via", "WWW-Authenticate", "X-Forwarded-For",
+      "X-Forwarded-Proto", "X-Real-IP", "X-Requested-With"
+  };
+
+  /**
+   * Open addressing hash table of the well-known names, indexed by the case-insensitive hash of a name
+   */
+  private static final int TABLE_SIZE = 256;
+  private static final int TABLE_MASK = TABLE_SIZE - 1;
+  private static final String[] TABLE = new String[TABLE_SIZE];
+
+  static {
+    for (var name : WELL_KNOWN_NAMES) {
+      var index = hash(name) & TABLE_MASK;
+      while (TABLE[index] != null) {
+        index = (index + 1) & TABLE_MASK;
+      }
+      TABLE[index] = name;
+    }
+  }
+
+  private HttpHeaderNames() {
+  }
+
+  /**
+   * Convert a name to Http-Header-Case. Well-known names are returned as their interned instances, with their
+   * conventional spelling, e.g., "ETag".
+   *
+   * @param name name of http header
+   * @return name of http header in Http-Header-Case
+   */
+  public static String normalize(String name) {
+    var index = hash(name) & TABLE_MASK;
+    for (var candidate = TABLE[index]; candidate != null; candidate = TABLE[index]) {
+      if (candidate == name || candidate.equalsIgnoreCase(name)) {
+        return candidate;
+      }
+      index = (index + 1) & TABLE_MASK;
+    }
+
+    return toHeaderCase(name);
+  }
+
+  /**
+   * Get the header name in the given range of bytes, in Http-Header-Case. Well-known names are found without decoding
+   * the bytes.
+   *
+   * @param data   bytes that contain a header name
+   * @param offset start of the name
+   * @param length length of the name
+   * @return name of http header in Http-Header-Case
+   */
+  public static String normalize(byte[] data, int offset, int length) {
+    var index = hash(data, offset, length) & TABLE_MASK;
+    for (var candidate = TABLE[index]; candidate != null; candidate = TABLE[index]) {
+      if (equalsIgnoreCase(candidate, data, offset, length)) {
+        return candidate;
+      }
+      index = (index + 1) & TABLE_MASK;
+    }
+
+    return toHeaderCase(new String(data, offset, length, StandardCharsets.ISO_8859_1));
+  }
+
+  /**
+   * Capitalize the first letter of each '-' separated word, and lower case the rest of it.
+   *
+   * @param name name of http header
+   * @return name of http header in Http-Header-Case
+   */
+  private static String toHeaderCase(String name) {
+    var chars = name.toCharArray();
+    var startOfWord = true;
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = startOfWord ? Character.toUpperCase(chars[i]) : Character.toLowerCase(chars[i]);
+      startOfWord = chars[i] == '-';
+    }
+
+    return new String(chars);
+  }
+
+  /**
+   * Hash of a name that ignores the case of ASCII letters
+   */
+  private static int hash(String name) {
+    var hash = 0;
+    for (int i = 0; i < name.length(); i++) {
+      hash = 31 * hash + (name.charAt(i) | 0x20);
+    }
+
+    return mix(hash);
+  }
+
+  private static int hash(byte[] data, int offset, int length) {
+    var hash = 0;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + ((data[i] & 0xff) | 0x20);
+    }
+
+    return mix(hash);
+  }
+
+  private static int mix(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Check if the bytes are the given name, ignoring the case of ASCII letters. Well-known names are all ASCII.
+   */
+  private static boolean equalsIgnoreCase(String name, byte[] data, int offset, int length) {
+    if (name.length() != length) {
+      return false;
+    }
+
+    for (int i = 0; i < length; i++) {
+      var expected = name.charAt(i);
+      var actual = (char) (data[offset + i] & 0xff);
+      if (expected != actual && Character.toLowerCase(expected) != Character.toLowerCase(actual)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
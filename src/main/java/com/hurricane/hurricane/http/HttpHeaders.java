@@ -1,13 +1,14 @@
 package com.hurricane.hurricane.http;
 
 import com.hurricane.hurricane.common.Constant;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 
 
@@ -19,6 +20,72 @@ import org.jetbrains.annotations.NotNull;
 public class HttpHeaders implements Iterable<Map.Entry<String, List<String>>> {
   private Map<String, List<String>> headers;
 
+  /**
+   * Values of a header. Values parsed from a request are kept as ranges of the received bytes, and are decoded and
+   * cached when they are read for the first time.
+   */
+  private static class HeaderValueList extends AbstractList<String> {
+    /**
+     * Each value is either a decoded String, or a RawValue
+     */
+    private final List<Object> values = new ArrayList<>(1);
+
+    void addRaw(byte[] data, int offset, int length) {
+      values.add(new RawValue(data, offset, length));
+    }
+
+    @Override
+    public String get(int index) {
+      var value = values.get(index);
+      if (value instanceof RawValue) {
+        var rawValue = (RawValue) value;
+        value = new String(rawValue.data, rawValue.offset, rawValue.length, StandardCharsets.UTF_8);
+        values.set(index, value);
+      }
+
+      return (String) value;
+    }
+
+    @Override
+    public void add(int index, String value) {
+      values.add(index, value);
+    }
+
+    @Override
+    public String set(int index, String value) {
+      var previous = get(index);
+      values.set(index, value);
+      return previous;
+    }
+
+    @Override
+    public String remove(int index) {
+      var previous = get(index);
+      values.remove(index);
+      return previous;
+    }
+
+    @Override
+    public int size() {
+      return values.size();
+    }
+  }
+
+  /**
+   * A header value that has not been decoded
+   */
+  private static class RawValue {
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+
+    RawValue(byte[] data, int offset, int length) {
+      this.data = data;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
   public HttpHeaders() {
     this.headers = new HashMap<>();
   }
@@ -39,15 +106,63 @@ public class HttpHeaders implements Iterable<Map.Entry<String, List<String>>> {
   }
 
   /**
-   * Returns all values for the given header as a list
+   * Add a new value for the given key, which is kept as a range of the given bytes. It is only decoded when the value is
+   * asked for.
+   *
+   * @param normalizedName name of a key in Http header, which is already in Http-Header-Case
+   * @param data           bytes that contain the value. They should not be modified afterwards.
+   * @param offset         start of the value
+   * @param length         length of the value
+   */
+  void addRaw(String normalizedName, byte[] data, int offset, int length) {
+    var values = headers.get(normalizedName);
+    if (values == null) {
+      values = new HeaderValueList();
+      headers.put(normalizedName, values);
+    }
+
+    if (values instanceof HeaderValueList) {
+      ((HeaderValueList) values).addRaw(data, offset, length);
+    } else {
+      values.add(new String(data, offset, length, StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Returns all values for the given header, joined by ", ". A single value is returned as is.
    *
    * @param name name of the header
-   * @return values of the given header as list. Return empty List if header does not exist.
+   * @return values of the given header. Return empty String if header does not exist.
    */
   public String getValues(String name) {
-    var normalizedName = HttpHeaders.normalizeName(name);
-    var valueList = headers.getOrDefault(normalizedName, new ArrayList<>());
-    return String.join(", ", valueList);
+    var valueList = headers.get(HttpHeaders.normalizeName(name));
+    if (valueList == null || valueList.isEmpty()) {
+      return "";
+    }
+
+    return valueList.size() == 1 ? valueList.get(0) : String.join(", ", valueList);
+  }
+
+  /**
+   * Returns the first value for the given header, without joining the other values
+   *
+   * @param name name of the header
+   * @return the first value of the given header, or null if header does not exist
+   */
+  public String getValue(String name) {
+    var valueList = headers.get(HttpHeaders.normalizeName(name));
+    return valueList == null || valueList.isEmpty() ? null : valueList.get(0);
+  }
+
+  /**
+   * Returns all values for the given header as a list
+   *
+   * @param name name of the header
+   * @return read only values of the given header. Return empty List if header does not exist.
+   */
+  public List<String> getValueList(String name) {
+    var valueList = headers.get(HttpHeaders.normalizeName(name));
+    return valueList == null ? Collections.emptyList() : Collections.unmodifiableList(valueList);
   }
 
   /**
@@ -64,7 +179,7 @@ public class HttpHeaders implements Iterable<Map.Entry<String, List<String>>> {
     var key = line.substring(0, splitIndex).strip();
     var value = line.substring(splitIndex + 1).strip();
 
-    add(normalizeName(key), value);
+    add(key, value);
   }
 
   /**
@@ -75,10 +190,19 @@ public class HttpHeaders implements Iterable<Map.Entry<String, List<String>>> {
    */
   public static HttpHeaders parse(String headersLine) {
     HttpHeaders headers = new HttpHeaders();
-    var headerLineList = Arrays.asList(headersLine.split("\\r\\n"));
-    headerLineList = headerLineList.stream().filter((x) -> !x.strip().isEmpty()).collect(Collectors.toList());
-    for (var headerLine : headerLineList) {
-      headers.parseLine(headerLine);
+    var delimiter = Constant.HTTP_HEADER_KEY_VALUE_DELIMITER;
+    var lineStart = 0;
+    while (lineStart < headersLine.length()) {
+      var lineEnd = headersLine.indexOf(delimiter, lineStart);
+      if (lineEnd == -1) {
+        lineEnd = headersLine.length();
+      }
+
+      var headerLine = headersLine.substring(lineStart, lineEnd);
+      if (!headerLine.isBlank()) {
+        headers.parseLine(headerLine);
+      }
+      lineStart = lineEnd + delimiter.length();
     }
 
     return headers;
@@ -91,8 +215,7 @@ public class HttpHeaders implements Iterable<Map.Entry<String, List<String>>> {
    * @return name of http header in Http-Header-Case
    */
   protected static String normalizeName(String name) {
-    var splitWords = Arrays.asList(name.split("-"));
-    return splitWords.stream().map(HttpHeaders::capitalize).collect(Collectors.joining("-"));
+    return HttpHeaderNames.normalize(name);
   }
 
   /**
@@ -121,7 +244,7 @@ public class HttpHeaders implements Iterable<Map.Entry<String, List<String>>> {
    * @return if header key is present
    */
   public boolean contains(String key) {
-    return headers.containsKey(key);
+    return headers.containsKey(normalizeName(key));
   }
 
   /**
@@ -131,8 +254,9 @@ public class HttpHeaders implements Iterable<Map.Entry<String, List<String>>> {
    */
   public String getContent() {
     var stringBuilder = new StringBuilder();
-    for (var key : headers.keySet()) {
-      stringBuilder.append(key).append(": ").append(getValues(key)).append(Constant.HTTP_HEADER_KEY_VALUE_DELIMITER);
+    for (var entry : headers.entrySet()) {
+      stringBuilder.append(entry.getKey()).append(": ").append(String.join(", ", entry.getValue()))
+          .append(Constant.HTTP_HEADER_KEY_VALUE_DELIMITER);
     }
 
     return stringBuilder.toString();
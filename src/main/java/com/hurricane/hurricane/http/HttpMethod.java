@@ -1,5 +1,7 @@
 package com.hurricane.hurricane.http;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
@@ -38,7 +40,31 @@ public enum HttpMethod {
   private static final Map<String, HttpMethod> stringToEnum =
       Stream.of(values()).collect(toMap(Object::toString, e -> e));
 
+  /**
+   * Name of each method in ASCII bytes, in the order of values()
+   */
+  private static final HttpMethod[] methods = values();
+  private static final byte[][] methodBytes =
+      Stream.of(methods).map(e -> e.toString().getBytes(StandardCharsets.US_ASCII)).toArray(byte[][]::new);
+
   public static Optional<HttpMethod> fromString(String method) {
     return Optional.ofNullable(stringToEnum.get(method));
   }
+
+  /**
+   * Find the method whose name is in the given range of bytes, without decoding them
+   * @param data bytes that contain the name of a method
+   * @param offset start of the name
+   * @param length length of the name
+   * @return the method with the given name, or empty if there is none
+   */
+  public static Optional<HttpMethod> fromBytes(byte[] data, int offset, int length) {
+    for (int i = 0; i < methods.length; i++) {
+      if (Arrays.equals(methodBytes[i], 0, methodBytes[i].length, data, offset, offset + length)) {
+        return Optional.of(methods[i]);
+      }
+    }
+
+    return Optional.empty();
+  }
 }
@@ -1,11 +1,17 @@
 package com.hurricane.hurricane.http;
 
+import com.hurricane.hurricane.web.RequestHandler;
+import com.hurricane.hurricane.web.UrlSpec;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.log4j.Logger;
@@ -35,10 +41,26 @@ public class HttpRequest {
   private String uri;
 
   /**
-   * Query Key Value pairs in the URI
+   * Query Key Value pairs in the URI, parsed when they are asked for the first time
    */
   private Map<String, String> queryArgs;
 
+  /**
+   * Values of the groups in the URL pattern that matches the path, in order
+   */
+  private List<String> pathArgs = Collections.emptyList();
+
+  /**
+   * URL spec and handler of this request, once the request is routed
+   */
+  private UrlSpec urlSpec;
+  private RequestHandler handler;
+
+  /**
+   * Value of System.nanoTime() when the headers of this request are received, which the latency is measured from
+   */
+  private final long startNanos;
+
   /**
    * The path component of this request
    */
@@ -59,9 +81,43 @@ public class HttpRequest {
    */
   private HttpBody httpBody;
 
+  /**
+   * Consumer of the body as it arrives, if the handler streams the body. The body is not held by the request then.
+   */
+  private Consumer<byte[]> bodyConsumer;
+
+  /**
+   * Output of this request that is held until the responses of the pipelined requests before it are finished. Each
+   * segment is a byte array, a ByteBuffer or a FileRegion.
+   */
+  private List<Object> pendingWrites;
+
+  /**
+   * Count of bytes in the buffers of the held output. Bytes of file regions are not counted, since they are not held in
+   * memory.
+   */
+  private long pendingWritesBytesCount;
+
+  /**
+   * Callback run once more output of this request can be written, see onWritable()
+   */
+  private Runnable writableCallback;
+
+  /**
+   * If the handler has finished this request
+   */
+  private boolean finished;
+
+  /**
+   * If the connection should be closed after this request regardless of its headers, e.g., its response has no length
+   * and ends when the connection is closed.
+   */
+  private boolean forceDisconnectWhenFinish;
+
   public HttpRequest(HttpConnection connection, HttpMethod method, String uri, String version,
       HttpHeaders httpHeaders) {
     this.httpConnection = connection;
+    this.startNanos = System.nanoTime();
     this.method = method;
     this.uri = uri;
     parseUri(uri);
@@ -71,32 +127,40 @@ public class HttpRequest {
   }
 
   /**
-   * Parse the uri
+   * Parse the path component of the uri. Query arguments are only parsed when they are asked for.
    *
    * @param uri uri to parse
    */
   private void parseUri(String uri) {
-    // Parse the path component
     var uriDelimiter = '?';
-    if (uri.indexOf(uriDelimiter) != -1) {
-      this.path = uri.substring(0, uri.indexOf(uriDelimiter));
+    var delimiterIndex = uri.indexOf(uriDelimiter);
+    if (delimiterIndex != -1) {
+      this.path = uri.substring(0, delimiterIndex);
     } else {
       this.path = uri;
     }
+  }
 
-    // Parse the query arguments
+  /**
+   * Parse the query arguments of the uri
+   *
+   * @return query arguments, or null if the uri is malformed
+   */
+  private Map<String, String> parseQueryArgs() {
     List<NameValuePair> params;
     try {
       params = URLEncodedUtils.parse(new URI(uri), StandardCharsets.UTF_8);
     } catch (URISyntaxException e) {
       logger.warn("Malformed URI = " + uri);
-      return;
+      return null;
     }
 
-    this.queryArgs = new HashMap<>();
+    var args = new HashMap<String, String>();
     for (var param : params) {
-      this.queryArgs.put(param.getName(), param.getValue());
+      args.put(param.getName(), param.getValue());
     }
+
+    return args;
   }
 
   /**
@@ -114,15 +178,19 @@ public class HttpRequest {
    * @return If the request should be disconnected after finished.
    */
   public boolean disconnectWhenFinish() {
-    var headerConnectionValue = httpHeaders.getValues(HTTP_HEADER_KEY_CONNECTION);
+    if (forceDisconnectWhenFinish) {
+      return true;
+    }
+
+    var headerConnectionValue = httpHeaders.getValue(HTTP_HEADER_KEY_CONNECTION);
 
     if (supportHttpOneDotOne()) {
       // The header value of "Connection" can be either "keep-alive" or "close". Disconnect if it is "close".
-      return headerConnectionValue.equals(HTTP_HEADER_CONNECTION_VALUE_CONNECTION_CLOSE);
+      return HTTP_HEADER_CONNECTION_VALUE_CONNECTION_CLOSE.equals(headerConnectionValue);
     } else if (httpHeaders.contains(HTTP_HEADER_KEY_CONTENT_LENGTH)) {
-      return headerConnectionValue.equals(HTTP_HEADER_CONNECTION_VALUE_KEEP_ALIVE);
+      return HTTP_HEADER_CONNECTION_VALUE_KEEP_ALIVE.equals(headerConnectionValue);
     } else if (method.equals(HttpMethod.HEAD) || method.equals(HttpMethod.GET)) {
-      return headerConnectionValue.equals(HTTP_HEADER_CONNECTION_VALUE_KEEP_ALIVE);
+      return HTTP_HEADER_CONNECTION_VALUE_KEEP_ALIVE.equals(headerConnectionValue);
     } else {
       return true;
     }
@@ -137,35 +205,7 @@ public class HttpRequest {
    */
   public static HttpRequest parseHttpRequestHeaders(String httpRequestLines, HttpConnection httpConnection)
       throws HttpException {
-    // Parse First Line of Http Request
-    var delimiterIndex = httpRequestLines.indexOf(HTTP_HEADER_KEY_VALUE_DELIMITER);
-    if (delimiterIndex == -1) {
-      throw new IllegalArgumentException("Malformed Http Header, cannot find delimiter \"\r\n\" for start line");
-    }
-
-    var startLine = httpRequestLines.substring(0, delimiterIndex);
-    var fields = startLine.split(" ");
-    var methodOptional = HttpMethod.fromString(fields[0].strip());
-    if (methodOptional.isEmpty()) {
-      throw new HttpException(HttpStatus.BAD_REQUEST);
-    }
-    var method = methodOptional.get();
-
-    var uri = fields[1];
-    var version = fields[2];
-
-    if (!version.startsWith(HTTP_VERSION_PREFIX)) {
-      throw new IllegalArgumentException("Malformed HTTP version in Request-Line. version = " + version);
-    }
-
-    // Parse remaining lines as Http Headers
-    var httpHeadersLine = httpRequestLines.substring(delimiterIndex + HTTP_HEADER_KEY_VALUE_DELIMITER.length());
-    var httpHeaders = HttpHeaders.parse(httpHeadersLine);
-
-    // Create Http Request
-    logger.info("Finish parsing HTTP Request headers. METHOD = " + method + ", URI = " + uri + ", VERSION = " + version
-        + ", HEADERS = " + httpHeaders);
-    return new HttpRequest(httpConnection, method, uri, version, httpHeaders);
+    return HttpRequestParser.parse(httpRequestLines.getBytes(StandardCharsets.UTF_8), httpConnection);
   }
 
   /**
@@ -175,10 +215,10 @@ public class HttpRequest {
    */
   public void parseBody(byte[] data) {
     httpBody = new HttpBody(data);
-    var contentType = getHttpHeaders().getValues(HTTP_HEADER_KEY_CONTENT_TYPE);
+    var contentType = getHttpHeaders().getValue(HTTP_HEADER_KEY_CONTENT_TYPE);
 
     if (getMethod().equals(HttpMethod.POST)) {
-      if (contentType.startsWith(HTTP_APPLICATION_X_WWW_FORM_URLENCODED)) {
+      if (contentType != null && contentType.startsWith(HTTP_APPLICATION_X_WWW_FORM_URLENCODED)) {
         httpBody.parseFormUrlEncodedBody();
       }
     }
@@ -188,16 +228,145 @@ public class HttpRequest {
    * Finish the request.
    */
   public void finish() {
-    httpConnection.finish();
+    httpConnection.finish(this);
+  }
+
+  /**
+   * Write data to the browser. Multiple chunks are sent together, in order.
+   *
+   * @param chunks data to write
+   */
+  public void write(byte[]... chunks) {
+    httpConnection.write(this, chunks);
+  }
+
+  /**
+   * Write segments to the browser, in order. Each segment is a byte array, a ByteBuffer whose remaining bytes are sent
+   * without being copied, or a FileRegion, whose bytes are transferred from the file without being copied to the heap.
+   *
+   * @param segments segments to write
+   */
+  public void write(List<?> segments) {
+    httpConnection.write(this, segments);
+  }
+
+  /**
+   * Hold the output of this request until it is its turn to write to the connection
+   *
+   * @param segments segments to write later
+   */
+  void holdPendingWrites(List<?> segments) {
+    if (pendingWrites == null) {
+      pendingWrites = new ArrayList<>();
+    }
+
+    pendingWrites.addAll(segments);
+    for (var segment : segments) {
+      if (segment instanceof byte[]) {
+        pendingWritesBytesCount += ((byte[]) segment).length;
+      } else if (segment instanceof ByteBuffer) {
+        pendingWritesBytesCount += ((ByteBuffer) segment).remaining();
+      }
+    }
+  }
+
+  /**
+   * Take the output that has been held so far
+   *
+   * @return held segments, in order
+   */
+  List<Object> takePendingWrites() {
+    if (pendingWrites == null) {
+      return Collections.emptyList();
+    }
+
+    var result = pendingWrites;
+    pendingWrites = null;
+    pendingWritesBytesCount = 0;
+    return result;
+  }
+
+  long getPendingWritesBytesCount() {
+    return pendingWritesBytesCount;
+  }
+
+  /**
+   * Check if more output of this request should be written. It is not writable while the output buffered for the
+   * client is above the high watermark of the connection, so a producer of the output, e.g., a server being relayed,
+   * should pause until the callback set by onWritable() runs. This must be called in the loop owning the connection.
+   *
+   * @return if the output of this request is writable
+   */
+  public boolean isWritable() {
+    return httpConnection.isWritable(this);
   }
 
   /**
-   * Write data to the browser.
+   * Set the callback run once, when the output of this request becomes writable again or the connection is closed, see
+   * isWritable(). This must be called in the loop owning the connection.
    *
-   * @param chunk data to write
+   * @param writableCallback callback run when the output is writable
    */
-  public void write(byte[] chunk) {
-    httpConnection.write(chunk);
+  public void onWritable(Runnable writableCallback) {
+    this.writableCallback = writableCallback;
+  }
+
+  /**
+   * Run the writable callback, e.g., when the connection has sent the output buffered for the client
+   */
+  void notifyWritable() {
+    var callback = writableCallback;
+    writableCallback = null;
+    if (callback != null) {
+      callback.run();
+    }
+  }
+
+  /**
+   * Stop reading from the client until resumeReading() is called, e.g., while the streamed body of this request is
+   * relayed to a slow server. This must be called in the loop owning the connection.
+   */
+  public void pauseReading() {
+    httpConnection.pauseReading();
+  }
+
+  /**
+   * Resume reading from the client after pauseReading(). This must be called in the loop owning the connection.
+   */
+  public void resumeReading() {
+    httpConnection.resumeReading();
+  }
+
+  /**
+   * Close the connection after this request is finished, regardless of its headers
+   */
+  public void forceDisconnectWhenFinish() {
+    forceDisconnectWhenFinish = true;
+  }
+
+  void setBodyConsumer(Consumer<byte[]> bodyConsumer) {
+    this.bodyConsumer = bodyConsumer;
+  }
+
+  Consumer<byte[]> getBodyConsumer() {
+    return bodyConsumer;
+  }
+
+  /**
+   * Check if the body of this request is delivered to the handler as it arrives, instead of being held by the request
+   *
+   * @return if the body is streamed
+   */
+  public boolean isBodyStreamed() {
+    return bodyConsumer != null;
+  }
+
+  void markFinished() {
+    finished = true;
+  }
+
+  boolean isFinished() {
+    return finished;
   }
 
   /**
@@ -239,7 +408,39 @@ public class HttpRequest {
     return path;
   }
 
+  public List<String> getPathArgs() {
+    return pathArgs;
+  }
+
+  public void setPathArgs(List<String> pathArgs) {
+    this.pathArgs = pathArgs;
+  }
+
+  public UrlSpec getUrlSpec() {
+    return urlSpec;
+  }
+
+  public void setUrlSpec(UrlSpec urlSpec) {
+    this.urlSpec = urlSpec;
+  }
+
+  public RequestHandler getHandler() {
+    return handler;
+  }
+
+  public void setHandler(RequestHandler handler) {
+    this.handler = handler;
+  }
+
+  public long getStartNanos() {
+    return startNanos;
+  }
+
   public Map<String, String> getQueryArgs() {
+    if (queryArgs == null) {
+      queryArgs = parseQueryArgs();
+    }
+
     return queryArgs;
   }
 }
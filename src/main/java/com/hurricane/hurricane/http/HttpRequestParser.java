@@ -0,0 +1,286 @@
+package com.hurricane.hurricane.http;
+
+import java.nio.charset.StandardCharsets;
+import org.apache.log4j.Logger;
+
+import static com.hurricane.hurricane.common.Constant.*;
+
+
+/**
+ * @author larrytaowang
+ *
+ * A state machine that parses the request line and headers of a Http request directly from the received bytes. The
+ * header block is scanned once, and only the parts every request needs (header names, URI) are turned into Strings.
+ * Header values keep pointing into the received bytes, and are only decoded when a handler asks for them.
+ */
+public class HttpRequestParser {
+  private final static Logger logger = Logger.getLogger(HttpRequestParser.class);
+
+  /**
+   * Bytes of the Http versions we expect, so the common ones can be matched without decoding
+   */
+  private static final byte[] HTTP_VERSION_1_1_BYTES = HTTP_VERSION_1_1.getBytes(StandardCharsets.US_ASCII);
+  private static final String HTTP_VERSION_1_0 = "HTTP/1.0";
+  private static final byte[] HTTP_VERSION_1_0_BYTES = HTTP_VERSION_1_0.getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] HTTP_VERSION_PREFIX_BYTES = HTTP_VERSION_PREFIX.getBytes(StandardCharsets.US_ASCII);
+
+  private static final byte SPACE = ' ';
+  private static final byte TAB = '\t';
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+  private static final byte COLON = ':';
+
+  /**
+   * States of the parser. Each state consumes one byte at a time.
+   */
+  private enum State {
+    METHOD,
+    URI,
+    VERSION,
+    HEADER_LINE_START,
+    HEADER_NAME,
+    HEADER_VALUE_START,
+    HEADER_VALUE,
+    DONE
+  }
+
+  private HttpRequestParser() {
+  }
+
+  /**
+   * Parse the request line and headers of a Http request. The data should contain the whole header block, which ends
+   * with an empty line.
+   *
+   * @param data           bytes of the header block. The array is kept by the headers of the request, so it should not
+   *                       be modified afterwards.
+   * @param httpConnection The Http connection the new request belongs to
+   * @return A Http request parsed from the given bytes
+   * @throws HttpException if the method is not supported
+   */
+  public static HttpRequest parse(byte[] data, HttpConnection httpConnection) throws HttpException {
+    var state = State.METHOD;
+    HttpMethod method = null;
+    String uri = null;
+    String version = null;
+    var httpHeaders = new HttpHeaders();
+
+    // Start of the current token
+    var tokenStart = 0;
+    var index = 0;
+
+    for (; index < data.length && state != State.HEADER_LINE_START; index++) {
+      var currentByte = data[index];
+      switch (state) {
+        case METHOD:
+          if (currentByte == SPACE) {
+            method = parseMethod(data, tokenStart, index);
+            tokenStart = index + 1;
+            state = State.URI;
+          } else if (currentByte == CR || currentByte == LF) {
+            throw new IllegalArgumentException("Malformed Http Header, incomplete start line");
+          }
+          break;
+
+        case URI:
+          if (currentByte == SPACE) {
+            uri = new String(data, tokenStart, index - tokenStart, StandardCharsets.UTF_8);
+            tokenStart = index + 1;
+            state = State.VERSION;
+          } else if (currentByte == CR || currentByte == LF) {
+            throw new IllegalArgumentException("Malformed Http Header, incomplete start line");
+          }
+          break;
+
+        case VERSION:
+          if (currentByte == LF) {
+            version = parseVersion(data, tokenStart, trimCarriageReturn(data, tokenStart, index));
+            state = State.HEADER_LINE_START;
+          }
+          break;
+
+        default:
+          break;
+      }
+    }
+
+    // The header block may end right after the start line
+    if (state == State.METHOD || state == State.URI) {
+      throw new IllegalArgumentException("Malformed Http Header, cannot find delimiter \"\r\n\" for start line");
+    } else if (state == State.VERSION) {
+      version = parseVersion(data, tokenStart, trimCarriageReturn(data, tokenStart, data.length));
+    } else {
+      parseHeaders(data, index, httpHeaders);
+    }
+
+    // Create Http Request
+    logger.info("Finish parsing HTTP Request headers. METHOD = " + method + ", URI = " + uri + ", VERSION = " + version
+        + ", HEADERS = " + httpHeaders);
+    return new HttpRequest(httpConnection, method, uri, version, httpHeaders);
+  }
+
+  /**
+   * Parse the header lines after the start line of a Http message, until an empty line or the end of the data. This is
+   * shared by requests and responses, whose header lines are the same.
+   *
+   * @param data        bytes of the header block. The array is kept by the headers, so it should not be modified
+   *                    afterwards.
+   * @param start       index of the first header line
+   * @param httpHeaders headers to add the parsed headers to
+   */
+  @SuppressWarnings("fallthrough")
+  static void parseHeaders(byte[] data, int start, HttpHeaders httpHeaders) {
+    var state = State.HEADER_LINE_START;
+
+    // Start of the current token, and end of the current header value without trailing whitespaces
+    var tokenStart = start;
+    var valueEnd = start;
+    String headerName = null;
+
+    for (int index = start; index < data.length && state != State.DONE; index++) {
+      var currentByte = data[index];
+      switch (state) {
+        case HEADER_LINE_START:
+          if (currentByte == LF) {
+            // An empty line ends the header block
+            state = State.DONE;
+          } else if (currentByte != CR) {
+            tokenStart = index;
+            state = State.HEADER_NAME;
+          }
+          break;
+
+        case HEADER_NAME:
+          if (currentByte == COLON) {
+            headerName = parseHeaderName(data, tokenStart, index);
+            state = State.HEADER_VALUE_START;
+          } else if (currentByte == CR || currentByte == LF) {
+            throw new IllegalArgumentException("Illegal header line, the format should be Key:Value, the input is = "
+                + new String(data, tokenStart, index - tokenStart, StandardCharsets.UTF_8));
+          }
+          break;
+
+        case HEADER_VALUE_START:
+          if (currentByte == SPACE || currentByte == TAB) {
+            break;
+          }
+
+          tokenStart = index;
+          valueEnd = index;
+          state = State.HEADER_VALUE;
+          // Fall through, since this byte belongs to the value
+        case HEADER_VALUE:
+          if (currentByte == LF) {
+            httpHeaders.addRaw(headerName, data, tokenStart, valueEnd - tokenStart);
+            state = State.HEADER_LINE_START;
+          } else if (currentByte != SPACE && currentByte != TAB && currentByte != CR) {
+            valueEnd = index + 1;
+          }
+          break;
+
+        default:
+          break;
+      }
+    }
+
+    // The header block may end right after the last header line, without an empty line
+    if (state == State.HEADER_VALUE) {
+      httpHeaders.addRaw(headerName, data, tokenStart, valueEnd - tokenStart);
+    } else if (state == State.HEADER_VALUE_START) {
+      httpHeaders.addRaw(headerName, data, data.length, 0);
+    } else if (state == State.HEADER_NAME) {
+      throw new IllegalArgumentException("Illegal header line, the format should be Key:Value, the input is = "
+          + new String(data, tokenStart, data.length - tokenStart, StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Find the method of the request in the given range
+   * @param data bytes of the header block
+   * @param start start of the method, inclusive
+   * @param end end of the method, exclusive
+   * @return method of the request
+   * @throws HttpException if the method is not supported
+   */
+  private static HttpMethod parseMethod(byte[] data, int start, int end) throws HttpException {
+    var methodOptional = HttpMethod.fromBytes(data, start, end - start);
+    if (methodOptional.isEmpty()) {
+      throw new HttpException(HttpStatus.BAD_REQUEST);
+    }
+
+    return methodOptional.get();
+  }
+
+  /**
+   * Get the Http version in the given range. Common versions are matched without decoding.
+   * @param data bytes of the header block
+   * @param start start of the version, inclusive
+   * @param end end of the version, exclusive
+   * @return Http version of the request
+   */
+  static String parseVersion(byte[] data, int start, int end) {
+    if (rangeEquals(data, start, end, HTTP_VERSION_1_1_BYTES)) {
+      return HTTP_VERSION_1_1;
+    } else if (rangeEquals(data, start, end, HTTP_VERSION_1_0_BYTES)) {
+      return HTTP_VERSION_1_0;
+    }
+
+    var version = new String(data, start, end - start, StandardCharsets.UTF_8);
+    if (end - start < HTTP_VERSION_PREFIX_BYTES.length
+        || !rangeEquals(data, start, start + HTTP_VERSION_PREFIX_BYTES.length, HTTP_VERSION_PREFIX_BYTES)) {
+      throw new IllegalArgumentException("Malformed HTTP version in start line. version = " + version);
+    }
+
+    return version;
+  }
+
+  /**
+   * Get the name of the header in the given range in Http-Header-Case, without surrounding whitespaces
+   * @param data bytes of the header block
+   * @param start start of the name, inclusive
+   * @param end end of the name, exclusive
+   * @return name of the header
+   */
+  private static String parseHeaderName(byte[] data, int start, int end) {
+    while (start < end && (data[start] == SPACE || data[start] == TAB)) {
+      start++;
+    }
+    while (end > start && (data[end - 1] == SPACE || data[end - 1] == TAB)) {
+      end--;
+    }
+
+    return HttpHeaderNames.normalize(data, start, end - start);
+  }
+
+  /**
+   * Exclude the CR before the end of a line from the given range
+   * @param data bytes of the header block
+   * @param start start of the range, inclusive
+   * @param end end of the range, exclusive
+   * @return end of the range without the trailing CR
+   */
+  static int trimCarriageReturn(byte[] data, int start, int end) {
+    return end > start && data[end - 1] == CR ? end - 1 : end;
+  }
+
+  /**
+   * Check if the bytes in the given range are the expected bytes
+   * @param data bytes of the header block
+   * @param start start of the range, inclusive
+   * @param end end of the range, exclusive
+   * @param expected expected bytes
+   * @return if the range is equal to the expected bytes
+   */
+  private static boolean rangeEquals(byte[] data, int start, int end, byte[] expected) {
+    if (end - start != expected.length) {
+      return false;
+    }
+
+    for (int i = 0; i < expected.length; i++) {
+      if (data[start + i] != expected[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
@@ -1,5 +1,7 @@
 package com.hurricane.hurricane.http;
 
+import com.hurricane.hurricane.tcp.connection.FileRegion;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 import static com.hurricane.hurricane.common.Constant.*;
@@ -22,9 +24,11 @@ public class HttpResponse {
   private StringBuilder body;
 
   /**
-   * Status of this Http response. By default it is 200 OK.
+   * Status code and reason phrase of this Http response. By default it is 200 OK. They are not limited to HttpStatus,
+   * e.g., a proxy relays whatever status the upstream server sends.
    */
-  private HttpStatus status;
+  private int code;
+  private String reasonPhrase;
 
   /**
    * If the header of this Http response has been writen to browser. RequestHandler should check this flag to avoid
@@ -32,6 +36,18 @@ public class HttpResponse {
    */
   private boolean isHeaderWritten;
 
+  /**
+   * If the body of this Http response is sent with "Transfer-Encoding: chunked", because it is flushed before it is
+   * complete.
+   */
+  private boolean isChunked;
+
+  /**
+   * A segment sent as the body of this Http response without being copied, after the body in the buffer if there is
+   * any. It is either a FileRegion or a ByteBuffer, e.g., a cached file.
+   */
+  private Object bodySegment;
+
   public HttpResponse() {
     this(new HttpHeaders());
   }
@@ -40,7 +56,7 @@ public class HttpResponse {
     this.isHeaderWritten = false;
     this.headers = headers;
     this.body = new StringBuilder();
-    this.status = HttpStatus.OK;
+    setStatus(HttpStatus.OK);
   }
 
   /**
@@ -62,8 +78,7 @@ public class HttpResponse {
   public byte[] getHeadersBytes(String httpVersion) {
     // Append header string
     var whiteSpace = ' ';
-    var result =
-        httpVersion + whiteSpace + status.getCode() + whiteSpace + status.name() + HTTP_HEADER_KEY_VALUE_DELIMITER;
+    var result = httpVersion + whiteSpace + code + whiteSpace + reasonPhrase + HTTP_HEADER_KEY_VALUE_DELIMITER;
 
     // Append headers
     result += headers.getContent() + HTTP_HEADER_KEY_VALUE_DELIMITER;
@@ -81,6 +96,13 @@ public class HttpResponse {
     return body.toString().getBytes(StandardCharsets.UTF_8);
   }
 
+  /**
+   * Clear the body that has been flushed. The headers and status are kept.
+   */
+  public void clearBody() {
+    body.setLength(0);
+  }
+
   /**
    * Check if the header of response has been written.
    * @return if the header of response has been written.
@@ -95,15 +117,103 @@ public class HttpResponse {
   public void reset() {
     headers.clear();
     body.setLength(0);
-    status = HttpStatus.OK;
+    setStatus(HttpStatus.OK);
     isHeaderWritten = false;
+    isChunked = false;
+    if (bodySegment instanceof FileRegion) {
+      ((FileRegion) bodySegment).close();
+    }
+    bodySegment = null;
   }
 
   public HttpHeaders getHeaders() {
     return headers;
   }
 
-  public HttpStatus getStatus() {
-    return status;
+  public int getCode() {
+    return code;
+  }
+
+  public String getReasonPhrase() {
+    return reasonPhrase;
+  }
+
+  public void setStatus(HttpStatus status) {
+    setStatus(status.getCode(), status.getReasonPhrase());
+  }
+
+  /**
+   * Set a status that may not be defined by HttpStatus, e.g., the status of a response from another server
+   *
+   * @param code         status code, in [100, 599]
+   * @param reasonPhrase reason phrase sent after the code in the status line, which may be empty
+   */
+  public void setStatus(int code, String reasonPhrase) {
+    if (code < 100 || code > 599) {
+      throw new IllegalArgumentException("Invalid status code = " + code);
+    }
+
+    this.code = code;
+    this.reasonPhrase = reasonPhrase == null ? "" : reasonPhrase;
+  }
+
+  /**
+   * Check if this response must not have a body, e.g., 204 No Content
+   *
+   * @return if this response has no body
+   */
+  public boolean isBodyless() {
+    return code / 100 == 1 || code == HttpStatus.NO_CONTENT.getCode() || code == HttpStatus.NOT_MODIFIED.getCode();
+  }
+
+  public boolean isChunked() {
+    return isChunked;
+  }
+
+  public void setChunked(boolean chunked) {
+    isChunked = chunked;
+  }
+
+  public Object getBodySegment() {
+    return bodySegment;
+  }
+
+  /**
+   * Set the segment sent after the body in the buffer
+   *
+   * @param bodySegment a FileRegion, or a ByteBuffer whose remaining bytes are sent
+   */
+  public void setBodySegment(Object bodySegment) {
+    if (!(bodySegment instanceof FileRegion) && !(bodySegment instanceof ByteBuffer)) {
+      throw new IllegalArgumentException("Body segment should be a FileRegion or a ByteBuffer");
+    }
+
+    this.bodySegment = bodySegment;
+  }
+
+  /**
+   * Get count of bytes of the body segment
+   *
+   * @return count of bytes to send, or 0 if there is no body segment
+   */
+  public long getBodySegmentLength() {
+    if (bodySegment instanceof FileRegion) {
+      return ((FileRegion) bodySegment).getRemaining();
+    } else if (bodySegment instanceof ByteBuffer) {
+      return ((ByteBuffer) bodySegment).remaining();
+    }
+
+    return 0;
+  }
+
+  /**
+   * Take the body segment to send, so it will not be closed when the response is reset
+   *
+   * @return the body segment, or null if there is none
+   */
+  public Object takeBodySegment() {
+    var result = bodySegment;
+    bodySegment = null;
+    return result;
   }
 }
@@ -0,0 +1,75 @@
+package com.hurricane.hurricane.http;
+
+import java.nio.charset.StandardCharsets;
+import org.apache.log4j.Logger;
+
+
+/**
+ * @author larrytaowang
+ *
+ * Parses the status line and headers of a Http response received by AsyncHttpClient. The header lines are parsed by
+ * the same state machine as the headers of requests, see HttpRequestParser.
+ */
+public class HttpResponseParser {
+  private final static Logger logger = Logger.getLogger(HttpResponseParser.class);
+
+  private static final byte SPACE = ' ';
+  private static final byte LF = '\n';
+
+  /**
+   * Length of a status code
+   */
+  private static final int STATUS_CODE_LENGTH = 3;
+
+  private HttpResponseParser() {
+  }
+
+  /**
+   * Parse the status line and headers of a Http response. The data should contain the whole header block, which ends
+   * with an empty line.
+   *
+   * @param data    bytes of the header block. The array is kept by the headers of the response, so it should not be
+   *                modified afterwards.
+   * @param request the request this response answers
+   * @return A Http response parsed from the given bytes, without its body
+   * @throws IllegalArgumentException if the status line is malformed
+   */
+  public static HttpClientResponse parse(byte[] data, HttpClientRequest request) {
+    var lineEnd = 0;
+    while (lineEnd < data.length && data[lineEnd] != LF) {
+      lineEnd++;
+    }
+    var statusLineEnd = HttpRequestParser.trimCarriageReturn(data, 0, lineEnd);
+
+    // Status line is "HTTP-version SP status-code SP reason-phrase", and the reason phrase may be empty
+    var versionEnd = 0;
+    while (versionEnd < statusLineEnd && data[versionEnd] != SPACE) {
+      versionEnd++;
+    }
+    var codeStart = versionEnd + 1;
+    var codeEnd = codeStart + STATUS_CODE_LENGTH;
+    if (codeEnd > statusLineEnd || (codeEnd < statusLineEnd && data[codeEnd] != SPACE)) {
+      throw new IllegalArgumentException("Malformed status line = "
+          + new String(data, 0, statusLineEnd, StandardCharsets.UTF_8));
+    }
+
+    var version = HttpRequestParser.parseVersion(data, 0, versionEnd);
+    var code = 0;
+    for (int i = codeStart; i < codeEnd; i++) {
+      if (data[i] < '0' || data[i] > '9') {
+        throw new IllegalArgumentException("Malformed status code = "
+            + new String(data, codeStart, STATUS_CODE_LENGTH, StandardCharsets.UTF_8));
+      }
+      code = code * 10 + data[i] - '0';
+    }
+    var reasonPhrase = codeEnd < statusLineEnd
+        ? new String(data, codeEnd + 1, statusLineEnd - codeEnd - 1, StandardCharsets.UTF_8) : "";
+
+    var httpHeaders = new HttpHeaders();
+    HttpRequestParser.parseHeaders(data, Math.min(lineEnd + 1, data.length), httpHeaders);
+
+    logger.info("Finish parsing HTTP Response headers. VERSION = " + version + ", CODE = " + code + ", HEADERS = "
+        + httpHeaders);
+    return new HttpClientResponse(request, version, code, reasonPhrase, httpHeaders);
+  }
+}
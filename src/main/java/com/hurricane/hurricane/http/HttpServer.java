@@ -1,5 +1,6 @@
 package com.hurricane.hurricane.http;
 
+import com.hurricane.hurricane.common.EventLoopGroup;
 import com.hurricane.hurricane.tcp.TcpAcceptManager;
 import com.hurricane.hurricane.tcp.TcpServer;
 import com.hurricane.hurricane.tcp.connection.TcpConnection;
@@ -12,13 +13,16 @@ import java.net.InetSocketAddress;
 /**
  * @author larrytaowang
  *
- * A non-blocking, single-threaded HTTP server, which is essentially a TcpServer with READ/WRITE callbacks that follows
+ * A non-blocking HTTP server, which is essentially a TcpServer with READ/WRITE callbacks that follows
  * HTTP protocols.
  *
  * When a TCP connection is established, the READ callback is set to wait for HTTP header data, that is, data with
  * delimiter "\r\n". When the HTTP header data is received and processed, a READ callback for parsing HTTP body will
  * be set if necessary. Similarly, when HTTP server wants to send a response to the client, it needs to prepare the
  * response data and set the WRITE callbacks accordingly.
+ *
+ * By default the server is single-threaded. If an EventLoopGroup is set, connections are spread over the loops of the
+ * group, and the handlers of the application may run concurrently in different loops.
  */
 public class HttpServer {
   /**
@@ -31,6 +35,17 @@ public class HttpServer {
    */
   private Application application;
 
+  /**
+   * Loops that client connections are assigned to. If null, the global EventLoop handles all the connections.
+   */
+  private EventLoopGroup eventLoopGroup;
+
+  /**
+   * If each loop of the group should own a listening socket bound with SO_REUSEPORT, so the kernel balances new
+   * connections over the loops instead of the global EventLoop accepting all of them.
+   */
+  private boolean reusePort;
+
   private HttpServer() {
   }
 
@@ -61,7 +76,7 @@ public class HttpServer {
       }
     };
 
-    TcpServer.init(httpAcceptManager);
+    TcpServer.init(httpAcceptManager, eventLoopGroup, reusePort);
 
     // Bind the server
     if (port == -1) {
@@ -85,4 +100,22 @@ public class HttpServer {
   public void setApplication(Application application) {
     this.application = application;
   }
+
+  /**
+   * Set the loops that client connections will be assigned to. This should be called before listen(), and the group
+   * should be started separately. Unless SO_REUSEPORT is enabled, the global EventLoop still accepts the connections.
+   * @param eventLoopGroup loops for client connections. If null, the global EventLoop handles all the connections.
+   */
+  public void setEventLoopGroup(EventLoopGroup eventLoopGroup) {
+    this.eventLoopGroup = eventLoopGroup;
+  }
+
+  /**
+   * Enable or disable SO_REUSEPORT sharding of the listening socket over the loops of the EventLoopGroup. This should be
+   * called before listen(), and only takes effect if an EventLoopGroup is set and the platform supports SO_REUSEPORT.
+   * @param reusePort if each loop should own a listening socket bound to the same port
+   */
+  public void setReusePort(boolean reusePort) {
+    this.reusePort = reusePort;
+  }
 }
@@ -1,5 +1,9 @@
 package com.hurricane.hurricane.http;
 
+import java.util.HashMap;
+import java.util.Map;
+
+
 /**
  * @author larrytaowang
  */
@@ -8,36 +12,160 @@ public enum HttpStatus {
    * The client's request was successful and the server's response contains the requested data. This is the default
    * status code.
    */
-  OK(200),
+  OK(200, "OK"),
+
+  /**
+   * The request was successful, and a new resource has been created.
+   */
+  CREATED(201, "Created"),
+
+  /**
+   * The request has been accepted, but its processing has not been completed.
+   */
+  ACCEPTED(202, "Accepted"),
+
+  /**
+   * The request was successful, and the response has no body.
+   */
+  NO_CONTENT(204, "No Content"),
+
+  /**
+   * The server is sending the ranges of the body that the client asked for with a Range header.
+   */
+  PARTIAL_CONTENT(206, "Partial Content"),
+
+  /**
+   * The resource has several representations, and the client may choose one of them.
+   */
+  MULTIPLE_CHOICES(300, "Multiple Choices"),
+
+  /**
+   * The resource has been moved to the URL given by the Location header for good.
+   */
+  MOVED_PERMANENTLY(301, "Moved Permanently"),
+
+  /**
+   * The resource is at the URL given by the Location header for now.
+   */
+  FOUND(302, "Found"),
+
+  /**
+   * The client should get the URL given by the Location header with GET method.
+   */
+  SEE_OTHER(303, "See Other"),
+
+  /**
+   * The content has not been modified since the version the client has cached, which is given by the conditional
+   * headers of the request. The response has no body.
+   */
+  NOT_MODIFIED(304, "Not Modified"),
 
   /**
    * The server could not understand the request, probably due to a syntax error.
    */
-  BAD_REQUEST(400),
+  BAD_REQUEST(400, "Bad Request"),
+
+  /**
+   * The client must authenticate itself to get the response.
+   */
+  UNAUTHORIZED(401, "Unauthorized"),
+
+  /**
+   * The client is known to the server, but has no right to the content.
+   */
+  FORBIDDEN(403, "Forbidden"),
+
+  /**
+   * The server can not find the requested resource.
+   */
+  NOT_FOUND(404, "Not Found"),
 
   /**
    * The method used by the client is not supported by this URL. The methods that are supported must be listed in the
    * response's Allow header.
    */
-  METHOD_NOT_ALLOWED(405),
+  METHOD_NOT_ALLOWED(405, "Method Not Allowed"),
+
+  /**
+   * A precondition given by the conditional headers of the request, e.g., If-Match, does not hold.
+   */
+  PRECONDITION_FAILED(412, "Precondition Failed"),
+
+  /**
+   * The body of the request is larger than the server is willing to hold.
+   */
+  PAYLOAD_TOO_LARGE(413, "Payload Too Large"),
+
+  /**
+   * None of the ranges in the Range header of the request overlaps the body.
+   */
+  RANGE_NOT_SATISFIABLE(416, "Range Not Satisfiable"),
 
   /**
    * An unexpected error occurred inside the server that prevented it from fulfilling the request.
    */
-  INTERNAL_SERVER_ERROR(500);
+  INTERNAL_SERVER_ERROR(500, "Internal Server Error"),
+
+  /**
+   * The server does not support the functionality required to fulfill the request, e.g., a transfer coding.
+   */
+  NOT_IMPLEMENTED(501, "Not Implemented"),
+
+  /**
+   * The server, acting as a gateway or proxy, got an invalid response from the upstream server.
+   */
+  BAD_GATEWAY(502, "Bad Gateway"),
+
+  /**
+   * The server is not ready to handle the request, e.g., it is overloaded.
+   */
+  SERVICE_UNAVAILABLE(503, "Service Unavailable"),
+
+  /**
+   * The server, acting as a gateway or proxy, did not get a response from the upstream server in time.
+   */
+  GATEWAY_TIMEOUT(504, "Gateway Timeout");
+
+  private static final Map<Integer, HttpStatus> STATUS_BY_CODE = new HashMap<>();
+
+  static {
+    for (var status : values()) {
+      STATUS_BY_CODE.put(status.code, status);
+    }
+  }
 
   private int code;
 
-  HttpStatus(int code) {
+  /**
+   * Reason phrase sent after the code in the status line
+   */
+  private String reasonPhrase;
+
+  HttpStatus(int code, String reasonPhrase) {
     this.code = code;
+    this.reasonPhrase = reasonPhrase;
   }
 
   public int getCode() {
     return code;
   }
 
+  public String getReasonPhrase() {
+    return reasonPhrase;
+  }
+
+  /**
+   * Get the status of a code
+   *
+   * @param code status code
+   * @return the status of the code, or null if it is not defined here
+   */
+  public static HttpStatus fromCode(int code) {
+    return STATUS_BY_CODE.get(code);
+  }
+
   @Override
   public String toString() {
-    return "HttpStatus{" + "code=" + code + ", message='" + name().replace('_', ' ') + '\'' + '}';
+    return "HttpStatus{" + "code=" + code + ", message='" + reasonPhrase + '\'' + '}';
   }
 }
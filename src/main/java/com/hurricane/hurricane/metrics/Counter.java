@@ -0,0 +1,36 @@
+package com.hurricane.hurricane.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * A counter that only goes up, e.g., count of requests. It is striped by LongAdder, so the loops of a group can update
+ * it at the same time without contending on a single value.
+ */
+public class Counter implements Metric {
+  private final LongAdder value = new LongAdder();
+
+  public void increment() {
+    value.increment();
+  }
+
+  /**
+   * Add an amount to the counter
+   *
+   * @param amount amount to add, which should not be negative
+   */
+  public void add(long amount) {
+    value.add(amount);
+  }
+
+  public long get() {
+    return value.sum();
+  }
+
+  @Override
+  public void writeSamples(StringBuilder out, String name, String labels) {
+    MetricsRegistry.writeSample(out, name, labels, Long.toString(get()));
+  }
+}
@@ -0,0 +1,34 @@
+package com.hurricane.hurricane.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * A value that goes up and down, e.g., count of open connections
+ */
+public class Gauge implements Metric {
+  private final AtomicLong value = new AtomicLong();
+
+  public void increment() {
+    value.incrementAndGet();
+  }
+
+  public void decrement() {
+    value.decrementAndGet();
+  }
+
+  public void set(long newValue) {
+    value.set(newValue);
+  }
+
+  public long get() {
+    return value.get();
+  }
+
+  @Override
+  public void writeSamples(StringBuilder out, String name, String labels) {
+    MetricsRegistry.writeSample(out, name, labels, Long.toString(get()));
+  }
+}
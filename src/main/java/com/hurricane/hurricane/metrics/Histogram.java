@@ -0,0 +1,152 @@
+package com.hurricane.hurricane.metrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * A histogram of non-negative values, e.g., latencies in nanoseconds, with buckets laid out like HdrHistogram. Values
+ * below SUB_BUCKET_COUNT have a bucket each. Above that, each power of two is split into SUB_BUCKET_COUNT buckets of
+ * equal width, so a value is known within 1 / SUB_BUCKET_COUNT of itself at any magnitude, with a fixed count of
+ * buckets and no configuration of their bounds.
+ * <p>
+ * Recording a value is a few bit operations and two atomic adds, without locks or allocation. Reads, e.g., percentiles,
+ * scan the buckets while they may be updated, so they are only consistent within the values recorded meanwhile.
+ * <p>
+ * It is exported as a Prometheus summary, with the values of QUANTILES, the sum and the count.
+ */
+public class Histogram implements Metric {
+  /**
+   * log2 of SUB_BUCKET_COUNT
+   */
+  static final int SUB_BUCKET_BITS = 5;
+
+  /**
+   * Count of buckets of each power of two, which bounds the relative error of a value to 1 / SUB_BUCKET_COUNT
+   */
+  static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Count of buckets for all the non-negative longs
+   */
+  private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  /**
+   * Quantiles that are exported
+   */
+  private static final List<Double> QUANTILES = List.of(0.5, 0.9, 0.99, 0.999);
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+  private final LongAdder count = new LongAdder();
+
+  private final LongAdder sum = new LongAdder();
+
+  /**
+   * Factor that converts the recorded values to the exported unit, e.g., 1e-9 for nanoseconds exported as seconds
+   */
+  private final double exportScale;
+
+  public Histogram() {
+    this(1);
+  }
+
+  public Histogram(double exportScale) {
+    this.exportScale = exportScale;
+  }
+
+  /**
+   * Record a value. A negative value, e.g., from a clock going back, is taken as 0.
+   *
+   * @param value value to record
+   */
+  public void record(long value) {
+    value = Math.max(value, 0);
+    counts.incrementAndGet(getBucketIndex(value));
+    count.increment();
+    sum.add(value);
+  }
+
+  /**
+   * Get the bucket of a value
+   *
+   * @param value a non-negative value
+   * @return index of its bucket
+   */
+  static int getBucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+
+    // The highest bit of the value picks the power of two, and the bits below it pick the bucket within it
+    var shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    var subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  /**
+   * Get the largest value of a bucket
+   *
+   * @param index index of the bucket
+   * @return the largest value that falls in the bucket
+   */
+  static long getBucketMaxValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+
+    var shift = index / SUB_BUCKET_COUNT - 1;
+    var subBucket = index % SUB_BUCKET_COUNT;
+    var lowestValue = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+    return lowestValue + (1L << shift) - 1;
+  }
+
+  /**
+   * Get the value at a quantile of the recorded values
+   *
+   * @param quantile quantile in [0, 1], e.g., 0.99
+   * @return the largest value of the bucket the quantile falls in, or 0 if nothing has been recorded
+   */
+  public long getValueAtQuantile(double quantile) {
+    long totalCount = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      totalCount += counts.get(i);
+    }
+    if (totalCount == 0) {
+      return 0;
+    }
+
+    var rank = Math.max(1, (long) Math.ceil(quantile * totalCount));
+    long cumulativeCount = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      cumulativeCount += counts.get(i);
+      if (cumulativeCount >= rank) {
+        return getBucketMaxValue(i);
+      }
+    }
+
+    return getBucketMaxValue(BUCKET_COUNT - 1);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getSum() {
+    return sum.sum();
+  }
+
+  @Override
+  public void writeSamples(StringBuilder out, String name, String labels) {
+    for (var quantile : QUANTILES) {
+      var quantileLabels = (labels.isEmpty() ? "" : labels + ",") + "quantile=\"" + quantile + "\"";
+      MetricsRegistry.writeSample(out, name, quantileLabels,
+          Double.toString(getValueAtQuantile(quantile) * exportScale));
+    }
+    MetricsRegistry.writeSample(out, name + "_sum", labels, Double.toString(getSum() * exportScale));
+    MetricsRegistry.writeSample(out, name + "_count", labels, Long.toString(getCount()));
+  }
+}
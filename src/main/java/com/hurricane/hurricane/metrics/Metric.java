@@ -0,0 +1,17 @@
+package com.hurricane.hurricane.metrics;
+
+/**
+ * @author larrytaowang
+ * <p>
+ * A metric that can be exported in Prometheus text format
+ */
+interface Metric {
+  /**
+   * Append the samples of this metric, one line each
+   *
+   * @param out    output of the exposition text
+   * @param name   name of the metric family
+   * @param labels labels of this metric, formatted as 'key="value",...', or empty if it has no label
+   */
+  void writeSamples(StringBuilder out, String name, String labels);
+}
@@ -0,0 +1,194 @@
+package com.hurricane.hurricane.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * Registry of the metrics of the server, which exports them in Prometheus text format. Metrics of the same name make a
+ * family, and are told apart by their labels, e.g., the route of a request. Getting a metric looks it up in concurrent
+ * maps, so callers on hot paths should keep the metric instead of getting it for every update.
+ */
+public class MetricsRegistry {
+  private static final MetricsRegistry instance = new MetricsRegistry();
+
+  /**
+   * Content type of the exposition text
+   */
+  public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  /**
+   * Type of the metrics of a family, as written in the "# TYPE" line
+   */
+  private enum MetricType {
+    COUNTER("counter"), GAUGE("gauge"), SUMMARY("summary");
+
+    private final String name;
+
+    MetricType(String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * Metrics of the same name
+   */
+  private static final class MetricFamily {
+    private final String name;
+
+    private final String help;
+
+    private final MetricType type;
+
+    /**
+     * Metrics of the family by their formatted labels
+     */
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    private MetricFamily(String name, String help, MetricType type) {
+      this.name = name;
+      this.help = help;
+      this.type = type;
+    }
+  }
+
+  private final Map<String, MetricFamily> families = new ConcurrentHashMap<>();
+
+  /**
+   * Get the registry of the server
+   *
+   * @return the global registry
+   */
+  public static MetricsRegistry getInstance() {
+    return instance;
+  }
+
+  /**
+   * Get the counter of a name and labels, which is created the first time
+   *
+   * @param name   name of the metric, e.g., "hurricane_http_requests_total"
+   * @param help   description of the metric
+   * @param labels names and values of the labels, in pairs
+   * @return the counter
+   */
+  public Counter counter(String name, String help, String... labels) {
+    return (Counter) getOrCreate(name, help, MetricType.COUNTER, labels, Counter::new);
+  }
+
+  /**
+   * Get the gauge of a name and labels, which is created the first time
+   *
+   * @param name   name of the metric
+   * @param help   description of the metric
+   * @param labels names and values of the labels, in pairs
+   * @return the gauge
+   */
+  public Gauge gauge(String name, String help, String... labels) {
+    return (Gauge) getOrCreate(name, help, MetricType.GAUGE, labels, Gauge::new);
+  }
+
+  /**
+   * Get the histogram of a name and labels, which is created the first time
+   *
+   * @param name        name of the metric, e.g., "hurricane_http_request_duration_seconds"
+   * @param help        description of the metric
+   * @param exportScale factor that converts recorded values to the exported unit
+   * @param labels      names and values of the labels, in pairs
+   * @return the histogram
+   */
+  public Histogram histogram(String name, String help, double exportScale, String... labels) {
+    return (Histogram) getOrCreate(name, help, MetricType.SUMMARY, labels, () -> new Histogram(exportScale));
+  }
+
+  private Metric getOrCreate(String name, String help, MetricType type, String[] labels,
+      Supplier<Metric> factory) {
+    var family = families.computeIfAbsent(name, key -> new MetricFamily(name, help, type));
+    if (family.type != type) {
+      throw new IllegalArgumentException("Metric = " + name + " is a " + family.type.name + " already");
+    }
+
+    return family.metrics.computeIfAbsent(formatLabels(labels), key -> factory.get());
+  }
+
+  /**
+   * Format labels as they are written in a sample
+   *
+   * @param labels names and values of the labels, in pairs
+   * @return labels formatted as 'name="value",...'
+   */
+  static String formatLabels(String... labels) {
+    if (labels.length % 2 != 0) {
+      throw new IllegalArgumentException("Labels should be pairs of name and value");
+    }
+
+    var stringBuilder = new StringBuilder();
+    for (int i = 0; i < labels.length; i += 2) {
+      if (i > 0) {
+        stringBuilder.append(',');
+      }
+      stringBuilder.append(labels[i]).append("=\"");
+      escape(stringBuilder, labels[i + 1]);
+      stringBuilder.append('"');
+    }
+
+    return stringBuilder.toString();
+  }
+
+  /**
+   * Escape a label value, whose backslashes, double quotes and line feeds must be escaped
+   *
+   * @param out   output of the escaped value
+   * @param value value of a label
+   */
+  private static void escape(StringBuilder out, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      var character = value.charAt(i);
+      if (character == '\\' || character == '"') {
+        out.append('\\').append(character);
+      } else if (character == '\n') {
+        out.append("\\n");
+      } else {
+        out.append(character);
+      }
+    }
+  }
+
+  /**
+   * Append a line of a sample
+   *
+   * @param out    output of the exposition text
+   * @param name   name of the sample
+   * @param labels formatted labels of the sample, or empty
+   * @param value  formatted value of the sample
+   */
+  static void writeSample(StringBuilder out, String name, String labels, String value) {
+    out.append(name);
+    if (!labels.isEmpty()) {
+      out.append('{').append(labels).append('}');
+    }
+    out.append(' ').append(value).append('\n');
+  }
+
+  /**
+   * Export all the metrics in Prometheus text format. Families and their metrics are sorted, so the output is stable.
+   *
+   * @return exposition text of the metrics
+   */
+  public String toPrometheusText() {
+    var out = new StringBuilder();
+    for (var family : new TreeMap<>(families).values()) {
+      out.append("# HELP ").append(family.name).append(' ')
+          .append(family.help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+      out.append("# TYPE ").append(family.name).append(' ').append(family.type.name).append('\n');
+      for (var entry : new TreeMap<>(family.metrics).entrySet()) {
+        entry.getValue().writeSamples(out, family.name, entry.getKey());
+      }
+    }
+
+    return out.toString();
+  }
+}
@@ -0,0 +1,106 @@
+package com.hurricane.hurricane.metrics;
+
+import com.hurricane.hurricane.http.HttpStatus;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * Metrics of the requests of a route, i.e., a URL spec: count of requests per status, and a histogram of their
+ * latencies from the headers being received to the response being finished. The metrics are kept by the URL spec, so
+ * recording a request does not look them up by name.
+ */
+public class RouteMetrics {
+  public static final String REQUESTS_TOTAL = "hurricane_http_requests_total";
+
+  public static final String REQUEST_DURATION_SECONDS = "hurricane_http_request_duration_seconds";
+
+  private static final double NANOS_TO_SECONDS = 1e-9;
+
+  private final MetricsRegistry registry;
+
+  /**
+   * Value of the "route" label, i.e., the pattern of the URL spec
+   */
+  private final String route;
+
+  /**
+   * Status codes that are counted, i.e., [MIN_CODE, MAX_CODE]
+   */
+  private static final int MIN_CODE = 100;
+  private static final int MAX_CODE = 599;
+
+  /**
+   * Counters of requests by their status code minus MIN_CODE, which are created when a code is seen for the first time
+   */
+  private final AtomicReferenceArray<Counter> requestsCounters = new AtomicReferenceArray<>(MAX_CODE - MIN_CODE + 1);
+
+  private final Histogram latency;
+
+  public RouteMetrics(MetricsRegistry registry, String route) {
+    this.registry = registry;
+    this.route = route;
+    this.latency = registry.histogram(REQUEST_DURATION_SECONDS, "Latency of HTTP requests, in seconds",
+        NANOS_TO_SECONDS, "route", route);
+  }
+
+  /**
+   * Record a finished request
+   *
+   * @param status       status of the response
+   * @param latencyNanos time in nanoseconds from the headers of the request being received to the response being
+   *                     finished
+   */
+  public void record(HttpStatus status, long latencyNanos) {
+    record(status.getCode(), latencyNanos);
+  }
+
+  /**
+   * Record a finished request whose status may not be defined by HttpStatus, e.g., a response relayed by a proxy
+   *
+   * @param code         status code of the response, in [100, 599]
+   * @param latencyNanos time in nanoseconds from the headers of the request being received to the response being
+   *                     finished
+   */
+  public void record(int code, long latencyNanos) {
+    getRequestsCounter(code).increment();
+    latency.record(latencyNanos);
+  }
+
+  /**
+   * Get the counter of requests of a status
+   *
+   * @param status status of the response
+   * @return the counter
+   */
+  public Counter getRequestsCounter(HttpStatus status) {
+    return getRequestsCounter(status.getCode());
+  }
+
+  /**
+   * Get the counter of requests of a status code
+   *
+   * @param code status code of the response, in [100, 599]
+   * @return the counter
+   */
+  public Counter getRequestsCounter(int code) {
+    if (code < MIN_CODE || code > MAX_CODE) {
+      throw new IllegalArgumentException("Invalid status code = " + code);
+    }
+
+    var counter = requestsCounters.get(code - MIN_CODE);
+    if (counter == null) {
+      // The registry returns the same counter to the threads racing here
+      counter = registry.counter(REQUESTS_TOTAL, "Count of HTTP requests by route and status code", "route", route,
+          "code", Integer.toString(code));
+      requestsCounters.set(code - MIN_CODE, counter);
+    }
+
+    return counter;
+  }
+
+  public Histogram getLatency() {
+    return latency;
+  }
+}
@@ -0,0 +1,20 @@
+package com.hurricane.hurricane.metrics;
+
+/**
+ * @author larrytaowang
+ * <p>
+ * Metrics of the TCP connections of all the loops, both accepted connections and connections of clients
+ */
+public final class TcpMetrics {
+  public static final Counter BYTES_READ = MetricsRegistry.getInstance().counter("hurricane_tcp_bytes_read_total",
+      "Bytes read from TCP connections");
+
+  public static final Counter BYTES_WRITTEN = MetricsRegistry.getInstance().counter(
+      "hurricane_tcp_bytes_written_total", "Bytes written to TCP connections");
+
+  public static final Gauge OPEN_CONNECTIONS = MetricsRegistry.getInstance().gauge("hurricane_tcp_open_connections",
+      "TCP connections registered to the event loops");
+
+  private TcpMetrics() {
+  }
+}
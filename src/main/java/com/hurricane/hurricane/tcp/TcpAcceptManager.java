@@ -1,9 +1,13 @@
 package com.hurricane.hurricane.tcp;
 
+import com.hurricane.hurricane.common.EventLoop;
 import com.hurricane.hurricane.tcp.connection.TcpConnection;
 import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import org.apache.log4j.Logger;
 
 
 /**
@@ -13,19 +17,51 @@ import java.nio.channels.ServerSocketChannel;
  * desired read write handler.
  */
 public abstract class TcpAcceptManager {
+  private final static Logger logger = Logger.getLogger(TcpAcceptManager.class);
+
   /**
    * Handle ACCEPT Socket IO event. The subclass should define how to interact with the client TCP connection.
+   * @param serverKey selection key of the server socket that is ready to accept
    * @throws IOException Some IO errors happen in accepting the client socket
    */
-  protected void handleAcceptEvent() throws IOException {
-    // Accept client channel and register to the selector
-    var clientChannel = ((ServerSocketChannel) TcpServer.getServerKey().channel()).accept();
+  protected void handleAcceptEvent(SelectionKey serverKey) throws IOException {
+    // Accept client channel
+    var clientChannel = ((ServerSocketChannel) serverKey.channel()).accept();
+    if (clientChannel == null) {
+      return;
+    }
     clientChannel.configureBlocking(false);
-    var selector = TcpServer.getServerKey().selector();
-    var clientKey = clientChannel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+
+    // A listening socket owned by a loop keeps its connections in that loop. Otherwise, register the client channel to
+    // the current loop, or hand it over to the next loop of the group.
+    var group = TcpServer.getEventLoopGroup();
+    if (serverKey.attachment() instanceof EventLoop) {
+      registerClientChannel(clientChannel, (EventLoop) serverKey.attachment());
+    } else if (group == null) {
+      registerClientChannel(clientChannel, EventLoop.current());
+    } else {
+      var eventLoop = group.next();
+      eventLoop.addRegistration(() -> registerClientChannel(clientChannel, eventLoop));
+    }
+  }
+
+  /**
+   * Register the client channel to the selector of the given loop, and set up the client TCP connection. This should be
+   * run by the thread running the given loop.
+   * @param clientChannel accepted client channel
+   * @param eventLoop loop that will handle the client connection
+   */
+  private void registerClientChannel(SocketChannel clientChannel, EventLoop eventLoop) {
+    SelectionKey clientKey;
+    try {
+      clientKey = clientChannel.register(eventLoop.getSelector(), SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    } catch (ClosedChannelException e) {
+      logger.warn("Client channel is closed before registering, channel = " + clientChannel, e);
+      return;
+    }
 
     // Set read and write callback for the client channel
-    var clientConnection = new TcpConnection(clientKey);
+    var clientConnection = new TcpConnection(clientKey, eventLoop);
     setUpTcpConnectionHandler(clientConnection);
   }
 
@@ -1,35 +1,47 @@
 package com.hurricane.hurricane.tcp;
 
+import com.hurricane.hurricane.common.EventLoop;
+import com.hurricane.hurricane.common.EventLoopGroup;
 import java.io.IOException;
 import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.log4j.Logger;
 
 
 /**
  * @author larrytaowang
  *
+ * A non-blocking TCP server. By default the server socket is registered to the global EventLoop, which accepts new
+ * connections. If an EventLoopGroup is set, the accepted connections are handed over to the loops of the group in
+ * round-robin order, otherwise they are handled by the global EventLoop as well.
  *
+ * With SO_REUSEPORT, each loop of the group owns a listening socket bound to the same port instead. The kernel balances
+ * new connections over these sockets, and each loop accepts and handles its own connections without a shared accept
+ * path.
  */
 public class TcpServer {
   private final static Logger logger = Logger.getLogger(TcpServer.class);
 
   /**
-   * A selector for all network IO events
+   * Selection key of this Tcp server. With SO_REUSEPORT, this is null since each loop registers its own socket.
    */
-  private static Selector selector;
+  private static SelectionKey serverKey;
 
   /**
-   * Selection key of this Tcp server
+   * Socket channel of this TCP server. With SO_REUSEPORT, this is the socket of the first loop.
    */
-  private static SelectionKey serverKey;
+  private static ServerSocketChannel serverSocketChannel;
 
   /**
-   * Socket channel of this TCP server
+   * All the listening socket channels of this TCP server. There is one per loop of the group with SO_REUSEPORT,
+   * otherwise it only contains serverSocketChannel.
    */
-  private static ServerSocketChannel serverSocketChannel;
+  private static List<ServerSocketChannel> serverSocketChannels = new ArrayList<>();
 
   /**
    * Accept manager of this Tcp server, which defines what Read/Write Manager will be attached to the future client
@@ -38,16 +50,90 @@ public class TcpServer {
   private static TcpAcceptManager tcpAcceptManager;
 
   /**
-   * Initialize the Tcp server
+   * Loops that accepted client connections are assigned to. If null, the global EventLoop handles them.
+   */
+  private static EventLoopGroup eventLoopGroup;
+
+  /**
+   * If each loop of the group owns a listening socket bound with SO_REUSEPORT
+   */
+  private static boolean reusePort;
+
+  /**
+   * Initialize the Tcp server, whose accepted connections are handled by the global EventLoop.
    * @param manager Accept manager that will be used for handling the Tcp server ACCEPT event
-   * @throws IOException IO errors when initializing selector, socket channel and channel register
+   * @throws IOException IO errors when initializing socket channel and channel register
    */
   public static void init(TcpAcceptManager manager) throws IOException {
-    selector = Selector.open();
+    init(manager, null);
+  }
+
+  /**
+   * Initialize the Tcp server with a single listening socket registered to the global EventLoop.
+   * @param manager Accept manager that will be used for handling the Tcp server ACCEPT event
+   * @param group loops that accepted connections are assigned to. If null, the global EventLoop handles them.
+   * @throws IOException IO errors when initializing socket channel and channel register
+   */
+  public static void init(TcpAcceptManager manager, EventLoopGroup group) throws IOException {
+    init(manager, group, false);
+  }
+
+  /**
+   * Initialize the Tcp server. If the server has been initialized before, the previous server sockets are closed.
+   * @param manager Accept manager that will be used for handling the Tcp server ACCEPT event
+   * @param group loops that accepted connections are assigned to. If null, the global EventLoop handles them.
+   * @param shardWithReusePort if each loop of the group should own a listening socket bound with SO_REUSEPORT. This is
+   *                           ignored with a warning if there is no group or the platform does not support it.
+   * @throws IOException IO errors when initializing socket channel and channel register
+   */
+  public static void init(TcpAcceptManager manager, EventLoopGroup group, boolean shardWithReusePort)
+      throws IOException {
+    for (var channel : serverSocketChannels) {
+      channel.close();
+    }
+    serverSocketChannels = new ArrayList<>();
+
     serverSocketChannel = ServerSocketChannel.open();
     serverSocketChannel.configureBlocking(false);
-    serverKey = serverSocketChannel.register(TcpServer.getSelector(), SelectionKey.OP_ACCEPT);
+    serverSocketChannels.add(serverSocketChannel);
     tcpAcceptManager = manager;
+    eventLoopGroup = group;
+    reusePort = shardWithReusePort && isReusePortAvailable(group, serverSocketChannel);
+
+    if (!reusePort) {
+      serverKey = serverSocketChannel.register(EventLoop.getInstance().getSelector(), SelectionKey.OP_ACCEPT);
+      return;
+    }
+
+    // One listening socket per loop. They are registered after binding, by the loops owning them.
+    serverKey = null;
+    serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+    for (int i = 1; i < group.getEventLoops().size(); i++) {
+      var channel = ServerSocketChannel.open();
+      channel.configureBlocking(false);
+      channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+      serverSocketChannels.add(channel);
+    }
+  }
+
+  /**
+   * Check if listening sockets can be sharded over the loops with SO_REUSEPORT.
+   * @param group loops that would own the listening sockets
+   * @param channel a server socket channel
+   * @return if SO_REUSEPORT sharding is available
+   */
+  private static boolean isReusePortAvailable(EventLoopGroup group, ServerSocketChannel channel) {
+    if (group == null) {
+      logger.warn("SO_REUSEPORT sharding requires an EventLoopGroup, fall back to a single listening socket");
+      return false;
+    }
+
+    if (!channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+      logger.warn("SO_REUSEPORT is not supported on this platform, fall back to a single listening socket");
+      return false;
+    }
+
+    return true;
   }
 
   /**
@@ -57,16 +143,47 @@ public class TcpServer {
    */
   public static void bind(SocketAddress address) throws IOException {
     serverSocketChannel.socket().bind(address);
+    if (!reusePort) {
+      return;
+    }
+
+    // The other sockets bind to the same address, including the port picked for the first one if it is ephemeral
+    var boundAddress = serverSocketChannel.getLocalAddress();
+    for (int i = 1; i < serverSocketChannels.size(); i++) {
+      serverSocketChannels.get(i).socket().bind(boundAddress);
+    }
+
+    var eventLoops = eventLoopGroup.getEventLoops();
+    for (int i = 0; i < serverSocketChannels.size(); i++) {
+      var channel = serverSocketChannels.get(i);
+      var eventLoop = eventLoops.get(i);
+      eventLoop.addRegistration(() -> registerShard(channel, eventLoop));
+    }
+    logger.info("Bind [" + serverSocketChannels.size() + "] listening sockets with SO_REUSEPORT to " + boundAddress);
+  }
+
+  /**
+   * Register a listening socket to the loop owning it. This should be run by the thread running the loop.
+   * @param channel listening socket channel
+   * @param eventLoop loop owning the listening socket, which will also handle the connections accepted from it
+   */
+  private static void registerShard(ServerSocketChannel channel, EventLoop eventLoop) {
+    try {
+      var key = channel.register(eventLoop.getSelector(), SelectionKey.OP_ACCEPT);
+      key.attach(eventLoop);
+    } catch (ClosedChannelException e) {
+      logger.warn("Listening socket is closed before registering, channel = " + channel, e);
+    }
   }
 
   /**
-   * When an accept event is ready for server socket, process this accept event.
+   * When an accept event is ready for a server socket, process this accept event.
+   * @param key selection key of the server socket
    */
-  public static void handleServerSocketEvent() {
-    var key = TcpServer.getServerKey();
-    if (key.isAcceptable()) {
+  public static void handleServerSocketEvent(SelectionKey key) {
+    if (key.isValid() && key.isAcceptable()) {
       try {
-        TcpServer.getTcpAcceptManager().handleAcceptEvent();
+        TcpServer.getTcpAcceptManager().handleAcceptEvent(key);
       } catch (IOException e) {
         logger.warn("Failed to handle accept event for server socket", e);
       }
@@ -85,7 +202,7 @@ public class TcpServer {
     return serverKey;
   }
 
-  public static Selector getSelector() {
-    return selector;
+  public static EventLoopGroup getEventLoopGroup() {
+    return eventLoopGroup;
   }
 }
@@ -0,0 +1,20 @@
+package com.hurricane.hurricane.tcp.callback;
+
+import com.hurricane.hurricane.tcp.connection.TcpConnection;
+import java.io.IOException;
+
+
+/**
+ * @author larrytaowang
+ *
+ * After a connection to a server is established or fails, we want to run this TCP callback, e.g., to send a request.
+ */
+public interface TcpConnectCallback {
+  /**
+   * Run the Tcp callback with the TCP connection and the failure of connecting.
+   * @param connection TCP connection that this callback hosts
+   * @param exception the failure of connecting, or null if the connection is established. The connection has been
+   *                  closed if it failed.
+   */
+  void run(TcpConnection connection, IOException exception);
+}
@@ -41,6 +41,6 @@ public class TcpReadBytesHandler extends TcpReadHandler {
    */
   @Override
   public boolean test(TcpConnection connection) {
-    return connection.getReadManager().getUnmodifiableReadCache().size() >= requitedBytesCount;
+    return connection.getReadManager().getCacheSize() >= requitedBytesCount;
   }
 }
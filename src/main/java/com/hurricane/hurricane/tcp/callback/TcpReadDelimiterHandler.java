@@ -2,9 +2,6 @@ package com.hurricane.hurricane.tcp.callback;
 
 import com.hurricane.hurricane.tcp.connection.TcpConnection;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import org.apache.log4j.Logger;
 
 
@@ -18,9 +15,9 @@ public class TcpReadDelimiterHandler extends TcpReadHandler {
   private final static Logger logger = Logger.getLogger(TcpReadDelimiterHandler.class);
 
   /**
-   * List of bytes of delimiter
+   * Bytes of delimiter
    */
-  private List<Byte> delimiter;
+  private byte[] delimiter;
 
   /**
    * Position of delimiter in the write cache. If not exists, use -1
@@ -34,12 +31,7 @@ public class TcpReadDelimiterHandler extends TcpReadHandler {
   public TcpReadDelimiterHandler(byte[] delimiter, TcpReadCallback tcpCallback) {
     super(tcpCallback);
     this.delimiterIndex = -1;
-
-    // Convert byte[] to List<Byte>. byte[] is caller friendly, while List<Byte> is handy for indexing sub list.
-    this.delimiter = new ArrayList<>();
-    for (var singleByte : delimiter) {
-      this.delimiter.add(singleByte);
-    }
+    this.delimiter = delimiter.clone();
   }
 
   /**
@@ -49,20 +41,20 @@ public class TcpReadDelimiterHandler extends TcpReadHandler {
    */
   @Override
   public void run(TcpConnection tcpConnection) {
-    var bytesCount = delimiterIndex + delimiter.size();
+    var bytesCount = delimiterIndex + delimiter.length;
     logger.info("Run TcpReadDelimiterCallback, consumed bytesCount = " + bytesCount);
     tcpConnection.getReadManager().consume(bytesCount).ifPresent(x -> tcpCallback.run(tcpConnection, x));
   }
 
   /**
-   * Test if the read cache has delimiter or not. If yes, we can run the Tcp callback.
+   * Test if the read cache has delimiter or not. If yes, we can run the Tcp callback. The read manager remembers how
+   * far it has scanned for this delimiter, so only newly received bytes are examined on each READ event.
    * @param tcpConnection TCP connection that this callback hosts
    * @return if Tcp callback should be triggered
    */
   @Override
   public boolean test(TcpConnection tcpConnection) {
-    var readCache = tcpConnection.getReadManager().getUnmodifiableReadCache();
-    delimiterIndex = Collections.indexOfSubList(readCache, delimiter);
+    delimiterIndex = tcpConnection.getReadManager().indexOf(delimiter);
     return delimiterIndex != -1;
   }
 }
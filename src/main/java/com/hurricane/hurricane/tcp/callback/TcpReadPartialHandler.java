@@ -0,0 +1,60 @@
+package com.hurricane.hurricane.tcp.callback;
+
+import com.hurricane.hurricane.tcp.connection.TcpConnection;
+import java.nio.ByteBuffer;
+import org.apache.log4j.Logger;
+
+
+/**
+ * @author larrytaowang
+ *
+ * Whenever the read cache has any unconsumed bytes, trigger the callback with a read only view of them. Unlike other
+ * read handlers, the callback decides how many bytes it takes, e.g., a body whose end is only known by decoding it.
+ * The callback consumes what it takes with TcpReadManager.skip(), before it sets the next read handler.
+ */
+public class TcpReadPartialHandler extends TcpReadHandler {
+  private final static Logger logger = Logger.getLogger(TcpReadPartialHandler.class);
+
+  /**
+   * Callback that reads from the unconsumed bytes
+   */
+  private final Callback callback;
+
+  public TcpReadPartialHandler(Callback callback) {
+    super(null);
+    this.callback = callback;
+  }
+
+  /**
+   * Pass the unconsumed bytes to the callback.
+   * @param tcpConnection TCP connection that this callback hosts
+   */
+  @Override
+  public void run(TcpConnection tcpConnection) {
+    var data = tcpConnection.getReadManager().getUnmodifiableReadCache();
+    logger.info("Run TcpReadPartialCallback, available bytesCount = " + data.remaining());
+    callback.run(tcpConnection, data);
+  }
+
+  /**
+   * Test if the read cache has any unconsumed bytes. If yes, we can run the callback.
+   * @param tcpConnection TCP connection that this callback hosts
+   * @return if the callback should be triggered
+   */
+  @Override
+  public boolean test(TcpConnection tcpConnection) {
+    return tcpConnection.getReadManager().getCacheSize() > 0;
+  }
+
+  /**
+   * Callback that reads a part of the unconsumed bytes
+   */
+  public interface Callback {
+    /**
+     * Read from the unconsumed bytes
+     * @param connection TCP connection that this callback hosts
+     * @param data read only view of the unconsumed bytes
+     */
+    void run(TcpConnection connection, ByteBuffer data);
+  }
+}
@@ -0,0 +1,85 @@
+package com.hurricane.hurricane.tcp.connection;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import org.apache.log4j.Logger;
+
+
+/**
+ * @author larrytaowang
+ *
+ * A region of a file to write to a client. It is written with FileChannel.transferTo(), so the kernel moves the bytes
+ * from the file to the socket directly, without copying them to the heap. The file channel is owned by the region, and
+ * is closed once the region is written or dropped.
+ */
+public class FileRegion {
+  private final static Logger logger = Logger.getLogger(FileRegion.class);
+
+  /**
+   * Channel of the file to write
+   */
+  private final FileChannel fileChannel;
+
+  /**
+   * Position in the file of the next byte to write
+   */
+  private long position;
+
+  /**
+   * Count of bytes that have not been written yet
+   */
+  private long remaining;
+
+  public FileRegion(FileChannel fileChannel, long position, long count) {
+    this.fileChannel = fileChannel;
+    this.position = position;
+    this.remaining = count;
+  }
+
+  /**
+   * Write as much of the region as the target can take
+   *
+   * @param target channel to write to
+   * @return count of bytes written
+   * @throws IOException Some IO errors happen in transferring, or the file is shorter than the region
+   */
+  public long transferTo(WritableByteChannel target) throws IOException {
+    if (remaining == 0) {
+      return 0;
+    }
+
+    var bytesWritten = fileChannel.transferTo(position, remaining, target);
+    if (bytesWritten == 0 && position >= fileChannel.size()) {
+      throw new IOException("File is truncated to size = " + fileChannel.size() + ", before position = " + position);
+    }
+
+    position += bytesWritten;
+    remaining -= bytesWritten;
+    return bytesWritten;
+  }
+
+  /**
+   * Check if all bytes of the region have been written
+   *
+   * @return if the region has been written
+   */
+  public boolean isWritten() {
+    return remaining == 0;
+  }
+
+  public long getRemaining() {
+    return remaining;
+  }
+
+  /**
+   * Close the file channel
+   */
+  public void close() {
+    try {
+      fileChannel.close();
+    } catch (IOException e) {
+      logger.warn("Failed to close file channel = " + fileChannel, e);
+    }
+  }
+}
@@ -2,11 +2,17 @@ package com.hurricane.hurricane.tcp.connection;
 
 import com.hurricane.hurricane.common.TcpCallback;
 import com.hurricane.hurricane.common.EventLoop;
+import com.hurricane.hurricane.tcp.callback.TcpConnectCallback;
 import com.hurricane.hurricane.tcp.callback.TcpReadHandler;
 import com.hurricane.hurricane.tcp.callback.TcpWriteHandler;
 import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.List;
 import org.apache.log4j.Logger;
 import org.jetbrains.annotations.NotNull;
 
@@ -30,6 +36,22 @@ public class TcpConnection {
    */
   public static final int DEFAULT_BYTE_BUFFER_SIZE = 4096;
 
+  /**
+   * Default size for direct byte buffers that connections borrow from the buffer pool of their event loop
+   */
+  public static final int DEFAULT_POOLED_BYTE_BUFFER_SIZE = 65536;
+
+  /**
+   * Default count of bytes in write cache above which the connection is not writable, so whoever produces the data,
+   * e.g., a peer that is relayed, should pause until it becomes writable again
+   */
+  public static final int DEFAULT_WRITE_HIGH_WATERMARK = 65536;
+
+  /**
+   * Default count of bytes in write cache at or below which a connection that is not writable becomes writable again
+   */
+  public static final int DEFAULT_WRITE_LOW_WATERMARK = 32768;
+
   /**
    * Each selection key should have one handler.
    */
@@ -41,7 +63,7 @@ public class TcpConnection {
   protected SocketChannel socketChannel;
 
   /**
-   * A global eventLoop instance.
+   * The eventLoop whose selector this connection is registered to. Only the thread running it touches this connection.
    */
   protected EventLoop eventLoop;
 
@@ -70,25 +92,94 @@ public class TcpConnection {
    */
   private TcpCallback closeCallback;
 
+  /**
+   * Callback that will be triggered when the connection to a server is established or fails, if it is connecting.
+   */
+  private TcpConnectCallback connectCallback;
+
+  /**
+   * Tcp Callback that will be triggered when write cache drains to the low watermark after it went above the high one
+   */
+  private TcpCallback writableCallback;
+
+  /**
+   * Watermarks of the count of bytes in write cache, which decide if the connection is writable
+   */
+  private int writeHighWatermark = DEFAULT_WRITE_HIGH_WATERMARK;
+  private int writeLowWatermark = DEFAULT_WRITE_LOW_WATERMARK;
+
+  /**
+   * If the write cache has not drained to the low watermark since it went above the high watermark
+   */
+  private boolean isWriteCacheFull;
+
+  /**
+   * If reading from the socket is paused, e.g., since the data read cannot be relayed as fast as it comes
+   */
+  private boolean isReadingPaused;
+
   public TcpConnection(SelectionKey key) {
-    this(key, new TcpReadManager(), new TcpWriteManager());
+    this(key, EventLoop.current());
+  }
+
+  public TcpConnection(SelectionKey key, EventLoop eventLoop) {
+    this(key, eventLoop, new TcpReadManager(), new TcpWriteManager());
   }
 
   public TcpConnection(SelectionKey key, TcpReadManager readManager) {
-    this(key, readManager, new TcpWriteManager());
+    this(key, EventLoop.current(), readManager, new TcpWriteManager());
   }
 
   public TcpConnection(SelectionKey key, TcpReadManager readManager, TcpWriteManager writeManager) {
+    this(key, EventLoop.current(), readManager, writeManager);
+  }
+
+  public TcpConnection(SelectionKey key, EventLoop eventLoop, TcpReadManager readManager,
+      TcpWriteManager writeManager) {
     this.key = key;
     if (key.channel() instanceof SocketChannel) {
       this.socketChannel = (SocketChannel) key.channel();
     }
 
-    this.eventLoop = EventLoop.getInstance();
+    this.eventLoop = eventLoop;
     this.readManager = readManager;
     this.writeManager = writeManager;
   }
 
+  /**
+   * Open a connection to a server, e.g., for a client issuing requests from the loop. The connection is registered to
+   * the loop right away, and the callback is run by the loop once the connection is established or fails. This should
+   * be called by the thread running the loop, or before the loop starts.
+   * @param eventLoop loop that will handle the connection
+   * @param address address of the server
+   * @param callback callback that will be triggered when connecting finishes
+   * @return the connection, which can be closed before it is established, e.g., when connecting times out
+   * @throws IOException Some IO errors happen in opening the channel, or connecting fails right away
+   */
+  public static TcpConnection connect(EventLoop eventLoop, SocketAddress address, TcpConnectCallback callback)
+      throws IOException {
+    var channel = SocketChannel.open();
+    try {
+      channel.configureBlocking(false);
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      var isConnected = channel.connect(address);
+      var key = channel.register(eventLoop.getSelector(), isConnected ? 0 : SelectionKey.OP_CONNECT);
+      var connection = new TcpConnection(key, eventLoop);
+      eventLoop.registerTcpConnection(key, connection);
+
+      // Connecting to a local address may finish at once. The callback is still run later, like other callbacks.
+      if (isConnected) {
+        eventLoop.execute(() -> callback.run(connection, null));
+      } else {
+        connection.connectCallback = callback;
+      }
+      return connection;
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
   /**
    * Handle IO event for this Tcp connection
    */
@@ -99,15 +190,45 @@ public class TcpConnection {
       return;
     }
 
-    if (key.isReadable()) {
+    if (key.isConnectable()) {
+      finishConnect();
+      return;
+    }
+
+    // Reading may have been paused by another connection handled in this iteration, after the key was selected
+    if (key.isReadable() && !isReadingPaused) {
       readManager.handleReadEvent(this);
     }
 
     if (key.isValid() && key.isWritable()) {
       writeManager.handleWriteEvent(this);
+      updateWritability();
     }
   }
 
+  /**
+   * Finish connecting to the server, and run the connect callback with the result
+   */
+  private void finishConnect() {
+    var callback = connectCallback;
+    try {
+      if (!socketChannel.finishConnect()) {
+        return;
+      }
+    } catch (IOException e) {
+      logger.warn("Failed to connect channel = " + socketChannel, e);
+      connectCallback = null;
+      closeConnection();
+      callback.run(this, e);
+      return;
+    }
+
+    logger.info("Connected channel = " + socketChannel);
+    connectCallback = null;
+    key.interestOpsAnd(~SelectionKey.OP_CONNECT);
+    callback.run(this, null);
+  }
+
   /**
    * Close this tcp connection. Also, remove the handler in eventloop, and remove the key from select
    * interested list. Run closeCallback if needed.
@@ -121,6 +242,15 @@ public class TcpConnection {
     } catch (IOException e) {
       logger.warn("Failed to close channel = " + key.channel(), e);
     }
+    writeManager.clear();
+
+    // Data written from now on is discarded, so a producer paused by the full cache is resumed
+    if (isWriteCacheFull) {
+      isWriteCacheFull = false;
+      if (writableCallback != null) {
+        writableCallback.run(new Object[0]);
+      }
+    }
 
     if (closeCallback != null) {
       closeCallback.run(new Object[0]);
@@ -152,42 +282,121 @@ public class TcpConnection {
     }
 
     if (readHandler != null && readHandler.test(this)) {
-      readHandler.run(this);
       this.readHandler = null;
+      readHandler.run(this);
     } else {
       this.readHandler = readHandler;
-      this.key.interestOpsOr(SelectionKey.OP_READ);
+      if (!isReadingPaused) {
+        this.key.interestOpsOr(SelectionKey.OP_READ);
+      }
+    }
+  }
+
+  /**
+   * Stop reading from the socket until resumeReading() is called, so the peer is slowed down by TCP flow control. Data
+   * that has been read into the cache is still handed to read handlers.
+   */
+  public void pauseReading() {
+    isReadingPaused = true;
+    if (key.isValid()) {
+      key.interestOpsAnd(~SelectionKey.OP_READ);
+    }
+  }
+
+  /**
+   * Resume reading from the socket after pauseReading()
+   */
+  public void resumeReading() {
+    if (!isReadingPaused) {
+      return;
     }
+
+    isReadingPaused = false;
+    if (key.isValid()) {
+      key.interestOpsOr(SelectionKey.OP_READ);
+    }
+  }
+
+  public boolean isReadingPaused() {
+    return isReadingPaused;
   }
 
   /**
    * Set Tcp Write handler for this Tcp connection. When new handler is set, we should check if this can be triggered
-   * immediately. Also, we don't need to add interest in WRITE operation, prepareWriteData() is better place to do it.
+   * immediately. All the given data chunks are cached together, so they can be flushed with a single gathering write.
+   * If there was no pending data, we try to write immediately instead of waiting for the next WRITE event, and only
+   * register interest in WRITE operation for what the socket could not take.
+   * @param writeHandler TCP write handler
+   * @param data data chunks that we want to send to the client, in order
+   */
+  public void setWriteHandlerWithData(TcpWriteHandler writeHandler, @NotNull byte[]... data) {
+    setWriteHandlerWithSegments(writeHandler, Arrays.asList(data));
+  }
+
+  /**
+   * Same as setWriteHandlerWithData(), but the segments to send can also be buffers, which are sent without being
+   * copied, and regions of files, which are transferred to the client without being copied to the heap.
    * @param writeHandler TCP write handler
-   * @param data data that we want to send to the client
+   * @param segments segments that we want to send to the client in order, each is a byte array, a ByteBuffer whose
+   *                 remaining bytes are sent, or a FileRegion
    */
-  public void setWriteHandlerWithData(TcpWriteHandler writeHandler, @NotNull byte[] data) {
+  public void setWriteHandlerWithSegments(TcpWriteHandler writeHandler, @NotNull List<?> segments) {
     if (isConnectionClosed()) {
+      closeFileRegions(segments);
       return;
     }
 
-    // Write the data to the cache and register WRITE event
-    key.interestOpsOr(SelectionKey.OP_WRITE);
-    writeManager.writeDataToCache(data);
+    // Write the data to the cache
+    var hasPendingData = !writeManager.isCacheEmpty();
+    for (var segment : segments) {
+      if (segment instanceof FileRegion) {
+        writeManager.writeFileRegionToCache((FileRegion) segment);
+      } else if (segment instanceof ByteBuffer) {
+        writeManager.writeBufferToCache((ByteBuffer) segment);
+      } else {
+        writeManager.writeDataToCache((byte[]) segment);
+      }
+    }
     if (writeManager.isCacheOverflow()) {
-      logger.warn("Reached maximum read cache size, close channel = " + socketChannel);
+      logger.warn("Reached maximum write cache size, close channel = " + socketChannel);
       closeConnection();
+      return;
+    }
+
+    // Flush the data right away if nothing is queued before it. Otherwise it will be written in WRITE events.
+    if (hasPendingData) {
+      key.interestOpsOr(SelectionKey.OP_WRITE);
+    } else {
+      try {
+        writeManager.writeCachedData(this);
+      } catch (IOException e) {
+        logger.warn("Failed to write data to channel = " + socketChannel, e);
+        return;
+      }
     }
+    updateWritability();
 
     // Set write handler and run it immediately if needed
     if (writeHandler != null && writeHandler.test(this)) {
-      writeHandler.run(this);
       this.writeHandler = null;
+      writeHandler.run(this);
     } else {
       this.writeHandler = writeHandler;
     }
   }
 
+  /**
+   * Close the file regions among the segments that will not be written
+   * @param segments segments that will not be written
+   */
+  public static void closeFileRegions(List<?> segments) {
+    for (var segment : segments) {
+      if (segment instanceof FileRegion) {
+        ((FileRegion) segment).close();
+      }
+    }
+  }
+
   /**
    * Check if the TCP connection still need to write data
    * @return if the TCP connection still need to write data
@@ -196,6 +405,58 @@ public class TcpConnection {
     return !writeManager.isCacheEmpty();
   }
 
+  /**
+   * Check if more data should be written to this connection. It is not writable once the bytes in write cache go above
+   * the high watermark, and becomes writable again when they drain to the low watermark, which triggers the writable
+   * callback.
+   * @return if the connection is writable
+   */
+  public boolean isWritable() {
+    return !isWriteCacheFull;
+  }
+
+  /**
+   * Update if the connection is writable after the count of bytes in write cache changes
+   */
+  private void updateWritability() {
+    var cachedBytesCount = writeManager.getCachedBytesCount();
+    if (!isWriteCacheFull && cachedBytesCount > writeHighWatermark) {
+      isWriteCacheFull = true;
+    } else if (isWriteCacheFull && cachedBytesCount <= writeLowWatermark) {
+      isWriteCacheFull = false;
+      if (writableCallback != null) {
+        writableCallback.run(new Object[0]);
+      }
+    }
+  }
+
+  /**
+   * Set the watermarks of the count of bytes in write cache, which decide if the connection is writable
+   * @param lowWatermark count of bytes at or below which the connection becomes writable again
+   * @param highWatermark count of bytes above which the connection is not writable
+   */
+  public void setWriteWatermarks(int lowWatermark, int highWatermark) {
+    if (lowWatermark < 0 || lowWatermark > highWatermark) {
+      throw new IllegalArgumentException(
+          "Invalid write watermarks, low = " + lowWatermark + ", high = " + highWatermark);
+    }
+
+    this.writeLowWatermark = lowWatermark;
+    this.writeHighWatermark = highWatermark;
+  }
+
+  public int getWriteHighWatermark() {
+    return writeHighWatermark;
+  }
+
+  /**
+   * Set the callback that will be triggered when this connection becomes writable again
+   * @param writableCallback callback triggered when the write cache drains to the low watermark
+   */
+  public void setWritableCallback(TcpCallback writableCallback) {
+    this.writableCallback = writableCallback;
+  }
+
   /**
    * Clear the write handler
    */
@@ -210,6 +471,14 @@ public class TcpConnection {
     readHandler = null;
   }
 
+  /**
+   * Set the callback that will be triggered when this connection is closed
+   * @param closeCallback callback triggered when this connection is closed
+   */
+  public void setCloseCallback(TcpCallback closeCallback) {
+    this.closeCallback = closeCallback;
+  }
+
   /**
    * Clear the close handler
    */
@@ -236,4 +505,8 @@ public class TcpConnection {
   public SelectionKey getKey() {
     return key;
   }
+
+  public EventLoop getEventLoop() {
+    return eventLoop;
+  }
 }
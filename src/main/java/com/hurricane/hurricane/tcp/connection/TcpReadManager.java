@@ -1,10 +1,8 @@
 package com.hurricane.hurricane.tcp.connection;
 
+import com.hurricane.hurricane.metrics.TcpMetrics;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Optional;
 import org.apache.log4j.Logger;
 
@@ -18,29 +16,49 @@ public class TcpReadManager {
   private final static Logger logger = Logger.getLogger(TcpReadManager.class);
 
   /**
-   * ByteBuffer used to read data from client socket channel, then store it in cache.
+   * An empty cache shared by connections that have no unconsumed data, so idle connections hold no storage.
    */
-  private ByteBuffer readByteBuffer;
+  private static final ByteBuffer EMPTY_CACHE = ByteBuffer.allocate(0).asReadOnlyBuffer();
 
   /**
    * In NIO we don't know how much data we can read in a single read event. All the read data will be stored in this
-   * cache.
+   * cache. The cache is always kept in read mode: bytes between position and limit have been received but not consumed
+   * yet. Consumed bytes at the front are only reclaimed (compacted) when there is no room left at the end. Once all the
+   * data is consumed, the storage is dropped and will be allocated again when more data arrives.
    */
-  private LinkedList<Byte> readCache;
+  private ByteBuffer readCache;
 
   /**
    * Max size for read cache
    */
   private int maxCacheSize;
 
+  /**
+   * Initial capacity of read cache when data arrives at an empty cache
+   */
+  private int initialCacheSize;
+
+  /**
+   * Delimiter that was searched for last time, and the KMP failure table of it
+   */
+  private byte[] scanDelimiter;
+  private int[] scanFailureTable;
+
+  /**
+   * Count of unconsumed bytes that have been scanned for scanDelimiter, and count of leading delimiter bytes matched at
+   * the end of the scanned bytes. When more data arrives, the search resumes from here instead of the front.
+   */
+  private int scannedCount;
+  private int scanMatchedCount;
+
   public TcpReadManager() {
     this(TcpConnection.DEFAULT_MAX_CACHE_SIZE, TcpConnection.DEFAULT_BYTE_BUFFER_SIZE);
   }
 
-  public TcpReadManager(int maxCacheSize, int byteBufferSize) {
-    this.readByteBuffer = ByteBuffer.allocate(byteBufferSize);
-    this.readCache = new LinkedList<>();
+  public TcpReadManager(int maxCacheSize, int initialCacheSize) {
+    this.readCache = EMPTY_CACHE;
     this.maxCacheSize = maxCacheSize;
+    this.initialCacheSize = initialCacheSize;
   }
 
   /**
@@ -52,83 +70,229 @@ public class TcpReadManager {
    * @param connection tcp connection
    */
   protected void handleReadEvent(TcpConnection connection) throws IOException {
-    // read data from client channel
-    long bytesRead;
+    // Borrow a direct buffer from the event loop only for the duration of this read
+    var bufferPool = connection.eventLoop.getByteBufferPool();
+    var readByteBuffer = bufferPool.acquire();
     try {
-      bytesRead = connection.socketChannel.read(readByteBuffer);
-    } catch (IOException e) {
-      logger.warn("Failed to read data from client channel = " + connection.socketChannel, e);
-      connection.closeConnection();
-      throw e;
-    }
+      // read data from client channel
+      long bytesRead;
+      try {
+        bytesRead = connection.socketChannel.read(readByteBuffer);
+      } catch (IOException e) {
+        logger.warn("Failed to read data from client channel = " + connection.socketChannel, e);
+        connection.closeConnection();
+        throw e;
+      }
 
-    // If client channel has reached end-of-stream, close the channel and return
-    if (bytesRead == -1) {
-      connection.closeConnection();
-      return;
-    }
+      // If client channel has reached end-of-stream, close the channel and return
+      if (bytesRead == -1) {
+        connection.closeConnection();
+        return;
+      }
 
-    // If there is no data we can process, simply return
-    if (bytesRead == 0) {
-      return;
-    }
+      // If there is no data we can process, simply return
+      if (bytesRead == 0) {
+        return;
+      }
+      TcpMetrics.BYTES_READ.add(bytesRead);
 
-    // Fetch data from client channel and store in the read cache.
-    byte[] readBytes = new byte[readByteBuffer.position()];
-    readByteBuffer.rewind();
-    readByteBuffer.get(readBytes);
-    for (var readByte : readBytes) {
-      readCache.add(readByte);
-    }
-    readByteBuffer.clear();
-    logger.info("Receive data, count = " + bytesRead + " in channel = " + connection.socketChannel);
+      // Check if the cache would overflow
+      if (readCache.remaining() + bytesRead > maxCacheSize) {
+        logger.warn("Reached maximum read cache size, close channel = " + connection.socketChannel);
+        connection.closeConnection();
+        return;
+      }
 
-    // Check if the cache has overflowed
-    if (readCache.size() > maxCacheSize) {
-      logger.warn("Reached maximum read cache size, close channel = " + connection.socketChannel);
-      connection.closeConnection();
-      return;
+      // Move data from the byte buffer to the read cache in bulk.
+      readByteBuffer.flip();
+      appendToCache(readByteBuffer);
+      logger.info("Receive data, count = " + bytesRead + " in channel = " + connection.socketChannel);
+    } finally {
+      bufferPool.release(readByteBuffer);
     }
 
-    // Run the callback if needed
-    if (connection.getReadHandler() != null && connection.getReadHandler().test(connection)) {
-      connection.getReadHandler().run(connection);
+    // Run the callback if needed. It is cleared first, since the callback may set the next handler.
+    var readHandler = connection.getReadHandler();
+    if (readHandler != null && readHandler.test(connection)) {
       connection.clearReadHandler();
+      readHandler.run(connection);
     }
   }
 
+  /**
+   * Append the remaining bytes of the given buffer to the end of the read cache. If there is not enough room at the end
+   * of the cache, consumed bytes at the front are reclaimed first, and the cache is grown only if that is still not
+   * enough.
+   * @param data buffer whose remaining bytes will be appended
+   */
+  private void appendToCache(ByteBuffer data) {
+    var incomingCount = data.remaining();
+    if (readCache == EMPTY_CACHE) {
+      readCache = ByteBuffer.allocate(Math.max(initialCacheSize, incomingCount));
+      readCache.limit(0);
+    } else if (readCache.capacity() - readCache.limit() < incomingCount) {
+      var requiredCapacity = readCache.remaining() + incomingCount;
+      if (requiredCapacity <= readCache.capacity()) {
+        readCache.compact().flip();
+      } else {
+        var newCapacity = Math.max(requiredCapacity, Math.min(readCache.capacity() * 2, maxCacheSize));
+        var newCache = ByteBuffer.allocate(newCapacity);
+        newCache.put(readCache).flip();
+        readCache = newCache;
+      }
+    }
+
+    // Write after the unconsumed bytes, then restore the read position
+    var readPosition = readCache.position();
+    var writePosition = readCache.limit();
+    readCache.limit(writePosition + incomingCount).position(writePosition);
+    readCache.put(data);
+    readCache.position(readPosition);
+  }
+
   /**
    * Consume desired count of bytes in read cache.
    * @param bytesCount count of bytes to consume
    * @return oldest bytes in read cache with desired count
    */
   public Optional<byte[]> consume(int bytesCount) {
-    if (bytesCount > readCache.size()) {
+    if (bytesCount > readCache.remaining()) {
       logger.warn(
           "This should not happen. Try consume count = " + bytesCount + " bytes from cache while current cache size = "
-              + readCache.size());
+              + readCache.remaining());
       return Optional.empty();
     }
 
     byte[] result = new byte[bytesCount];
-    for (int i = 0; i < bytesCount; i++) {
-      var digit = readCache.poll();
-      if (digit != null) {
-        result[i] = digit;
-      } else {
-        logger.warn("This should not happen. When consuming data from readCache, data[" + i + "] is null.");
+    readCache.get(result);
+    onConsumed();
+    return Optional.of(result);
+  }
+
+  /**
+   * Consume desired count of bytes in read cache without copying them, e.g., when they have been read from the read
+   * only view already.
+   * @param bytesCount count of bytes to consume
+   */
+  public void skip(int bytesCount) {
+    if (bytesCount > readCache.remaining()) {
+      throw new IllegalArgumentException(
+          "Try skip count = " + bytesCount + " bytes from cache while current cache size = " + readCache.remaining());
+    }
+
+    if (bytesCount == 0) {
+      return;
+    }
+
+    readCache.position(readCache.position() + bytesCount);
+    onConsumed();
+  }
+
+  /**
+   * Update the state after the front of the read cache has been consumed
+   */
+  private void onConsumed() {
+    resetScan();
+
+    // When everything has been consumed, drop the storage so an idle connection does not hold it
+    if (!readCache.hasRemaining()) {
+      readCache = EMPTY_CACHE;
+    }
+  }
+
+  /**
+   * Find the first occurrence of the delimiter in the unconsumed bytes of read cache. Searching for the same delimiter
+   * array again resumes where the last search stopped, so each received byte is only examined once until data is
+   * consumed, no matter how many small segments the delimiter arrives in.
+   * @param delimiter bytes of delimiter. Callers should pass the same array instance across calls to benefit from the
+   *                  incremental search.
+   * @return index of the delimiter relative to the oldest unconsumed byte, or -1 if the delimiter is not in the cache
+   */
+  public int indexOf(byte[] delimiter) {
+    if (delimiter != scanDelimiter) {
+      scanDelimiter = delimiter;
+      scanFailureTable = buildFailureTable(delimiter);
+      resetScan();
+    }
+
+    if (delimiter.length == 0) {
+      return 0;
+    }
+
+    // Knuth-Morris-Pratt search from where the last search stopped
+    var start = readCache.position();
+    var matchedCount = scanMatchedCount;
+    for (int i = start + scannedCount; i < readCache.limit(); i++) {
+      var currentByte = readCache.get(i);
+      while (matchedCount > 0 && currentByte != delimiter[matchedCount]) {
+        matchedCount = scanFailureTable[matchedCount - 1];
+      }
+
+      if (currentByte == delimiter[matchedCount]) {
+        matchedCount++;
+      }
+
+      if (matchedCount == delimiter.length) {
+        var delimiterIndex = i - start - delimiter.length + 1;
+
+        // If the data is not consumed, searching again should find the same delimiter
+        scannedCount = delimiterIndex;
+        scanMatchedCount = 0;
+        return delimiterIndex;
       }
     }
 
-    return Optional.of(result);
+    scannedCount = readCache.remaining();
+    scanMatchedCount = matchedCount;
+    return -1;
   }
 
   /**
-   * Return read only view of read cache
+   * Build the KMP failure table of the delimiter. table[i] is the length of the longest proper prefix of
+   * delimiter[0..i] which is also a suffix of it.
+   * @param delimiter bytes of delimiter
+   * @return failure table of the delimiter
+   */
+  private static int[] buildFailureTable(byte[] delimiter) {
+    var table = new int[delimiter.length];
+    var prefixLength = 0;
+    for (int i = 1; i < delimiter.length; i++) {
+      while (prefixLength > 0 && delimiter[i] != delimiter[prefixLength]) {
+        prefixLength = table[prefixLength - 1];
+      }
+
+      if (delimiter[i] == delimiter[prefixLength]) {
+        prefixLength++;
+      }
+      table[i] = prefixLength;
+    }
+
+    return table;
+  }
+
+  /**
+   * Forget the progress of the delimiter search, e.g., when the front of the cache has been consumed.
+   */
+  private void resetScan() {
+    scannedCount = 0;
+    scanMatchedCount = 0;
+  }
+
+  /**
+   * Return read only view of read cache. The view starts at the oldest unconsumed byte, and its remaining bytes are all
+   * the bytes that have not been consumed yet.
    * @return read only view of read cache
    */
-  public List<Byte> getUnmodifiableReadCache() {
-    return Collections.unmodifiableList(readCache);
+  public ByteBuffer getUnmodifiableReadCache() {
+    return readCache.asReadOnlyBuffer();
+  }
+
+  /**
+   * Get count of bytes in read cache that have not been consumed yet
+   * @return count of unconsumed bytes in read cache
+   */
+  public int getCacheSize() {
+    return readCache.remaining();
   }
 
   public int getMaxCacheSize() {
@@ -1,30 +1,46 @@
 package com.hurricane.hurricane.tcp.connection;
 
+import com.hurricane.hurricane.metrics.TcpMetrics;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Deque;
 import org.apache.log4j.Logger;
 
 
 /**
  * @author larrytaowang
- * This class processes client socket WRITE event and maintains read cache.
+ * This class processes client socket WRITE event and maintains write cache.
  */
 public class TcpWriteManager {
   private final static Logger logger = Logger.getLogger(TcpWriteManager.class);
 
   /**
-   * ByteBuffer used to read data from client socket channel, then store it in cache.
+   * In NIO we don't know how much data we can write in a single write event, therefore caller can write data to this
+   * cache, and this manager will write data when feasible until the cache is empty. Each segment is either a buffer
+   * whose remaining bytes have not been written to the client yet, or a FileRegion, and segments are written to the
+   * channel directly.
    */
-  private ByteBuffer writeByteBuffer;
+  private Deque<Object> writeCache;
 
   /**
-   * In NIO we don't know how much data we can write in a single write event, therefore caller can write data to this
-   * cache, and this manager will write data when feasible until the cache is empty.
+   * Max count of segments in one gathering write
+   */
+  private static final int MAX_GATHERING_SEGMENTS_COUNT = 64;
+
+  /**
+   * Reusable array holding the segments of one gathering write
+   */
+  private ByteBuffer[] gatheringSegments;
+  private int gatheringSegmentsCount;
+
+  /**
+   * Count of bytes in the buffers of write cache that have not been written to the client yet. Bytes of file regions
+   * are not counted, since they are not held in memory.
    */
-  private Deque<Byte> writeCache;
+  private long cachedBytesCount;
 
   /**
    * Max size for write cache
@@ -32,67 +48,183 @@ public class TcpWriteManager {
   private int maxCacheSize;
 
   public TcpWriteManager() {
-    this(TcpConnection.DEFAULT_MAX_CACHE_SIZE, TcpConnection.DEFAULT_BYTE_BUFFER_SIZE);
+    this(TcpConnection.DEFAULT_MAX_CACHE_SIZE);
   }
 
-  public TcpWriteManager(int maxCacheSize, int byteBufferSize) {
-    this.writeByteBuffer = ByteBuffer.allocate(byteBufferSize);
+  public TcpWriteManager(int maxCacheSize) {
     this.maxCacheSize = maxCacheSize;
     this.writeCache = new ArrayDeque<>();
+    this.cachedBytesCount = 0;
+    this.gatheringSegments = new ByteBuffer[MAX_GATHERING_SEGMENTS_COUNT];
   }
 
   /**
    * Handle a WRITE IO event.
-   *  1. Retrieve data from write cache if byteBuffer is empty
-   *  2. Write data to client socket
-   *  3. Trigger callback if needed
+   *  1. Write segments in write cache to client socket until the socket cannot take more
+   *  2. Trigger callback if needed
    * @throws IOException Some IO errors happen in writing data to channel
    * @param tcpConnection tcp connection
    */
   protected void handleWriteEvent(TcpConnection tcpConnection) throws IOException {
-    // If there is no data in byteBuffer or cache, we should stop handling the write event
-    var isEmptyByteBuffer = writeByteBuffer.position() == 0;
-    if (isEmptyByteBuffer && writeCache.isEmpty()) {
+    // If there is no data in cache, we should stop handling the write event
+    if (writeCache.isEmpty()) {
       logger.info("Current key = " + tcpConnection.key + " has no data to write, remove interest of WRITE");
       tcpConnection.key.interestOpsAnd(~SelectionKey.OP_WRITE);
       return;
     }
 
-    // Transfer as much data as possible from cache to byteBuffer
-    while (writeByteBuffer.hasRemaining() && !writeCache.isEmpty()) {
-      writeByteBuffer.put(writeCache.poll());
+    writeCachedData(tcpConnection);
+
+    // Trigger callback if needed. It is cleared first, since the callback may set the next handler.
+    var writeCallback = tcpConnection.getWriteHandler();
+    if (writeCallback != null && writeCallback.test(tcpConnection)) {
+      tcpConnection.clearWriteHandler();
+      writeCallback.run(tcpConnection);
     }
+  }
 
-    // Write data in byteBuffer to client channel
-    writeByteBuffer.flip();
-    try {
-      tcpConnection.socketChannel.write(writeByteBuffer);
-    } catch (IOException e) {
-      logger.warn("Failed to write data to client channel = " + tcpConnection.socketChannel, e);
-      tcpConnection.closeConnection();
-      throw e;
+  /**
+   * Write as much data in write cache as the client socket can take. Consecutive buffers are written with a single
+   * gathering write, so e.g. the headers and body of a Http response go out in one system call, and file regions are
+   * transferred from the file by the kernel. Interest of WRITE is kept only if some data is left in the cache.
+   * @param tcpConnection tcp connection
+   * @throws IOException Some IO errors happen in writing data to channel
+   */
+  protected void writeCachedData(TcpConnection tcpConnection) throws IOException {
+    long totalBytesWritten = 0;
+    while (!writeCache.isEmpty()) {
+      long bytesWritten;
+      boolean isSocketFull;
+      try {
+        if (writeCache.peek() instanceof FileRegion) {
+          var region = (FileRegion) writeCache.peek();
+          bytesWritten = region.transferTo(tcpConnection.socketChannel);
+          isSocketFull = !region.isWritten();
+          if (region.isWritten()) {
+            writeCache.poll();
+            region.close();
+          }
+        } else {
+          var batchBytesCount = gatherBuffers();
+          bytesWritten = writeGatheredBuffers(tcpConnection);
+          cachedBytesCount -= bytesWritten;
+          isSocketFull = bytesWritten < batchBytesCount;
+        }
+      } catch (IOException e) {
+        logger.warn("Failed to write data to client channel = " + tcpConnection.socketChannel, e);
+        tcpConnection.closeConnection();
+        throw e;
+      }
+
+      totalBytesWritten += bytesWritten;
+
+      // The socket buffer is full, wait for the next WRITE event
+      if (isSocketFull) {
+        break;
+      }
     }
-    logger.info("Successfully send [" + writeByteBuffer.position() + 1 + "] bytes to client.");
+    logger.info("Successfully send [" + totalBytesWritten + "] bytes to client.");
+    TcpMetrics.BYTES_WRITTEN.add(totalBytesWritten);
 
-    // Compact this buffer in case of partial write and makes the byteBuffer ready for reading data from cache
-    writeByteBuffer.compact();
+    if (writeCache.isEmpty()) {
+      tcpConnection.key.interestOpsAnd(~SelectionKey.OP_WRITE);
+    } else {
+      tcpConnection.key.interestOpsOr(SelectionKey.OP_WRITE);
+    }
+  }
 
-    // Trigger callback if needed
-    var writeCallback = tcpConnection.getWriteHandler();
-    if (writeCallback != null && writeCallback.test(tcpConnection)) {
-      writeCallback.run(tcpConnection);
-      tcpConnection.clearWriteHandler();
+  /**
+   * Collect the leading buffers of the cache, up to the first file region, for one gathering write
+   * @return count of bytes in the collected buffers
+   */
+  private long gatherBuffers() {
+    long batchBytesCount = 0;
+    gatheringSegmentsCount = 0;
+    for (var segment : writeCache) {
+      if (gatheringSegmentsCount == gatheringSegments.length || !(segment instanceof ByteBuffer)) {
+        break;
+      }
+
+      var buffer = (ByteBuffer) segment;
+      gatheringSegments[gatheringSegmentsCount++] = buffer;
+      batchBytesCount += buffer.remaining();
     }
+
+    return batchBytesCount;
   }
 
   /**
-   * Write the given data to write cache
+   * Write the collected buffers with a single gathering write. The buffers that have been written are removed from the
+   * cache.
+   * @param tcpConnection tcp connection
+   * @return count of bytes written
+   * @throws IOException Some IO errors happen in writing data to channel
+   */
+  private long writeGatheredBuffers(TcpConnection tcpConnection) throws IOException {
+    try {
+      var bytesWritten = tcpConnection.socketChannel.write(gatheringSegments, 0, gatheringSegmentsCount);
+      while (writeCache.peek() instanceof ByteBuffer && !((ByteBuffer) writeCache.peek()).hasRemaining()) {
+        writeCache.poll();
+      }
+      return bytesWritten;
+    } finally {
+      Arrays.fill(gatheringSegments, 0, gatheringSegmentsCount, null);
+    }
+  }
+
+  /**
+   * Write the given data to write cache. The data is not copied, so the caller should not modify it afterwards.
    * @param data data that we want to write to client
    */
   protected void writeDataToCache(byte[] data) {
-    for (var byteData : data) {
-      this.writeCache.offer(byteData);
+    if (data.length == 0) {
+      return;
+    }
+
+    writeCache.offer(ByteBuffer.wrap(data));
+    cachedBytesCount += data.length;
+  }
+
+  /**
+   * Write the remaining bytes of the given buffer to write cache. The buffer is not copied, and its position is moved
+   * as it is written, so the caller should pass a duplicate of a buffer that is shared.
+   * @param buffer buffer that we want to write to client
+   */
+  protected void writeBufferToCache(ByteBuffer buffer) {
+    if (!buffer.hasRemaining()) {
+      return;
     }
+
+    writeCache.offer(buffer);
+    cachedBytesCount += buffer.remaining();
+  }
+
+  /**
+   * Write the given file region to write cache. The region is closed when it has been written, or when the cache is
+   * cleared.
+   * @param region region of a file that we want to write to client
+   */
+  protected void writeFileRegionToCache(FileRegion region) {
+    if (region.isWritten()) {
+      region.close();
+      return;
+    }
+
+    writeCache.offer(region);
+  }
+
+  /**
+   * Drop all the data in write cache, e.g., when the connection is closed. File regions in it are closed.
+   */
+  protected void clear() {
+    for (var segment : writeCache) {
+      if (segment instanceof FileRegion) {
+        ((FileRegion) segment).close();
+      }
+    }
+
+    writeCache.clear();
+    cachedBytesCount = 0;
   }
 
   /**
@@ -100,7 +232,15 @@ public class TcpWriteManager {
    * @return if the write cache is overflowed
    */
   protected boolean isCacheOverflow() {
-    return writeCache.size() > maxCacheSize;
+    return cachedBytesCount > maxCacheSize;
+  }
+
+  /**
+   * Get count of bytes in the buffers of write cache that have not been written to the client yet
+   * @return count of bytes held in write cache
+   */
+  public long getCachedBytesCount() {
+    return cachedBytesCount;
   }
 
   /**
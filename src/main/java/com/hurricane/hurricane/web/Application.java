@@ -1,9 +1,16 @@
 package com.hurricane.hurricane.web;
 
 import com.hurricane.hurricane.http.HttpConnection;
+import com.hurricane.hurricane.http.HttpException;
 import com.hurricane.hurricane.http.HttpRequest;
-import java.util.LinkedList;
+import com.hurricane.hurricane.http.HttpResponse;
+import com.hurricane.hurricane.http.HttpStatus;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import org.apache.log4j.Logger;
+
+import static com.hurricane.hurricane.common.Constant.*;
 
 
 /**
@@ -12,52 +19,141 @@ import java.util.List;
  * A collection of request handlers that make up a web application.
  */
 public class Application {
+  private final static Logger logger = Logger.getLogger(Application.class);
 
   /**
-   * a list of (url, handler) pair
+   * Router of the URL specs
    */
-  private LinkedList<UrlSpec> urlSpecs;
+  private final Router router;
 
   /**
-   * The constructor for this class takes in a list of URLSpec objects or (regexp, request_class) tuples. When we
-   * receive requests, we iterate over the list in order and instantiate an instance of the first request class whose
-   * regexp matches the request path.
+   * The constructor for this class takes in a list of URLSpec objects. When we receive requests, the request is
+   * handled by the first URL spec in the list whose regexp matches the request path.
    *
    * @param urlSpecs collection of request handlers that make up a web application
    */
   public Application(List<UrlSpec> urlSpecs) {
-    this.urlSpecs = new LinkedList<>();
-    this.urlSpecs.addAll(urlSpecs);
+    this.router = new Router(urlSpecs);
   }
 
   /**
-   * Given a HttpRequest, find the associated handler to process it.
+   * Given a HttpRequest, find the associated URL spec to process it. The groups of its pattern are set as the path
+   * arguments of the request.
    *
    * @param request an Http Request
-   * @return a Handler that can process the Http request
+   * @return a URL spec whose handler can process the Http request
    */
-  private RequestHandler findMatchHandler(HttpRequest request) {
-    var path = request.getPath();
-    for (var urlSpec : this.urlSpecs) {
-      var match = urlSpec.getPattern().matcher(path).matches();
-      if (match) {
-        return urlSpec.getHandler();
-      }
+  private UrlSpec findMatchUrlSpec(HttpRequest request) {
+    var match = router.find(request.getPath());
+    if (match == null) {
+      return null;
+    }
+
+    request.setPathArgs(match.getPathArgs());
+    request.setUrlSpec(match.getUrlSpec());
+    return match.getUrlSpec();
+  }
+
+  /**
+   * Called when the headers of a request with a body are received. If the handler of the request streams the body, it
+   * is prepared now, and the returned consumer delivers the body to it as the body arrives. The body is delivered in
+   * the event loop owning the connection, even if the handler runs in an executor.
+   *
+   * @param connection  Http connection of the request
+   * @param httpRequest the http request whose body is coming
+   * @return consumer of the body, or null if the body should be held until it is complete
+   * @throws HttpException if the handler rejects the request before its body
+   */
+  public Consumer<byte[]> prepareBodyStream(HttpConnection connection, HttpRequest httpRequest) throws HttpException {
+    var urlSpec = findMatchUrlSpec(httpRequest);
+    if (urlSpec == null) {
+      return null;
+    }
+
+    var handler = getHandler(urlSpec, httpRequest);
+    if (handler == null || !handler.isBodyStreamed()) {
+      return null;
+    }
+
+    handler.prepareBodyStream(httpRequest);
+    return data -> handler.dataReceived(httpRequest, data);
+  }
+
+  /**
+   * Get the handler of a request. A handler created for the request is kept by the request, so the handler that
+   * received the body of the request also handles the request.
+   *
+   * @param urlSpec     URL spec that matches the request
+   * @param httpRequest the http request to handle
+   * @return handler of the request, or null if the URL spec has no handler
+   */
+  private RequestHandler getHandler(UrlSpec urlSpec, HttpRequest httpRequest) {
+    if (httpRequest.getHandler() == null) {
+      httpRequest.setHandler(urlSpec.createHandler());
     }
 
-    return null;
+    return httpRequest.getHandler();
   }
 
   /**
-   * Process a Http request
+   * Process a Http request. If the matched URL spec has an executor, the handler is run by it, and the writes of the
+   * response are handed back to the event loop owning the connection. Otherwise the handler is run by the event loop.
    *
    * @param connection  Http connection of the request
    * @param httpRequest the http request that will be handled
    */
   public void run(HttpConnection connection, HttpRequest httpRequest) {
-    var handler = findMatchHandler(httpRequest);
-    if (handler != null) {
+    var urlSpec = findMatchUrlSpec(httpRequest);
+    if (urlSpec == null) {
+      return;
+    }
+
+    var handler = getHandler(urlSpec, httpRequest);
+    if (handler == null) {
+      return;
+    }
+
+    var executor = urlSpec.getExecutor();
+    if (executor == null) {
       handler.run(connection, httpRequest);
+      return;
+    }
+
+    try {
+      executor.execute(() -> runOffLoop(urlSpec, handler, connection, httpRequest));
+    } catch (RejectedExecutionException e) {
+      logger.warn("Executor is saturated, reject request = " + httpRequest.summary());
+      var response = new HttpResponse();
+      response.setStatus(HttpStatus.SERVICE_UNAVAILABLE);
+      response.getHeaders().add(HTTP_HEADER_KEY_CONTENT_LENGTH, "0");
+      httpRequest.write(response.getHeadersBytes(httpRequest.getVersion()));
+      urlSpec.getMetrics().record(HttpStatus.SERVICE_UNAVAILABLE, System.nanoTime() - httpRequest.getStartNanos());
+      httpRequest.finish();
+    }
+  }
+
+  /**
+   * Run the handler in a thread of the executor. A handler created for the request is run concurrently with the other
+   * requests of its URL spec. A handler shared by all the requests of its URL spec is run for one request at a time.
+   *
+   * @param urlSpec     URL spec that matches the request
+   * @param handler     handler of the request
+   * @param connection  Http connection of the request
+   * @param httpRequest the http request that will be handled
+   */
+  private void runOffLoop(UrlSpec urlSpec, RequestHandler handler, HttpConnection connection,
+      HttpRequest httpRequest) {
+    try {
+      if (urlSpec.isHandlerShared()) {
+        synchronized (handler) {
+          handler.run(connection, httpRequest);
+        }
+      } else {
+        handler.run(connection, httpRequest);
+      }
+    } catch (RuntimeException e) {
+      logger.error("Failed to handle request = " + httpRequest.summary() + " off the event loop", e);
+      connection.close();
     }
   }
 }
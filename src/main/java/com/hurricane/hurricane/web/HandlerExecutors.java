@@ -0,0 +1,71 @@
+package com.hurricane.hurricane.web;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+
+
+/**
+ * @author larrytaowang
+ *
+ * Factory methods for executors that run blocking request handlers off the event loop. Set one of them on a UrlSpec, so
+ * a handler touching a disk or database does not stall the other connections of the loop.
+ */
+public class HandlerExecutors {
+  private final static Logger logger = Logger.getLogger(HandlerExecutors.class);
+
+  /**
+   * Prefix of the names of worker threads
+   */
+  public static final String WORKER_THREAD_NAME_PREFIX = "hurricane-handler-";
+
+  /**
+   * Count of worker threads created so far, used to name them
+   */
+  private static final AtomicInteger workerThreadCount = new AtomicInteger();
+
+  private HandlerExecutors() {
+  }
+
+  /**
+   * Create a pool with a fixed count of worker threads and a bounded queue of waiting requests. When the queue is full,
+   * requests are rejected and answered with 503 instead of piling up.
+   * @param threadCount count of worker threads
+   * @param queueCapacity max count of requests waiting for a worker
+   * @return a bounded worker pool
+   */
+  public static ExecutorService newBoundedPool(int threadCount, int queueCapacity) {
+    ThreadFactory threadFactory = runnable -> {
+      var thread = new Thread(runnable, WORKER_THREAD_NAME_PREFIX + workerThreadCount.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    };
+
+    return new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * Create an executor that runs each request in a new virtual thread, if the runtime supports them. Otherwise, a
+   * bounded pool is created instead.
+   * @param fallbackThreadCount count of worker threads if virtual threads are not supported
+   * @param fallbackQueueCapacity max count of waiting requests if virtual threads are not supported
+   * @return an executor for blocking request handlers
+   */
+  public static ExecutorService newVirtualThreadPerTaskExecutor(int fallbackThreadCount, int fallbackQueueCapacity) {
+    // Looked up by reflection, since we still build for runtimes without virtual threads
+    try {
+      var factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factoryMethod.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      logger.info("Virtual threads are not supported by this runtime, fall back to a pool of ["
+          + fallbackThreadCount + "] worker threads");
+      return newBoundedPool(fallbackThreadCount, fallbackQueueCapacity);
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package com.hurricane.hurricane.web;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import org.apache.log4j.Logger;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * A bounded cache of files mapped into memory, so hot files are served from the page cache without reading them or
+ * even checking them on each request. A cached file is checked again at most once per revalidate interval, and mapped
+ * again if its modification time or size has changed. When the total size of the cached files is over the limit, the
+ * least recently used files are evicted. An evicted mapping is released once the responses still writing it are done,
+ * and the buffer is collected.
+ * <p>
+ * The cache can be shared by the loops of a group, so its methods are synchronized.
+ */
+public class MappedFileCache {
+  private final static Logger logger = Logger.getLogger(MappedFileCache.class);
+
+  public static final long DEFAULT_MAX_TOTAL_SIZE = 64L * 1024 * 1024;
+
+  public static final long DEFAULT_MAX_FILE_SIZE = 1024 * 1024;
+
+  public static final long DEFAULT_REVALIDATE_INTERVAL_MILLIS = 1000;
+
+  /**
+   * Cached files in the order of access, the least recently used first
+   */
+  private final LinkedHashMap<Path, Entry> entries;
+
+  /**
+   * Max total size of the cached files
+   */
+  private final long maxTotalSize;
+
+  /**
+   * Files larger than this are not cached
+   */
+  private final long maxFileSize;
+
+  /**
+   * A cached file is checked again if it has not been checked for this long
+   */
+  private final long revalidateIntervalMillis;
+
+  /**
+   * Total size of the cached files
+   */
+  private long totalSize;
+
+  public MappedFileCache() {
+    this(DEFAULT_MAX_TOTAL_SIZE, DEFAULT_MAX_FILE_SIZE, DEFAULT_REVALIDATE_INTERVAL_MILLIS);
+  }
+
+  public MappedFileCache(long maxTotalSize, long maxFileSize, long revalidateIntervalMillis) {
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.maxTotalSize = maxTotalSize;
+    this.maxFileSize = maxFileSize;
+    this.revalidateIntervalMillis = revalidateIntervalMillis;
+  }
+
+  /**
+   * Get a file from the cache, mapping it if it is not cached or has changed
+   *
+   * @param file path of the file
+   * @return the cached file, or null if it is not a regular file, or it is too large to cache
+   * @throws IOException Some IO errors in checking or mapping the file
+   */
+  public synchronized Entry get(Path file) throws IOException {
+    var now = System.currentTimeMillis();
+    var entry = entries.get(file);
+    if (entry != null && now - entry.validatedTime < revalidateIntervalMillis) {
+      return entry;
+    }
+
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      remove(file);
+      return null;
+    }
+
+    var size = attributes.size();
+    var lastModified = attributes.lastModifiedTime().toMillis();
+    if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+      entry.validatedTime = now;
+      return entry;
+    }
+
+    remove(file);
+    if (!attributes.isRegularFile() || size > maxFileSize || size > maxTotalSize) {
+      return null;
+    }
+
+    ByteBuffer buffer;
+    try (var fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+      buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    entry = new Entry(buffer, size, lastModified, now);
+    entries.put(file, entry);
+    totalSize += size;
+    logger.info("Cache file = " + file + ", size = " + size + ", total size = " + totalSize);
+    evictIfNeeded();
+    return entry;
+  }
+
+  /**
+   * Evict the least recently used files until the total size is within the limit
+   */
+  private void evictIfNeeded() {
+    var iterator = entries.entrySet().iterator();
+    while (totalSize > maxTotalSize && iterator.hasNext()) {
+      var eldest = iterator.next();
+      totalSize -= eldest.getValue().size;
+      iterator.remove();
+      logger.info("Evict file = " + eldest.getKey() + " from cache, total size = " + totalSize);
+    }
+  }
+
+  /**
+   * Remove a file from the cache
+   *
+   * @param file path of the file
+   */
+  public synchronized void remove(Path file) {
+    var entry = entries.remove(file);
+    if (entry != null) {
+      totalSize -= entry.size;
+    }
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long getTotalSize() {
+    return totalSize;
+  }
+
+  /**
+   * A file mapped into memory, with the metadata it had when it was mapped
+   */
+  public static final class Entry {
+    /**
+     * Content of the file. Its position and limit are never changed, so writers should use duplicates of it.
+     */
+    private final ByteBuffer buffer;
+
+    private final long size;
+
+    /**
+     * Modification time of the file in milliseconds
+     */
+    private final long lastModified;
+
+    /**
+     * The last time the file was checked to be unchanged
+     */
+    private long validatedTime;
+
+    private Entry(ByteBuffer buffer, long size, long lastModified, long validatedTime) {
+      this.buffer = buffer;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.validatedTime = validatedTime;
+    }
+
+    /**
+     * Get a read only view of a part of the file
+     *
+     * @param position position of the first byte
+     * @param count    count of bytes
+     * @return a view that shares the content of the file
+     */
+    public ByteBuffer slice(long position, long count) {
+      var view = buffer.asReadOnlyBuffer();
+      view.position((int) position).limit((int) (position + count));
+      return view;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    public long getLastModified() {
+      return lastModified;
+    }
+  }
+}
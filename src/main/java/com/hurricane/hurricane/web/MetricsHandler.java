@@ -0,0 +1,49 @@
+package com.hurricane.hurricane.web;
+
+import com.hurricane.hurricane.http.HttpException;
+import com.hurricane.hurricane.http.HttpMethod;
+import com.hurricane.hurricane.http.HttpRequest;
+import com.hurricane.hurricane.metrics.MetricsRegistry;
+import java.util.Set;
+
+import static com.hurricane.hurricane.common.Constant.*;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * Serves the metrics of a registry in Prometheus text format, e.g., new UrlSpec(MetricsHandler.DEFAULT_PATH, new
+ * MetricsHandler()). It only reads the metrics, so a single handler can be shared by all the requests.
+ */
+public class MetricsHandler extends RequestHandler {
+  /**
+   * Path that Prometheus scrapes by default
+   */
+  public static final String DEFAULT_PATH = "/metrics";
+
+  private final MetricsRegistry registry;
+
+  public MetricsHandler() {
+    this(MetricsRegistry.getInstance());
+  }
+
+  public MetricsHandler(MetricsRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  protected Set<HttpMethod> getSupportedMethods() {
+    return Set.of(HttpMethod.GET, HttpMethod.HEAD);
+  }
+
+  @Override
+  protected void handleHeadMethod(HttpRequest request) throws HttpException {
+    handleGetMethod(request);
+  }
+
+  @Override
+  protected void handleGetMethod(HttpRequest request) throws HttpException {
+    getResponseHeaders().add(HTTP_HEADER_KEY_CONTENT_TYPE, MetricsRegistry.PROMETHEUS_CONTENT_TYPE);
+    write(registry.toPrometheusText());
+  }
+}
@@ -0,0 +1,278 @@
+package com.hurricane.hurricane.web;
+
+import com.hurricane.hurricane.common.EventLoop;
+import com.hurricane.hurricane.http.HttpClientRequest;
+import com.hurricane.hurricane.http.HttpClientResponse;
+import com.hurricane.hurricane.http.HttpClientResponseListener;
+import com.hurricane.hurricane.http.HttpException;
+import com.hurricane.hurricane.http.HttpHeaders;
+import com.hurricane.hurricane.http.HttpRequest;
+import com.hurricane.hurricane.http.HttpStatus;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import org.apache.log4j.Logger;
+
+import static com.hurricane.hurricane.common.Constant.*;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * A reverse proxy handler, which forwards a request to an upstream server of its group, and relays the response back.
+ * The URI of the request is appended to the base URL of the upstream server. Both bodies are streamed: the request
+ * body is sent upstream as it is received, and each part of the response body is flushed to the client as it arrives,
+ * so neither is held in memory as a whole. Neither side is read faster than the other side takes the data: when the
+ * data buffered for one side goes above the high watermark of its connection, reading from the other side is paused
+ * until the buffer drains. Hop-by-hop headers, e.g., CONNECTION, are not forwarded.
+ * <p>
+ * The handler must be created per request, e.g., UrlSpec.of("/api/.*", () -> new ProxyHandler(upstreamGroup)), and run
+ * by the loop owning the connection, i.e., without an executor, so the response is relayed by the loop that receives
+ * it. A failure of the upstream server is answered with 502 Bad Gateway, or 504 Gateway Timeout if it times out.
+ */
+public class ProxyHandler extends RequestHandler {
+  private final static Logger logger = Logger.getLogger(ProxyHandler.class);
+
+  /**
+   * Headers that only apply to a single connection, so they are not forwarded
+   */
+  private static final List<String> HOP_BY_HOP_HEADERS = List.of(HTTP_HEADER_KEY_CONNECTION,
+      HTTP_HEADER_KEY_KEEP_ALIVE, HTTP_HEADER_KEY_PROXY_CONNECTION, HTTP_HEADER_KEY_TE, HTTP_HEADER_KEY_TRAILER,
+      HTTP_HEADER_KEY_TRANSFER_ENCODING, HTTP_HEADER_KEY_UPGRADE);
+
+  private final UpstreamGroup upstreamGroup;
+
+  /**
+   * The request being proxied, and the upstream server it is forwarded to
+   */
+  private HttpRequest request;
+  private UpstreamGroup.Upstream upstream;
+
+  /**
+   * The request forwarded to the upstream server
+   */
+  private HttpClientRequest clientRequest;
+
+  /**
+   * Completes when the response has been relayed, so the response can be finished
+   */
+  private final CompletableFuture<Void> relayFuture = new CompletableFuture<>();
+
+  public ProxyHandler(UpstreamGroup upstreamGroup) {
+    this.upstreamGroup = upstreamGroup;
+  }
+
+  @Override
+  public boolean isBodyStreamed() {
+    return true;
+  }
+
+  /**
+   * Forward the request upstream once its headers are received, so its body can be streamed
+   *
+   * @param request http request to handle
+   */
+  @Override
+  protected void prepare(HttpRequest request) {
+    this.request = request;
+    upstream = upstreamGroup.select();
+    try {
+      clientRequest = new HttpClientRequest(upstream.getBaseUrl() + request.getUri(), request.getMethod(),
+          createUpstreamHeaders(request.getHttpHeaders()), null);
+    } catch (IllegalArgumentException e) {
+      logger.warn("Failed to forward request = " + request.summary() + " to upstream = " + upstream, e);
+      throw new HttpException(HttpStatus.BAD_REQUEST);
+    }
+    if (hasBody(request)) {
+      clientRequest.setBodyStreamed();
+    }
+    clientRequest.setResponseListener(new ResponseRelay());
+
+    logger.info("Forward request = " + request.summary() + " to upstream = " + upstream);
+    upstream.onRequestStarted();
+    upstreamGroup.getClient(EventLoop.current()).fetch(clientRequest).whenComplete((response, throwable) -> {
+      upstream.onRequestFinished();
+      if (throwable == null) {
+        relayFuture.complete(null);
+        return;
+      }
+
+      var cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause()
+          : throwable;
+      logger.warn("Upstream = " + upstream + " failed to answer request = " + request.summary(), cause);
+      var status = cause instanceof TimeoutException ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.BAD_GATEWAY;
+      relayFuture.completeExceptionally(new HttpException(status));
+    });
+  }
+
+  @Override
+  protected void dataReceived(HttpRequest request, byte[] data) {
+    clientRequest.writeBody(data);
+
+    // Stop reading the body from the client until the upstream server takes what is buffered for it
+    if (!clientRequest.isWritable()) {
+      request.pauseReading();
+      clientRequest.onWritable(request::resumeReading);
+    }
+  }
+
+  @Override
+  protected CompletableFuture<?> handleHeadMethodAsync(HttpRequest request) throws HttpException {
+    return relay();
+  }
+
+  @Override
+  protected CompletableFuture<?> handleGetMethodAsync(HttpRequest request) throws HttpException {
+    return relay();
+  }
+
+  @Override
+  protected CompletableFuture<?> handlePostMethodAsync(HttpRequest request) throws HttpException {
+    return relay();
+  }
+
+  @Override
+  protected CompletableFuture<?> handleDeleteMethodAsync(HttpRequest request) throws HttpException {
+    return relay();
+  }
+
+  @Override
+  protected CompletableFuture<?> handlePutMethodAsync(HttpRequest request) throws HttpException {
+    return relay();
+  }
+
+  /**
+   * Called when the whole request has been received, and its body has been forwarded
+   *
+   * @return future that completes when the response has been relayed
+   */
+  private CompletableFuture<?> relay() {
+    if (clientRequest.isBodyStreamed()) {
+      clientRequest.endBody();
+    }
+
+    return relayFuture;
+  }
+
+  /**
+   * Check if a request has a body, which is streamed to this handler
+   *
+   * @param request Http request to check
+   * @return if the request has a body
+   */
+  private static boolean hasBody(HttpRequest request) {
+    var headers = request.getHttpHeaders();
+    if (HTTP_HEADER_TRANSFER_ENCODING_VALUE_CHUNKED.equalsIgnoreCase(
+        headers.getValue(HTTP_HEADER_KEY_TRANSFER_ENCODING))) {
+      return true;
+    }
+
+    var contentLength = headers.getValue(HTTP_HEADER_KEY_CONTENT_LENGTH);
+    return contentLength != null && !contentLength.isEmpty() && !"0".equals(contentLength.strip());
+  }
+
+  /**
+   * Get the headers of the request to forward. The HOST header is set to the upstream server by the client, and the
+   * original one is sent as X-FORWARDED-HOST. EXPECT has been answered by this server already.
+   *
+   * @param headers headers of the request received
+   * @return headers of the request to forward
+   */
+  private static HttpHeaders createUpstreamHeaders(HttpHeaders headers) {
+    var result = copyEndToEndHeaders(headers, HTTP_HEADER_KEY_HOST, HTTP_HEADER_KEY_EXPECT);
+    var host = headers.getValue(HTTP_HEADER_KEY_HOST);
+    if (host != null) {
+      result.add(HTTP_HEADER_KEY_X_FORWARDED_HOST, host);
+    }
+
+    return result;
+  }
+
+  /**
+   * Copy the headers that are meant for the other end of a proxy, i.e., without the hop-by-hop headers and the headers
+   * listed in CONNECTION
+   *
+   * @param headers         headers to copy
+   * @param excludedHeaders other headers not to copy
+   * @return copied headers
+   */
+  static HttpHeaders copyEndToEndHeaders(HttpHeaders headers, String... excludedHeaders) {
+    Set<String> skippedNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    skippedNames.addAll(HOP_BY_HOP_HEADERS);
+    skippedNames.addAll(List.of(excludedHeaders));
+    for (var value : headers.getValueList(HTTP_HEADER_KEY_CONNECTION)) {
+      for (var name : value.split(",")) {
+        skippedNames.add(name.strip());
+      }
+    }
+
+    // The length of a chunked body is only known at its end, so a CONTENT-LENGTH sent with it is wrong
+    if (headers.contains(HTTP_HEADER_KEY_TRANSFER_ENCODING)) {
+      skippedNames.add(HTTP_HEADER_KEY_CONTENT_LENGTH);
+    }
+
+    var result = new HttpHeaders();
+    for (var entry : headers) {
+      if (skippedNames.contains(entry.getKey())) {
+        continue;
+      }
+      for (var value : entry.getValue()) {
+        result.add(entry.getKey(), value);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Relays the response of the upstream server to the client as it arrives
+   */
+  private class ResponseRelay implements HttpClientResponseListener {
+    /**
+     * If the response can't be relayed, so its body is dropped
+     */
+    private boolean isRejected;
+
+    @Override
+    public void headersReceived(HttpClientResponse response) {
+      // The status is relayed as it is, including codes and reason phrases that this server does not define
+      var code = response.getCode();
+      if (code < 200 || code > 599) {
+        logger.warn("Upstream = " + upstream + " answered request = " + request.summary() + " with unsupported code = "
+            + code);
+        isRejected = true;
+        relayFuture.completeExceptionally(new HttpException(HttpStatus.BAD_GATEWAY));
+        return;
+      }
+
+      setStatus(code, response.getReasonPhrase());
+      var headers = getResponseHeaders();
+      for (var entry : copyEndToEndHeaders(response.getHeaders())) {
+        for (var value : entry.getValue()) {
+          headers.add(entry.getKey(), value);
+        }
+      }
+    }
+
+    @Override
+    public void dataReceived(byte[] data) {
+      if (isRejected) {
+        return;
+      }
+
+      // The headers are sent with the first part. Without CONTENT-LENGTH, the body is chunked again for the client.
+      writeBuffer(ByteBuffer.wrap(data));
+      flush(request);
+
+      // Stop reading the response from the upstream server until the client takes what is buffered for it
+      if (!request.isWritable()) {
+        clientRequest.pauseResponse();
+        request.onWritable(clientRequest::resumeResponse);
+      }
+    }
+  }
+}
@@ -1,14 +1,22 @@
 package com.hurricane.hurricane.web;
 
+import com.hurricane.hurricane.http.HttpChunkedEncoder;
 import com.hurricane.hurricane.http.HttpConnection;
 import com.hurricane.hurricane.http.HttpException;
+import com.hurricane.hurricane.http.HttpHeaders;
 import com.hurricane.hurricane.http.HttpMethod;
 import com.hurricane.hurricane.http.HttpRequest;
 import com.hurricane.hurricane.http.HttpResponse;
 import com.hurricane.hurricane.http.HttpStatus;
+import com.hurricane.hurricane.tcp.connection.FileRegion;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.apache.log4j.Logger;
 
 import static com.hurricane.hurricane.common.Constant.*;
@@ -79,6 +87,73 @@ public class RequestHandler {
     throw new HttpException(HttpStatus.METHOD_NOT_ALLOWED);
   }
 
+  /**
+   * Override this method to define an asynchronous workflow of HEAD method. The response is finished when the returned
+   * future completes, in the event loop owning the connection, so the handler can wait for other services without
+   * blocking a thread. By default, it runs handleHeadMethod() and returns null, i.e., the response is finished when it
+   * returns.
+   * <p>
+   * The handler must be created per request, see UrlSpec.of(), since a shared handler may get the next request before
+   * the future completes.
+   *
+   * @param request Http request this handler this going to process
+   * @return a future that completes when the response can be finished, or null if it can be finished now. If it
+   * completes with a HttpException, an error response with its status is sent.
+   * @throws HttpException Some Http exceptions during processing
+   */
+  protected CompletableFuture<?> handleHeadMethodAsync(HttpRequest request) throws HttpException {
+    handleHeadMethod(request);
+    return null;
+  }
+
+  /**
+   * Override this method to define an asynchronous workflow of GET method, see handleHeadMethodAsync()
+   *
+   * @param request Http request this handler this going to process
+   * @return a future that completes when the response can be finished, or null if it can be finished now
+   * @throws HttpException Some Http exceptions during processing
+   */
+  protected CompletableFuture<?> handleGetMethodAsync(HttpRequest request) throws HttpException {
+    handleGetMethod(request);
+    return null;
+  }
+
+  /**
+   * Override this method to define an asynchronous workflow of POST method, see handleHeadMethodAsync()
+   *
+   * @param request Http request this handler this going to process
+   * @return a future that completes when the response can be finished, or null if it can be finished now
+   * @throws HttpException Some Http exceptions during processing
+   */
+  protected CompletableFuture<?> handlePostMethodAsync(HttpRequest request) throws HttpException {
+    handlePostMethod(request);
+    return null;
+  }
+
+  /**
+   * Override this method to define an asynchronous workflow of DELETE method, see handleHeadMethodAsync()
+   *
+   * @param request Http request this handler this going to process
+   * @return a future that completes when the response can be finished, or null if it can be finished now
+   * @throws HttpException Some Http exceptions during processing
+   */
+  protected CompletableFuture<?> handleDeleteMethodAsync(HttpRequest request) throws HttpException {
+    handleDeleteMethod(request);
+    return null;
+  }
+
+  /**
+   * Override this method to define an asynchronous workflow of PUT method, see handleHeadMethodAsync()
+   *
+   * @param request Http request this handler this going to process
+   * @return a future that completes when the response can be finished, or null if it can be finished now
+   * @throws HttpException Some Http exceptions during processing
+   */
+  protected CompletableFuture<?> handlePutMethodAsync(HttpRequest request) throws HttpException {
+    handlePutMethod(request);
+    return null;
+  }
+
   /**
    * Override this method to do setup work before handling Http request
    *
@@ -87,6 +162,42 @@ public class RequestHandler {
   protected void prepare(HttpRequest request) {
   }
 
+  /**
+   * Override this method to return true if the handler receives the request body with dataReceived() as it arrives,
+   * e.g., for uploads too large to hold in memory. Then prepare() is called once the headers are received, before the
+   * body. The body is not held by the request, and the method handler is called after all of it is received.
+   *
+   * @return if the request body is streamed to this handler
+   */
+  public boolean isBodyStreamed() {
+    return false;
+  }
+
+  /**
+   * Override this method to process a part of the request body when the body is streamed. It is called in the event
+   * loop owning the connection, in the order of the body.
+   *
+   * @param request Http request whose body is received
+   * @param data    the part of the body received
+   */
+  protected void dataReceived(HttpRequest request, byte[] data) {
+  }
+
+  /**
+   * Prepare for a request whose body will be streamed to this handler, once its headers are received
+   *
+   * @param request Http request whose body is coming
+   * @throws HttpException if the method is not supported, or prepare() rejects the request. The connection answers the
+   *                       error and is closed, since the body is not read.
+   */
+  void prepareBodyStream(HttpRequest request) throws HttpException {
+    if (!isMethodSupported(request.getMethod())) {
+      throw new HttpException(HttpStatus.METHOD_NOT_ALLOWED);
+    }
+
+    prepare(request);
+  }
+
   /**
    * Check if a method is supported in this handler
    *
@@ -116,40 +227,88 @@ public class RequestHandler {
   public void run(HttpConnection connection, HttpRequest request) {
     logger.info("Start to process the Http Request with handler");
 
-    var requestMethod = request.getMethod();
-    if (!isMethodSupported(requestMethod)) {
-      throw new HttpException(HttpStatus.METHOD_NOT_ALLOWED);
+    CompletableFuture<?> future;
+    try {
+      var requestMethod = request.getMethod();
+      if (!isMethodSupported(requestMethod)) {
+        throw new HttpException(HttpStatus.METHOD_NOT_ALLOWED);
+      }
+
+      // A request whose body is streamed has been prepared before its body
+      if (!request.isBodyStreamed()) {
+        prepare(request);
+      }
+      future = execute(request);
+    } catch (HttpException e) {
+      sendError(connection, request, e.getStatus());
+      return;
     }
 
-    prepare(request);
-    execute(request);
-    finish(request);
+    if (future == null) {
+      finish(request);
+      return;
+    }
+
+    // The response is finished in the loop owning the connection, where its writes go as well. Until then, the
+    // connection keeps the request in flight, so it is not taken as done, and the next request is not re-armed.
+    future.whenComplete((result, throwable) -> {
+      var eventLoop = connection.getEventLoop();
+      if (eventLoop.inEventLoop()) {
+        onFutureCompleted(connection, request, throwable);
+      } else {
+        eventLoop.execute(() -> onFutureCompleted(connection, request, throwable));
+      }
+    });
+  }
+
+  /**
+   * Finish the response when the future returned by the method handler completes
+   *
+   * @param connection Http connection of the request
+   * @param request    Http request that is handled
+   * @param throwable  the failure of the future, or null if it succeeded
+   */
+  private void onFutureCompleted(HttpConnection connection, HttpRequest request, Throwable throwable) {
+    if (throwable == null) {
+      finish(request);
+      return;
+    }
+
+    var cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause()
+        : throwable;
+    if (cause instanceof HttpException) {
+      sendError(connection, request, ((HttpException) cause).getStatus());
+    } else {
+      logger.error("Failed to handle request = " + request.summary() + " asynchronously", cause);
+      sendError(connection, request, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
   }
 
   /**
    * Handle the Http request regarding proper method.
    *
    * @param request Http request to handle
+   * @return a future that completes when the response can be finished, or null if it can be finished now
    * @throws HttpException Some Http Exceptions during handling Http request
    */
-  private void execute(HttpRequest request) throws HttpException {
+  private CompletableFuture<?> execute(HttpRequest request) throws HttpException {
     var method = request.getMethod();
 
     if (method.equals(HttpMethod.GET)) {
       logger.info("Handle request with GET method");
-      handleGetMethod(request);
+      return handleGetMethodAsync(request);
     } else if (method.equals(HttpMethod.HEAD)) {
       logger.info("Handle request with HEAD method");
-      handleHeadMethod(request);
+      return handleHeadMethodAsync(request);
     } else if (method.equals(HttpMethod.POST)) {
       logger.info("Handle request with POST method");
-      handlePostMethod(request);
+      return handlePostMethodAsync(request);
     } else if (method.equals(HttpMethod.DELETE)) {
       logger.info("Handle request with DELETE method");
-      handleDeleteMethod(request);
+      return handleDeleteMethodAsync(request);
     } else {
       logger.info("Handle request with PUT method");
-      handlePutMethod(request);
+      return handlePutMethodAsync(request);
     }
   }
 
@@ -162,6 +321,87 @@ public class RequestHandler {
     httpResponse.append(chunk);
   }
 
+  /**
+   * Send a region of a file after the output written so far. The bytes are transferred from the file to the socket by
+   * the kernel, without being copied to the heap. The channel is owned by the response from now on, and is closed once
+   * the region is written. This should be the last output before the response is flushed or finished.
+   *
+   * @param fileChannel channel of the file to send
+   * @param position    position in the file of the first byte to send
+   * @param count       count of bytes to send
+   */
+  protected void writeFile(FileChannel fileChannel, long position, long count) {
+    setBodySegment(new FileRegion(fileChannel, position, count));
+  }
+
+  /**
+   * Send the remaining bytes of a buffer after the output written so far, without copying them, e.g., a file cached in
+   * memory. The buffer is not modified, so it can be shared by responses. This should be the last output before the
+   * response is flushed or finished.
+   *
+   * @param buffer buffer to send
+   */
+  protected void writeBuffer(ByteBuffer buffer) {
+    setBodySegment(buffer.duplicate());
+  }
+
+  private void setBodySegment(Object bodySegment) {
+    if (httpResponse.getBodySegment() != null) {
+      throw new IllegalStateException("A body segment is waiting to be flushed already");
+    }
+
+    httpResponse.setBodySegment(bodySegment);
+  }
+
+  /**
+   * Set the status code of the response
+   *
+   * @param status status of the response
+   */
+  protected void setStatus(HttpStatus status) {
+    httpResponse.setStatus(status);
+  }
+
+  /**
+   * Set a status code that may not be defined by HttpStatus, e.g., the status of a response relayed from another server
+   *
+   * @param code         status code of the response, in [100, 599]
+   * @param reasonPhrase reason phrase sent after the code in the status line
+   */
+  protected void setStatus(int code, String reasonPhrase) {
+    httpResponse.setStatus(code, reasonPhrase);
+  }
+
+  /**
+   * Get the headers of the response, so the handler can add its own
+   *
+   * @return headers of the response
+   */
+  protected HttpHeaders getResponseHeaders() {
+    return httpResponse.getHeaders();
+  }
+
+  /**
+   * Send an error response with the status instead of the output written so far. If a part of the response has been
+   * sent already, the client can not be told about the error, so the connection is closed.
+   *
+   * @param connection Http connection of the request
+   * @param request    Http request that failed
+   * @param status     status of the error
+   */
+  private void sendError(HttpConnection connection, HttpRequest request, HttpStatus status) {
+    logger.warn("Failed to handle request = " + request.summary() + ", status = " + status);
+    if (!httpResponse.headerNotWritten()) {
+      httpResponse.reset();
+      connection.close();
+      return;
+    }
+
+    httpResponse.reset();
+    httpResponse.setStatus(status);
+    finish(request);
+  }
+
   /**
    * Finish the response and end the Http request
    *
@@ -179,18 +419,24 @@ public class RequestHandler {
    * @param request Http request to finish
    */
   private void finish(HttpRequest request) {
-    var response = httpResponse.getBodyBytes();
-
-    // Set 'CONTENT-LENGTH' header in the response
-    if (httpResponse.headerNotWritten() && !httpResponse.getHeaders().contains(HTTP_HEADER_KEY_CONTENT_LENGTH)) {
-      var contentLength = response.length;
-      httpResponse.getHeaders().add(HTTP_HEADER_KEY_CONTENT_LENGTH, Integer.toString(contentLength));
+    // Set 'CONTENT-LENGTH' header in the response, if the whole body is sent at once
+    if (httpResponse.headerNotWritten() && !httpResponse.getHeaders().contains(HTTP_HEADER_KEY_CONTENT_LENGTH)
+        && !httpResponse.isBodyless()) {
+      long contentLength = httpResponse.getBodyBytes().length;
+      contentLength += httpResponse.getBodySegmentLength();
+      httpResponse.getHeaders().add(HTTP_HEADER_KEY_CONTENT_LENGTH, Long.toString(contentLength));
     }
 
-    flush(request);
-    request.finish();
+    flush(request, true);
     logWhenFinish(request);
+    if (request.getUrlSpec() != null) {
+      request.getUrlSpec().getMetrics().record(httpResponse.getCode(), System.nanoTime() - request.getStartNanos());
+    }
+
+    // Finishing the request may dispatch the next request pipelined on the connection to this handler right away, so
+    // the response must be reset before it.
     httpResponse.reset();
+    request.finish();
   }
 
   /**
@@ -202,8 +448,9 @@ public class RequestHandler {
     var infoThreshold = 400;
     var warnThreshold = 500;
 
-    var message = "STATUS = " + httpResponse.getStatus() + ", REQUEST SUMMARY = " + request.summary();
-    var statusCode = httpResponse.getStatus().getCode();
+    var statusCode = httpResponse.getCode();
+    var message = "STATUS = " + statusCode + " " + httpResponse.getReasonPhrase() + ", REQUEST SUMMARY = "
+        + request.summary();
     if (statusCode < infoThreshold) {
       logger.info(message);
     } else if (statusCode < warnThreshold) {
@@ -213,33 +460,86 @@ public class RequestHandler {
     }
   }
 
-  private void flush(HttpRequest request) {
+  /**
+   * Send the output written so far to the network, while the handler keeps producing the rest of the response. If the
+   * handler has not set 'CONTENT-LENGTH', the body is streamed with "Transfer-Encoding: chunked" for HTTP/1.1, or ends
+   * by closing the connection for HTTP/1.0.
+   *
+   * @param request Http request whose response is flushed
+   */
+  protected void flush(HttpRequest request) {
+    flush(request, false);
+  }
+
+  /**
+   * Write the buffered output to the network
+   *
+   * @param request     Http request whose response is flushed
+   * @param isFinishing if this is the last flush of the response
+   */
+  private void flush(HttpRequest request, boolean isFinishing) {
     logger.info("Start to flush the response of Http request");
     var responseBodyBytes = httpResponse.getBodyBytes();
+    httpResponse.clearBody();
+    var segments = new ArrayList<Object>(6);
 
     // If the header has not been written to the browser, we should generate and send it.
-    var headerBytes = new byte[0];
     if (httpResponse.headerNotWritten()) {
-      headerBytes = httpResponse.getHeadersBytes(request.getVersion());
+      if (!isFinishing) {
+        prepareStreamingHeaders(request);
+      }
+      segments.add(httpResponse.getHeadersBytes(request.getVersion()));
     }
 
-    // Ignore the chunk and write only headers for HEAD method
-    if (request.getMethod().equals(HttpMethod.HEAD)) {
-      if (headerBytes.length != 0) {
-        request.write(headerBytes);
-        return;
+    // Ignore the chunk and write only headers for HEAD method. The body segment is closed when the response is reset.
+    if (!request.getMethod().equals(HttpMethod.HEAD)) {
+      var bodySegmentLength = httpResponse.getBodySegmentLength();
+      var bodySegment = httpResponse.takeBodySegment();
+      if (httpResponse.isChunked()) {
+        segments.addAll(Arrays.asList(HttpChunkedEncoder.encodeChunk(responseBodyBytes)));
+        if (bodySegment != null) {
+          segments.add(HttpChunkedEncoder.encodeChunkSize(bodySegmentLength));
+          segments.add(bodySegment);
+          segments.add(HttpChunkedEncoder.CHUNK_DELIMITER);
+        }
+        if (isFinishing) {
+          segments.add(HttpChunkedEncoder.LAST_CHUNK);
+        }
+      } else {
+        if (responseBodyBytes.length != 0) {
+          segments.add(responseBodyBytes);
+        }
+        if (bodySegment != null) {
+          segments.add(bodySegment);
+        }
       }
     }
 
-    // Write headers and body of the HTTP response
-    if (headerBytes.length != 0) {
-      logger.info("Write HTTP response Header of [" + headerBytes.length + "] bytes");
-      request.write(headerBytes);
+    // Write headers and body of the HTTP response together, so they can be sent in a single gathering write
+    logger.info("Write HTTP response of [" + segments.size() + "] segments, body of [" + responseBodyBytes.length
+        + "] bytes");
+    if (!segments.isEmpty()) {
+      request.write(segments);
+    }
+  }
+
+  /**
+   * Decide how the end of a streamed body is marked, before its headers are sent
+   *
+   * @param request Http request whose response is streamed
+   */
+  private void prepareStreamingHeaders(HttpRequest request) {
+    var headers = httpResponse.getHeaders();
+    if (headers.contains(HTTP_HEADER_KEY_CONTENT_LENGTH)) {
+      return;
     }
 
-    if (responseBodyBytes.length != 0) {
-      logger.info("Write HTTP response Body of [" + responseBodyBytes.length + "] bytes");
-      request.write(responseBodyBytes);
+    if (request.supportHttpOneDotOne()) {
+      headers.add(HTTP_HEADER_KEY_TRANSFER_ENCODING, HTTP_HEADER_TRANSFER_ENCODING_VALUE_CHUNKED);
+      httpResponse.setChunked(true);
+    } else {
+      headers.add(HTTP_HEADER_KEY_CONNECTION, HTTP_HEADER_CONNECTION_VALUE_CONNECTION_CLOSE);
+      request.forceDisconnectWhenFinish();
     }
   }
 }
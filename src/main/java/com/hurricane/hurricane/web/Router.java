@@ -0,0 +1,400 @@
+package com.hurricane.hurricane.web;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * Routes a request path to the first URL spec whose pattern matches it, without running the patterns one by one.
+ * <p>
+ * Each pattern is split by "/" into segments, and the segments make a path in a tree. A literal segment, e.g.,
+ * "users", is a hash lookup of the segment of the request path. A segment with a regex, e.g., "([0-9]+)", is only
+ * matched against the segment of the request path, and its groups are the arguments of the path. A segment whose regex
+ * may span several segments of the path, e.g., ".*", can't be split. Such a pattern is kept at the node of its
+ * literal prefix, and is matched against the whole path once the lookup reaches that node.
+ * <p>
+ * The URL specs are indexed by their order, and the lookup returns the matched URL spec with the smallest index, so
+ * the result is the same as trying the patterns in order.
+ */
+public class Router {
+  /**
+   * Root of the tree, i.e., the node before the first segment
+   */
+  private final Node root;
+
+  public Router(List<UrlSpec> urlSpecs) {
+    this.root = new Node();
+    for (int i = 0; i < urlSpecs.size(); i++) {
+      add(new Route(urlSpecs.get(i), i));
+    }
+  }
+
+  /**
+   * Add a route to the tree
+   *
+   * @param route route of a URL spec
+   */
+  private void add(Route route) {
+    var node = root;
+    node.updateMinIndex(route.index);
+
+    var segments = splitPattern(route.urlSpec.getPattern().pattern());
+    if (segments == null) {
+      node.addTailRoute(route);
+      return;
+    }
+
+    for (int i = 0; i < segments.size(); i++) {
+      var segment = segments.get(i);
+      if (!isSplittable(segment)) {
+        // A quantifier at the start of the segment applies to the "/" before it, so the segment before it is not
+        // delimited either
+        if (i > 0 && isQuantifier(segment.charAt(0))) {
+          node = route.parentNode;
+        }
+        node.addTailRoute(route);
+        return;
+      }
+
+      route.parentNode = node;
+      var literal = unescapeLiteral(segment);
+      node = literal != null ? node.getLiteralChild(literal) : node.getPatternChild(segment);
+      node.updateMinIndex(route.index);
+    }
+
+    if (node.terminalRoute == null) {
+      node.terminalRoute = route;
+    }
+  }
+
+  /**
+   * Find the first URL spec whose pattern matches the path
+   *
+   * @param path path of a request
+   * @return the matched URL spec and the groups of its pattern, or null if no URL spec matches the path
+   */
+  public Match find(String path) {
+    var lookup = new Lookup(path);
+    lookup.search(root, 0);
+    return lookup.match;
+  }
+
+  /**
+   * Split a pattern by the "/" outside of any group or character class
+   *
+   * @param pattern regex of a URL spec
+   * @return segments of the pattern, or null if the pattern has an alternation at its top level, so it can't be split
+   */
+  static List<String> splitPattern(String pattern) {
+    var segments = new ArrayList<String>();
+    var depth = 0;
+    var inClass = false;
+    var start = 0;
+    for (int i = 0; i < pattern.length(); i++) {
+      var character = pattern.charAt(i);
+      if (character == '\\') {
+        i++;
+      } else if (inClass) {
+        inClass = character != ']';
+      } else if (character == '[') {
+        inClass = true;
+      } else if (character == '(') {
+        depth++;
+      } else if (character == ')') {
+        depth--;
+      } else if (character == '|' && depth == 0) {
+        return null;
+      } else if (character == '/' && depth == 0) {
+        segments.add(pattern.substring(start, i));
+        start = i + 1;
+      }
+    }
+
+    segments.add(pattern.substring(start));
+    return segments;
+  }
+
+  /**
+   * Check if a segment of a pattern only matches a single segment of a path, i.e., it never matches "/", and it does
+   * not depend on the other segments. It's conservative, and only accepts literals, capturing groups, \d, \w,
+   * quantifiers, and character classes without negation or "/".
+   *
+   * @param segment a segment of a pattern
+   * @return if the segment can be matched against a segment of the path on its own
+   */
+  static boolean isSplittable(String segment) {
+    if (!segment.isEmpty() && isQuantifier(segment.charAt(0))) {
+      return false;
+    }
+
+    var inClass = false;
+    var classStart = false;
+    var previous = -1;
+    for (int i = 0; i < segment.length(); i++) {
+      var character = segment.charAt(i);
+      if (character == '\\') {
+        if (i + 1 == segment.length()) {
+          return false;
+        }
+        var escaped = segment.charAt(++i);
+        if (Character.isLetterOrDigit(escaped) ? escaped != 'd' && escaped != 'w' : escaped == '/') {
+          return false;
+        }
+        previous = Character.isLetterOrDigit(escaped) ? -1 : escaped;
+        classStart = false;
+        continue;
+      }
+
+      if (inClass) {
+        if (classStart && character == '^' || character == '[' || character == '/' || character == '&') {
+          return false;
+        }
+        if (character == '-' && previous != -1 && i + 1 < segment.length() && segment.charAt(i + 1) != ']') {
+          var last = segment.charAt(i + 1);
+          if (previous <= '/' && '/' <= last) {
+            return false;
+          }
+        }
+        inClass = character != ']' || classStart;
+        classStart = false;
+        previous = character;
+        continue;
+      }
+
+      switch (character) {
+        case '/':
+        case '.':
+        case '^':
+        case '$':
+        case '|':
+          return false;
+        case '(':
+          if (i + 1 < segment.length() && segment.charAt(i + 1) == '?') {
+            return false;
+          }
+          break;
+        case '[':
+          inClass = true;
+          classStart = true;
+          previous = -1;
+          continue;
+        default:
+          break;
+      }
+    }
+
+    return !inClass;
+  }
+
+  private static boolean isQuantifier(char character) {
+    return character == '*' || character == '+' || character == '?' || character == '{';
+  }
+
+  /**
+   * Get the literal a segment of a pattern matches, if it matches nothing else
+   *
+   * @param segment a segment of a pattern
+   * @return the literal, or null if the segment has any regex construct
+   */
+  static String unescapeLiteral(String segment) {
+    var stringBuilder = new StringBuilder();
+    for (int i = 0; i < segment.length(); i++) {
+      var character = segment.charAt(i);
+      if (character == '\\') {
+        var escaped = segment.charAt(++i);
+        if (Character.isLetterOrDigit(escaped)) {
+          return null;
+        }
+        stringBuilder.append(escaped);
+      } else if ("^$.|?*+()[]{}".indexOf(character) >= 0) {
+        return null;
+      } else {
+        stringBuilder.append(character);
+      }
+    }
+
+    return stringBuilder.toString();
+  }
+
+  /**
+   * Result of a lookup
+   */
+  public static final class Match {
+    private final UrlSpec urlSpec;
+
+    /**
+     * Values of the groups in the pattern of the URL spec, in order
+     */
+    private final List<String> pathArgs;
+
+    private Match(UrlSpec urlSpec, List<String> pathArgs) {
+      this.urlSpec = urlSpec;
+      this.pathArgs = pathArgs;
+    }
+
+    public UrlSpec getUrlSpec() {
+      return urlSpec;
+    }
+
+    public List<String> getPathArgs() {
+      return pathArgs;
+    }
+  }
+
+  /**
+   * A URL spec with its order
+   */
+  private static final class Route {
+    private final UrlSpec urlSpec;
+
+    private final int index;
+
+    /**
+     * Node before the last segment added to the tree
+     */
+    private Node parentNode;
+
+    private Route(UrlSpec urlSpec, int index) {
+      this.urlSpec = urlSpec;
+      this.index = index;
+    }
+  }
+
+  /**
+   * A node of the tree, i.e., the state after some segments of the path are matched
+   */
+  private static final class Node {
+    /**
+     * Pattern of the segment leading to this node, or null if the segment is a literal or this node is the root
+     */
+    private final Pattern segmentPattern;
+
+    private final Map<String, Node> literalChildren = new HashMap<>();
+
+    private final Map<String, Node> patternChildren = new LinkedHashMap<>();
+
+    /**
+     * Routes whose patterns are matched against the whole path once the lookup reaches this node, in order
+     */
+    private final List<Route> tailRoutes = new ArrayList<>();
+
+    /**
+     * The first route whose pattern ends at this node
+     */
+    private Route terminalRoute;
+
+    /**
+     * The smallest index of the routes in this subtree, so a lookup skips it if it has found a better one
+     */
+    private int minIndex = Integer.MAX_VALUE;
+
+    private Node() {
+      this(null);
+    }
+
+    private Node(Pattern segmentPattern) {
+      this.segmentPattern = segmentPattern;
+    }
+
+    private Node getLiteralChild(String literal) {
+      return literalChildren.computeIfAbsent(literal, key -> new Node());
+    }
+
+    private Node getPatternChild(String segment) {
+      return patternChildren.computeIfAbsent(segment, key -> new Node(Pattern.compile(key)));
+    }
+
+    private void addTailRoute(Route route) {
+      updateMinIndex(route.index);
+      tailRoutes.add(route);
+    }
+
+    private void updateMinIndex(int index) {
+      minIndex = Math.min(minIndex, index);
+    }
+  }
+
+  /**
+   * State of a lookup. It goes depth first into every child that matches the path, and keeps the best match.
+   */
+  private static final class Lookup {
+    private final String path;
+
+    private final String[] segments;
+
+    /**
+     * Groups captured by the pattern segments on the current branch
+     */
+    private final List<String> captures = new ArrayList<>();
+
+    private Match match;
+
+    private int matchIndex = Integer.MAX_VALUE;
+
+    private Lookup(String path) {
+      this.path = path;
+      this.segments = path.split("/", -1);
+    }
+
+    private void search(Node node, int depth) {
+      if (node.minIndex >= matchIndex) {
+        return;
+      }
+
+      for (var route : node.tailRoutes) {
+        if (route.index >= matchIndex) {
+          break;
+        }
+        var matcher = route.urlSpec.getPattern().matcher(path);
+        if (matcher.matches()) {
+          var pathArgs = new ArrayList<String>(matcher.groupCount());
+          for (int i = 1; i <= matcher.groupCount(); i++) {
+            pathArgs.add(matcher.group(i));
+          }
+          setMatch(route, pathArgs);
+          break;
+        }
+      }
+
+      if (depth == segments.length) {
+        if (node.terminalRoute != null && node.terminalRoute.index < matchIndex) {
+          setMatch(node.terminalRoute, new ArrayList<>(captures));
+        }
+        return;
+      }
+
+      var segment = segments[depth];
+      var literalChild = node.literalChildren.get(segment);
+      if (literalChild != null) {
+        search(literalChild, depth + 1);
+      }
+
+      for (var patternChild : node.patternChildren.values()) {
+        if (patternChild.minIndex >= matchIndex) {
+          continue;
+        }
+        var matcher = patternChild.segmentPattern.matcher(segment);
+        if (matcher.matches()) {
+          var capturesCount = captures.size();
+          for (int i = 1; i <= matcher.groupCount(); i++) {
+            captures.add(matcher.group(i));
+          }
+          search(patternChild, depth + 1);
+          captures.subList(capturesCount, captures.size()).clear();
+        }
+      }
+    }
+
+    private void setMatch(Route route, List<String> pathArgs) {
+      match = new Match(route.urlSpec, Collections.unmodifiableList(pathArgs));
+      matchIndex = route.index;
+    }
+  }
+}
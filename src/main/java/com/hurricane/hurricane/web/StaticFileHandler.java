@@ -0,0 +1,410 @@
+package com.hurricane.hurricane.web;
+
+import com.hurricane.hurricane.http.HttpByteRange;
+import com.hurricane.hurricane.http.HttpDateFormat;
+import com.hurricane.hurricane.http.HttpException;
+import com.hurricane.hurricane.http.HttpMethod;
+import com.hurricane.hurricane.http.HttpRequest;
+import com.hurricane.hurricane.http.HttpStatus;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import org.apache.log4j.Logger;
+
+import static com.hurricane.hurricane.common.Constant.*;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * A handler that serves the files under a root directory. The part of the request path after the url prefix is the
+ * path of the file relative to the root. The content of a file is transferred from the file to the socket by the
+ * kernel, without being read into the heap. Conditional requests with If-None-Match or If-Modified-Since are answered
+ * with 304 Not Modified when the client has the current version of a file, and a byte range of a file can be asked
+ * for with the Range header, so downloads can be resumed.
+ * <p>
+ * With a MappedFileCache, small hot files are served from memory, without opening or checking them on each request.
+ * <p>
+ * Checking and opening a file block the thread, e.g., for a long time on a network file system, so a handler on the
+ * event loop would stall the other connections of the loop. URL specs built by urlSpec() run a handler created for each
+ * request by a shared worker pool of HandlerExecutors. A handler set on a URL spec without an executor is run by the
+ * event loop, which is only fit for files on a local disk that are mostly in the page cache or in a MappedFileCache.
+ */
+public class StaticFileHandler extends RequestHandler {
+  private final static Logger logger = Logger.getLogger(StaticFileHandler.class);
+
+  /**
+   * Content types of the common file extensions. Other files are sent as DEFAULT_CONTENT_TYPE.
+   */
+  private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+      Map.entry("html", "text/html; charset=utf-8"),
+      Map.entry("htm", "text/html; charset=utf-8"),
+      Map.entry("css", "text/css; charset=utf-8"),
+      Map.entry("js", "application/javascript; charset=utf-8"),
+      Map.entry("json", "application/json"),
+      Map.entry("txt", "text/plain; charset=utf-8"),
+      Map.entry("xml", "application/xml"),
+      Map.entry("png", "image/png"),
+      Map.entry("jpg", "image/jpeg"),
+      Map.entry("jpeg", "image/jpeg"),
+      Map.entry("gif", "image/gif"),
+      Map.entry("svg", "image/svg+xml"),
+      Map.entry("ico", "image/x-icon"),
+      Map.entry("pdf", "application/pdf"),
+      Map.entry("wasm", "application/wasm"));
+
+  public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+  /**
+   * Count of worker threads, and max count of waiting requests, of the pool that runs the handlers built by urlSpec()
+   */
+  public static final int DEFAULT_FILE_THREAD_COUNT = 8;
+  public static final int DEFAULT_FILE_QUEUE_CAPACITY = 1024;
+
+  /**
+   * Pool shared by the URL specs built by urlSpec(), created when the first one is built
+   */
+  private static ExecutorService defaultFileExecutor;
+
+  /**
+   * Directory of the files to serve
+   */
+  private final Path rootDirectory;
+
+  /**
+   * Prefix of the request path that is not a part of the file path, e.g., "/static/"
+   */
+  private final String urlPrefix;
+
+  /**
+   * Cache of hot files in memory, or null if files are always sent from the disk
+   */
+  private final MappedFileCache fileCache;
+
+  public StaticFileHandler(String rootDirectory, String urlPrefix) {
+    this(rootDirectory, urlPrefix, null);
+  }
+
+  public StaticFileHandler(String rootDirectory, String urlPrefix, MappedFileCache fileCache) {
+    this(Paths.get(rootDirectory).toAbsolutePath().normalize(), urlPrefix, fileCache);
+  }
+
+  private StaticFileHandler(Path rootDirectory, String urlPrefix, MappedFileCache fileCache) {
+    this.rootDirectory = rootDirectory;
+    this.urlPrefix = urlPrefix;
+    this.fileCache = fileCache;
+  }
+
+  /**
+   * Create a URL spec serving the files under a root directory, whose handler is run off the event loop, since checking
+   * and opening a file may block
+   *
+   * @param pattern       regex of the URL path
+   * @param rootDirectory directory of the files to serve
+   * @param urlPrefix     prefix of the request path that is not a part of the file path
+   * @return a URL spec run by the shared worker pool
+   */
+  public static UrlSpec urlSpec(String pattern, String rootDirectory, String urlPrefix) {
+    return urlSpec(pattern, rootDirectory, urlPrefix, null);
+  }
+
+  /**
+   * Same as urlSpec(pattern, rootDirectory, urlPrefix), but small hot files are served from the cache
+   *
+   * @param pattern       regex of the URL path
+   * @param rootDirectory directory of the files to serve
+   * @param urlPrefix     prefix of the request path that is not a part of the file path
+   * @param fileCache     cache of hot files in memory, or null if files are always sent from the disk
+   * @return a URL spec run by the shared worker pool
+   */
+  public static UrlSpec urlSpec(String pattern, String rootDirectory, String urlPrefix, MappedFileCache fileCache) {
+    var rootPath = Paths.get(rootDirectory).toAbsolutePath().normalize();
+    return UrlSpec.of(pattern, () -> new StaticFileHandler(rootPath, urlPrefix, fileCache), getDefaultFileExecutor());
+  }
+
+  /**
+   * Get the worker pool shared by the URL specs built by urlSpec()
+   *
+   * @return the shared worker pool
+   */
+  static synchronized ExecutorService getDefaultFileExecutor() {
+    if (defaultFileExecutor == null) {
+      defaultFileExecutor = HandlerExecutors.newBoundedPool(DEFAULT_FILE_THREAD_COUNT, DEFAULT_FILE_QUEUE_CAPACITY);
+    }
+    return defaultFileExecutor;
+  }
+
+  @Override
+  protected Set<HttpMethod> getSupportedMethods() {
+    return EnumSet.of(HttpMethod.GET, HttpMethod.HEAD);
+  }
+
+  @Override
+  protected void handleGetMethod(HttpRequest request) throws HttpException {
+    serve(request, false);
+  }
+
+  @Override
+  protected void handleHeadMethod(HttpRequest request) throws HttpException {
+    serve(request, true);
+  }
+
+  /**
+   * Serve the file the request asks for. Conditional requests are answered with 304 Not Modified if the client has the
+   * current version of the file, and a single byte range of the file can be asked for with the Range header.
+   *
+   * @param request Http request
+   * @param isHead  if only the headers should be sent
+   * @throws HttpException NOT_FOUND if there is no such file
+   */
+  private void serve(HttpRequest request, boolean isHead) throws HttpException {
+    var file = resolveFile(request);
+    var cachedFile = getCachedFile(file);
+    long fileSize;
+    long modifiedTime;
+    if (cachedFile != null) {
+      fileSize = cachedFile.getSize();
+      modifiedTime = cachedFile.getLastModified();
+    } else {
+      BasicFileAttributes attributes;
+      try {
+        attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      } catch (IOException e) {
+        throw new HttpException(HttpStatus.NOT_FOUND);
+      }
+
+      if (!attributes.isRegularFile()) {
+        throw new HttpException(HttpStatus.NOT_FOUND);
+      }
+      fileSize = attributes.size();
+      modifiedTime = attributes.lastModifiedTime().toMillis();
+    }
+
+    // Http dates have a precision of one second, while the ETag uses the full precision of the file system
+    var lastModified = modifiedTime / 1000 * 1000;
+    var etag = computeEtag(fileSize, modifiedTime);
+    var headers = getResponseHeaders();
+    headers.add(HTTP_HEADER_KEY_ETAG, etag);
+    headers.add(HTTP_HEADER_KEY_LAST_MODIFIED, HttpDateFormat.format(lastModified));
+    headers.add(HTTP_HEADER_KEY_ACCEPT_RANGES, HTTP_RANGE_UNIT_BYTES);
+
+    var preconditionStatus = evaluatePreconditions(request, etag, lastModified);
+    if (preconditionStatus != null) {
+      setStatus(preconditionStatus);
+      return;
+    }
+
+    var range = isHead ? null : getRange(request, etag, lastModified, fileSize);
+    if (range == HttpByteRange.UNSATISFIABLE) {
+      setStatus(HttpStatus.RANGE_NOT_SATISFIABLE);
+      headers.add(HTTP_HEADER_KEY_CONTENT_RANGE, range.toContentRange(fileSize));
+      return;
+    }
+
+    headers.add(HTTP_HEADER_KEY_CONTENT_TYPE, getContentType(file));
+    if (isHead) {
+      headers.add(HTTP_HEADER_KEY_CONTENT_LENGTH, Long.toString(fileSize));
+      return;
+    }
+
+    var position = 0L;
+    var count = fileSize;
+    if (range != null) {
+      setStatus(HttpStatus.PARTIAL_CONTENT);
+      headers.add(HTTP_HEADER_KEY_CONTENT_RANGE, range.toContentRange(fileSize));
+      position = range.getFirst();
+      count = range.getLength();
+    }
+
+    if (cachedFile != null) {
+      writeBuffer(cachedFile.slice(position, count));
+      return;
+    }
+
+    FileChannel fileChannel;
+    try {
+      fileChannel = FileChannel.open(file, StandardOpenOption.READ);
+    } catch (IOException e) {
+      logger.warn("Failed to open file = " + file, e);
+      throw new HttpException(HttpStatus.NOT_FOUND);
+    }
+
+    writeFile(fileChannel, position, count);
+  }
+
+  /**
+   * Get the file from the cache if there is one
+   *
+   * @param file path of the file
+   * @return the cached file, or null if it is not cached, e.g., there is no cache or the file is too large
+   */
+  private MappedFileCache.Entry getCachedFile(Path file) {
+    if (fileCache == null) {
+      return null;
+    }
+
+    try {
+      return fileCache.get(file);
+    } catch (IOException e) {
+      logger.warn("Failed to cache file = " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Find the file under the root directory that the request asks for
+   *
+   * @param request Http request
+   * @return path of the file
+   * @throws HttpException NOT_FOUND if the path is outside the root directory
+   */
+  protected Path resolveFile(HttpRequest request) throws HttpException {
+    var requestPath = request.getPath();
+    if (!requestPath.startsWith(urlPrefix)) {
+      throw new HttpException(HttpStatus.NOT_FOUND);
+    }
+
+    String relativePath;
+    try {
+      relativePath = new URI(requestPath.substring(urlPrefix.length())).getPath();
+    } catch (URISyntaxException e) {
+      throw new HttpException(HttpStatus.BAD_REQUEST);
+    }
+
+    // Do not let a path like "../secret" escape from the root directory
+    var file = rootDirectory.resolve(relativePath.replaceFirst("^/+", "")).normalize();
+    if (!file.startsWith(rootDirectory)) {
+      logger.warn("Request path = " + requestPath + " is outside root directory = " + rootDirectory);
+      throw new HttpException(HttpStatus.NOT_FOUND);
+    }
+
+    return file;
+  }
+
+  /**
+   * Compute the ETag of a file from its metadata, so the content does not need to be read. It changes whenever the
+   * file is modified, as long as the modification time or the size changes.
+   *
+   * @param fileSize     size of the file
+   * @param lastModified modification time of the file in milliseconds
+   * @return the ETag, with quotes
+   */
+  protected static String computeEtag(long fileSize, long lastModified) {
+    return "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(fileSize) + "\"";
+  }
+
+  /**
+   * Evaluate the conditional headers of the request, in the order defined by RFC 7232
+   *
+   * @param request      Http request
+   * @param etag         ETag of the file
+   * @param lastModified modification time of the file in milliseconds
+   * @return status of the response if a condition decides it, or null if the file should be sent
+   */
+  private static HttpStatus evaluatePreconditions(HttpRequest request, String etag, long lastModified) {
+    var headers = request.getHttpHeaders();
+    if (headers.contains(HTTP_HEADER_KEY_IF_MATCH)) {
+      if (!matchesEtag(headers.getValues(HTTP_HEADER_KEY_IF_MATCH), etag, false)) {
+        return HttpStatus.PRECONDITION_FAILED;
+      }
+    } else if (headers.contains(HTTP_HEADER_KEY_IF_UNMODIFIED_SINCE)) {
+      var date = HttpDateFormat.parse(headers.getValue(HTTP_HEADER_KEY_IF_UNMODIFIED_SINCE));
+      if (date != -1 && lastModified > date) {
+        return HttpStatus.PRECONDITION_FAILED;
+      }
+    }
+
+    if (headers.contains(HTTP_HEADER_KEY_IF_NONE_MATCH)) {
+      if (matchesEtag(headers.getValues(HTTP_HEADER_KEY_IF_NONE_MATCH), etag, true)) {
+        return HttpStatus.NOT_MODIFIED;
+      }
+    } else if (headers.contains(HTTP_HEADER_KEY_IF_MODIFIED_SINCE)) {
+      var date = HttpDateFormat.parse(headers.getValue(HTTP_HEADER_KEY_IF_MODIFIED_SINCE));
+      if (date != -1 && lastModified <= date) {
+        return HttpStatus.NOT_MODIFIED;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Get the byte range the request asks for. The Range header is ignored if the If-Range header does not match the
+   * current version of the file.
+   *
+   * @param request      Http request
+   * @param etag         ETag of the file
+   * @param lastModified modification time of the file in milliseconds
+   * @param fileSize     size of the file
+   * @return the range, HttpByteRange.UNSATISFIABLE, or null if the whole file should be sent
+   */
+  private static HttpByteRange getRange(HttpRequest request, String etag, long lastModified, long fileSize) {
+    var headers = request.getHttpHeaders();
+    var ifRange = headers.getValue(HTTP_HEADER_KEY_IF_RANGE);
+    if (ifRange != null) {
+      var isEtag = ifRange.startsWith("\"") || ifRange.startsWith("W/");
+      if (isEtag ? !matchesEtag(ifRange, etag, false) : HttpDateFormat.parse(ifRange) != lastModified) {
+        return null;
+      }
+    }
+
+    return HttpByteRange.parse(headers.getValue(HTTP_HEADER_KEY_RANGE), fileSize);
+  }
+
+  /**
+   * Check if the ETag is in a list of ETags of a conditional header
+   *
+   * @param etags a list of ETags separated by commas, or "*"
+   * @param etag  the ETag of the file
+   * @param weak  if a weak ETag, i.e., prefixed by "W/", matches too
+   * @return if the ETag is in the list
+   */
+  private static boolean matchesEtag(String etags, String etag, boolean weak) {
+    if (etags.strip().equals("*")) {
+      return true;
+    }
+
+    for (var candidate : etags.split(",")) {
+      candidate = candidate.strip();
+      if (candidate.startsWith("W/")) {
+        if (!weak) {
+          continue;
+        }
+        candidate = candidate.substring(2);
+      }
+
+      if (candidate.equals(etag)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Get the content type of a file from its extension
+   *
+   * @param file path of the file
+   * @return content type of the file
+   */
+  protected String getContentType(Path file) {
+    var fileName = file.getFileName().toString();
+    var dotIndex = fileName.lastIndexOf('.');
+    if (dotIndex == -1) {
+      return DEFAULT_CONTENT_TYPE;
+    }
+
+    var extension = fileName.substring(dotIndex + 1).toLowerCase();
+    return CONTENT_TYPES.getOrDefault(extension, DEFAULT_CONTENT_TYPE);
+  }
+}
@@ -0,0 +1,171 @@
+package com.hurricane.hurricane.web;
+
+import com.hurricane.hurricane.common.EventLoop;
+import com.hurricane.hurricane.http.AsyncHttpClient;
+import com.hurricane.hurricane.http.HttpClientRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * @author larrytaowang
+ * <p>
+ * Upstream servers that a ProxyHandler forwards requests to, and the policy that balances requests over them. A group
+ * is shared by the handlers of all the loops, so its state is thread safe. Each loop has its own AsyncHttpClient, whose
+ * keep-alive connections to the upstream servers are pooled.
+ */
+public class UpstreamGroup {
+  /**
+   * How an upstream server is picked for a request
+   */
+  public enum BalancingPolicy {
+    /**
+     * Upstream servers take requests in turn
+     */
+    ROUND_ROBIN,
+
+    /**
+     * The upstream server with the fewest requests in progress takes the request, so a slow server gets fewer. Ties are
+     * broken in turn.
+     */
+    LEAST_OUTSTANDING_REQUESTS
+  }
+
+  /**
+   * An upstream server
+   */
+  public static final class Upstream {
+    /**
+     * URL that the URI of a forwarded request is appended to, e.g., "http://127.0.0.1:8081" or
+     * "http://127.0.0.1:8081/api", without a trailing "/"
+     */
+    private final String baseUrl;
+
+    /**
+     * Count of requests forwarded to this server whose responses are not complete
+     */
+    private final AtomicInteger outstandingRequestsCount = new AtomicInteger();
+
+    private Upstream(String baseUrl) {
+      this.baseUrl = baseUrl;
+    }
+
+    public String getBaseUrl() {
+      return baseUrl;
+    }
+
+    public int getOutstandingRequestsCount() {
+      return outstandingRequestsCount.get();
+    }
+
+    void onRequestStarted() {
+      outstandingRequestsCount.incrementAndGet();
+    }
+
+    void onRequestFinished() {
+      outstandingRequestsCount.decrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+      return baseUrl;
+    }
+  }
+
+  private final List<Upstream> upstreams;
+
+  private final BalancingPolicy balancingPolicy;
+
+  /**
+   * Counter of picks, whose value modulo the count of upstream servers is the next one to take a turn
+   */
+  private final AtomicInteger nextIndex = new AtomicInteger();
+
+  /**
+   * Client of each loop that forwards requests
+   */
+  private final Map<EventLoop, AsyncHttpClient> clients = new ConcurrentHashMap<>();
+
+  private final int maxIdleConnectionsPerHost;
+
+  private final long requestTimeoutMillis;
+
+  public UpstreamGroup(List<String> baseUrls, BalancingPolicy balancingPolicy) {
+    this(baseUrls, balancingPolicy, AsyncHttpClient.DEFAULT_MAX_IDLE_CONNECTIONS_PER_HOST,
+        AsyncHttpClient.DEFAULT_REQUEST_TIMEOUT_MILLIS);
+  }
+
+  public UpstreamGroup(List<String> baseUrls, BalancingPolicy balancingPolicy, int maxIdleConnectionsPerHost,
+      long requestTimeoutMillis) {
+    if (baseUrls.isEmpty()) {
+      throw new IllegalArgumentException("No upstream server is given");
+    }
+
+    var upstreams = new ArrayList<Upstream>(baseUrls.size());
+    for (var baseUrl : baseUrls) {
+      // Fail early on a URL that the client does not support
+      new HttpClientRequest(baseUrl);
+      upstreams.add(new Upstream(baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl));
+    }
+
+    this.upstreams = Collections.unmodifiableList(upstreams);
+    this.balancingPolicy = balancingPolicy;
+    this.maxIdleConnectionsPerHost = maxIdleConnectionsPerHost;
+    this.requestTimeoutMillis = requestTimeoutMillis;
+  }
+
+  /**
+   * Pick the upstream server of a request
+   *
+   * @return the picked upstream server
+   */
+  Upstream select() {
+    var start = Math.floorMod(nextIndex.getAndIncrement(), upstreams.size());
+    if (balancingPolicy == BalancingPolicy.ROUND_ROBIN) {
+      return upstreams.get(start);
+    }
+
+    // The counts may change while they are compared, which only makes the pick slightly off
+    Upstream result = null;
+    for (int i = 0; i < upstreams.size(); i++) {
+      var upstream = upstreams.get((start + i) % upstreams.size());
+      if (result == null || upstream.getOutstandingRequestsCount() < result.getOutstandingRequestsCount()) {
+        result = upstream;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the client that forwards requests in a loop, which is created the first time
+   *
+   * @param eventLoop loop of the client
+   * @return client of the loop
+   */
+  AsyncHttpClient getClient(EventLoop eventLoop) {
+    return clients.computeIfAbsent(eventLoop,
+        key -> new AsyncHttpClient(key, maxIdleConnectionsPerHost, requestTimeoutMillis));
+  }
+
+  /**
+   * Close the idle connections of all the clients. This can be called from any thread.
+   */
+  public void close() {
+    for (var client : clients.values()) {
+      client.close();
+    }
+  }
+
+  public List<Upstream> getUpstreams() {
+    return upstreams;
+  }
+
+  public BalancingPolicy getBalancingPolicy() {
+    return balancingPolicy;
+  }
+}
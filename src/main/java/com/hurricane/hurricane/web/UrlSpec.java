@@ -1,8 +1,12 @@
 package com.hurricane.hurricane.web;
 
+import com.hurricane.hurricane.metrics.MetricsRegistry;
+import com.hurricane.hurricane.metrics.RouteMetrics;
 import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import org.apache.log4j.Logger;
 
@@ -15,15 +19,26 @@ public class UrlSpec {
 
   /**
    * Regular expression to be matched. Any groups in the regex will be passed in to the handler's get/post/etc methods
-   * as arguments
+   * as arguments, see HttpRequest.getPathArgs()
    */
   private Pattern pattern;
 
   /**
-   * Handler of this URL spec
+   * Handler shared by all the requests of this URL spec, if it is not created per request
    */
   private RequestHandler handler;
 
+  /**
+   * Factory that creates a handler for each request, so the requests of this URL spec can be handled concurrently
+   */
+  private Supplier<? extends RequestHandler> handlerFactory;
+
+  /**
+   * Executor that runs the handler, e.g., a worker pool for handlers doing blocking IO. If null, the handler is run by
+   * the event loop owning the connection.
+   */
+  private Executor executor;
+
   /**
    * A dictionary of additional arguments to be passed to the handler's constructor
    */
@@ -44,12 +59,29 @@ public class UrlSpec {
    */
   private int groupCount;
 
+  /**
+   * Metrics of the requests of this URL spec
+   */
+  private RouteMetrics metrics;
+
   public UrlSpec(String pattern, RequestHandler handler, Map<String, String> kwargs, String name) {
+    this(pattern, handler, kwargs, name, null);
+  }
+
+  public UrlSpec(String pattern, RequestHandler handler, Map<String, String> kwargs, String name, Executor executor) {
+    this(pattern, handler, null, kwargs, name, executor);
+  }
+
+  private UrlSpec(String pattern, RequestHandler handler, Supplier<? extends RequestHandler> handlerFactory,
+      Map<String, String> kwargs, String name, Executor executor) {
     this.pattern = Pattern.compile(pattern);
     this.handler = handler;
+    this.handlerFactory = handlerFactory;
+    this.executor = executor;
     this.kwargs = kwargs;
     this.name = name;
     this.groupCount = -1;
+    this.metrics = new RouteMetrics(MetricsRegistry.getInstance(), pattern);
     createFormattedUrlPath();
   }
 
@@ -57,6 +89,35 @@ public class UrlSpec {
     this(pattern, handler, new HashMap<>(), "");
   }
 
+  public UrlSpec(String pattern, RequestHandler handler, Executor executor) {
+    this(pattern, handler, new HashMap<>(), "", executor);
+  }
+
+  /**
+   * Create a URL spec whose handler is created for each request. A handler shared by all the requests of its URL spec
+   * is only safe when they are handled one at a time, so use this for the URL specs handled by an event loop group or
+   * by an executor.
+   *
+   * @param pattern        regex of the URL path
+   * @param handlerFactory factory that creates a handler for a request
+   * @return a URL spec
+   */
+  public static UrlSpec of(String pattern, Supplier<? extends RequestHandler> handlerFactory) {
+    return of(pattern, handlerFactory, null);
+  }
+
+  /**
+   * Create a URL spec whose handler is created for each request, and run by the executor
+   *
+   * @param pattern        regex of the URL path
+   * @param handlerFactory factory that creates a handler for a request
+   * @param executor       executor that runs the handlers, or null if they are run by the event loop
+   * @return a URL spec
+   */
+  public static UrlSpec of(String pattern, Supplier<? extends RequestHandler> handlerFactory, Executor executor) {
+    return new UrlSpec(pattern, null, handlerFactory, new HashMap<>(), "", executor);
+  }
+
   /**
    * Given the pattern of URL path, create the formatted path of URL, that is, replace the "()" with placeholder "%s".
    * For example, given the pattern "/([0-9]{4})/([a-z-]+)/", which contains patterns for two groups, we can generate
@@ -139,4 +200,34 @@ public class UrlSpec {
   public RequestHandler getHandler() {
     return handler;
   }
+
+  /**
+   * Get the handler of a request, either the shared one, or a new one created by the factory
+   *
+   * @return a handler for a request, or null if this URL spec has no handler
+   */
+  public RequestHandler createHandler() {
+    if (handlerFactory == null) {
+      return handler;
+    }
+
+    return handlerFactory.get();
+  }
+
+  /**
+   * Check if the handler is shared by all the requests of this URL spec
+   *
+   * @return if the handler is shared
+   */
+  public boolean isHandlerShared() {
+    return handlerFactory == null;
+  }
+
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  public RouteMetrics getMetrics() {
+    return metrics;
+  }
 }
@@ -0,0 +1,42 @@
+package com.hurricane.hurricane.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class ByteBufferPoolTest {
+
+  @Test
+  public void acquireDirectBuffer() {
+    var pool = new ByteBufferPool(128, 2);
+    var buffer = pool.acquire();
+
+    Assert.assertTrue(buffer.isDirect());
+    Assert.assertEquals(128, buffer.capacity());
+  }
+
+  @Test
+  public void releasedBufferIsReusedAndCleared() {
+    var pool = new ByteBufferPool(128, 2);
+    var buffer = pool.acquire();
+    buffer.put((byte) 1).flip();
+    pool.release(buffer);
+
+    var reusedBuffer = pool.acquire();
+    Assert.assertSame(buffer, reusedBuffer);
+    Assert.assertEquals(0, reusedBuffer.position());
+    Assert.assertEquals(128, reusedBuffer.limit());
+  }
+
+  @Test
+  public void releaseBeyondMaxPooledCount() {
+    var pool = new ByteBufferPool(128, 1);
+    var first = pool.acquire();
+    var second = pool.acquire();
+    pool.release(first);
+    pool.release(second);
+
+    Assert.assertSame(first, pool.acquire());
+    Assert.assertNotSame(second, pool.acquire());
+  }
+}
@@ -0,0 +1,43 @@
+package com.hurricane.hurricane.common;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class EventLoopGroupTest {
+
+  @Test
+  public void nextInRoundRobin() {
+    var group = new EventLoopGroup(3);
+    var eventLoops = group.getEventLoops();
+
+    for (int i = 0; i < 2 * eventLoops.size(); i++) {
+      Assert.assertSame(eventLoops.get(i % eventLoops.size()), group.next());
+    }
+  }
+
+  @Test
+  public void registrationRunsInLoopThread() throws InterruptedException {
+    var group = new EventLoopGroup(2);
+    group.start();
+
+    var eventLoop = group.next();
+    var currentLoop = new AtomicReference<EventLoop>();
+    var latch = new CountDownLatch(1);
+    eventLoop.addRegistration(() -> {
+      if (eventLoop.inEventLoop()) {
+        currentLoop.set(EventLoop.current());
+      }
+      latch.countDown();
+    });
+
+    Assert.assertTrue(latch.await(EventLoop.DEFAULT_SELECT_TIMEOUT, TimeUnit.MILLISECONDS));
+    Assert.assertSame(eventLoop, currentLoop.get());
+
+    group.stop();
+    group.awaitTermination(EventLoop.DEFAULT_SELECT_TIMEOUT);
+  }
+}
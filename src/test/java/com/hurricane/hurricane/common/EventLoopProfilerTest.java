@@ -0,0 +1,80 @@
+package com.hurricane.hurricane.common;
+
+import com.hurricane.hurricane.metrics.MetricsRegistry;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class EventLoopProfilerTest {
+
+  @Test
+  public void profilePhases() {
+    var registry = new MetricsRegistry();
+    var profiler = new EventLoopProfiler("test", registry);
+    var eventLoop = new EventLoop();
+    eventLoop.setProfiler(profiler);
+
+    eventLoop.addTimeEvent(new TimeEvent(System.currentTimeMillis() + 50, args -> eventLoop.stop()));
+    eventLoop.addCallback(args -> sleep(20));
+    eventLoop.start();
+
+    // The callback runs in the first iteration, and the time event in a later one, after select times out
+    Assert.assertTrue(profiler.getIterationsCount() >= 2);
+    var callbacksTime = profiler.getPhaseTime(EventLoopProfiler.Phase.CALLBACKS);
+    Assert.assertEquals(profiler.getIterationsCount(), callbacksTime.getCount());
+    Assert.assertTrue(callbacksTime.getValueAtQuantile(1) >= TimeUnit.MILLISECONDS.toNanos(20));
+    Assert.assertTrue(profiler.getPhaseTime(EventLoopProfiler.Phase.SELECT).getCount() >= 1);
+    Assert.assertEquals(0, profiler.getSelectedKeys().getValueAtQuantile(1));
+
+    var text = registry.toPrometheusText();
+    Assert.assertTrue(text,
+        text.contains("hurricane_event_loop_phase_seconds_count{loop=\"test\",phase=\"callbacks\"}"));
+    Assert.assertTrue(text, text.contains("hurricane_event_loop_iterations_total{loop=\"test\"}"));
+  }
+
+  @Test
+  public void reportBlockedLoop() {
+    var profiler = new EventLoopProfiler("blocked", new MetricsRegistry());
+    var eventLoop = new EventLoop();
+    eventLoop.setProfiler(profiler);
+    List<String> reports = new CopyOnWriteArrayList<>();
+    var watchdog = new EventLoopWatchdog(50, reports::add);
+    watchdog.watch(eventLoop);
+    watchdog.start();
+
+    eventLoop.execute(new Runnable() {
+      @Override
+      public void run() {
+        sleep(300);
+      }
+
+      @Override
+      public String toString() {
+        return "slow task";
+      }
+    });
+    eventLoop.execute(() -> sleep(5));
+    eventLoop.execute(eventLoop::stop);
+    eventLoop.start();
+    watchdog.stop();
+
+    // The slow task is reported once, while the quick one is not reported
+    Assert.assertEquals(reports.toString(), 1, reports.size());
+    Assert.assertEquals(1, profiler.getBlockedCount());
+    var report = reports.get(0);
+    Assert.assertTrue(report, report.startsWith("Event loop = blocked is blocked for "));
+    Assert.assertTrue(report, report.contains("by callback = slow task"));
+    Assert.assertTrue(report, report.contains("EventLoopProfilerTest.sleep"));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -1,10 +1,11 @@
 package com.hurricane.hurricane.common;
 
 import com.hurricane.hurricane.tcp.TcpServer;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -86,6 +87,26 @@ public class EventLoopTest {
     Assert.assertTrue(returnImmediately());
   }
 
+  @Test
+  public void addTimeEventWithTimingWheel() {
+    // Use a new loop so the global one keeps the default queue
+    eventLoop = new EventLoop();
+    eventLoop.setTimeEventQueue(new TimingWheelTimeEventQueue());
+
+    List<TimeEvent> timeEvents = new LinkedList<>();
+    var addCount = 10;
+    for (int i = 0; i < addCount; i++) {
+      var timeEvent = new TimeEvent(startTime - i, createCallback());
+      eventLoop.addTimeEvent(timeEvent);
+      timeEvents.add(timeEvent);
+    }
+    eventLoop.removeTimeEvent(timeEvents.get(0));
+
+    eventLoop.start();
+    Assert.assertEquals(addCount - 1, calledCount);
+    Assert.assertTrue(returnImmediately());
+  }
+
   @Test
   public void addCallback() {
     // Add callbacks to the event loop
@@ -99,6 +120,45 @@ public class EventLoopTest {
     Assert.assertTrue(returnImmediately());
   }
 
+  @Test
+  public void addCallbackFromOtherThreads() throws InterruptedException {
+    // Use a new loop, which runs in another thread
+    var loop = new EventLoop();
+    var loopThread = new Thread(loop::start);
+    loopThread.start();
+
+    // Each thread adds callbacks concurrently, which should be run by the loop in the order each thread added them
+    var threadCount = 4;
+    var addCount = 1000;
+    var executedOrders = new ArrayList<List<Integer>>();
+    var latch = new CountDownLatch(threadCount * addCount);
+    var threads = new ArrayList<Thread>();
+    for (int i = 0; i < threadCount; i++) {
+      var executedOrder = new ArrayList<Integer>();
+      executedOrders.add(executedOrder);
+      threads.add(new Thread(() -> {
+        for (int j = 0; j < addCount; j++) {
+          var index = j;
+          loop.addCallback(args -> {
+            Assert.assertTrue(loop.inEventLoop());
+            executedOrder.add(index);
+            latch.countDown();
+          });
+        }
+      }));
+    }
+    threads.forEach(Thread::start);
+
+    Assert.assertTrue(latch.await(EventLoop.DEFAULT_SELECT_TIMEOUT, TimeUnit.MILLISECONDS));
+    loop.stop();
+    loopThread.join();
+    for (var executedOrder : executedOrders) {
+      for (int j = 0; j < addCount; j++) {
+        Assert.assertEquals(Integer.valueOf(j), executedOrder.get(j));
+      }
+    }
+  }
+
   @Test
   public void removeCallback() {
     List<TcpCallback> callbacks = new LinkedList<>();
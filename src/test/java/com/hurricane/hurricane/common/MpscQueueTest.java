@@ -0,0 +1,82 @@
+package com.hurricane.hurricane.common;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Test if elements offered by multiple threads are all polled by the consumer, in the order each producer offered them.
+ */
+public class MpscQueueTest {
+  /**
+   * Count of producer threads
+   */
+  private static final int PRODUCER_COUNT = 4;
+
+  /**
+   * Count of elements offered by each producer
+   */
+  private static final int ELEMENT_COUNT = 100_000;
+
+  @Test
+  public void pollInOrder() {
+    var queue = new MpscQueue<Integer>();
+    Assert.assertTrue(queue.isEmpty());
+    Assert.assertNull(queue.poll());
+
+    for (int i = 0; i < 10; i++) {
+      queue.offer(i);
+    }
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(Integer.valueOf(i), queue.poll());
+    }
+    Assert.assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void multipleProducers() throws InterruptedException {
+    var queue = new MpscQueue<long[]>();
+    var startLatch = new CountDownLatch(1);
+    var producers = new ArrayList<Thread>();
+    for (int i = 0; i < PRODUCER_COUNT; i++) {
+      var producerId = i;
+      var producer = new Thread(() -> {
+        try {
+          startLatch.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+
+        for (int j = 0; j < ELEMENT_COUNT; j++) {
+          queue.offer(new long[]{producerId, j});
+        }
+      });
+      producer.start();
+      producers.add(producer);
+    }
+    startLatch.countDown();
+
+    // Consume while producers are offering. Elements of each producer should come in order.
+    var nextExpected = new long[PRODUCER_COUNT];
+    var polledCount = 0;
+    while (polledCount < PRODUCER_COUNT * ELEMENT_COUNT) {
+      var element = queue.poll();
+      if (element == null) {
+        Thread.onSpinWait();
+        continue;
+      }
+
+      var producerId = (int) element[0];
+      Assert.assertEquals(nextExpected[producerId], element[1]);
+      nextExpected[producerId]++;
+      polledCount++;
+    }
+
+    for (var producer : producers) {
+      producer.join();
+    }
+    Assert.assertTrue(queue.isEmpty());
+  }
+}
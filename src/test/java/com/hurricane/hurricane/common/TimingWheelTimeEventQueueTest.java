@@ -0,0 +1,121 @@
+package com.hurricane.hurricane.common;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Test if the timing wheel fires time events after their deadlines and within a tick, on a simulated clock.
+ */
+public class TimingWheelTimeEventQueueTest {
+  /**
+   * Length of a tick in milliseconds
+   */
+  private static final long TICK_MILLIS = 10;
+
+  /**
+   * Simulated time at which the wheel starts
+   */
+  private static final long START_TIME = 1_000_000_007L;
+
+  @Test
+  public void pollExpiredEvents() {
+    var queue = new TimingWheelTimeEventQueue(TICK_MILLIS, START_TIME);
+
+    // Deadlines spread over all the levels, including overdue ones and ones beyond the span of the wheel
+    var random = new Random(42);
+    var pending = new HashSet<TimeEvent>();
+    long[] ranges = {5, 640, 40_960, 2_621_440, 167_772_160, 1_000_000_000};
+    for (var range : ranges) {
+      for (int i = 0; i < 100; i++) {
+        var timeEvent = new TimeEvent(START_TIME - 50 + (long) (random.nextDouble() * range), args -> { });
+        queue.add(timeEvent);
+        pending.add(timeEvent);
+      }
+    }
+    Assert.assertEquals(pending.size(), queue.size());
+
+    // Move the clock forward to the next deadline reported by the wheel, or by random steps. Each event should fire
+    // after its deadline, and at most a tick late.
+    var now = START_TIME;
+    while (!pending.isEmpty()) {
+      Assert.assertTrue(queue.getNextDeadline() >= now - TICK_MILLIS);
+      if (random.nextBoolean()) {
+        now = Math.max(now + 1, queue.getNextDeadline());
+      } else {
+        now += 1 + random.nextInt(100_000);
+      }
+      drainAndVerify(queue, pending, now);
+    }
+
+    Assert.assertTrue(queue.isEmpty());
+    Assert.assertEquals(Long.MAX_VALUE, queue.getNextDeadline());
+  }
+
+  @Test
+  public void removeEvents() {
+    var queue = new TimingWheelTimeEventQueue(TICK_MILLIS, START_TIME);
+    List<TimeEvent> timeEvents = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      var timeEvent = new TimeEvent(START_TIME + i * 997L, args -> { });
+      queue.add(timeEvent);
+      timeEvents.add(timeEvent);
+    }
+
+    // Cancel every other event, and remove one twice
+    Set<TimeEvent> pending = new HashSet<>();
+    for (int i = 0; i < timeEvents.size(); i++) {
+      if (i % 2 == 0) {
+        queue.remove(timeEvents.get(i));
+      } else {
+        pending.add(timeEvents.get(i));
+      }
+    }
+    queue.remove(timeEvents.get(0));
+    Assert.assertEquals(pending.size(), queue.size());
+
+    var now = START_TIME + 1000 * 997L + TICK_MILLIS;
+    drainAndVerify(queue, pending, now);
+    Assert.assertTrue(pending.isEmpty());
+    Assert.assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void removeExpiredEventBeforePolled() {
+    var queue = new TimingWheelTimeEventQueue(TICK_MILLIS, START_TIME);
+    var first = new TimeEvent(START_TIME, args -> { });
+    var second = new TimeEvent(START_TIME, args -> { });
+    queue.add(first);
+    queue.add(second);
+
+    // The first event cancels the second one in its callback, so the second one should not be polled
+    Assert.assertSame(first, queue.pollExpired(START_TIME));
+    queue.remove(second);
+    Assert.assertNull(queue.pollExpired(START_TIME));
+    Assert.assertTrue(queue.isEmpty());
+  }
+
+  /**
+   * Poll all the overdue events at the given time, and check they are the pending events whose deadline has passed
+   * @param queue timing wheel to poll
+   * @param pending events that have not been polled
+   * @param now simulated current time
+   */
+  private void drainAndVerify(TimingWheelTimeEventQueue queue, Set<TimeEvent> pending, long now) {
+    TimeEvent timeEvent;
+    while ((timeEvent = queue.pollExpired(now)) != null) {
+      Assert.assertTrue(timeEvent.getDeadline() <= now);
+      Assert.assertTrue(pending.remove(timeEvent));
+    }
+
+    for (var remaining : pending) {
+      Assert.assertTrue(remaining.getDeadline() > now - TICK_MILLIS);
+    }
+    Assert.assertEquals(pending.size(), queue.size());
+  }
+}
@@ -0,0 +1,242 @@
+package com.hurricane.hurricane.http;
+
+import com.hurricane.hurricane.common.EventLoop;
+import com.hurricane.hurricane.common.TimeEvent;
+import com.hurricane.hurricane.tcp.TcpServer;
+import com.hurricane.hurricane.web.Application;
+import com.hurricane.hurricane.web.RequestHandler;
+import com.hurricane.hurricane.web.UrlSpec;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.hurricane.hurricane.common.Constant.*;
+import static com.hurricane.hurricane.utility.HttpUtil.*;
+
+
+public class AsyncHttpClientTest {
+
+  /**
+   * Connections that the http server has served
+   */
+  private Set<HttpConnection> servedConnections;
+
+  private AsyncHttpClient client;
+
+  private String baseUrl;
+
+  @Before
+  public void setUp() throws IOException {
+    servedConnections = Collections.newSetFromMap(new IdentityHashMap<>());
+    client = new AsyncHttpClient(EventLoop.getInstance(), AsyncHttpClient.DEFAULT_MAX_IDLE_CONNECTIONS_PER_HOST, 500);
+
+    var application = new Application(Arrays.asList(
+        UrlSpec.of("/hello", () -> new TestHandler() {
+          @Override
+          protected void handleGetMethod(HttpRequest request) throws HttpException {
+            write("Hello World!");
+          }
+        }),
+        UrlSpec.of("/chunked", () -> new TestHandler() {
+          @Override
+          protected void handleGetMethod(HttpRequest request) throws HttpException {
+            write("Hello ");
+            flush(request);
+            write("chunked");
+          }
+        }),
+        UrlSpec.of("/echo", () -> new TestHandler() {
+          @Override
+          protected void handlePostMethod(HttpRequest request) throws HttpException {
+            write("Hello " + request.getHttpBody().getArguments().get("name"));
+          }
+        }),
+        UrlSpec.of("/close", () -> new TestHandler() {
+          @Override
+          protected void handleGetMethod(HttpRequest request) throws HttpException {
+            getResponseHeaders().add(HTTP_HEADER_KEY_CONNECTION, HTTP_HEADER_CONNECTION_VALUE_CONNECTION_CLOSE);
+            write("Bye");
+          }
+        }),
+        UrlSpec.of("/hang", () -> new TestHandler() {
+          @Override
+          protected CompletableFuture<?> handleGetMethodAsync(HttpRequest request) throws HttpException {
+            return new CompletableFuture<Void>();
+          }
+        }),
+        UrlSpec.of("/fanout", () -> new TestHandler() {
+          @Override
+          protected CompletableFuture<?> handleGetMethodAsync(HttpRequest request) throws HttpException {
+            // Both backend requests are in flight at the same time, on the loop serving this request
+            var first = client.fetch(baseUrl + "/hello");
+            var second = client.fetch(baseUrl + "/chunked");
+            return first.thenCombine(second, (x, y) -> {
+              write(x.getBodyAsString() + ", " + y.getBodyAsString());
+              return null;
+            });
+          }
+        })));
+    spinUpHttpServer(application);
+    baseUrl = "http://127.0.0.1:" + TcpServer.getServerSocketChannel().socket().getLocalPort();
+  }
+
+  /**
+   * Handler that records the connections it serves
+   */
+  private class TestHandler extends RequestHandler {
+    @Override
+    public void run(HttpConnection connection, HttpRequest request) {
+      servedConnections.add(connection);
+      super.run(connection, request);
+    }
+  }
+
+  /**
+   * Run the loop, which serves both the client and the server, until the future completes
+   */
+  private <T> T runLoop(CompletableFuture<T> future) throws InterruptedException, ExecutionException {
+    future.whenComplete((result, throwable) -> EventLoop.getInstance().stop());
+    EventLoop.getInstance().start();
+    return future.get();
+  }
+
+  @Test
+  public void fetchWithKeepAlive() throws Exception {
+    var responses = new ArrayList<HttpClientResponse>();
+    var postHeaders = new HttpHeaders();
+    postHeaders.add(HTTP_HEADER_KEY_CONTENT_TYPE, HTTP_APPLICATION_X_WWW_FORM_URLENCODED);
+    var postRequest = new HttpClientRequest(baseUrl + "/echo", HttpMethod.POST, postHeaders,
+        "name=hurricane".getBytes(StandardCharsets.UTF_8));
+
+    var idleConnectionsCounts = new ArrayList<Integer>();
+    runLoop(client.fetch(baseUrl + "/hello")
+        .thenCompose(response -> {
+          responses.add(response);
+          idleConnectionsCounts.add(client.getIdleConnectionsCount());
+          return client.fetch(baseUrl + "/chunked");
+        })
+        .thenCompose(response -> {
+          responses.add(response);
+          return client.fetch(postRequest);
+        })
+        .thenCompose(response -> {
+          responses.add(response);
+          return client.fetch(baseUrl + "/fanout");
+        })
+        .thenAccept(response -> {
+          responses.add(response);
+          idleConnectionsCounts.add(client.getIdleConnectionsCount());
+        }));
+
+    Assert.assertEquals(200, responses.get(0).getCode());
+    Assert.assertEquals("OK", responses.get(0).getReasonPhrase());
+    Assert.assertEquals("12", responses.get(0).getHeaders().getValue(HTTP_HEADER_KEY_CONTENT_LENGTH));
+    Assert.assertEquals("Hello World!", responses.get(0).getBodyAsString());
+    Assert.assertEquals(HTTP_HEADER_TRANSFER_ENCODING_VALUE_CHUNKED,
+        responses.get(1).getHeaders().getValue(HTTP_HEADER_KEY_TRANSFER_ENCODING));
+    Assert.assertEquals("Hello chunked", responses.get(1).getBodyAsString());
+    Assert.assertEquals("Hello hurricane", responses.get(2).getBodyAsString());
+    Assert.assertEquals("Hello World!, Hello chunked", responses.get(3).getBodyAsString());
+
+    // Sequential requests share a pooled connection, and the two backend requests of "/fanout" need two more
+    Assert.assertEquals(Arrays.asList(1, 3), idleConnectionsCounts);
+    Assert.assertEquals(3, servedConnections.size());
+    client.close();
+  }
+
+  @Test
+  public void fetchFailures() throws Exception {
+    // A connection that the server closes is not pooled
+    var response = runLoop(client.fetch(baseUrl + "/close"));
+    Assert.assertEquals("Bye", response.getBodyAsString());
+    Assert.assertEquals(0, client.getIdleConnectionsCount());
+
+    // A response that never comes times out
+    var failures = new ArrayList<Throwable>();
+    runLoop(client.fetch(baseUrl + "/hang").handle((result, throwable) -> failures.add(throwable)));
+
+    // Connecting to a port that nobody listens on fails
+    int closedPort;
+    try (var serverSocket = new ServerSocket(0)) {
+      closedPort = serverSocket.getLocalPort();
+    }
+    runLoop(client.fetch("http://127.0.0.1:" + closedPort + "/").handle((result, throwable) -> failures.add(throwable)));
+
+    Assert.assertTrue(failures.get(0) instanceof TimeoutException);
+    Assert.assertTrue(failures.get(1) instanceof IOException);
+    Assert.assertEquals(0, client.getIdleConnectionsCount());
+  }
+
+  @Test
+  public void resolveHostOffLoop() throws Exception {
+    // The resolver takes a while to resolve "localhost", and the loop keeps running its events meanwhile
+    var resolveCount = new AtomicInteger();
+    Executor slowResolver = command -> {
+      resolveCount.incrementAndGet();
+      new Thread(() -> {
+        try {
+          Thread.sleep(200);
+        } catch (InterruptedException e) {
+          return;
+        }
+        command.run();
+      }).start();
+    };
+    var resolvingClient = new AsyncHttpClient(EventLoop.getInstance(),
+        AsyncHttpClient.DEFAULT_MAX_IDLE_CONNECTIONS_PER_HOST, 2000, slowResolver);
+    var events = new ArrayList<String>();
+    EventLoop.getInstance().addTimeEvent(new TimeEvent(System.currentTimeMillis() + 20, args -> events.add("timer")));
+
+    var port = TcpServer.getServerSocketChannel().socket().getLocalPort();
+    var response = runLoop(resolvingClient.fetch("http://localhost:" + port + "/hello").thenApply(result -> {
+      events.add("response");
+      return result;
+    }));
+    Assert.assertEquals("Hello World!", response.getBodyAsString());
+    Assert.assertEquals(Arrays.asList("timer", "response"), events);
+    Assert.assertEquals(1, resolveCount.get());
+
+    // An address literal is not looked up
+    runLoop(resolvingClient.fetch("http://127.0.0.1:" + port + "/hello"));
+    Assert.assertEquals(1, resolveCount.get());
+    Assert.assertTrue(HttpClientConnection.isAddressLiteral("[::1]"));
+    Assert.assertFalse(HttpClientConnection.isAddressLiteral("example.com"));
+    resolvingClient.close();
+  }
+
+  @Test
+  public void parseResponseHeaders() {
+    var request = new HttpClientRequest("http://localhost/index.html?x=1");
+    var data = "HTTP/1.0 404 Not Found\r\nContent-Length: 0\r\nX-Empty:\r\n\r\n".getBytes(StandardCharsets.UTF_8);
+    var response = HttpResponseParser.parse(data, request);
+    Assert.assertEquals("HTTP/1.0", response.getVersion());
+    Assert.assertEquals(404, response.getCode());
+    Assert.assertEquals("Not Found", response.getReasonPhrase());
+    Assert.assertEquals("0", response.getHeaders().getValue(HTTP_HEADER_KEY_CONTENT_LENGTH));
+    Assert.assertEquals("", response.getHeaders().getValue("X-Empty"));
+
+    var headersBytes = new String(request.getHeadersBytes(), StandardCharsets.UTF_8);
+    Assert.assertEquals("GET /index.html?x=1 HTTP/1.1\r\nHost: localhost\r\n\r\n", headersBytes);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parseMalformedStatusLine() {
+    HttpResponseParser.parse("HTTP/1.1 OK\r\n\r\n".getBytes(StandardCharsets.UTF_8),
+        new HttpClientRequest("http://localhost/"));
+  }
+}
@@ -0,0 +1,41 @@
+package com.hurricane.hurricane.http;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class HttpByteRangeTest {
+
+  @Test
+  public void parseRanges() {
+    var range = HttpByteRange.parse("bytes=0-499", 1000);
+    Assert.assertEquals(0, range.getFirst());
+    Assert.assertEquals(499, range.getLast());
+    Assert.assertEquals("bytes 0-499/1000", range.toContentRange(1000));
+
+    // Open ended ranges and suffixes are clamped to the body
+    range = HttpByteRange.parse("bytes=900-", 1000);
+    Assert.assertEquals(100, range.getLength());
+    range = HttpByteRange.parse("bytes=900-2000", 1000);
+    Assert.assertEquals(999, range.getLast());
+    range = HttpByteRange.parse("bytes=-2000", 1000);
+    Assert.assertEquals(0, range.getFirst());
+    Assert.assertEquals(1000, range.getLength());
+  }
+
+  @Test
+  public void parseUnsatisfiableRanges() {
+    Assert.assertSame(HttpByteRange.UNSATISFIABLE, HttpByteRange.parse("bytes=1000-", 1000));
+    Assert.assertSame(HttpByteRange.UNSATISFIABLE, HttpByteRange.parse("bytes=-0", 1000));
+    Assert.assertEquals("bytes */1000", HttpByteRange.UNSATISFIABLE.toContentRange(1000));
+  }
+
+  @Test
+  public void ignoreInvalidRanges() {
+    Assert.assertNull(HttpByteRange.parse(null, 1000));
+    Assert.assertNull(HttpByteRange.parse("items=0-1", 1000));
+    Assert.assertNull(HttpByteRange.parse("bytes=5-1", 1000));
+    Assert.assertNull(HttpByteRange.parse("bytes=a-b", 1000));
+    Assert.assertNull(HttpByteRange.parse("bytes=0-1,5-6", 1000));
+  }
+}
@@ -0,0 +1,53 @@
+package com.hurricane.hurricane.http;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class HttpChunkedDecoderTest {
+
+  @Test
+  public void decodeInSegments() {
+    var data = ("4;name=value\r\nWiki\r\n" + "9\r\npedia in \r\n" + "0\r\nExpires: never\r\n\r\n" + "GET /next")
+        .getBytes(StandardCharsets.US_ASCII);
+
+    // Feed the data one byte at a time, as if every byte arrives in its own read
+    var decoder = new HttpChunkedDecoder();
+    var body = new ByteArrayOutputStream();
+    var buffer = ByteBuffer.wrap(data);
+    var end = 0;
+    while (!decoder.isDone()) {
+      buffer.limit(++end);
+      decoder.decode(buffer, body::writeBytes);
+    }
+
+    Assert.assertEquals("Wikipedia in ", body.toString(StandardCharsets.US_ASCII));
+    Assert.assertEquals(13, decoder.getDecodedSize());
+
+    // The bytes after the body are not consumed
+    buffer.limit(data.length);
+    decoder.decode(buffer, body::writeBytes);
+    Assert.assertEquals("GET /next", StandardCharsets.US_ASCII.decode(buffer).toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void decodeMalformedChunkSize() {
+    var data = ByteBuffer.wrap("4x\r\nWiki\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+    new HttpChunkedDecoder().decode(data, x -> {});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void decodeMissingChunkDelimiter() {
+    var data = ByteBuffer.wrap("4\r\nWikipedia\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+    new HttpChunkedDecoder().decode(data, x -> {});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void decodeBodyTooLarge() {
+    var data = ByteBuffer.wrap("4\r\nWiki\r\n5\r\npedia\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+    new HttpChunkedDecoder(8).decode(data, x -> {});
+  }
+}
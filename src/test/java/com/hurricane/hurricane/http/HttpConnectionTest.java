@@ -2,6 +2,8 @@ package com.hurricane.hurricane.http;
 
 import com.hurricane.hurricane.common.Constant;
 import com.hurricane.hurricane.common.EventLoop;
+import com.hurricane.hurricane.common.TimeEvent;
+import com.hurricane.hurricane.tcp.connection.TcpConnection;
 import com.hurricane.hurricane.utility.TcpUtil;
 import com.hurricane.hurricane.web.Application;
 import com.hurricane.hurricane.web.RequestHandler;
@@ -12,7 +14,10 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -156,6 +161,283 @@ public class HttpConnectionTest {
     latch.await();
   }
 
+  /**
+   * Test when the HTTP server understand request with a chunked body correctly
+   */
+  @Test
+  public void parseHttpChunkedBody() throws IOException, InterruptedException {
+    // Set up HTTP server
+    RequestHandler callback = new RequestHandler() {
+      @Override
+      public void run(HttpConnection connection, HttpRequest request) {
+        servedConnections.add(connection);
+        if (servedConnections.size() == CLIENT_COUNT) {
+          EventLoop.getInstance().stop();
+        }
+      }
+    };
+
+    var application = new Application(Collections.singletonList(new UrlSpec(".*", callback)));
+    spinUpHttpServer(application);
+    clients = TcpUtil.prepareConnectedClients(CLIENT_COUNT);
+
+    // Clients send data of test HTTP request header + chunked body to the HTTP server
+    var httpRequestString =
+        "POST /test HTTP/1.1\r\n" + "Host: foo.example\r\n" + "Content-Type: application/x-www-form-urlencoded\r\n"
+            + "Transfer-Encoding: chunked\r\n" + "\r\n" + "d\r\nfield1=value1\r\n" + "e\r\n&field2=value2\r\n"
+            + "0\r\n\r\n";
+    var httpRequestData = httpRequestString.getBytes(StandardCharsets.UTF_8);
+    for (var client : clients) {
+      executeService.submit(() -> {
+        TcpUtil.clientSendData(client, httpRequestData);
+        latch.countDown();
+        return null;
+      });
+    }
+
+    // Start the IO event and check if the server has received and decoded the data correctly
+    EventLoop.getInstance().start();
+    Assert.assertEquals(CLIENT_COUNT, servedConnections.size());
+    for (var connection : servedConnections) {
+      var arguments = connection.getHttpRequest().getHttpBody().getArguments();
+      Assert.assertEquals(2, arguments.size());
+      Assert.assertEquals("value1", arguments.get("field1"));
+      Assert.assertEquals("value2", arguments.get("field2"));
+    }
+
+    // wait for all threads in the pool finish
+    latch.await();
+  }
+
+  /**
+   * Test when the handler streams the request body, the body is delivered to it as it arrives, and the handler is
+   * prepared before the body.
+   */
+  @Test
+  public void streamHttpBody() throws IOException, InterruptedException {
+    // Set up HTTP server, whose handler echoes the size of the body it has received. The handler is shared by the
+    // connections, so the size is kept for each request.
+    RequestHandler callback = new RequestHandler() {
+      private final Map<HttpRequest, Integer> receivedCounts = new HashMap<>();
+
+      @Override
+      public boolean isBodyStreamed() {
+        return true;
+      }
+
+      @Override
+      protected void prepare(HttpRequest request) {
+        receivedCounts.put(request, 0);
+      }
+
+      @Override
+      protected void dataReceived(HttpRequest request, byte[] data) {
+        receivedCounts.merge(request, data.length, Integer::sum);
+      }
+
+      @Override
+      protected void handlePutMethod(HttpRequest request) {
+        write(Integer.toString(receivedCounts.remove(request)));
+      }
+    };
+
+    var application = new Application(Collections.singletonList(new UrlSpec(".*", callback)));
+    spinUpHttpServer(application);
+    clients = TcpUtil.prepareConnectedClients(CLIENT_COUNT);
+
+    // Each client sends a chunked body in parts, followed by a body with CONTENT-LENGTH
+    var chunkedRequestParts = new String[]{"PUT /upload HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhel",
+        "lo\r\n6\r\n world\r", "\n0\r\n\r\n"};
+    var lengthRequest = "PUT /upload HTTP/1.1\r\nContent-Length: 4\r\nConnection: close\r\n\r\nbody";
+    var expectedResponse = "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n11"
+        + "HTTP/1.1 200 OK\r\nContent-Length: 1\r\n\r\n4";
+    for (var client : clients) {
+      executeService.submit(() -> {
+        for (var part : chunkedRequestParts) {
+          TcpUtil.clientSendData(client, part.getBytes(StandardCharsets.UTF_8));
+          Thread.sleep(10);
+        }
+        TcpUtil.clientSendData(client, lengthRequest.getBytes(StandardCharsets.UTF_8));
+        TcpUtil.clientShouldReceiveData(client, expectedResponse);
+        Assert.assertEquals(-1, client.getInputStream().read());
+
+        latch.countDown();
+        if (latch.getCount() == 0) {
+          EventLoop.getInstance().stop();
+        }
+        return null;
+      });
+    }
+
+    EventLoop.getInstance().start();
+    latch.await();
+  }
+
+  /**
+   * Test when a request can not be served before its body is read, the server should answer the error and close only
+   * that connection, while the other clients are still served.
+   */
+  @Test
+  public void rejectHttpRequestBeforeBody() throws Exception {
+    // Set up HTTP server, whose handler streams bodies but only supports GET
+    RequestHandler callback = new RequestHandler() {
+      @Override
+      public boolean isBodyStreamed() {
+        return true;
+      }
+
+      @Override
+      protected Set<HttpMethod> getSupportedMethods() {
+        return Set.of(HttpMethod.GET);
+      }
+
+      @Override
+      protected void handleGetMethod(HttpRequest request) {
+        write("served");
+      }
+    };
+
+    var application = new Application(Collections.singletonList(new UrlSpec(".*", callback)));
+    spinUpHttpServer(application);
+    clients = TcpUtil.prepareConnectedClients(3);
+
+    var result = executeService.submit(() -> {
+      try {
+        // A body with an unsupported coding is not implemented
+        var client = clients.get(0);
+        var request = "POST / HTTP/1.1\r\nTransfer-Encoding: gzip\r\n\r\n";
+        TcpUtil.clientSendData(client, request.getBytes(StandardCharsets.UTF_8));
+        var response = readResponse(client, true);
+        Assert.assertEquals(501, response.status);
+        Assert.assertEquals("close", response.headers.get("Connection"));
+        Assert.assertEquals(-1, client.getInputStream().read());
+
+        // The handler rejects a method it does not support before the body
+        client = clients.get(1);
+        request = "PUT / HTTP/1.1\r\nContent-Length: 4\r\n\r\nbody";
+        TcpUtil.clientSendData(client, request.getBytes(StandardCharsets.UTF_8));
+        response = readResponse(client, true);
+        Assert.assertEquals(405, response.status);
+        Assert.assertEquals("close", response.headers.get("Connection"));
+        Assert.assertEquals(-1, client.getInputStream().read());
+
+        // The loop still serves the other connections
+        client = clients.get(2);
+        TcpUtil.clientSendData(client, "GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+        response = readResponse(client, true);
+        Assert.assertEquals(200, response.status);
+        Assert.assertEquals("served", new String(response.body, StandardCharsets.UTF_8));
+      } finally {
+        EventLoop.getInstance().stop();
+      }
+      return null;
+    });
+
+    EventLoop.getInstance().start();
+    result.get();
+  }
+
+  @Test
+  public void rejectHttpRequestByContentLength() throws Exception {
+    // Set up HTTP server, which streams the bodies of "/streamed" and holds the others
+    RequestHandler streamedCallback = new RequestHandler() {
+      @Override
+      public boolean isBodyStreamed() {
+        return true;
+      }
+    };
+    RequestHandler heldCallback = new RequestHandler() {
+      @Override
+      protected void handleGetMethod(HttpRequest request) {
+        write("served");
+      }
+    };
+
+    var application = new Application(Arrays.asList(new UrlSpec("/streamed", streamedCallback),
+        new UrlSpec(".*", heldCallback)));
+    spinUpHttpServer(application);
+    clients = TcpUtil.prepareConnectedClients(5);
+
+    var result = executeService.submit(() -> {
+      try {
+        // A malformed or negative length is a bad request, and a body too large to be held is rejected before it
+        var requests = List.of("POST / HTTP/1.1\r\nContent-Length: abc\r\n\r\n",
+            "POST / HTTP/1.1\r\nContent-Length: -1\r\n\r\n",
+            "POST / HTTP/1.1\r\nContent-Length: " + (TcpConnection.DEFAULT_MAX_CACHE_SIZE + 1L) + "\r\n\r\n");
+        var expectedStatuses = List.of(400, 400, 413);
+        for (int i = 0; i < requests.size(); i++) {
+          var client = clients.get(i);
+          TcpUtil.clientSendData(client, requests.get(i).getBytes(StandardCharsets.UTF_8));
+          var response = readResponse(client, true);
+          Assert.assertEquals(expectedStatuses.get(i), Integer.valueOf(response.status));
+          Assert.assertEquals("close", response.headers.get("Connection"));
+          Assert.assertEquals(-1, client.getInputStream().read());
+        }
+
+        // A streamed body may be larger than 2 GiB
+        var client = clients.get(3);
+        var request = "POST /streamed HTTP/1.1\r\nContent-Length: 3000000000\r\nExpect: 100-continue\r\n\r\n";
+        TcpUtil.clientSendData(client, request.getBytes(StandardCharsets.UTF_8));
+        TcpUtil.clientShouldReceiveData(client, Constant.HTTP_100_CONTINUE_RESPONSE);
+
+        // The loop still serves the other connections
+        client = clients.get(4);
+        TcpUtil.clientSendData(client, "GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+        var response = readResponse(client, true);
+        Assert.assertEquals(200, response.status);
+        Assert.assertEquals("served", new String(response.body, StandardCharsets.UTF_8));
+      } finally {
+        EventLoop.getInstance().stop();
+      }
+      return null;
+    });
+
+    EventLoop.getInstance().start();
+    result.get();
+  }
+
+  @Test
+  public void rejectMalformedHttpHeader() throws Exception {
+    RequestHandler callback = new RequestHandler() {
+      @Override
+      protected void handleGetMethod(HttpRequest request) {
+        write("served");
+      }
+    };
+
+    var application = new Application(Collections.singletonList(new UrlSpec(".*", callback)));
+    spinUpHttpServer(application);
+    clients = TcpUtil.prepareConnectedClients(3);
+
+    var result = executeService.submit(() -> {
+      try {
+        // A header line without a colon, and a start line without a uri, are bad requests
+        var malformedRequests = List.of("GET / HTTP/1.1\r\nNoColonHere\r\n\r\n", "garbage\r\n\r\n");
+        for (int i = 0; i < malformedRequests.size(); i++) {
+          var client = clients.get(i);
+          TcpUtil.clientSendData(client, malformedRequests.get(i).getBytes(StandardCharsets.UTF_8));
+          var response = readResponse(client, true);
+          Assert.assertEquals(400, response.status);
+          Assert.assertEquals("close", response.headers.get("Connection"));
+          Assert.assertEquals(-1, client.getInputStream().read());
+        }
+
+        // The loop still serves the other connections
+        var client = clients.get(2);
+        TcpUtil.clientSendData(client, "GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+        var response = readResponse(client, true);
+        Assert.assertEquals(200, response.status);
+        Assert.assertEquals("served", new String(response.body, StandardCharsets.UTF_8));
+      } finally {
+        EventLoop.getInstance().stop();
+      }
+      return null;
+    });
+
+    EventLoop.getInstance().start();
+    result.get();
+  }
+
   /**
    * Test when the HTTP server understand 100-continue request correctly and send response back
    */
@@ -192,4 +474,170 @@ public class HttpConnectionTest {
     // wait for all threads in the pool finish
     latch.await();
   }
-}
\ No newline at end of file
+
+  /**
+   * Test when the clients pipeline requests, the server should serve all of them and respond in the order of the
+   * requests, even if a later request finishes first.
+   */
+  @Test
+  public void pipelineHttpRequests() throws IOException, InterruptedException {
+    // Set up HTTP server. The first request of each client finishes later than the ones after it.
+    RequestHandler callback = new RequestHandler() {
+      @Override
+      public void run(HttpConnection connection, HttpRequest request) {
+        var body = request.getPath();
+        var response = "HTTP/1.1 200 OK\r\nContent-Length: " + body.length() + "\r\n\r\n" + body;
+        Runnable respond = () -> {
+          request.write(response.getBytes(StandardCharsets.UTF_8));
+          request.finish();
+        };
+
+        if (body.equals("/first")) {
+          var deadline = System.currentTimeMillis() + 50;
+          EventLoop.current().addTimeEvent(new TimeEvent(deadline, args -> respond.run()));
+        } else {
+          respond.run();
+        }
+      }
+    };
+
+    var application = new Application(Collections.singletonList(new UrlSpec(".*", callback)));
+    spinUpHttpServer(application);
+    clients = TcpUtil.prepareConnectedClients(CLIENT_COUNT);
+
+    // Clients send three requests at once
+    var httpRequestString = "GET /first HTTP/1.1\r\n\r\n" + "GET /second HTTP/1.1\r\n\r\n"
+        + "GET /third HTTP/1.1\r\nConnection: close\r\n\r\n";
+    var expectedResponse = "HTTP/1.1 200 OK\r\nContent-Length: 6\r\n\r\n/first"
+        + "HTTP/1.1 200 OK\r\nContent-Length: 7\r\n\r\n/second"
+        + "HTTP/1.1 200 OK\r\nContent-Length: 6\r\n\r\n/third";
+    var httpRequestData = httpRequestString.getBytes(StandardCharsets.UTF_8);
+    for (var client : clients) {
+      executeService.submit(() -> {
+        TcpUtil.clientSendData(client, httpRequestData);
+        TcpUtil.clientShouldReceiveData(client, expectedResponse);
+
+        // The server closes the connection after the request asking for it
+        Assert.assertEquals(-1, client.getInputStream().read());
+        latch.countDown();
+        if (latch.getCount() == 0) {
+          EventLoop.getInstance().stop();
+        }
+        return null;
+      });
+    }
+
+    EventLoop.getInstance().start();
+    latch.await();
+  }
+
+  /**
+   * Test when a client pipelines thousands of requests in one write, the server should serve all of them. The requests
+   * received at once are drained in a loop, so the stack does not grow with their count.
+   */
+  @Test
+  public void pipelineManyHttpRequests() throws IOException, InterruptedException {
+    var requestCount = 5000;
+    RequestHandler callback = new RequestHandler() {
+      @Override
+      public void run(HttpConnection connection, HttpRequest request) {
+        request.write("HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+        request.finish();
+      }
+    };
+
+    var application = new Application(Collections.singletonList(new UrlSpec(".*", callback)));
+    spinUpHttpServer(application);
+    var client = TcpUtil.prepareConnectedClients(1).get(0);
+
+    // The last request asks to close the connection, so the client can tell all the responses have been received
+    var requests = new StringBuilder();
+    var expectedResponse = new StringBuilder();
+    for (int i = 0; i < requestCount; i++) {
+      requests.append("GET / HTTP/1.1\r\n").append(i == requestCount - 1 ? "Connection: close\r\n" : "")
+          .append("\r\n");
+      expectedResponse.append("HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n");
+    }
+
+    // The client sends the requests and reads the responses at the same time, since neither fits in the socket buffers
+    var pipelineLatch = new CountDownLatch(1);
+    executeService.submit(() -> {
+      TcpUtil.clientSendData(client, requests.toString().getBytes(StandardCharsets.UTF_8));
+      return null;
+    });
+    executeService.submit(() -> {
+      TcpUtil.clientShouldReceiveData(client, expectedResponse.toString());
+      Assert.assertEquals(-1, client.getInputStream().read());
+      pipelineLatch.countDown();
+      EventLoop.getInstance().stop();
+      return null;
+    });
+
+    EventLoop.getInstance().start();
+    pipelineLatch.await();
+  }
+
+  /**
+   * Test when a client pipelines requests faster than they are served, the server should stop reading once the
+   * pipeline is full, instead of holding the rest of the requests in the read cache.
+   */
+  @Test
+  public void pauseReadingWhenPipelineIsFull() throws IOException, InterruptedException {
+    var requestCount = 6000;
+    var heldRequests = new ArrayList<HttpRequest>();
+    var isReleased = new boolean[1];
+    RequestHandler callback = new RequestHandler() {
+      @Override
+      public void run(HttpConnection connection, HttpRequest request) {
+        request.write("HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+        if (isReleased[0]) {
+          request.finish();
+        } else {
+          heldRequests.add(request);
+        }
+      }
+    };
+
+    var application = new Application(Collections.singletonList(new UrlSpec(".*", callback)));
+    spinUpHttpServer(application);
+    var client = TcpUtil.prepareConnectedClients(1).get(0);
+
+    var requests = new StringBuilder();
+    var expectedResponse = new StringBuilder();
+    for (int i = 0; i < requestCount; i++) {
+      requests.append("GET / HTTP/1.1\r\n").append(i == requestCount - 1 ? "Connection: close\r\n" : "")
+          .append("\r\n");
+      expectedResponse.append("HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n");
+    }
+
+    // The handler holds the requests for a while, then serves all of them. Meanwhile the read cache is sampled.
+    var loop = EventLoop.getInstance();
+    var maxReadCacheSize = new long[1];
+    loop.addTimeEvent(new TimeEvent(System.currentTimeMillis() + 300, args -> {
+      for (var connection : loop.getClientConnections().values()) {
+        maxReadCacheSize[0] = Math.max(maxReadCacheSize[0], connection.getReadManager().getCacheSize());
+      }
+      isReleased[0] = true;
+      heldRequests.forEach(HttpRequest::finish);
+    }));
+
+    var pipelineLatch = new CountDownLatch(1);
+    executeService.submit(() -> {
+      TcpUtil.clientSendData(client, requests.toString().getBytes(StandardCharsets.UTF_8));
+      return null;
+    });
+    executeService.submit(() -> {
+      TcpUtil.clientShouldReceiveData(client, expectedResponse.toString());
+      Assert.assertEquals(-1, client.getInputStream().read());
+      pipelineLatch.countDown();
+      EventLoop.getInstance().stop();
+      return null;
+    });
+
+    EventLoop.getInstance().start();
+    pipelineLatch.await();
+    Assert.assertEquals(HttpConnection.DEFAULT_MAX_PIPELINED_REQUESTS_COUNT, heldRequests.size());
+    Assert.assertTrue("Read cache held [" + maxReadCacheSize[0] + "] bytes",
+        maxReadCacheSize[0] <= TcpConnection.DEFAULT_POOLED_BYTE_BUFFER_SIZE);
+  }
+}
@@ -1,5 +1,7 @@
 package com.hurricane.hurricane.http;
 
+import com.hurricane.hurricane.common.Constant;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashSet;
 import org.junit.Assert;
@@ -13,6 +15,29 @@ public class HttpHeadersTest {
     Assert.assertEquals("Content-Type", HttpHeaders.normalizeName("coNtent-TYPE"));
   }
 
+  @Test
+  public void normalizeWellKnownName() {
+    Assert.assertSame(Constant.HTTP_HEADER_KEY_CONTENT_LENGTH, HttpHeaders.normalizeName("content-length"));
+    Assert.assertSame(Constant.HTTP_HEADER_KEY_CONTENT_LENGTH, HttpHeaders.normalizeName("Content-Length"));
+    Assert.assertEquals("ETag", HttpHeaders.normalizeName("etag"));
+    Assert.assertEquals("X-Custom-Name", HttpHeaders.normalizeName("x-CUSTOM-name"));
+
+    var data = "xHOST:".getBytes(StandardCharsets.US_ASCII);
+    Assert.assertSame(HttpHeaderNames.normalize("Host"), HttpHeaderNames.normalize(data, 1, 4));
+    Assert.assertEquals("Xhost", HttpHeaderNames.normalize(data, 0, 5));
+  }
+
+  @Test
+  public void getValueWithoutJoining() {
+    var headers = HttpHeaders.parse("Set-Cookie: A=B\r\nset-cookie: C=D\r\n");
+    Assert.assertEquals("A=B", headers.getValue("Set-Cookie"));
+    Assert.assertEquals(Arrays.asList("A=B", "C=D"), headers.getValueList("SET-COOKIE"));
+    Assert.assertNull(headers.getValue("Host"));
+    Assert.assertTrue(headers.getValueList("Host").isEmpty());
+    Assert.assertEquals("", headers.getValues("Host"));
+    Assert.assertTrue(headers.contains("set-cookie"));
+  }
+
   @Test
   public void capitalize() {
     Assert.assertNull(HttpHeaders.capitalize(null));
@@ -0,0 +1,51 @@
+package com.hurricane.hurricane.http;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class HttpRequestParserTest {
+
+  @Test
+  public void parseRequestLineAndHeaders() {
+    var data = ("POST /hurricane/test?k1=v1 HTTP/1.1\r\n" + "Host: localhost:8080\r\n" + "content-TYPE:text/html \r\n"
+        + "Set-Cookie: A=B\r\n" + "Set-Cookie:  C=D\r\n" + "Empty:\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+    var request = HttpRequestParser.parse(data, null);
+
+    Assert.assertEquals(HttpMethod.POST, request.getMethod());
+    Assert.assertEquals("/hurricane/test?k1=v1", request.getUri());
+    Assert.assertEquals("/hurricane/test", request.getPath());
+    Assert.assertEquals("v1", request.getQueryArgs().get("k1"));
+    Assert.assertEquals("HTTP/1.1", request.getVersion());
+
+    var headers = request.getHttpHeaders();
+    Assert.assertEquals("localhost:8080", headers.getValues("Host"));
+    Assert.assertEquals("text/html", headers.getValues("Content-Type"));
+    Assert.assertEquals("A=B, C=D", headers.getValues("Set-Cookie"));
+    Assert.assertEquals("", headers.getValues("Empty"));
+  }
+
+  @Test
+  public void parseWithoutEmptyLine() {
+    var request = HttpRequestParser.parse("GET / HTTP/1.0\r\nConnection: close".getBytes(StandardCharsets.UTF_8), null);
+    Assert.assertEquals(HttpMethod.GET, request.getMethod());
+    Assert.assertEquals("HTTP/1.0", request.getVersion());
+    Assert.assertEquals("close", request.getHttpHeaders().getValues("Connection"));
+  }
+
+  @Test(expected = HttpException.class)
+  public void parseUnsupportedMethod() {
+    HttpRequestParser.parse("PATCH / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8), null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parseMalformedVersion() {
+    HttpRequestParser.parse("GET / FTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8), null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void parseMalformedHeaderLine() {
+    HttpRequestParser.parse("GET / HTTP/1.1\r\nNoColon\r\n\r\n".getBytes(StandardCharsets.UTF_8), null);
+  }
+}
@@ -0,0 +1,51 @@
+package com.hurricane.hurricane.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class HistogramTest {
+
+  @Test
+  public void mapValuesToBuckets() {
+    // Small values are exact
+    for (int value = 0; value < Histogram.SUB_BUCKET_COUNT; value++) {
+      Assert.assertEquals(value, Histogram.getBucketMaxValue(Histogram.getBucketIndex(value)));
+    }
+
+    // Every value is in a bucket no wider than 1 / SUB_BUCKET_COUNT of it, and the buckets are in order of value
+    var previousIndex = -1;
+    for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+      var index = Histogram.getBucketIndex(value);
+      var maxValue = Histogram.getBucketMaxValue(index);
+      Assert.assertTrue(value <= maxValue);
+      Assert.assertTrue(maxValue - value <= value / Histogram.SUB_BUCKET_COUNT);
+      Assert.assertTrue(index > previousIndex);
+      previousIndex = index;
+    }
+    Assert.assertEquals(Long.MAX_VALUE, Histogram.getBucketMaxValue(Histogram.getBucketIndex(Long.MAX_VALUE)));
+  }
+
+  @Test
+  public void getValuesAtQuantiles() {
+    var histogram = new Histogram();
+    Assert.assertEquals(0, histogram.getValueAtQuantile(0.99));
+
+    for (int value = 1; value <= 1000; value++) {
+      histogram.record(value);
+    }
+    histogram.record(-5);
+
+    Assert.assertEquals(1001, histogram.getCount());
+    Assert.assertEquals(500500, histogram.getSum());
+    Assert.assertEquals(0, histogram.getValueAtQuantile(0));
+    assertWithin(500, histogram.getValueAtQuantile(0.5));
+    assertWithin(990, histogram.getValueAtQuantile(0.99));
+    assertWithin(1000, histogram.getValueAtQuantile(1));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    Assert.assertTrue("actual = " + actual,
+        actual >= expected && actual - expected <= expected / Histogram.SUB_BUCKET_COUNT);
+  }
+}
@@ -0,0 +1,41 @@
+package com.hurricane.hurricane.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class MetricsRegistryTest {
+
+  @Test
+  public void exportPrometheusText() {
+    var registry = new MetricsRegistry();
+    registry.counter("requests_total", "Count of requests", "route", "/a\"b\\", "code", "200").add(3);
+    registry.counter("requests_total", "Count of requests", "route", "/a\"b\\", "code", "200").increment();
+    registry.gauge("open_connections", "Open connections").set(2);
+    var histogram = registry.histogram("duration_seconds", "Latency", 0.5, "route", "/");
+    histogram.record(10);
+
+    var expected = "# HELP duration_seconds Latency\n"
+        + "# TYPE duration_seconds summary\n"
+        + "duration_seconds{route=\"/\",quantile=\"0.5\"} 5.0\n"
+        + "duration_seconds{route=\"/\",quantile=\"0.9\"} 5.0\n"
+        + "duration_seconds{route=\"/\",quantile=\"0.99\"} 5.0\n"
+        + "duration_seconds{route=\"/\",quantile=\"0.999\"} 5.0\n"
+        + "duration_seconds_sum{route=\"/\"} 5.0\n"
+        + "duration_seconds_count{route=\"/\"} 1\n"
+        + "# HELP open_connections Open connections\n"
+        + "# TYPE open_connections gauge\n"
+        + "open_connections 2\n"
+        + "# HELP requests_total Count of requests\n"
+        + "# TYPE requests_total counter\n"
+        + "requests_total{route=\"/a\\\"b\\\\\",code=\"200\"} 4\n";
+    Assert.assertEquals(expected, registry.toPrometheusText());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectMetricOfAnotherType() {
+    var registry = new MetricsRegistry();
+    registry.counter("value", "A value");
+    registry.gauge("value", "A value");
+  }
+}
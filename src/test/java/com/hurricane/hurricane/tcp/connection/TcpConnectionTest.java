@@ -160,6 +160,75 @@ public class TcpConnectionTest {
     latch.await();
   }
 
+  /**
+   * Each client sends a multi-byte delimiter whose prefix also appears earlier in the data, one byte per write. The
+   * server should resume searching across READ events and still find the first complete delimiter.
+   */
+  @Test
+  public void readDelimiterEventInSmallSegments() throws IOException, InterruptedException {
+    final String delimiter = "\r\n\r\n";
+    final byte[] testBytes = ("GET / HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+
+    // Set up read handler for new accepted connection
+    var callback = new TcpReadDelimiterHandler(delimiter, postReadEventCallback);
+    setUpReadTcpAcceptHandler(callback);
+
+    // Spin up clients and send data to server byte by byte in parallel
+    this.clients = TcpUtil.prepareConnectedClients(CLIENT_COUNT);
+    for (var client : clients) {
+      executeService.submit(() -> {
+        client.setTcpNoDelay(true);
+        for (var oneByte : testBytes) {
+          TcpUtil.clientSendData(client, new byte[] {oneByte});
+        }
+        latch.countDown();
+        return testBytes;
+      });
+    }
+
+    // Start the event loop
+    eventLoop.start();
+
+    // When the event loop finishes, check if the server receives data as expected
+    final byte[] expectedBytes = repeatArray(testBytes, CLIENT_COUNT);
+    Assert.assertArrayEquals(expectedBytes, Bytes.toArray(serverReadData));
+
+    // wait for all threads in the pool finish
+    latch.await();
+  }
+
+  /**
+   * Each client will send data that is much larger than the byte buffer of a connection, so the server has to receive
+   * it in many READ events and grow its read cache. The callback should only be triggered once all of it is received.
+   */
+  @Test
+  public void readLargeBytesEvent() throws IOException, InterruptedException {
+    // Set up read handler for new accepted connection
+    final byte[] largeTestBytes = repeatArray(TEST_BYTES, TcpConnection.DEFAULT_BYTE_BUFFER_SIZE);
+    var callback = new TcpReadBytesHandler(largeTestBytes.length, postReadEventCallback);
+    setUpReadTcpAcceptHandler(callback);
+
+    // Spin up clients and send data to server in parallel
+    this.clients = TcpUtil.prepareConnectedClients(CLIENT_COUNT);
+    for (var client : clients) {
+      executeService.submit(() -> {
+        TcpUtil.clientSendData(client, largeTestBytes);
+        latch.countDown();
+        return largeTestBytes;
+      });
+    }
+
+    // Start the event loop
+    eventLoop.start();
+
+    // When the event loop finishes, check if the server receives data as expected
+    final byte[] expectedBytes = repeatArray(largeTestBytes, CLIENT_COUNT);
+    Assert.assertArrayEquals(expectedBytes, Bytes.toArray(serverReadData));
+
+    // wait for all threads in the pool finish
+    latch.await();
+  }
+
   @Test
   public void writeEvent() throws IOException, InterruptedException {
     final byte[] testBytes = TEST_STRING.getBytes(StandardCharsets.UTF_8);
@@ -188,6 +257,43 @@ public class TcpConnectionTest {
     latch.await();
   }
 
+  /**
+   * The server writes data that is too large to be sent in a single WRITE event to each client. The flush callback
+   * should only be triggered after all of it has been written.
+   */
+  @Test
+  public void writeLargeEvent() throws IOException, InterruptedException {
+    final String largeTestString = TEST_STRING.repeat(TcpConnection.DEFAULT_BYTE_BUFFER_SIZE * 4);
+    TcpWriteCallback postCallback = (handler) -> {
+      callbackTriggeredCount += 1;
+      if (callbackTriggeredCount == CLIENT_COUNT) {
+        eventLoop.stop();
+      }
+    };
+
+    // Set up write handler for new accepted connection
+    var callback = new TcpFlushHandler(postCallback);
+    setUpWriteTcpAcceptHandler(callback, largeTestString.getBytes(StandardCharsets.UTF_8));
+
+    // Spin up clients and receive data from server in parallel
+    this.clients = TcpUtil.prepareConnectedClients(CLIENT_COUNT);
+    for (var client : clients) {
+      executeService.submit(() -> {
+        TcpUtil.clientShouldReceiveData(client, largeTestString);
+        latch.countDown();
+        return null;
+      });
+    }
+
+    // Start the event loop
+    eventLoop.start();
+
+    Assert.assertEquals(CLIENT_COUNT, callbackTriggeredCount);
+
+    // wait for all threads in the pool finish
+    latch.await();
+  }
+
   /**
    * Each client start to send test data. When expected data is sent, decrease the latch.
    * @param latch this is used to make sure main thread does not exit before all threads in pool finish.
@@ -1,8 +1,15 @@
 package com.hurricane.hurricane.utility;
 
+import com.hurricane.hurricane.common.EventLoopGroup;
 import com.hurricane.hurricane.http.HttpServer;
 import com.hurricane.hurricane.web.Application;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 
 
 public class HttpUtil {
@@ -12,9 +19,90 @@ public class HttpUtil {
    * @throws IOException Some IO errors in bind and listen operations.
    */
   public static void spinUpHttpServer(Application application) throws IOException {
+    spinUpHttpServer(application, null);
+  }
+
+  /**
+   * Binds the HTTP server to an ephemeral port and listens to new connections, which are handled by the given loops.
+   * @param application application whose request handler will be run when HTTP server finishes parsing HTTP request
+   * @param eventLoopGroup loops that handle client connections. If null, the global EventLoop handles them.
+   * @throws IOException Some IO errors in bind and listen operations.
+   */
+  public static void spinUpHttpServer(Application application, EventLoopGroup eventLoopGroup) throws IOException {
+    spinUpHttpServer(application, eventLoopGroup, false);
+  }
+
+  /**
+   * Binds the HTTP server to an ephemeral port and listens to new connections, which are handled by the given loops.
+   * @param application application whose request handler will be run when HTTP server finishes parsing HTTP request
+   * @param eventLoopGroup loops that handle client connections. If null, the global EventLoop handles them.
+   * @param reusePort if each loop of the group should own a listening socket bound with SO_REUSEPORT
+   * @throws IOException Some IO errors in bind and listen operations.
+   */
+  public static void spinUpHttpServer(Application application, EventLoopGroup eventLoopGroup, boolean reusePort)
+      throws IOException {
     HttpServer httpServer = HttpServer.getInstance();
     httpServer.setApplication(application);
+    httpServer.setEventLoopGroup(eventLoopGroup);
+    httpServer.setReusePort(reusePort);
 
     httpServer.listen(-1);
   }
+
+  /**
+   * Read a Http response with CONTENT-LENGTH from the server
+   * @param client client socket
+   * @param hasBody if the response has a body, e.g., it is false for HEAD requests
+   * @return the response received
+   * @throws IOException Some IO errors when receiving TCP data
+   */
+  public static Response readResponse(Socket client, boolean hasBody) throws IOException {
+    var inputStream = client.getInputStream();
+
+    // Read until the empty line after the headers
+    var headerBytes = new ByteArrayOutputStream();
+    while (!headerBytes.toString(StandardCharsets.US_ASCII).endsWith("\r\n\r\n")) {
+      var b = inputStream.read();
+      if (b == -1) {
+        throw new IOException("Connection is closed before the end of headers");
+      }
+      headerBytes.write(b);
+    }
+
+    var lines = headerBytes.toString(StandardCharsets.US_ASCII).split("\r\n");
+    var response = new Response();
+    response.status = Integer.parseInt(lines[0].split(" ")[1]);
+    for (int i = 1; i < lines.length; i++) {
+      var delimiterIndex = lines[i].indexOf(':');
+      response.headers.put(lines[i].substring(0, delimiterIndex), lines[i].substring(delimiterIndex + 1).strip());
+    }
+
+    var contentLength = response.headers.get("Content-Length");
+    response.body = hasBody && contentLength != null ? readBytes(inputStream, Integer.parseInt(contentLength))
+        : new byte[0];
+    return response;
+  }
+
+  private static byte[] readBytes(InputStream inputStream, int count) throws IOException {
+    var result = new byte[count];
+    var receivedCount = 0;
+    while (receivedCount < count) {
+      var n = inputStream.read(result, receivedCount, count - receivedCount);
+      if (n == -1) {
+        throw new IOException("Connection is closed after receiving [" + receivedCount + "] bytes of the body");
+      }
+      receivedCount += n;
+    }
+
+    return result;
+  }
+
+  /**
+   * A Http response received by a client
+   */
+  public static class Response {
+    public int status;
+    public Map<String, String> headers = new HashMap<>();
+    public byte[] body;
+  }
 }
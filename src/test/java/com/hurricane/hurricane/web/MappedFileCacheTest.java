@@ -0,0 +1,98 @@
+package com.hurricane.hurricane.web;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class MappedFileCacheTest {
+
+  private Path directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("hurricane-cache");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (var files = Files.list(directory)) {
+      for (var file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  private Path createFile(String name, String content) throws IOException {
+    return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(MappedFileCache.Entry entry) {
+    return StandardCharsets.UTF_8.decode(entry.slice(0, entry.getSize())).toString();
+  }
+
+  @Test
+  public void revalidateChangedFiles() throws IOException {
+    var file = createFile("a.txt", "first");
+    var cache = new MappedFileCache(1024, 1024, 0);
+    var entry = cache.get(file);
+    Assert.assertEquals("first", read(entry));
+    Assert.assertSame(entry, cache.get(file));
+
+    // A changed file is mapped again
+    Files.write(file, "second".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(entry.getLastModified() + 2000));
+    var newEntry = cache.get(file);
+    Assert.assertNotSame(entry, newEntry);
+    Assert.assertEquals("second", read(newEntry));
+    Assert.assertEquals(6, cache.getTotalSize());
+
+    // A deleted file is removed
+    Files.delete(file);
+    Assert.assertNull(cache.get(file));
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void skipRevalidationWithinInterval() throws IOException {
+    var file = createFile("a.txt", "first");
+    var cache = new MappedFileCache(1024, 1024, 60000);
+    var entry = cache.get(file);
+
+    Files.delete(file);
+    Assert.assertSame(entry, cache.get(file));
+  }
+
+  @Test
+  public void evictLeastRecentlyUsedFiles() throws IOException {
+    var a = createFile("a.txt", "aaaa");
+    var b = createFile("b.txt", "bbbb");
+    var c = createFile("c.txt", "cccc");
+    var large = createFile("large.txt", "0123456789");
+    var cache = new MappedFileCache(8, 8, 60000);
+
+    cache.get(a);
+    cache.get(b);
+    cache.get(a);
+    cache.get(c);
+
+    // b is the least recently used when c is added
+    Assert.assertEquals(2, cache.size());
+    Assert.assertEquals(8, cache.getTotalSize());
+    var entryOfA = cache.get(a);
+    Assert.assertEquals("aaaa", read(entryOfA));
+    Files.delete(b);
+    Assert.assertNull(cache.get(b));
+
+    // Files larger than the limit are not cached
+    Assert.assertNull(cache.get(large));
+    Assert.assertEquals(2, cache.size());
+  }
+}
@@ -0,0 +1,69 @@
+package com.hurricane.hurricane.web;
+
+import com.hurricane.hurricane.common.EventLoop;
+import com.hurricane.hurricane.http.AsyncHttpClient;
+import com.hurricane.hurricane.http.HttpClientResponse;
+import com.hurricane.hurricane.http.HttpException;
+import com.hurricane.hurricane.http.HttpRequest;
+import com.hurricane.hurricane.http.HttpStatus;
+import com.hurricane.hurricane.metrics.MetricsRegistry;
+import com.hurricane.hurricane.metrics.TcpMetrics;
+import com.hurricane.hurricane.tcp.TcpServer;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static com.hurricane.hurricane.common.Constant.*;
+import static com.hurricane.hurricane.utility.HttpUtil.*;
+
+
+public class MetricsHandlerTest {
+
+  @Test
+  public void exportRouteAndTcpMetrics() throws Exception {
+    var helloSpec = new UrlSpec("/metrics-test/hello", new RequestHandler() {
+      @Override
+      protected void handleGetMethod(HttpRequest request) throws HttpException {
+        write("Hello World!");
+      }
+    });
+    var failSpec = new UrlSpec("/metrics-test/fail", new RequestHandler() {
+      @Override
+      protected void handleGetMethod(HttpRequest request) throws HttpException {
+        throw new HttpException(HttpStatus.SERVICE_UNAVAILABLE);
+      }
+    });
+    var application = new Application(Arrays.asList(helloSpec, failSpec,
+        new UrlSpec(MetricsHandler.DEFAULT_PATH, new MetricsHandler())));
+    spinUpHttpServer(application);
+    var baseUrl = "http://127.0.0.1:" + TcpServer.getServerSocketChannel().socket().getLocalPort();
+
+    var bytesRead = TcpMetrics.BYTES_READ.get();
+    var client = new AsyncHttpClient(EventLoop.getInstance());
+    var future = client.fetch(baseUrl + "/metrics-test/hello")
+        .thenCompose(response -> client.fetch(baseUrl + "/metrics-test/hello"))
+        .thenCompose(response -> client.fetch(baseUrl + "/metrics-test/fail"))
+        .thenCompose(response -> client.fetch(baseUrl + MetricsHandler.DEFAULT_PATH));
+    future.whenComplete((result, throwable) -> EventLoop.getInstance().stop());
+    EventLoop.getInstance().start();
+    client.close();
+    HttpClientResponse response = future.get();
+
+    Assert.assertEquals(200, response.getCode());
+    Assert.assertEquals(MetricsRegistry.PROMETHEUS_CONTENT_TYPE,
+        response.getHeaders().getValue(HTTP_HEADER_KEY_CONTENT_TYPE));
+    var text = response.getBodyAsString();
+    Assert.assertTrue(text, text.contains(
+        "hurricane_http_requests_total{route=\"/metrics-test/hello\",code=\"200\"} 2\n"));
+    Assert.assertTrue(text, text.contains(
+        "hurricane_http_requests_total{route=\"/metrics-test/fail\",code=\"503\"} 1\n"));
+    Assert.assertTrue(text, text.contains(
+        "hurricane_http_request_duration_seconds_count{route=\"/metrics-test/hello\"} 2\n"));
+    Assert.assertTrue(text, text.contains("# TYPE hurricane_tcp_open_connections gauge\n"));
+
+    // Both ends of the connections are counted, since the client and the server share the loop
+    Assert.assertTrue(TcpMetrics.BYTES_READ.get() > bytesRead);
+    Assert.assertEquals(2, helloSpec.getMetrics().getLatency().getCount());
+  }
+}
@@ -0,0 +1,371 @@
+package com.hurricane.hurricane.web;
+
+import com.hurricane.hurricane.common.EventLoop;
+import com.hurricane.hurricane.common.TcpCallback;
+import com.hurricane.hurricane.common.TimeEvent;
+import com.hurricane.hurricane.http.AsyncHttpClient;
+import com.hurricane.hurricane.http.HttpClientRequest;
+import com.hurricane.hurricane.http.HttpClientResponse;
+import com.hurricane.hurricane.http.HttpClientResponseListener;
+import com.hurricane.hurricane.http.HttpException;
+import com.hurricane.hurricane.http.HttpHeaders;
+import com.hurricane.hurricane.http.HttpMethod;
+import com.hurricane.hurricane.http.HttpRequest;
+import com.hurricane.hurricane.http.HttpStatus;
+import com.hurricane.hurricane.tcp.TcpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.hurricane.hurricane.common.Constant.*;
+import static com.hurricane.hurricane.utility.HttpUtil.*;
+
+
+public class ProxyHandlerTest {
+
+  private AsyncHttpClient client;
+
+  private String baseUrl;
+
+  private UpstreamGroup roundRobinGroup;
+
+  private UpstreamGroup leastOutstandingGroup;
+
+  /**
+   * Groups of a server that nobody listens on, and of a server that times out
+   */
+  private UpstreamGroup deadGroup;
+  private UpstreamGroup slowGroup;
+
+  /**
+   * Group of a server run by a test itself, which is set by the test
+   */
+  private UpstreamGroup rawGroup;
+
+  /**
+   * Completes when an upstream server starts to handle "/hold", and completes the response of "/hold"
+   */
+  private CompletableFuture<Void> holdStarted;
+  private CompletableFuture<Void> holdReleased;
+
+  @Before
+  public void setUp() throws IOException {
+    client = new AsyncHttpClient(EventLoop.getInstance());
+    holdStarted = new CompletableFuture<>();
+    holdReleased = new CompletableFuture<>();
+
+    // The proxy and both upstream servers, "/a" and "/b", are served by the same server
+    var application = new Application(Arrays.asList(
+        UrlSpec.of("/rr/.*", () -> new ProxyHandler(roundRobinGroup)),
+        UrlSpec.of("/lor/.*", () -> new ProxyHandler(leastOutstandingGroup)),
+        UrlSpec.of("/dead/.*", () -> new ProxyHandler(deadGroup)),
+        UrlSpec.of("/slow/.*", () -> new ProxyHandler(slowGroup)),
+        UrlSpec.of("/raw/.*", () -> new ProxyHandler(rawGroup)),
+        UrlSpec.of("/(a|b)/.*/who", () -> new RequestHandler() {
+          @Override
+          protected void handleGetMethod(HttpRequest request) throws HttpException {
+            write(request.getPathArgs().get(0));
+          }
+        }),
+        UrlSpec.of("/(a|b)/rr/chunked", () -> new RequestHandler() {
+          @Override
+          protected void handleGetMethod(HttpRequest request) throws HttpException {
+            setStatus(HttpStatus.CREATED);
+            getResponseHeaders().add("X-Upstream", request.getPathArgs().get(0));
+            getResponseHeaders().add(HTTP_HEADER_KEY_CONNECTION, "X-Private");
+            getResponseHeaders().add("X-Private", "secret");
+            write("Hello ");
+            flush(request);
+            write("chunked");
+          }
+        }),
+        UrlSpec.of("/(a|b)/rr/echo", () -> new RequestHandler() {
+          private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+          @Override
+          public boolean isBodyStreamed() {
+            return true;
+          }
+
+          @Override
+          protected void dataReceived(HttpRequest request, byte[] data) {
+            body.writeBytes(data);
+          }
+
+          @Override
+          protected void handlePostMethod(HttpRequest request) throws HttpException {
+            var headers = request.getHttpHeaders();
+            write(headers.getValue(HTTP_HEADER_KEY_X_FORWARDED_HOST) + " " + headers.contains("X-Private") + " ");
+            write(body.toString(StandardCharsets.UTF_8));
+          }
+        }),
+        UrlSpec.of("/(a|b)/rr/redirect", () -> new RequestHandler() {
+          @Override
+          protected void handlePostMethod(HttpRequest request) throws HttpException {
+            setStatus(307, "Temporary Redirect");
+            getResponseHeaders().add("Location", "/elsewhere");
+          }
+        }),
+        UrlSpec.of("/(a|b)/rr/busy", () -> new RequestHandler() {
+          @Override
+          protected void handleGetMethod(HttpRequest request) throws HttpException {
+            setStatus(429, "Slow Down");
+            getResponseHeaders().add("Retry-After", "1");
+            write("busy");
+          }
+        }),
+        UrlSpec.of("/a/lor/hold", () -> new RequestHandler() {
+          @Override
+          protected CompletableFuture<?> handleGetMethodAsync(HttpRequest request) throws HttpException {
+            holdStarted.complete(null);
+            return holdReleased.thenRun(() -> write("released"));
+          }
+        }),
+        UrlSpec.of("/a/slow/hang", () -> new RequestHandler() {
+          @Override
+          protected CompletableFuture<?> handleGetMethodAsync(HttpRequest request) throws HttpException {
+            return new CompletableFuture<Void>();
+          }
+        })));
+    spinUpHttpServer(application);
+    baseUrl = "http://127.0.0.1:" + TcpServer.getServerSocketChannel().socket().getLocalPort();
+
+    var upstreamUrls = List.of(baseUrl + "/a", baseUrl + "/b/");
+    roundRobinGroup = new UpstreamGroup(upstreamUrls, UpstreamGroup.BalancingPolicy.ROUND_ROBIN);
+    leastOutstandingGroup = new UpstreamGroup(upstreamUrls, UpstreamGroup.BalancingPolicy.LEAST_OUTSTANDING_REQUESTS);
+
+    int closedPort;
+    try (var serverSocket = new ServerSocket(0)) {
+      closedPort = serverSocket.getLocalPort();
+    }
+    deadGroup = new UpstreamGroup(List.of("http://127.0.0.1:" + closedPort), UpstreamGroup.BalancingPolicy.ROUND_ROBIN);
+    slowGroup = new UpstreamGroup(List.of(baseUrl + "/a"), UpstreamGroup.BalancingPolicy.ROUND_ROBIN,
+        AsyncHttpClient.DEFAULT_MAX_IDLE_CONNECTIONS_PER_HOST, 500);
+  }
+
+  @After
+  public void tearDown() {
+    client.close();
+    roundRobinGroup.close();
+    leastOutstandingGroup.close();
+    deadGroup.close();
+    slowGroup.close();
+    if (rawGroup != null) {
+      rawGroup.close();
+    }
+  }
+
+  /**
+   * Run the loop, which serves the client, the proxy and the upstream servers, until the future completes
+   */
+  private <T> T runLoop(CompletableFuture<T> future) throws InterruptedException, ExecutionException {
+    future.whenComplete((result, throwable) -> EventLoop.getInstance().stop());
+    EventLoop.getInstance().start();
+    return future.get();
+  }
+
+  private CompletableFuture<String> fetchBody(String path) {
+    return client.fetch(baseUrl + path).thenApply(HttpClientResponse::getBodyAsString);
+  }
+
+  @Test
+  public void relayStreamedBodies() throws Exception {
+    // The request body is streamed by the client, so it is chunked, and the proxy streams it upstream as it arrives
+    var headers = new HttpHeaders();
+    headers.add(HTTP_HEADER_KEY_CONNECTION, "X-Private");
+    headers.add("X-Private", "secret");
+    var postRequest = new HttpClientRequest(baseUrl + "/rr/echo", HttpMethod.POST, headers, null);
+    postRequest.setBodyStreamed();
+    postRequest.writeBody("Hello ".getBytes(StandardCharsets.UTF_8));
+    var postResponse = client.fetch(postRequest);
+    postRequest.writeBody("proxy".getBytes(StandardCharsets.UTF_8));
+    postRequest.endBody();
+    Assert.assertEquals("127.0.0.1:" + TcpServer.getServerSocketChannel().socket().getLocalPort()
+        + " false Hello proxy", runLoop(postResponse).getBodyAsString());
+
+    // The chunked response is relayed to a listener part by part, with its status and end-to-end headers
+    var chunkedRequest = new HttpClientRequest(baseUrl + "/rr/chunked");
+    var receivedHeaders = new ArrayList<HttpClientResponse>();
+    var receivedBody = new ByteArrayOutputStream();
+    chunkedRequest.setResponseListener(new HttpClientResponseListener() {
+      @Override
+      public void headersReceived(HttpClientResponse response) {
+        receivedHeaders.add(response);
+      }
+
+      @Override
+      public void dataReceived(byte[] data) {
+        receivedBody.writeBytes(data);
+      }
+    });
+    var chunkedResponse = runLoop(client.fetch(chunkedRequest));
+    Assert.assertSame(chunkedResponse, receivedHeaders.get(0));
+    Assert.assertEquals(201, chunkedResponse.getCode());
+    Assert.assertEquals("b", chunkedResponse.getHeaders().getValue("X-Upstream"));
+    Assert.assertFalse(chunkedResponse.getHeaders().contains("X-Private"));
+    Assert.assertEquals(HTTP_HEADER_TRANSFER_ENCODING_VALUE_CHUNKED,
+        chunkedResponse.getHeaders().getValue(HTTP_HEADER_KEY_TRANSFER_ENCODING));
+    Assert.assertEquals("Hello chunked", receivedBody.toString(StandardCharsets.UTF_8));
+    Assert.assertEquals(0, chunkedResponse.getBody().length);
+  }
+
+  @Test
+  public void balanceRequests() throws Exception {
+    var upstreams = new ArrayList<String>();
+    runLoop(fetchBody("/rr/who")
+        .thenCompose(body -> {
+          upstreams.add(body);
+          return fetchBody("/rr/who");
+        })
+        .thenCompose(body -> {
+          upstreams.add(body);
+          return fetchBody("/rr/who");
+        })
+        .thenAccept(upstreams::add));
+    Assert.assertEquals(List.of("a", "b", "a"), upstreams);
+
+    // While "a" holds a request, the others go to "b"
+    upstreams.clear();
+    var holdResponse = fetchBody("/lor/hold");
+    runLoop(holdStarted
+        .thenCompose(result -> fetchBody("/lor/who"))
+        .thenCompose(body -> {
+          upstreams.add(body);
+          return fetchBody("/lor/who");
+        })
+        .thenAccept(body -> {
+          upstreams.add(body);
+          upstreams.add(Integer.toString(leastOutstandingGroup.getUpstreams().get(0).getOutstandingRequestsCount()));
+          holdReleased.complete(null);
+        }));
+    Assert.assertEquals("released", runLoop(holdResponse));
+    Assert.assertEquals(List.of("b", "b", "1"), upstreams);
+    for (var upstream : leastOutstandingGroup.getUpstreams()) {
+      Assert.assertEquals(0, upstream.getOutstandingRequestsCount());
+    }
+  }
+
+  @Test
+  public void answerUpstreamFailures() throws Exception {
+    var codes = new ArrayList<Integer>();
+    runLoop(client.fetch(baseUrl + "/dead/who")
+        .thenCompose(response -> {
+          codes.add(response.getCode());
+          return client.fetch(baseUrl + "/slow/hang");
+        })
+        .thenAccept(response -> codes.add(response.getCode())));
+    Assert.assertEquals(List.of(502, 504), codes);
+
+    Assert.assertEquals(HttpStatus.FOUND, HttpStatus.fromCode(302));
+    Assert.assertNull(HttpStatus.fromCode(299));
+    Assert.assertNull(HttpStatus.fromCode(101));
+  }
+
+  @Test
+  public void relayStatusAsItIs() throws Exception {
+    // Codes that HttpStatus does not define keep their code and reason phrase, e.g., a method preserving redirect
+    var redirectRequest = new HttpClientRequest(baseUrl + "/rr/redirect", HttpMethod.POST, new HttpHeaders(),
+        "body".getBytes(StandardCharsets.UTF_8));
+    var responses = runLoop(client.fetch(redirectRequest)
+        .thenCombine(client.fetch(baseUrl + "/rr/busy"), List::of));
+
+    var redirectResponse = responses.get(0);
+    Assert.assertEquals(307, redirectResponse.getCode());
+    Assert.assertEquals("Temporary Redirect", redirectResponse.getReasonPhrase());
+    Assert.assertEquals("/elsewhere", redirectResponse.getHeaders().getValue("Location"));
+
+    var busyResponse = responses.get(1);
+    Assert.assertEquals(429, busyResponse.getCode());
+    Assert.assertEquals("Slow Down", busyResponse.getReasonPhrase());
+    Assert.assertEquals("1", busyResponse.getHeaders().getValue("Retry-After"));
+    Assert.assertEquals("busy", busyResponse.getBodyAsString());
+  }
+
+  @Test
+  public void relayWithBackpressure() throws Exception {
+    var bodySize = 16 * 1024 * 1024;
+    var stallMillis = 500;
+    var requestBody = new byte[bodySize];
+    for (int i = 0; i < bodySize; i++) {
+      requestBody[i] = (byte) (i % 251);
+    }
+
+    var executor = Executors.newFixedThreadPool(2);
+    try (var upstreamSocket = new ServerSocket(0)) {
+      rawGroup = new UpstreamGroup(List.of("http://127.0.0.1:" + upstreamSocket.getLocalPort()),
+          UpstreamGroup.BalancingPolicy.ROUND_ROBIN);
+
+      // The upstream server stalls before it reads the request body, then echoes the body back
+      executor.submit(() -> {
+        try (var socket = upstreamSocket.accept()) {
+          var inputStream = socket.getInputStream();
+          var headers = new ByteArrayOutputStream();
+          while (!headers.toString(StandardCharsets.US_ASCII).endsWith("\r\n\r\n")) {
+            headers.write(inputStream.read());
+          }
+          Thread.sleep(stallMillis);
+          var body = inputStream.readNBytes(bodySize);
+
+          var outputStream = socket.getOutputStream();
+          outputStream.write(("HTTP/1.1 200 OK\r\nContent-Length: " + body.length + "\r\n\r\n")
+              .getBytes(StandardCharsets.US_ASCII));
+          outputStream.write(body);
+        }
+        return null;
+      });
+
+      // The client stalls before it reads the response
+      var port = TcpServer.getServerSocketChannel().socket().getLocalPort();
+      var response = CompletableFuture.supplyAsync(() -> {
+        try (var socket = new Socket()) {
+          socket.setReceiveBufferSize(16384);
+          socket.connect(new InetSocketAddress("127.0.0.1", port));
+          socket.getOutputStream().write(("POST /raw/echo HTTP/1.1\r\nContent-Length: " + bodySize + "\r\n\r\n")
+              .getBytes(StandardCharsets.US_ASCII));
+          socket.getOutputStream().write(requestBody);
+          Thread.sleep(stallMillis);
+          return readResponse(socket, true);
+        } catch (IOException | InterruptedException e) {
+          throw new CompletionException(e);
+        }
+      }, executor);
+
+      // While either side stalls, the proxy buffers no more than about the high watermark for it
+      var maxCachedBytes = new AtomicLong();
+      var loop = EventLoop.getInstance();
+      loop.addTimeEvent(new TimeEvent(System.currentTimeMillis(), new TcpCallback() {
+        @Override
+        public void run(Object[] args) {
+          for (var connection : loop.getClientConnections().values()) {
+            maxCachedBytes.accumulateAndGet(connection.getWriteManager().getCachedBytesCount(), Math::max);
+          }
+          if (!response.isDone()) {
+            loop.addTimeEvent(new TimeEvent(System.currentTimeMillis() + 5, this));
+          }
+        }
+      }));
+
+      var result = runLoop(response);
+      Assert.assertEquals(200, result.status);
+      Assert.assertArrayEquals(requestBody, result.body);
+      Assert.assertTrue("Proxy buffered [" + maxCachedBytes.get() + "] bytes", maxCachedBytes.get() < 1024 * 1024);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -1,8 +1,11 @@
 package com.hurricane.hurricane.web;
 
 import com.hurricane.hurricane.common.EventLoop;
+import com.hurricane.hurricane.common.EventLoopGroup;
+import com.hurricane.hurricane.http.HttpConnection;
 import com.hurricane.hurricane.http.HttpException;
 import com.hurricane.hurricane.http.HttpRequest;
+import com.hurricane.hurricane.http.HttpStatus;
 import com.hurricane.hurricane.utility.TcpUtil;
 import java.io.IOException;
 import java.net.Socket;
@@ -10,9 +13,14 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -98,4 +106,292 @@ public class RequestHandlerTest {
     // wait for all threads in the pool finish
     latch.await();
   }
-}
\ No newline at end of file
+
+  @Test
+  public void handleGetMethodWithChunkedStreaming() throws IOException, InterruptedException {
+    // Set up HTTP server, whose handler flushes part of the response before it is complete
+    RequestHandler requestHandler = new RequestHandler() {
+      @Override
+      protected void handleGetMethod(HttpRequest request) throws HttpException {
+        write("Hello ");
+        flush(request);
+        write("World!");
+        servedClientCount += 1;
+      }
+    };
+
+    var application = new Application(Collections.singletonList(new UrlSpec(".*", requestHandler)));
+    spinUpHttpServer(application);
+    clients = TcpUtil.prepareConnectedClients(CLIENT_COUNT);
+
+    // The body is sent in chunks, ended by the last chunk of size 0
+    var httpRequestData = "GET /hurricane/test/ HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8);
+    var expectedResponse = "HTTP/1.1 200 OK\r\n" + "Transfer-Encoding: chunked\r\n\r\n" + "6\r\nHello \r\n"
+        + "6\r\nWorld!\r\n" + "0\r\n\r\n";
+    for (var client : clients) {
+      executeService.submit(() -> {
+        TcpUtil.clientSendData(client, httpRequestData);
+        TcpUtil.clientShouldReceiveData(client, expectedResponse);
+        latch.countDown();
+        if (latch.getCount() == 0) {
+          EventLoop.getInstance().stop();
+        }
+
+        return null;
+      });
+    }
+
+    EventLoop.getInstance().start();
+    Assert.assertEquals(CLIENT_COUNT, servedClientCount);
+    latch.await();
+  }
+
+  /**
+   * The global EventLoop accepts the clients and hands the connections over to a loop of a group, which runs in its own
+   * thread and serves the requests.
+   */
+  @Test
+  public void handleGetMethodWithEventLoopGroup() throws IOException, InterruptedException {
+    var response = "Hello World!";
+    var servedCount = new AtomicInteger();
+    var handlerThreads = new ConcurrentLinkedQueue<String>();
+
+    // Set up HTTP server
+    RequestHandler requestHandler = new RequestHandler() {
+      @Override
+      protected void handleGetMethod(HttpRequest request) throws HttpException {
+        write(response);
+        handlerThreads.add(Thread.currentThread().getName());
+        servedCount.incrementAndGet();
+      }
+    };
+
+    var eventLoopGroup = new EventLoopGroup(1);
+    eventLoopGroup.start();
+    var application = new Application(Collections.singletonList(new UrlSpec(".*", requestHandler)));
+    spinUpHttpServer(application, eventLoopGroup);
+    clients = TcpUtil.prepareConnectedClients(CLIENT_COUNT);
+
+    // Clients send data of test HTTP header to the HTTP server
+    var httpRequestData = "GET /hurricane/test/ HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8);
+    var expectedResponse = "HTTP/1.1 200 OK\r\n" + "Content-Length: 12\r\n\r\n" + response;
+    for (var client : clients) {
+      executeService.submit(() -> {
+        TcpUtil.clientSendData(client, httpRequestData);
+        TcpUtil.clientShouldReceiveData(client, expectedResponse);
+        latch.countDown();
+        if (latch.getCount() == 0) {
+          EventLoop.getInstance().stop();
+        }
+
+        return null;
+      });
+    }
+
+    // The global loop only accepts connections, the requests are served in the thread of the group
+    EventLoop.getInstance().start();
+    latch.await();
+    eventLoopGroup.stop();
+    eventLoopGroup.awaitTermination(EventLoop.DEFAULT_SELECT_TIMEOUT);
+
+    Assert.assertEquals(CLIENT_COUNT, servedCount.get());
+    for (var threadName : handlerThreads) {
+      Assert.assertEquals("hurricane-event-loop-0", threadName);
+    }
+  }
+
+  @Test
+  public void handleGetMethodWithReusePort() throws IOException, InterruptedException {
+    var response = "HTTP/1.1 200 OK\r\n" + "Content-Length: 12\r\n\r\n" + "Hello World!";
+    var servedCount = new AtomicInteger();
+    var handlerThreads = new ConcurrentLinkedQueue<String>();
+
+    // Set up HTTP server. The handler writes the response directly, so it can be shared by the loops.
+    RequestHandler requestHandler = new RequestHandler() {
+      @Override
+      public void run(HttpConnection connection, HttpRequest request) {
+        request.write(response.getBytes(StandardCharsets.UTF_8));
+        request.finish();
+        handlerThreads.add(Thread.currentThread().getName());
+        servedCount.incrementAndGet();
+      }
+    };
+
+    var eventLoopGroup = new EventLoopGroup(2);
+    eventLoopGroup.start();
+    var application = new Application(Collections.singletonList(new UrlSpec(".*", requestHandler)));
+    spinUpHttpServer(application, eventLoopGroup, true);
+    clients = TcpUtil.prepareConnectedClients(CLIENT_COUNT);
+
+    // Clients send data of test HTTP header to the HTTP server
+    var httpRequestData = "GET /hurricane/test/ HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8);
+    for (var client : clients) {
+      executeService.submit(() -> {
+        TcpUtil.clientSendData(client, httpRequestData);
+        TcpUtil.clientShouldReceiveData(client, response);
+        latch.countDown();
+        return null;
+      });
+    }
+
+    // Each loop accepts from its own listening socket, so the global loop does not need to run
+    latch.await();
+    eventLoopGroup.stop();
+    eventLoopGroup.awaitTermination(EventLoop.DEFAULT_SELECT_TIMEOUT);
+
+    Assert.assertEquals(CLIENT_COUNT, servedCount.get());
+    for (var threadName : handlerThreads) {
+      Assert.assertTrue(threadName.startsWith("hurricane-event-loop-"));
+    }
+  }
+
+  @Test
+  public void handleGetMethodWithExecutor() throws IOException, InterruptedException {
+    var response = "Hello World!";
+    var servedCount = new AtomicInteger();
+    var handlerThreads = new ConcurrentLinkedQueue<String>();
+
+    // Set up HTTP server, whose handler blocks for a while in worker threads
+    RequestHandler requestHandler = new RequestHandler() {
+      @Override
+      protected void handleGetMethod(HttpRequest request) throws HttpException {
+        try {
+          Thread.sleep(10);
+        } catch (InterruptedException e) {
+          throw new HttpException(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        write(response);
+        handlerThreads.add(Thread.currentThread().getName());
+        servedCount.incrementAndGet();
+      }
+    };
+
+    var executor = HandlerExecutors.newBoundedPool(2, CLIENT_COUNT);
+    var application = new Application(Collections.singletonList(new UrlSpec(".*", requestHandler, executor)));
+    spinUpHttpServer(application);
+    clients = TcpUtil.prepareConnectedClients(CLIENT_COUNT);
+
+    // Clients send data of test HTTP header to the HTTP server
+    var httpRequestData = "GET /hurricane/test/ HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8);
+    var expectedResponse = "HTTP/1.1 200 OK\r\n" + "Content-Length: 12\r\n\r\n" + response;
+    for (var client : clients) {
+      executeService.submit(() -> {
+        TcpUtil.clientSendData(client, httpRequestData);
+        TcpUtil.clientShouldReceiveData(client, expectedResponse);
+        latch.countDown();
+        if (latch.getCount() == 0) {
+          EventLoop.getInstance().stop();
+        }
+
+        return null;
+      });
+    }
+
+    EventLoop.getInstance().start();
+    latch.await();
+    executor.shutdown();
+
+    Assert.assertEquals(CLIENT_COUNT, servedCount.get());
+    for (var threadName : handlerThreads) {
+      Assert.assertTrue(threadName.startsWith(HandlerExecutors.WORKER_THREAD_NAME_PREFIX));
+    }
+  }
+
+  @Test
+  public void handleGetMethodConcurrentlyWithHandlerFactory() throws IOException, InterruptedException {
+    var response = "Hello World!";
+    var clientCount = 2;
+    var handlers = Collections.newSetFromMap(new ConcurrentHashMap<RequestHandler, Boolean>());
+
+    // Each request gets its own handler, and the handlers wait until both requests are being handled
+    var arrived = new CountDownLatch(clientCount);
+    var executor = HandlerExecutors.newBoundedPool(clientCount, clientCount);
+    var application = new Application(Collections.singletonList(UrlSpec.of(".*", () -> new RequestHandler() {
+      @Override
+      protected void handleGetMethod(HttpRequest request) throws HttpException {
+        handlers.add(this);
+        arrived.countDown();
+        try {
+          if (!arrived.await(5, TimeUnit.SECONDS)) {
+            throw new HttpException(HttpStatus.INTERNAL_SERVER_ERROR);
+          }
+        } catch (InterruptedException e) {
+          throw new HttpException(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        write(response);
+      }
+    }, executor)));
+    spinUpHttpServer(application);
+    clients = TcpUtil.prepareConnectedClients(clientCount);
+    latch = new CountDownLatch(clientCount);
+
+    var httpRequestData = "GET /hurricane/test/ HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8);
+    var expectedResponse = "HTTP/1.1 200 OK\r\n" + "Content-Length: 12\r\n\r\n" + response;
+    for (var client : clients) {
+      executeService.submit(() -> {
+        TcpUtil.clientSendData(client, httpRequestData);
+        TcpUtil.clientShouldReceiveData(client, expectedResponse);
+        latch.countDown();
+        if (latch.getCount() == 0) {
+          EventLoop.getInstance().stop();
+        }
+
+        return null;
+      });
+    }
+
+    EventLoop.getInstance().start();
+    latch.await();
+    executor.shutdown();
+
+    Assert.assertEquals(clientCount, handlers.size());
+  }
+
+  @Test
+  public void handleGetMethodAsync() throws Exception {
+    var backend = Executors.newSingleThreadScheduledExecutor();
+
+    // The responses are produced by another thread later, and "/fail" fails asynchronously
+    var application = new Application(Collections.singletonList(UrlSpec.of("/([a-z]+)", () -> new RequestHandler() {
+      @Override
+      protected CompletableFuture<?> handleGetMethodAsync(HttpRequest request) throws HttpException {
+        var name = request.getPathArgs().get(0);
+        var future = new CompletableFuture<Void>();
+        backend.schedule(() -> {
+          if (name.equals("fail")) {
+            future.completeExceptionally(new HttpException(HttpStatus.SERVICE_UNAVAILABLE));
+          } else {
+            write("Hello " + name);
+            future.complete(null);
+          }
+        }, name.equals("slow") ? 200 : 10, TimeUnit.MILLISECONDS);
+        return future;
+      }
+    })));
+    spinUpHttpServer(application);
+    var client = TcpUtil.prepareConnectedClients(1).get(0);
+
+    // Requests are pipelined, so the responses are still in order although the first one completes last
+    var result = executeService.submit(() -> {
+      try {
+        var requests = "GET /slow HTTP/1.1\r\n\r\nGET /fail HTTP/1.1\r\n\r\nGET /fast HTTP/1.1\r\n\r\n";
+        TcpUtil.clientSendData(client, requests.getBytes(StandardCharsets.UTF_8));
+        return new Response[]{readResponse(client, true), readResponse(client, true), readResponse(client, true)};
+      } finally {
+        EventLoop.getInstance().stop();
+      }
+    });
+
+    EventLoop.getInstance().start();
+    var responses = result.get();
+    backend.shutdown();
+
+    Assert.assertEquals(200, responses[0].status);
+    Assert.assertEquals("Hello slow", new String(responses[0].body, StandardCharsets.UTF_8));
+    Assert.assertEquals(503, responses[1].status);
+    Assert.assertEquals(200, responses[2].status);
+    Assert.assertEquals("Hello fast", new String(responses[2].body, StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,97 @@
+package com.hurricane.hurricane.web;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class RouterTest {
+
+  private static List<UrlSpec> createUrlSpecs(String... patterns) {
+    var urlSpecs = new ArrayList<UrlSpec>();
+    for (var pattern : patterns) {
+      urlSpecs.add(new UrlSpec(pattern, null));
+    }
+    return urlSpecs;
+  }
+
+  /**
+   * Find the first URL spec that matches the path by trying them in order
+   */
+  private static UrlSpec findLinearly(List<UrlSpec> urlSpecs, String path) {
+    for (var urlSpec : urlSpecs) {
+      if (urlSpec.getPattern().matcher(path).matches()) {
+        return urlSpec;
+      }
+    }
+    return null;
+  }
+
+  @Test
+  public void findLiteralAndPatternSegments() {
+    var urlSpecs = createUrlSpecs("/", "/users", "/users/([0-9]+)", "/users/([0-9]+)/posts/([a-z-]+)",
+        "/users/new", "/files/index\\.html");
+    var router = new Router(urlSpecs);
+
+    Assert.assertSame(urlSpecs.get(0), router.find("/").getUrlSpec());
+    Assert.assertSame(urlSpecs.get(1), router.find("/users").getUrlSpec());
+    Assert.assertSame(urlSpecs.get(4), router.find("/users/new").getUrlSpec());
+    Assert.assertSame(urlSpecs.get(5), router.find("/files/index.html").getUrlSpec());
+    Assert.assertNull(router.find("/files/indexhtml"));
+    Assert.assertNull(router.find("/users/"));
+    Assert.assertNull(router.find("/users/12/posts"));
+
+    var match = router.find("/users/12/posts/hello-world");
+    Assert.assertSame(urlSpecs.get(3), match.getUrlSpec());
+    Assert.assertEquals(Arrays.asList("12", "hello-world"), match.getPathArgs());
+    Assert.assertEquals(List.of("34"), router.find("/users/34").getPathArgs());
+    Assert.assertTrue(router.find("/users").getPathArgs().isEmpty());
+  }
+
+  @Test
+  public void keepOrderOfUrlSpecs() {
+    var urlSpecs = createUrlSpecs("/api/([a-z]+)", "/api/users", "/static/(.*)", "/static/robots\\.txt", ".*");
+    var router = new Router(urlSpecs);
+
+    // The first matched URL spec wins, even if a later one is a literal
+    Assert.assertSame(urlSpecs.get(0), router.find("/api/users").getUrlSpec());
+    Assert.assertSame(urlSpecs.get(2), router.find("/static/robots.txt").getUrlSpec());
+    Assert.assertEquals(List.of("css/site.css"), router.find("/static/css/site.css").getPathArgs());
+    Assert.assertSame(urlSpecs.get(4), router.find("/api/v1").getUrlSpec());
+    Assert.assertSame(urlSpecs.get(4), router.find("").getUrlSpec());
+  }
+
+  @Test
+  public void matchSameUrlSpecsAsLinearScan() {
+    var urlSpecs = createUrlSpecs("/a/b", "/a/?", "/a/(b|c)/d", "/a|/b/c", "/x/[!-9]+", "/x/[^/]+/y",
+        "/(a/b)/c", "/p/(\\d{2,3})", "/p/(\\w+)\\.json", "/q/.+/r", "/q/[a-c-]*", "(?i)/CASE");
+    var router = new Router(urlSpecs);
+
+    var paths = new String[]{"/a/b", "/a", "/a/", "/a/c/d", "/a/b/d", "/b/c", "/x/12", "/x/./", "/x/ab/y", "/a/b/c",
+        "/p/12", "/p/1234", "/p/abc.json", "/p/a_1.json", "/q/1/2/r", "/q/abc-", "/q/d", "/case", "/CASE", "/nothing"};
+    for (var path : paths) {
+      var expected = findLinearly(urlSpecs, path);
+      var match = router.find(path);
+      Assert.assertSame(path, expected, match == null ? null : match.getUrlSpec());
+    }
+  }
+
+  @Test
+  public void splitPatterns() {
+    Assert.assertEquals(Arrays.asList("", "a", "(b/c)", "[/]"), Router.splitPattern("/a/(b/c)/[/]"));
+    Assert.assertNull(Router.splitPattern("/a|/b"));
+
+    Assert.assertTrue(Router.isSplittable("([0-9]{4})"));
+    Assert.assertTrue(Router.isSplittable("(\\w+)\\.html"));
+    Assert.assertFalse(Router.isSplittable(".*"));
+    Assert.assertFalse(Router.isSplittable("[^a]+"));
+    Assert.assertFalse(Router.isSplittable("[!-9]+"));
+    Assert.assertFalse(Router.isSplittable("(?:a)"));
+    Assert.assertFalse(Router.isSplittable("?"));
+
+    Assert.assertEquals("index.html", Router.unescapeLiteral("index\\.html"));
+    Assert.assertNull(Router.unescapeLiteral("(index)"));
+  }
+}
@@ -0,0 +1,221 @@
+package com.hurricane.hurricane.web;
+
+import com.hurricane.hurricane.common.EventLoop;
+import com.hurricane.hurricane.utility.TcpUtil;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.hurricane.hurricane.utility.HttpUtil.*;
+
+
+public class StaticFileHandlerTest {
+
+  /**
+   * Size of the test file, large enough that it can not be written to the socket at once
+   */
+  private static final int FILE_SIZE = 4 * 1024 * 1024;
+
+  private Path rootDirectory;
+
+  private byte[] fileContent;
+
+  private ExecutorService executeService;
+
+  private MappedFileCache fileCache;
+
+  @Before
+  public void setUp() throws IOException {
+    executeService = Executors.newSingleThreadExecutor();
+    rootDirectory = Files.createTempDirectory("hurricane-static");
+    fileContent = new byte[FILE_SIZE];
+    new Random(7).nextBytes(fileContent);
+    Files.write(rootDirectory.resolve("data.bin"), fileContent);
+    Files.write(rootDirectory.resolve("index.html"), "<html></html>".getBytes(StandardCharsets.UTF_8));
+
+    fileCache = new MappedFileCache();
+    var application = new Application(
+        Arrays.asList(new UrlSpec("/static/.*", new StaticFileHandler(rootDirectory.toString(), "/static/")),
+            new UrlSpec("/cached/.*", new StaticFileHandler(rootDirectory.toString(), "/cached/", fileCache)),
+            StaticFileHandler.urlSpec("/pooled/.*", rootDirectory.toString(), "/pooled/")));
+    spinUpHttpServer(application);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    executeService.shutdown();
+    for (var file : new String[]{"data.bin", "index.html"}) {
+      Files.deleteIfExists(rootDirectory.resolve(file));
+    }
+    Files.deleteIfExists(rootDirectory);
+  }
+
+  /**
+   * Run the client in another thread while the global EventLoop serves it, and return what the client returns
+   */
+  private <T> T runClient(Callable<T> client) throws Exception {
+    Future<T> result = executeService.submit(() -> {
+      try {
+        return client.call();
+      } finally {
+        EventLoop.getInstance().stop();
+      }
+    });
+
+    EventLoop.getInstance().start();
+    return result.get();
+  }
+
+  @Test
+  public void serveFiles() throws Exception {
+    var client = TcpUtil.prepareConnectedClients(1).get(0);
+    var responses = runClient(() -> {
+      // Requests are sent on the same connection, so the file region must be written completely before the next one
+      TcpUtil.clientSendData(client, "GET /static/data.bin HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+      var fileResponse = readResponse(client, true);
+      TcpUtil.clientSendData(client, "HEAD /static/index.html HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+      var headResponse = readResponse(client, false);
+      TcpUtil.clientSendData(client, "GET /static/index.html HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+      var htmlResponse = readResponse(client, true);
+      return new Response[]{fileResponse, headResponse, htmlResponse};
+    });
+
+    Assert.assertEquals(200, responses[0].status);
+    Assert.assertEquals(StaticFileHandler.DEFAULT_CONTENT_TYPE, responses[0].headers.get("Content-Type"));
+    Assert.assertArrayEquals(fileContent, responses[0].body);
+
+    Assert.assertEquals(200, responses[1].status);
+    Assert.assertEquals("13", responses[1].headers.get("Content-Length"));
+
+    Assert.assertEquals("text/html; charset=utf-8", responses[2].headers.get("Content-Type"));
+    Assert.assertEquals("<html></html>", new String(responses[2].body, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void fileNotFound() throws Exception {
+    var client = TcpUtil.prepareConnectedClients(1).get(0);
+    var responses = runClient(() -> {
+      TcpUtil.clientSendData(client, "GET /static/missing.txt HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+      var missingResponse = readResponse(client, true);
+      TcpUtil.clientSendData(client, "GET /static/../secret HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+      var outsideResponse = readResponse(client, true);
+      TcpUtil.clientSendData(client, "POST /static/index.html HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+      var postResponse = readResponse(client, true);
+      return new Response[]{missingResponse, outsideResponse, postResponse};
+    });
+
+    Assert.assertEquals(404, responses[0].status);
+    Assert.assertEquals(404, responses[1].status);
+    Assert.assertEquals(405, responses[2].status);
+  }
+
+  @Test
+  public void serveRangesAndConditionalRequests() throws Exception {
+    var client = TcpUtil.prepareConnectedClients(1).get(0);
+    var responses = runClient(() -> {
+      TcpUtil.clientSendData(client, "GET /static/index.html HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+      var fullResponse = readResponse(client, true);
+      var etag = fullResponse.headers.get("ETag");
+      var lastModified = fullResponse.headers.get("Last-Modified");
+
+      var requests = new String[]{
+          "GET /static/index.html HTTP/1.1\r\nIf-None-Match: \"other\", " + etag + "\r\n\r\n",
+          "GET /static/index.html HTTP/1.1\r\nIf-Modified-Since: " + lastModified + "\r\n\r\n",
+          "GET /static/index.html HTTP/1.1\r\nRange: bytes=1-4\r\n\r\n",
+          "GET /static/index.html HTTP/1.1\r\nRange: bytes=-7\r\nIf-Range: " + etag + "\r\n\r\n",
+          "GET /static/index.html HTTP/1.1\r\nRange: bytes=0-1\r\nIf-Range: \"stale\"\r\n\r\n",
+          "GET /static/index.html HTTP/1.1\r\nRange: bytes=100-\r\n\r\n",
+          "GET /static/index.html HTTP/1.1\r\nIf-Match: \"stale\"\r\n\r\n"};
+      var result = new Response[requests.length + 1];
+      result[0] = fullResponse;
+      for (int i = 0; i < requests.length; i++) {
+        TcpUtil.clientSendData(client, requests[i].getBytes(StandardCharsets.UTF_8));
+        result[i + 1] = readResponse(client, true);
+      }
+      return result;
+    });
+
+    Assert.assertEquals(200, responses[0].status);
+    Assert.assertEquals("bytes", responses[0].headers.get("Accept-Ranges"));
+
+    // The client has the current version
+    Assert.assertEquals(304, responses[1].status);
+    Assert.assertNull(responses[1].headers.get("Content-Length"));
+    Assert.assertEquals(304, responses[2].status);
+
+    // Byte ranges
+    Assert.assertEquals(206, responses[3].status);
+    Assert.assertEquals("bytes 1-4/13", responses[3].headers.get("Content-Range"));
+    Assert.assertEquals("html", new String(responses[3].body, StandardCharsets.UTF_8));
+    Assert.assertEquals(206, responses[4].status);
+    Assert.assertEquals("</html>", new String(responses[4].body, StandardCharsets.UTF_8));
+
+    // The range is ignored if the file has changed
+    Assert.assertEquals(200, responses[5].status);
+    Assert.assertEquals("<html></html>", new String(responses[5].body, StandardCharsets.UTF_8));
+
+    Assert.assertEquals(416, responses[6].status);
+    Assert.assertEquals("bytes */13", responses[6].headers.get("Content-Range"));
+    Assert.assertEquals(412, responses[7].status);
+  }
+
+  @Test
+  public void serveFilesFromCache() throws Exception {
+    var client = TcpUtil.prepareConnectedClients(1).get(0);
+    var responses = runClient(() -> {
+      var requests = new String[]{"GET /cached/index.html HTTP/1.1\r\n\r\n",
+          "GET /cached/index.html HTTP/1.1\r\nRange: bytes=6-\r\n\r\n", "GET /cached/data.bin HTTP/1.1\r\n\r\n"};
+      var result = new Response[requests.length];
+      for (int i = 0; i < requests.length; i++) {
+        TcpUtil.clientSendData(client, requests[i].getBytes(StandardCharsets.UTF_8));
+        result[i] = readResponse(client, true);
+      }
+      return result;
+    });
+
+    // Small files are cached, and served with the same headers as files sent from the disk
+    Assert.assertEquals(200, responses[0].status);
+    Assert.assertEquals("<html></html>", new String(responses[0].body, StandardCharsets.UTF_8));
+    Assert.assertEquals(206, responses[1].status);
+    Assert.assertEquals("</html>", new String(responses[1].body, StandardCharsets.UTF_8));
+    Assert.assertEquals(1, fileCache.size());
+
+    // Large files are sent from the disk
+    Assert.assertArrayEquals(fileContent, responses[2].body);
+    Assert.assertEquals(13, fileCache.getTotalSize());
+  }
+
+  @Test
+  public void serveFilesOffLoop() throws Exception {
+    var fileExecutor = (ThreadPoolExecutor) StaticFileHandler.getDefaultFileExecutor();
+    var taskCount = fileExecutor.getTaskCount();
+    var client = TcpUtil.prepareConnectedClients(1).get(0);
+    var responses = runClient(() -> {
+      var requests = new String[]{"GET /pooled/data.bin HTTP/1.1\r\n\r\n", "GET /pooled/missing.txt HTTP/1.1\r\n\r\n"};
+      var result = new Response[requests.length];
+      for (int i = 0; i < requests.length; i++) {
+        TcpUtil.clientSendData(client, requests[i].getBytes(StandardCharsets.UTF_8));
+        result[i] = readResponse(client, true);
+      }
+      return result;
+    });
+
+    // The files are checked and opened by the worker pool, and their content is still sent by the loop
+    Assert.assertEquals(200, responses[0].status);
+    Assert.assertArrayEquals(fileContent, responses[0].body);
+    Assert.assertEquals(404, responses[1].status);
+    Assert.assertEquals(taskCount + 2, fileExecutor.getTaskCount());
+  }
+}